@@ -19,6 +19,8 @@
 package org.jdesktop.swingx;
 
 import java.awt.Dimension;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.util.Locale;
@@ -29,6 +31,7 @@ import javax.swing.JCheckBox;
 import javax.swing.JLabel;
 import javax.swing.JTextField;
 import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
 
@@ -63,6 +66,8 @@ public abstract class AbstractPatternPanel extends JXPanel {
     public static final String SEARCH_TITLE = "searchTitle";
 	/** property name for nls command */
     public static final String MATCH_ACTION_COMMAND = "match";
+    /** the default delay in milliseconds of an incremental match after typing */
+    public static final int DEFAULT_INCREMENTAL_SEARCH_DELAY = 50;
 
     static {
         // Hack to enforce loading of SwingX framework ResourceBundle
@@ -89,6 +94,10 @@ public abstract class AbstractPatternPanel extends JXPanel {
     
     private ActionContainerFactory actionFactory;
 
+    private int incrementalSearchDelay = DEFAULT_INCREMENTAL_SEARCH_DELAY;
+
+    private Timer incrementalSearchTimer;
+
 
 //------------------------ actions
 
@@ -264,13 +273,71 @@ public abstract class AbstractPatternPanel extends JXPanel {
      * called from listening to pattern property of PatternModel.
      * 
      * This implementation calls match() if the model is in
-     * incremental state.
+     * incremental state, after the incremental search delay. Pattern
+     * changes during the delay restart it, so fast typing is 
+     * matched once.
      *
+     * @see #getIncrementalSearchDelay()
      */
     protected void refreshPatternFromModel() {
         if (getPatternModel().isIncremental()) {
-            match();
+            int delay = getIncrementalSearchDelay();
+            if (delay <= 0) {
+                match();
+                return;
+            }
+            getIncrementalSearchTimer().setInitialDelay(delay);
+            getIncrementalSearchTimer().restart();
+        }
+    }
+
+    /**
+     * Returns the delay of an incremental match after the pattern has changed. 
+     * If the search field is a JXSearchField, that is its instant search delay.
+     * 
+     * @return the delay in milliseconds
+     * @see #setIncrementalSearchDelay(int)
+     * @see JXSearchField#getInstantSearchDelay()
+     */
+    public int getIncrementalSearchDelay() {
+        if (searchField instanceof JXSearchField) {
+            return ((JXSearchField) searchField).getInstantSearchDelay();
+        }
+        return incrementalSearchDelay;
+    }
+
+    /**
+     * Sets the delay of an incremental match after the pattern has changed.
+     * A delay of 0 or less matches immediately. Not used if the search field
+     * is a JXSearchField.
+     * 
+     * @param incrementalSearchDelay the delay in milliseconds
+     */
+    public void setIncrementalSearchDelay(int incrementalSearchDelay) {
+        int old = this.incrementalSearchDelay;
+        this.incrementalSearchDelay = incrementalSearchDelay;
+        firePropertyChange("incrementalSearchDelay", old, incrementalSearchDelay);
+    }
+
+    /**
+     * Returns the Timer used to delay incremental matches. Subclasses which 
+     * match for other reasons should stop it.
+     * 
+     * @return the Timer used to delay incremental matches
+     */
+    protected Timer getIncrementalSearchTimer() {
+        if (incrementalSearchTimer == null) {
+            incrementalSearchTimer = new Timer(0, new ActionListener() {
+                @Override
+                public void actionPerformed(ActionEvent e) {
+                    if (getPatternModel().isIncremental()) {
+                        match();
+                    }
+                }
+            });
+            incrementalSearchTimer.setRepeats(false);
         }
+        return incrementalSearchTimer;
     }
 
 
@@ -30,6 +30,7 @@ import javax.swing.JOptionPane;
 import javax.swing.UIManager;
 
 import org.jdesktop.beans.JavaBean;
+import org.jdesktop.swingx.search.AbstractSearchable;
 import org.jdesktop.swingx.search.PatternModel;
 import org.jdesktop.swingx.search.Searchable;
 
@@ -50,6 +51,9 @@ public class JXFindPanel extends AbstractPatternPanel {
     protected JCheckBox wrapCheck;
     protected JCheckBox backCheck;
     private boolean initialized;
+    /** the raw text and pattern of the last search, to detect narrowing */
+    private String searchedText;
+    private Pattern searchedPattern;
 
     /**
      * Default constructor for the find panel. Constructs panel not targeted to
@@ -86,6 +90,8 @@ public class JXFindPanel extends AbstractPatternPanel {
             old.search((Pattern) null);
         }
         this.searchable = searchable;
+        searchedText = null;
+        searchedPattern = null;
         getPatternModel().setFoundIndex(-1);
         firePropertyChange("searchable", old, this.searchable);
     }
@@ -185,6 +191,7 @@ public class JXFindPanel extends AbstractPatternPanel {
      * @see #findPrevious
      */
     protected void doFind() {
+        getIncrementalSearchTimer().stop();
         if (searchable == null)
             return;
         int foundIndex = doSearch();
@@ -202,13 +209,26 @@ public class JXFindPanel extends AbstractPatternPanel {
     }
 
     /**
-     * Performs search and returns index of the next match.
+     * Performs search and returns index of the next match. If the pattern
+     * narrows the pattern of the previous search, an AbstractSearchable is
+     * told so.
      *
      * @return Index of the next match in document.
+     * @see PatternModel#isNarrowing(String, Pattern)
      */
     protected int doSearch() {
-        int foundIndex = searchable.search(getPatternModel().getPattern(), 
-                getPatternModel().getFoundIndex(), getPatternModel().isBackwards());
+        PatternModel model = getPatternModel();
+        int foundIndex;
+        if (searchable instanceof AbstractSearchable) {
+            Pattern previous = model.isNarrowing(searchedText, searchedPattern) ? searchedPattern : null;
+            foundIndex = ((AbstractSearchable) searchable).search(model.getPattern(), 
+                    model.getFoundIndex(), model.isBackwards(), previous);
+        } else {
+            foundIndex = searchable.search(model.getPattern(), 
+                    model.getFoundIndex(), model.isBackwards());
+        }
+        searchedText = model.getRawText();
+        searchedPattern = model.getPattern();
         getPatternModel().setFoundIndex(foundIndex);
         return getPatternModel().getFoundIndex();
 //         first try on #236-swingx - foundIndex wrong in backwards search.
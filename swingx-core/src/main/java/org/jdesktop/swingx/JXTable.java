@@ -23,6 +23,7 @@ import java.awt.Component;
 import java.awt.ComponentOrientation;
 import java.awt.Container;
 import java.awt.Dimension;
+import java.awt.Graphics;
 import java.awt.KeyboardFocusManager;
 import java.awt.Point;
 import java.awt.Rectangle;
@@ -92,6 +93,7 @@ import org.jdesktop.swingx.action.BoundAction;
 import org.jdesktop.swingx.decorator.ComponentAdapter;
 import org.jdesktop.swingx.decorator.CompoundHighlighter;
 import org.jdesktop.swingx.decorator.Highlighter;
+import org.jdesktop.swingx.decorator.HighlighterStatistics;
 import org.jdesktop.swingx.decorator.ResetDTCRColorHighlighter;
 import org.jdesktop.swingx.event.TableColumnModelExtListener;
 import org.jdesktop.swingx.hyperlink.HyperlinkAction;
@@ -449,6 +451,9 @@ public class JXTable extends JTable implements TableColumnModelExtListener {
     /** Listens for changes from the highlighters. */
     private ChangeListener highlighterChangeListener;
 
+    /** Records the time of the highlighters, may be null. */
+    private HighlighterStatistics highlighterStatistics;
+
     /** the factory to use for column creation and configuration. */
     private ColumnFactory columnFactory;
 
@@ -3400,11 +3405,40 @@ public class JXTable extends JTable implements TableColumnModelExtListener {
     protected CompoundHighlighter getCompoundHighlighter() {
         if (compoundHighlighter == null) {
             compoundHighlighter = new CompoundHighlighter();
+            compoundHighlighter.setStatistics(highlighterStatistics);
             compoundHighlighter.addChangeListener(getHighlighterChangeListener());
         }
         return compoundHighlighter;
     }
 
+    /**
+     * Sets the statistics to record the time taken by each Highlighter when 
+     * preparing renderers: the table's Highlighters, the column Highlighters 
+     * and the Highlighter resetting the colors of DefaultTableCellRenderers.
+     * Null, the default, records nothing.
+     * 
+     * @param statistics the statistics to record to, may be null
+     * @see #getHighlighterStatistics()
+     */
+    public void setHighlighterStatistics(HighlighterStatistics statistics) {
+        HighlighterStatistics old = getHighlighterStatistics();
+        this.highlighterStatistics = statistics;
+        if (compoundHighlighter != null) {
+            compoundHighlighter.setStatistics(statistics);
+        }
+        firePropertyChange("highlighterStatistics", old, getHighlighterStatistics());
+    }
+
+    /**
+     * Returns the statistics of the Highlighters.
+     * 
+     * @return the statistics to record to, may be null
+     * @see #setHighlighterStatistics(HighlighterStatistics)
+     */
+    public HighlighterStatistics getHighlighterStatistics() {
+        return highlighterStatistics;
+    }
+
     /**
      * Returns the <code>ChangeListener</code> to use with highlighters. Lazily
      * creates the listener.
@@ -3618,7 +3652,9 @@ public class JXTable extends JTable implements TableColumnModelExtListener {
             // PENDING JW: instead of doing the looping ourselves, how
             // about adding a method prepareRenderer to the TableColumnExt
             for (Highlighter highlighter : columnExt.getHighlighters()) {
-                stamp = highlighter.highlight(stamp, adapter);
+                stamp = highlighterStatistics != null 
+                        ? highlighterStatistics.highlight(highlighter, stamp, adapter)
+                        : highlighter.highlight(stamp, adapter);
 
             }
             // CompoundHighlighter columnHighlighters
@@ -3629,6 +3665,26 @@ public class JXTable extends JTable implements TableColumnModelExtListener {
         return stamp;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * 
+     * Overridden to paint in a paint pass of the ComponentAdapter, which 
+     * evaluates row predicates of Highlighters once per row.
+     * 
+     * @see ComponentAdapter#startPaintPass()
+     */
+    @Override
+    protected void paintComponent(Graphics g) {
+        ComponentAdapter adapter = getComponentAdapter();
+        adapter.startPaintPass();
+        try {
+            super.paintComponent(g);
+        } finally {
+            adapter.endPaintPass();
+        }
+    }
+
     /**
      * Convenience method to get the rendering component for the given cell.
      * 
@@ -3677,7 +3733,11 @@ public class JXTable extends JTable implements TableColumnModelExtListener {
             resetDefaultTableCellRendererHighlighter = new ResetDTCRColorHighlighter();
         }
         // hacking around DefaultTableCellRenderer color memory. TODO
-        resetDefaultTableCellRendererHighlighter.highlight(renderer, adapter);
+        if (highlighterStatistics != null) {
+            highlighterStatistics.highlight(resetDefaultTableCellRendererHighlighter, renderer, adapter);
+        } else {
+            resetDefaultTableCellRendererHighlighter.highlight(renderer, adapter);
+        }
     }
 
     /**
@@ -220,4 +220,35 @@ public class JYList<E> extends JList<E> {
         return (ListUI)ui;
     }
 
+    private boolean lazyLayout;
+
+    /**
+     * Sets whether the ui measures the cells lazily. If true and the list is laid
+     * out vertically, the ui measures only a prefix of the cells and estimates
+     * the heights of the others from the average. Estimated cells are measured
+     * when they are painted, which doesn't move the cells painted above them.
+     * So opening a large list costs about as much as painting its visible cells.
+     * <p>
+     * The default is false: all cells are measured, which gives exact scrollbars.
+     *
+     * @param lazyLayout true to measure cells when they are painted
+     */
+    @BeanProperty(preferred = true, description
+            = "Whether the cells are measured when they are painted.")
+    public void setLazyLayout(boolean lazyLayout) {
+        boolean old = isLazyLayout();
+        this.lazyLayout = lazyLayout;
+        firePropertyChange("lazyLayout", old, isLazyLayout());
+    }
+
+    /**
+     * Returns whether the ui measures the cells lazily.
+     *
+     * @return true if the cells are measured when they are painted
+     * @see #setLazyLayout(boolean)
+     */
+    public boolean isLazyLayout() {
+        return lazyLayout;
+    }
+
 }
@@ -166,7 +166,7 @@ public abstract class AbstractHighlighter implements Highlighter {
      */
     @Override
     public Component highlight(Component component, ComponentAdapter adapter) {
-        if(canHighlight(component, adapter) && getHighlightPredicate().isHighlighted(component, adapter)) {
+        if(canHighlight(component, adapter) && adapter.isHighlighted(getHighlightPredicate(), component)) {
             component = doHighlight(component, adapter);
         }
         return component;
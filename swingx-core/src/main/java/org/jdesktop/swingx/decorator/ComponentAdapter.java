@@ -18,7 +18,9 @@
  */
 package org.jdesktop.swingx.decorator;
 
+import java.awt.Component;
 import java.awt.Rectangle;
+import java.util.Arrays;
 
 import javax.swing.JComponent;
 
@@ -107,6 +109,14 @@ public abstract class ComponentAdapter {
     /** TODO doc */
     protected final JComponent target;
 
+    /** nesting depth of paint passes, row predicate results are remembered if &gt; 0 */
+    private int paintPasses;
+    /** the row of the remembered row predicate results */
+    private int resultRow = -1;
+    private HighlightPredicate[] resultPredicates = new HighlightPredicate[4];
+    private boolean[] results = new boolean[4];
+    private int resultCount;
+
     /**
      * Constructs a ComponentAdapter, setting the specified component as the
      * target component.
@@ -126,6 +136,71 @@ public abstract class ComponentAdapter {
         return target;
     }
 
+//---------------------------- evaluating predicates
+
+    /**
+     * Returns a boolean to indicate whether the given predicate highlights the 
+     * current cell. During a paint pass, the results of row predicates which
+     * are more expensive than a test of the coordinates are remembered for the 
+     * current row, so they are evaluated once per row instead of once per cell.
+     * 
+     * @param predicate the predicate to evaluate
+     * @param renderer the cell renderer component that is to be decorated
+     * @return the result of the predicate for the current cell
+     * @see #startPaintPass()
+     * @see HighlightPredicate#isRowPredicate()
+     */
+    public boolean isHighlighted(HighlightPredicate predicate, Component renderer) {
+        if (paintPasses == 0 || predicate.getCost() <= HighlightPredicate.COST_COORDINATES
+                || !predicate.isRowPredicate()) {
+            return predicate.isHighlighted(renderer, this);
+        }
+        if (row != resultRow) {
+            clearResults();
+            resultRow = row;
+        }
+        for (int i = 0; i < resultCount; i++) {
+            if (resultPredicates[i] == predicate) return results[i];
+        }
+        boolean result = predicate.isHighlighted(renderer, this);
+        if (resultCount == results.length) {
+            resultPredicates = Arrays.copyOf(resultPredicates, resultCount * 2);
+            results = Arrays.copyOf(results, resultCount * 2);
+        }
+        resultPredicates[resultCount] = predicate;
+        results[resultCount++] = result;
+        return result;
+    }
+
+    /**
+     * Starts a paint pass of the target: until the matching 
+     * {@link #endPaintPass()} the state of the target must not change, 
+     * so the results of row predicates can be remembered. 
+     * Passes may be nested.
+     */
+    public void startPaintPass() {
+        if (paintPasses++ == 0) {
+            clearResults();
+        }
+    }
+
+    /**
+     * Ends a paint pass of the target.
+     * 
+     * @see #startPaintPass()
+     */
+    public void endPaintPass() {
+        if (paintPasses > 0 && --paintPasses == 0) {
+            clearResults();
+        }
+    }
+
+    private void clearResults() {
+        Arrays.fill(resultPredicates, 0, resultCount, null);
+        resultCount = 0;
+        resultRow = -1;
+    }
+
 //---------------------------- accessing the target's model: column meta data
     
     /**
@@ -47,6 +47,9 @@ public class CompoundHighlighter extends AbstractHighlighter implements UIDepend
     /** the listener for changes in contained Highlighters. */
     private ChangeListener highlighterChangeListener;
 
+    /** the statistics to record the time of contained Highlighters, may be null. */
+    private HighlighterStatistics statistics;
+
     
     /**
      * Instantiates a CompoundHighlighter containing the given 
@@ -165,6 +168,26 @@ public class CompoundHighlighter extends AbstractHighlighter implements UIDepend
         return highlighters.toArray(new Highlighter[highlighters.size()]);
     }
 
+    /**
+     * Sets the statistics to record the time taken by each of the contained
+     * Highlighters. Null, the default, records nothing.
+     * 
+     * @param statistics the statistics to record to, may be null
+     */
+    public void setStatistics(HighlighterStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    /**
+     * Returns the statistics of the contained Highlighters.
+     * 
+     * @return the statistics to record to, may be null
+     * @see #setStatistics(HighlighterStatistics)
+     */
+    public HighlighterStatistics getStatistics() {
+        return statistics;
+    }
+
 //--------------------- implement UIDependent
 
     /**
@@ -227,10 +250,19 @@ public class CompoundHighlighter extends AbstractHighlighter implements UIDepend
 //------------------- implement Highlighter    
 
     /**
-     * {@inheritDoc}
+     * {@inheritDoc} <p>
+     * 
+     * Implemented to apply the contained Highlighters in order, recording
+     * their time if there are statistics.
      */
     @Override
     protected Component doHighlight(Component stamp, ComponentAdapter adapter) {
+        if (statistics != null) {
+            for (Highlighter highlighter : highlighters) {
+                stamp = statistics.highlight(highlighter, stamp, adapter);
+            }
+            return stamp;
+        }
         for (Highlighter highlighter : highlighters) {
             stamp = highlighter.highlight(stamp, adapter);
         }
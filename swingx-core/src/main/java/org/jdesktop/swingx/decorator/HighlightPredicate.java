@@ -26,6 +26,7 @@ import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
 
 import javax.swing.AbstractButton;
@@ -70,6 +71,55 @@ public interface HighlightPredicate {
      */
     boolean isHighlighted(Component renderer, ComponentAdapter adapter);
 
+    /**
+     * Returns the estimated cost of evaluating this predicate, one of the 
+     * COST_XX constants. AND and OR predicates evaluate cheaper predicates first.<p>
+     * 
+     * The default is COST_VALUE.
+     * 
+     * @return the estimated cost of evaluating this predicate
+     * @see #COST_COORDINATES
+     */
+    default int getCost() {
+        return COST_VALUE;
+    }
+
+    /**
+     * Returns a boolean to indicate whether the result depends only on the 
+     * adapter's row and the component state, not on the column or the renderer.
+     * The result of a row predicate is evaluated once per row while painting.<p>
+     * 
+     * The default is false.
+     * 
+     * @return true if the result is the same for all cells of a row
+     * @see ComponentAdapter#isHighlighted(HighlightPredicate, Component)
+     */
+    default boolean isRowPredicate() {
+        return false;
+    }
+
+//--------------------- cost estimates
+
+    /** Cost of a predicate which tests the adapter's coordinates only. */
+    public static final int COST_COORDINATES = 0;
+    /** Cost of a predicate which tests the state of the component, like selection. */
+    public static final int COST_STATE = 10;
+    /** Cost of a predicate which tests the adapter's value. */
+    public static final int COST_VALUE = 20;
+    /** Cost of a predicate which tests the adapter's string representation. */
+    public static final int COST_STRING = 30;
+    /** Cost of a predicate which lays out the renderer. */
+    public static final int COST_LAYOUT = 40;
+
+    /**
+     * Orders HighlightPredicates by ascending cost.
+     */
+    public static final Comparator<HighlightPredicate> COST_ORDER = new Comparator<HighlightPredicate>() {
+        @Override
+        public int compare(HighlightPredicate p1, HighlightPredicate p2) {
+            return Integer.compare(p1.getCost(), p2.getCost());
+        }
+    };
     
 //--------------------- implemented Constants    
     /**
@@ -86,6 +136,16 @@ public interface HighlightPredicate {
         public boolean isHighlighted(Component renderer, ComponentAdapter adapter) {
             return true;
         }
+
+        @Override
+        public int getCost() {
+            return COST_COORDINATES;
+        }
+
+        @Override
+        public boolean isRowPredicate() {
+            return true;
+        }
         
     };
 
@@ -103,6 +163,16 @@ public interface HighlightPredicate {
         public boolean isHighlighted(Component renderer, ComponentAdapter adapter) {
             return false;
         }
+
+        @Override
+        public int getCost() {
+            return COST_COORDINATES;
+        }
+
+        @Override
+        public boolean isRowPredicate() {
+            return true;
+        }
         
     };
     
@@ -126,6 +196,16 @@ public interface HighlightPredicate {
                     RolloverProducer.ROLLOVER_KEY);
             return p != null &&  p.y == adapter.row;
         }
+
+        @Override
+        public int getCost() {
+            return COST_STATE;
+        }
+
+        @Override
+        public boolean isRowPredicate() {
+            return true;
+        }
         
     };
     
@@ -149,6 +229,11 @@ public interface HighlightPredicate {
                     RolloverProducer.ROLLOVER_KEY);
             return p != null &&  p.x == adapter.column;
         }
+
+        @Override
+        public int getCost() {
+            return COST_STATE;
+        }
         
     };
     /**
@@ -171,6 +256,11 @@ public interface HighlightPredicate {
                     RolloverProducer.ROLLOVER_KEY);
             return p != null  && p.y == adapter.row &&  p.x == adapter.column;
         }
+
+        @Override
+        public int getCost() {
+            return COST_STATE;
+        }
         
     };
     
@@ -187,6 +277,11 @@ public interface HighlightPredicate {
         public boolean isHighlighted(Component renderer, ComponentAdapter adapter) {
             return adapter.isEditable();
         }
+
+        @Override
+        public int getCost() {
+            return COST_STATE;
+        }
     };
     
     /**
@@ -202,6 +297,11 @@ public interface HighlightPredicate {
         public boolean isHighlighted(Component renderer, ComponentAdapter adapter) {
             return !adapter.isEditable();
         }
+
+        @Override
+        public int getCost() {
+            return COST_STATE;
+        }
     };
     
     /**
@@ -217,6 +317,16 @@ public interface HighlightPredicate {
         public boolean isHighlighted(Component renderer, ComponentAdapter adapter) {
             return adapter.isLeaf();
         }
+
+        @Override
+        public int getCost() {
+            return COST_STATE;
+        }
+
+        @Override
+        public boolean isRowPredicate() {
+            return true;
+        }
     };
     
     /**
@@ -232,6 +342,16 @@ public interface HighlightPredicate {
         public boolean isHighlighted(Component renderer, ComponentAdapter adapter) {
             return !adapter.isLeaf();
         }
+
+        @Override
+        public int getCost() {
+            return COST_STATE;
+        }
+
+        @Override
+        public boolean isRowPredicate() {
+            return true;
+        }
     };
     
     /**
@@ -244,6 +364,11 @@ public interface HighlightPredicate {
                 ComponentAdapter adapter) {
             return adapter.isSelected();
         }
+
+        @Override
+        public int getCost() {
+            return COST_STATE;
+        }
         
     };
     
@@ -286,6 +411,11 @@ public interface HighlightPredicate {
             // text can be null!
             return text==null ? result!=null : !text.equals(result);
         }
+
+        @Override
+        public int getCost() {
+            return COST_LAYOUT;
+        }
     };
     
     /**
@@ -301,6 +431,11 @@ public interface HighlightPredicate {
         public boolean isHighlighted(Component renderer, ComponentAdapter adapter) {
             return adapter.hasFocus();
         }
+
+        @Override
+        public int getCost() {
+            return COST_STATE;
+        }
     };
     /**
      * Even rows.
@@ -315,6 +450,16 @@ public interface HighlightPredicate {
         public boolean isHighlighted(Component renderer, ComponentAdapter adapter) {
             return adapter.row % 2 == 0;
         }
+
+        @Override
+        public int getCost() {
+            return COST_COORDINATES;
+        }
+
+        @Override
+        public boolean isRowPredicate() {
+            return true;
+        }
         
     };
     
@@ -331,6 +476,16 @@ public interface HighlightPredicate {
         public boolean isHighlighted(Component renderer, ComponentAdapter adapter) {
             return !EVEN.isHighlighted(renderer, adapter);
         }
+
+        @Override
+        public int getCost() {
+            return COST_COORDINATES;
+        }
+
+        @Override
+        public boolean isRowPredicate() {
+            return true;
+        }
         
     };
     
@@ -396,7 +551,17 @@ public interface HighlightPredicate {
          */
         @Override
         public boolean isHighlighted(Component renderer, ComponentAdapter adapter) {
-            return !predicate.isHighlighted(renderer, adapter);
+            return !adapter.isHighlighted(predicate, renderer);
+        }
+
+        @Override
+        public int getCost() {
+            return predicate.getCost();
+        }
+
+        @Override
+        public boolean isRowPredicate() {
+            return predicate.isRowPredicate();
         }
 
         /**
@@ -414,6 +579,8 @@ public interface HighlightPredicate {
     public static class AndHighlightPredicate implements HighlightPredicate {
         
         private List<HighlightPredicate> predicate;
+        /** the predicates in order of evaluation, cheapest first */
+        private HighlightPredicate[] evaluationOrder;
         
         /**
          * Instantiates a predicate which ands all given predicates.
@@ -422,6 +589,7 @@ public interface HighlightPredicate {
          */
         public AndHighlightPredicate(HighlightPredicate... predicate) {
             this.predicate = Arrays.asList(Contract.asNotNull(predicate, "predicate must not be null"));
+            initEvaluationOrder();
         }
         
         /**
@@ -431,17 +599,19 @@ public interface HighlightPredicate {
          */
         public AndHighlightPredicate(Collection<HighlightPredicate> list) {
             this.predicate = new ArrayList<HighlightPredicate>(Contract.asNotNull(list, "predicate list must not be null"));
+            initEvaluationOrder();
         }
 
         /**
          * {@inheritDoc}
          * Implemented to return false if any of the contained predicates is
-         * false or if there are no predicates.
+         * false or if there are no predicates. The predicates are evaluated
+         * in order of their cost.
          */
         @Override
         public boolean isHighlighted(Component renderer, ComponentAdapter adapter) {
-            for (HighlightPredicate hp : predicate) {
-                if (!hp.isHighlighted(renderer, adapter)) return false;
+            for (HighlightPredicate hp : evaluationOrder) {
+                if (!adapter.isHighlighted(hp, renderer)) return false;
             }
             return !predicate.isEmpty();
         }
@@ -454,7 +624,36 @@ public interface HighlightPredicate {
             return predicate.toArray(new HighlightPredicate[predicate.size()]);
         }
         
-        
+        /**
+         * {@inheritDoc} <p>
+         * 
+         * Implemented to return the highest cost of the contained predicates.
+         */
+        @Override
+        public int getCost() {
+            return evaluationOrder.length > 0 
+                    ? evaluationOrder[evaluationOrder.length - 1].getCost() : COST_COORDINATES;
+        }
+
+        /**
+         * {@inheritDoc} <p>
+         * 
+         * Implemented to return true if all contained predicates are row predicates.
+         */
+        @Override
+        public boolean isRowPredicate() {
+            for (HighlightPredicate hp : evaluationOrder) {
+                if (!hp.isRowPredicate()) return false;
+            }
+            return true;
+        }
+
+        private void initEvaluationOrder() {
+            evaluationOrder = predicate.toArray(EMPTY_PREDICATE_ARRAY);
+            // stable: predicates of the same cost keep their order
+            Arrays.sort(evaluationOrder, COST_ORDER);
+        }
+
     }
     
     /**
@@ -463,6 +662,8 @@ public interface HighlightPredicate {
     public static class OrHighlightPredicate implements HighlightPredicate {
         
         private List<HighlightPredicate> predicate;
+        /** the predicates in order of evaluation, cheapest first */
+        private HighlightPredicate[] evaluationOrder;
         
         /**
          * Instantiates a predicate which ORs all given predicates.
@@ -471,6 +672,7 @@ public interface HighlightPredicate {
          */
         public OrHighlightPredicate(HighlightPredicate... predicate) {
             this.predicate = Arrays.asList(Contract.asNotNull(predicate, "predicate must not be null"));
+            initEvaluationOrder();
         }
         
         /**
@@ -480,17 +682,18 @@ public interface HighlightPredicate {
          */
         public OrHighlightPredicate(Collection<HighlightPredicate> list) {
             this.predicate = new ArrayList<HighlightPredicate>(Contract.asNotNull(list, "predicate list must not be null"));
+            initEvaluationOrder();
         }
 
         /**
          * {@inheritDoc}
          * Implemented to return true if any of the contained predicates is
-         * true.
+         * true. The predicates are evaluated in order of their cost.
          */
         @Override
         public boolean isHighlighted(Component renderer, ComponentAdapter adapter) {
-            for (HighlightPredicate hp : predicate) {
-                if (hp.isHighlighted(renderer, adapter)) return true;
+            for (HighlightPredicate hp : evaluationOrder) {
+                if (adapter.isHighlighted(hp, renderer)) return true;
             }
             return false;
         }
@@ -502,6 +705,36 @@ public interface HighlightPredicate {
             return predicate.toArray(new HighlightPredicate[predicate.size()]);
         }
         
+        /**
+         * {@inheritDoc} <p>
+         * 
+         * Implemented to return the highest cost of the contained predicates.
+         */
+        @Override
+        public int getCost() {
+            return evaluationOrder.length > 0 
+                    ? evaluationOrder[evaluationOrder.length - 1].getCost() : COST_COORDINATES;
+        }
+
+        /**
+         * {@inheritDoc} <p>
+         * 
+         * Implemented to return true if all contained predicates are row predicates.
+         */
+        @Override
+        public boolean isRowPredicate() {
+            for (HighlightPredicate hp : evaluationOrder) {
+                if (!hp.isRowPredicate()) return false;
+            }
+            return true;
+        }
+
+        private void initEvaluationOrder() {
+            evaluationOrder = predicate.toArray(EMPTY_PREDICATE_ARRAY);
+            // stable: predicates of the same cost keep their order
+            Arrays.sort(evaluationOrder, COST_ORDER);
+        }
+
     }
     
 //------------------------ coordinates
@@ -536,6 +769,16 @@ public interface HighlightPredicate {
             return (adapter.row / linesPerGroup) % 2 == 1;
         }
 
+        @Override
+        public int getCost() {
+            return COST_COORDINATES;
+        }
+
+        @Override
+        public boolean isRowPredicate() {
+            return true;
+        }
+
         /**
          * 
          * @return the number of lines per group.
@@ -579,6 +822,11 @@ public interface HighlightPredicate {
             return columnList.contains(modelIndex);
         }
 
+        @Override
+        public int getCost() {
+            return COST_COORDINATES;
+        }
+
         /**
          * PENDING JW: get array of int instead of Integer?
          * 
@@ -626,6 +874,11 @@ public interface HighlightPredicate {
             return identifier != null ? columnList.contains(identifier) : false;
         }
 
+        @Override
+        public int getCost() {
+            return COST_STATE;
+        }
+
         /**
          * @return the identifiers
          */
@@ -673,6 +926,16 @@ public interface HighlightPredicate {
             return depthList.contains(depth);
         }
 
+        @Override
+        public int getCost() {
+            return COST_STATE;
+        }
+
+        @Override
+        public boolean isRowPredicate() {
+            return true;
+        }
+
         /**
          * @return array of numbers representing different depths
          */
@@ -824,6 +1087,11 @@ public interface HighlightPredicate {
         public boolean isHighlighted(Component renderer, ComponentAdapter adapter) {
             return clazz.isAssignableFrom(adapter.getColumnClass());
         }
+
+        @Override
+        public int getCost() {
+            return COST_STATE;
+        }
         
         /**
          * 
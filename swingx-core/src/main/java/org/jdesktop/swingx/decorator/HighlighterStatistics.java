@@ -0,0 +1,146 @@
+package org.jdesktop.swingx.decorator;
+
+import java.awt.Component;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Measures the time spent in Highlighters, to find the ones which take most
+ * of the time of painting cells. To be used on the EDT only.<p>
+ *
+ * <pre><code>
+ * HighlighterStatistics statistics = new HighlighterStatistics();
+ * table.setHighlighterStatistics(statistics);
+ * // scroll around
+ * System.out.println(statistics);
+ * </code></pre>
+ *
+ * The time of a Highlighter includes the evaluation of its HighlightPredicate.
+ * The time of a CompoundHighlighter includes the time of its Highlighters.
+ *
+ * @see CompoundHighlighter#setStatistics(HighlighterStatistics)
+ * @see org.jdesktop.swingx.JXTable#setHighlighterStatistics(HighlighterStatistics)
+ */
+public class HighlighterStatistics {
+
+    private final Map<Highlighter, Entry> entries = new IdentityHashMap<Highlighter, Entry>();
+
+    /**
+     * Applies the Highlighter and records the time it took.
+     *
+     * @param highlighter the Highlighter to apply
+     * @param component the cell renderer component that is to be decorated
+     * @param adapter the ComponentAdapter for this decorate operation
+     * @return the decorated cell rendering component
+     */
+    public Component highlight(Highlighter highlighter, Component component, ComponentAdapter adapter) {
+        long start = System.nanoTime();
+        try {
+            return highlighter.highlight(component, adapter);
+        } finally {
+            record(highlighter, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Records a call of the Highlighter.
+     *
+     * @param highlighter the Highlighter
+     * @param nanos the time of the call in nanoseconds
+     */
+    public void record(Highlighter highlighter, long nanos) {
+        Entry entry = entries.get(highlighter);
+        if (entry == null) {
+            entry = new Entry();
+            entries.put(highlighter, entry);
+        }
+        entry.count++;
+        entry.totalNanos += nanos;
+        entry.maxNanos = Math.max(entry.maxNanos, nanos);
+    }
+
+    /**
+     * Returns the Highlighters with recorded calls, the most expensive first.
+     *
+     * @return the Highlighters in order of descending total time
+     */
+    public List<Highlighter> getHighlighters() {
+        List<Highlighter> highlighters = new ArrayList<Highlighter>(entries.keySet());
+        Collections.sort(highlighters, new Comparator<Highlighter>() {
+            @Override
+            public int compare(Highlighter h1, Highlighter h2) {
+                return Long.compare(getTotalNanos(h2), getTotalNanos(h1));
+            }
+        });
+        return highlighters;
+    }
+
+    /**
+     * @param highlighter the Highlighter
+     * @return the number of recorded calls of the Highlighter
+     */
+    public long getCount(Highlighter highlighter) {
+        Entry entry = entries.get(highlighter);
+        return entry != null ? entry.count : 0;
+    }
+
+    /**
+     * @param highlighter the Highlighter
+     * @return the total time of the recorded calls of the Highlighter in nanoseconds
+     */
+    public long getTotalNanos(Highlighter highlighter) {
+        Entry entry = entries.get(highlighter);
+        return entry != null ? entry.totalNanos : 0;
+    }
+
+    /**
+     * @param highlighter the Highlighter
+     * @return the longest recorded call of the Highlighter in nanoseconds
+     */
+    public long getMaxNanos(Highlighter highlighter) {
+        Entry entry = entries.get(highlighter);
+        return entry != null ? entry.maxNanos : 0;
+    }
+
+    /**
+     * Forgets all recorded calls.
+     */
+    public void reset() {
+        entries.clear();
+    }
+
+    /**
+     * Returns a table of the Highlighters with their calls, total, average and
+     * maximum time, the most expensive first.
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format("%-40s %10s %12s %10s %10s%n", "highlighter", "calls", "total ms", "avg us", "max us"));
+        for (Highlighter highlighter : getHighlighters()) {
+            Entry entry = entries.get(highlighter);
+            builder.append(String.format("%-40s %10d %12.3f %10.3f %10.3f%n", getName(highlighter),
+                    entry.count, entry.totalNanos / 1e6, entry.totalNanos / 1e3 / entry.count,
+                    entry.maxNanos / 1e3));
+        }
+        return builder.toString();
+    }
+
+    private static String getName(Highlighter highlighter) {
+        String name = highlighter.getClass().getSimpleName();
+        if (name.length() == 0) {
+            name = highlighter.getClass().getName();
+        }
+        return name + "@" + Integer.toHexString(System.identityHashCode(highlighter));
+    }
+
+    private static class Entry {
+        long count;
+        long totalNanos;
+        long maxNanos;
+    }
+}
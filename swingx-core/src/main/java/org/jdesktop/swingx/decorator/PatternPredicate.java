@@ -144,6 +144,25 @@ public class PatternPredicate implements HighlightPredicate {
         return false;
     }
 
+    /**
+     * {@inheritDoc} <p>
+     * Implemented to return COST_STRING.
+     */
+    @Override
+    public int getCost() {
+        return COST_STRING;
+    }
+
+    /**
+     * {@inheritDoc} <p>
+     * Implemented to return true if all columns are highlighted: the test
+     * column or columns are the same for all cells of a row then.
+     */
+    @Override
+    public boolean isRowPredicate() {
+        return highlightColumn < 0;
+    }
+
     /**
      * Test the value. This is called only if the 
      * pre-check returned true, because accessing the 
@@ -173,6 +173,15 @@ public class SearchPredicate implements HighlightPredicate {
         return false;
     }
 
+    /**
+     * {@inheritDoc} <p>
+     * Implemented to return COST_STRING.
+     */
+    @Override
+    public int getCost() {
+        return COST_STRING;
+    }
+
     /**
      * Test the value. This is called only if the 
      * pre-check returned true, because accessing the 
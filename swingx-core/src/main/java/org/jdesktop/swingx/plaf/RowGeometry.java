@@ -0,0 +1,122 @@
+package org.jdesktop.swingx.plaf;
+
+/**
+ * The y offsets of list rows with variable heights, kept as a Fenwick tree
+ * (binary indexed tree) over the row heights.<p>
+ *
+ * Converting a row to its y offset and a y offset to its row takes
+ * O(log n), as does changing the height of a row. Inserting or removing rows
+ * needs a new instance, which is built in O(n) without measuring any cells.<p>
+ *
+ * The heights array is shared with the caller, it must not be changed other
+ * than by {@link #setHeight(int, int)}.
+ *
+ * @see YListUI
+ */
+final class RowGeometry {
+
+    private final int[] heights;
+
+    /** tree[i] is the sum of the heights of the rows [i - lowbit(i), i) */
+    private final int[] tree;
+
+    /**
+     * Builds the tree over the heights in O(n).
+     *
+     * @param heights the row heights, not negative
+     */
+    RowGeometry(int[] heights) {
+        this.heights = heights;
+        tree = new int[heights.length + 1];
+        for (int i = 1; i < tree.length; i++) {
+            tree[i] += heights[i - 1];
+            int parent = i + (i & -i);
+            if (parent < tree.length) {
+                tree[parent] += tree[i];
+            }
+        }
+    }
+
+    /**
+     * @param heights the row heights
+     * @return true if this geometry is built over the given array
+     */
+    boolean isBackedBy(int[] heights) {
+        return this.heights == heights;
+    }
+
+    /**
+     * @return the number of rows
+     */
+    int getRowCount() {
+        return heights.length;
+    }
+
+    /**
+     * @param row the row
+     * @return the height of the row
+     */
+    int getHeight(int row) {
+        return heights[row];
+    }
+
+    /**
+     * Changes the height of a row in O(log n).
+     *
+     * @param row the row
+     * @param height the new height, not negative
+     */
+    void setHeight(int row, int height) {
+        int delta = height - heights[row];
+        if (delta == 0) return;
+        heights[row] = height;
+        for (int i = row + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    /**
+     * Returns the sum of the heights of the rows before the given row.
+     *
+     * @param row the row, may be the row count
+     * @return the y offset of the row
+     */
+    int getY(int row) {
+        int y = 0;
+        for (int i = row; i > 0; i -= i & -i) {
+            y += tree[i];
+        }
+        return y;
+    }
+
+    /**
+     * @return the sum of all row heights
+     */
+    int getTotalHeight() {
+        return getY(heights.length);
+    }
+
+    /**
+     * Returns the row which contains the given y offset. Rows with a
+     * height of 0 contain no offset.
+     *
+     * @param y the y offset
+     * @return the row, -1 if y is negative, the row count if y is at or beyond
+     *         the total height
+     */
+    int getRow(int y) {
+        if (y < 0) {
+            return -1;
+        }
+        int row = 0;
+        int rest = y;
+        for (int step = Integer.highestOneBit(heights.length); step > 0; step >>= 1) {
+            int next = row + step;
+            if (next < tree.length && tree[next] <= rest) {
+                row = next;
+                rest -= tree[next];
+            }
+        }
+        return row;
+    }
+}
@@ -7,6 +7,9 @@ import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.event.FocusListener;
 import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import javax.swing.CellRendererPane;
 import javax.swing.JComponent;
@@ -18,6 +21,8 @@ import javax.swing.event.ListSelectionListener;
 import javax.swing.event.MouseInputListener;
 import javax.swing.plaf.ListUI;
 
+import org.jdesktop.swingx.JYList;
+
 /**
  * Similar to {@code javax.swing.plaf.basic.ListUI} this abstract class
  * defines a pluggable look and feel delegate for {@code JYList} and {@code JXList}.
@@ -59,9 +64,43 @@ public class YListUI extends ListUI {
     protected static final int heightChanged = 1 << 8;
     protected static final int widthChanged = 1 << 9;
     protected static final int componentOrientationChanged = 1 << 10;
+    /**
+     * Some cells of the model have been added, removed or changed, see
+     * {@link #modelIntervalAdded(int, int)}. If this is the only bit set,
+     * updateLayoutState measures only these cells.
+     */
+    protected static final int cellsChanged = 1 << 11;
     
 	protected int updateLayoutStateNeeded = modelChanged;
 
+    /** the most model changes which are applied incrementally, more are a modelChanged */
+    private static final int MAX_PENDING_CHANGES = 32;
+    private static final int INSERTED = 0;
+    private static final int REMOVED = 1;
+    private static final int CHANGED = 2;
+
+    /** the model changes since the last updateLayoutState as {type, index0, index1} */
+    private final List<int[]> pendingChanges = new ArrayList<int[]>();
+
+    /** the y offsets of the cellHeights, created when needed */
+    private RowGeometry rowGeometry;
+
+    /** the preferred cell widths, null if fixedCellWidth is set */
+    private int[] cellWidths;
+
+    /** the cells measured first in lazy layout, to estimate the height of the others */
+    private static final int LAZY_SAMPLE_SIZE = 100;
+
+    /** marks the heights of added cells which are estimated in lazy layout */
+    private static final int ESTIMATED = -2;
+
+    /** in lazy layout the rows which have not been measured, else null */
+    private boolean[] estimatedRows;
+
+    /** the sum and count of the measured heights, to estimate heights in lazy layout */
+    private long measuredHeightSum;
+    private int measuredHeightCount;
+
     // like javax.swing.plaf.basic.BasicListUI :
 	protected int layoutOrientation;
 	protected int listHeight;
@@ -230,9 +269,7 @@ public class YListUI extends ListUI {
                 y = 0;
             }
             else {
-                for(int i = 0; i < row; i++) {
-                    y += cellHeights[i];
-                }
+                y += getRowGeometry().getY(row);
             }
             w = list.getWidth() - (insets.left + insets.right);
             h = getRowHeight(index);
@@ -292,22 +329,31 @@ public class YListUI extends ListUI {
         }
         else {
             int y = insets.top;
-            int row = 0;
 
             if (closest && y0 < y) {
                 return 0;
             }
-            int i;
-            for (i = 0; i < size; i++) {
-                if ((y0 >= y) && (y0 < y + cellHeights[i])) {
-                    return row;
-                }
-                y += cellHeights[i];
-                row += 1;
+            int row = getRowGeometry().getRow(y0 - y);
+            if (row < 0 || row >= size) {
+                // like the linear search in BasicListUI
+                return size - 1;
             }
-            return i - 1;
+            return row;
         }
     }
+
+    /**
+     * Returns the y offsets of the cellHeights, which are rebuilt when cellHeights
+     * has been replaced.
+     *
+     * @return the geometry of the rows, only valid if cellHeights is not null
+     */
+    private RowGeometry getRowGeometry() {
+        if (rowGeometry == null || !rowGeometry.isBackedBy(cellHeights)) {
+            rowGeometry = new RowGeometry(cellHeights);
+        }
+        return rowGeometry;
+    }
     /**
      * Returns the closest column to the passed in location.
      */
@@ -429,11 +475,20 @@ public class YListUI extends ListUI {
      * Recompute the value of cellHeight or cellHeights based
      * and cellWidth, based on the current font and the current
      * values of fixedCellWidth, fixedCellHeight, and prototypeCellValue.
+     * <p>
+     * If only cells of the model have changed since the last call, only these
+     * cells are measured.
      *
      * @see javax.swing.plaf.basic.BasicListUI#updateLayoutState
      */
     // copy from javax.swing.plaf.basic.BasicListUI + protected
     protected void updateLayoutState() {
+        if (updateLayoutStateNeeded == cellsChanged && updateChangedCells()) {
+            pendingChanges.clear();
+            return;
+        }
+        pendingChanges.clear();
+
         /* If both JList fixedCellWidth and fixedCellHeight have been
          * set, then initialize cellWidth and cellHeight, and set
          * cellHeights to null.
@@ -465,22 +520,39 @@ public class YListUI extends ListUI {
             ListModel<Object> dataModel = getViewModel();
             int dataModelSize = dataModel.getSize();
             ListCellRenderer<Object> renderer = list.getCellRenderer();
+            cellWidths = (renderer != null && fixedCellWidth == -1) ? new int[dataModelSize] : null;
 
             if (renderer != null) {
-                for(int index = 0; index < dataModelSize; index++) {
+                // lazy layout measures a prefix only, the other rows are measured when painted
+                boolean lazy = isLazyLayout() && layoutOrientation == JList.VERTICAL;
+                int measuredSize = lazy ? Math.min(dataModelSize, LAZY_SAMPLE_SIZE) : dataModelSize;
+                estimatedRows = lazy ? new boolean[dataModelSize] : null;
+                measuredHeightSum = 0;
+                measuredHeightCount = 0;
+                for(int index = 0; index < measuredSize; index++) {
                     Object value = dataModel.getElementAt(index);
                     Component c = renderer.getListCellRendererComponent(list, value, index, false, false);
                     rendererPane.add(c);
                     Dimension cellSize = c.getPreferredSize();
                     if (fixedCellWidth == -1) {
                         cellWidth = Math.max(cellSize.width, cellWidth);
+                        cellWidths[index] = cellSize.width;
                     }
                     if (fixedCellHeight == -1) {
                         cellHeights[index] = cellSize.height;
+                        measuredHeightSum += cellSize.height;
+                        measuredHeightCount++;
+                    }
+                }
+                if (lazy) {
+                    Arrays.fill(estimatedRows, measuredSize, dataModelSize, true);
+                    if (cellHeights != null) {
+                        Arrays.fill(cellHeights, measuredSize, dataModelSize, getEstimatedRowHeight());
                     }
                 }
             }
             else {
+                estimatedRows = null;
                 if (cellWidth == -1) {
                     cellWidth = 0;
                 }
@@ -492,6 +564,10 @@ public class YListUI extends ListUI {
                 }
             }
         }
+        else {
+            cellWidths = null;
+            estimatedRows = null;
+        }
 
         columnCount = 1;
         if (layoutOrientation != JList.VERTICAL) {
@@ -499,6 +575,319 @@ public class YListUI extends ListUI {
         }
     }
 
+    /**
+     * Notifies this ui that cells have been added to the model. The cells are
+     * measured by the next updateLayoutState.
+     *
+     * @param index0 the first added index
+     * @param index1 the last added index
+     */
+    protected void modelIntervalAdded(int index0, int index1) {
+        addPendingChange(INSERTED, Math.min(index0, index1), Math.max(index0, index1));
+    }
+
+    /**
+     * Notifies this ui that cells have been removed from the model.
+     *
+     * @param index0 the first removed index
+     * @param index1 the last removed index
+     */
+    protected void modelIntervalRemoved(int index0, int index1) {
+        addPendingChange(REMOVED, Math.min(index0, index1), Math.max(index0, index1));
+    }
+
+    /**
+     * Notifies this ui that cells of the model have changed. Negative indices
+     * mean that the whole model has changed. The cells are measured by the
+     * next updateLayoutState.
+     *
+     * @param index0 the first changed index
+     * @param index1 the last changed index
+     */
+    protected void modelContentsChanged(int index0, int index1) {
+        addPendingChange(CHANGED, Math.min(index0, index1), Math.max(index0, index1));
+    }
+
+    private void addPendingChange(int type, int index0, int index1) {
+        if ((updateLayoutStateNeeded & ~cellsChanged) != 0) {
+            // all cells are measured anyway
+            pendingChanges.clear();
+            return;
+        }
+        if (index0 < 0) {
+            pendingChanges.clear();
+            updateLayoutStateNeeded |= modelChanged;
+            return;
+        }
+        int[] last = pendingChanges.isEmpty() ? null : pendingChanges.get(pendingChanges.size() - 1);
+        if (last != null && last[0] == type) {
+            // merge e.g. repeated appends or removes at the same index
+            int count = index1 - index0 + 1;
+            if (type == INSERTED && index0 >= last[1] && index0 <= last[2] + 1) {
+                last[2] += count;
+                updateLayoutStateNeeded |= cellsChanged;
+                return;
+            }
+            if (type == REMOVED && index0 == last[1]) {
+                last[2] += count;
+                updateLayoutStateNeeded |= cellsChanged;
+                return;
+            }
+            if (type == REMOVED && index1 + 1 == last[1]) {
+                last[1] = index0;
+                updateLayoutStateNeeded |= cellsChanged;
+                return;
+            }
+            if (type == CHANGED && index0 <= last[2] + 1 && index1 + 1 >= last[1]) {
+                last[1] = Math.min(last[1], index0);
+                last[2] = Math.max(last[2], index1);
+                updateLayoutStateNeeded |= cellsChanged;
+                return;
+            }
+        }
+        if (pendingChanges.size() >= MAX_PENDING_CHANGES) {
+            pendingChanges.clear();
+            updateLayoutStateNeeded |= modelChanged;
+            return;
+        }
+        pendingChanges.add(new int[] {type, index0, index1});
+        updateLayoutStateNeeded |= cellsChanged;
+    }
+
+    /**
+     * Applies the pending changes to cellHeights and cellWidths and measures
+     * the added and changed cells only. If no cells have been added or removed,
+     * the row geometry is updated in place. In lazy layout added cells are
+     * estimated, changed cells are measured only if they have been measured.
+     *
+     * @return false if the changes can't be applied incrementally
+     */
+    private boolean updateChangedCells() {
+        ListCellRenderer<Object> renderer = list.getCellRenderer();
+        int fixedCellHeight = list.getFixedCellHeight();
+        int fixedCellWidth = list.getFixedCellWidth();
+        if (layoutOrientation != JList.VERTICAL || renderer == null
+                || (fixedCellHeight == -1) != (cellHeights != null)
+                || (fixedCellWidth == -1) != (cellWidths != null)) {
+            return false;
+        }
+        if (cellHeights == null && cellWidths == null) {
+            // nothing to measure
+            return true;
+        }
+        int size = cellHeights != null ? cellHeights.length : cellWidths.length;
+        if (estimatedRows != null && estimatedRows.length != size) {
+            return false;
+        }
+        boolean resized = false;
+        for (int[] change : pendingChanges) {
+            resized |= change[0] != CHANGED;
+        }
+        if (!resized) {
+            if (size != getElementCount()) {
+                return false;
+            }
+            RowGeometry geometry = cellHeights != null ? getRowGeometry() : null;
+            boolean shrinks = false;
+            for (int[] change : pendingChanges) {
+                for (int index = change[1]; index <= Math.min(change[2], size - 1); index++) {
+                    if (estimatedRows == null || !estimatedRows[index]) {
+                        shrinks |= measureCell(renderer, index, geometry, cellHeights, cellWidths);
+                    }
+                }
+            }
+            if (shrinks) {
+                updateCellWidth();
+            }
+            return true;
+        }
+        // cells to measure are marked with -1, cells to estimate with ESTIMATED
+        boolean lazy = estimatedRows != null;
+        int[] heights = cellHeights;
+        int[] widths = cellWidths;
+        boolean[] estimated = estimatedRows;
+        for (int[] change : pendingChanges) {
+            int index0 = change[1];
+            int count = change[2] - index0 + 1;
+            if (change[0] == INSERTED) {
+                if (index0 > size) return false;
+                heights = insert(heights, index0, count, size, lazy ? ESTIMATED : -1);
+                widths = insert(widths, index0, count, size, lazy ? 0 : -1);
+                if (lazy) {
+                    boolean[] inserted = new boolean[size + count];
+                    System.arraycopy(estimated, 0, inserted, 0, index0);
+                    Arrays.fill(inserted, index0, index0 + count, true);
+                    System.arraycopy(estimated, index0, inserted, index0 + count, size - index0);
+                    estimated = inserted;
+                }
+                size += count;
+            } else if (change[0] == REMOVED) {
+                if (change[2] >= size) return false;
+                heights = remove(heights, index0, count, size);
+                widths = remove(widths, index0, count, size);
+                if (lazy) {
+                    boolean[] removed = new boolean[size - count];
+                    System.arraycopy(estimated, 0, removed, 0, index0);
+                    System.arraycopy(estimated, index0 + count, removed, index0, size - index0 - count);
+                    estimated = removed;
+                }
+                size -= count;
+            } else {
+                int[] changed = heights != null ? heights : widths;
+                for (int index = index0; index <= Math.min(change[2], size - 1); index++) {
+                    if (!lazy || !estimated[index]) {
+                        changed[index] = -1;
+                    }
+                }
+            }
+        }
+        if (size != getElementCount()) {
+            return false;
+        }
+        int[] marks = heights != null ? heights : widths;
+        if (lazy) {
+            // keep the prefix measured, e.g. after adding to an empty list
+            for (int index = 0; index < Math.min(size, LAZY_SAMPLE_SIZE); index++) {
+                if (estimated[index]) {
+                    marks[index] = -1;
+                    estimated[index] = false;
+                }
+            }
+        }
+        for (int index = 0; index < size; index++) {
+            if (marks[index] == -1) {
+                measureCell(renderer, index, null, heights, widths);
+            }
+        }
+        if (lazy && heights != null) {
+            int estimate = getEstimatedRowHeight();
+            for (int index = 0; index < size; index++) {
+                if (heights[index] == ESTIMATED) {
+                    heights[index] = estimate;
+                }
+            }
+        }
+        cellHeights = heights;
+        cellWidths = widths;
+        estimatedRows = estimated;
+        updateCellWidth();
+        return true;
+    }
+
+    /**
+     * Measures a cell and stores its height and width.
+     *
+     * @return true if the cell was the widest and became narrower
+     */
+    private boolean measureCell(ListCellRenderer<Object> renderer, int index, RowGeometry geometry,
+            int[] heights, int[] widths) {
+        Object value = getViewModel().getElementAt(index);
+        Component c = renderer.getListCellRendererComponent(list, value, index, false, false);
+        rendererPane.add(c);
+        Dimension cellSize = c.getPreferredSize();
+        boolean shrinks = false;
+        if (widths != null) {
+            shrinks = widths[index] == cellWidth && cellSize.width < cellWidth;
+            widths[index] = cellSize.width;
+            cellWidth = Math.max(cellWidth, cellSize.width);
+        }
+        if (geometry != null) {
+            geometry.setHeight(index, cellSize.height);
+        } else if (heights != null) {
+            heights[index] = cellSize.height;
+        }
+        if (geometry != null || heights != null) {
+            measuredHeightSum += cellSize.height;
+            measuredHeightCount++;
+        }
+        return shrinks;
+    }
+
+    private void updateCellWidth() {
+        if (cellWidths == null) return;
+        cellWidth = 0;
+        for (int width : cellWidths) {
+            cellWidth = Math.max(cellWidth, width);
+        }
+    }
+
+    private static int[] insert(int[] values, int index, int count, int size, int value) {
+        if (values == null) return null;
+        int[] result = new int[size + count];
+        System.arraycopy(values, 0, result, 0, index);
+        Arrays.fill(result, index, index + count, value);
+        System.arraycopy(values, index, result, index + count, size - index);
+        return result;
+    }
+
+    private static int[] remove(int[] values, int index, int count, int size) {
+        if (values == null) return null;
+        int[] result = new int[size - count];
+        System.arraycopy(values, 0, result, 0, index);
+        System.arraycopy(values, index + count, result, index, size - index - count);
+        return result;
+    }
+
+    /**
+     * Returns whether the cells are measured lazily.
+     *
+     * @return true if the list is a JYList with lazy layout
+     * @see JYList#setLazyLayout(boolean)
+     */
+    protected boolean isLazyLayout() {
+        return list instanceof JYList && ((JYList<?>) list).isLazyLayout();
+    }
+
+    /**
+     * Returns the height of rows which have not been measured in lazy layout:
+     * the average height of the measured rows.
+     *
+     * @return the estimated row height, at least 1
+     */
+    protected int getEstimatedRowHeight() {
+        if (measuredHeightCount == 0) {
+            return Math.max(1, cellHeight);
+        }
+        return (int) Math.max(1, Math.round((double) measuredHeightSum / measuredHeightCount));
+    }
+
+    /**
+     * Measures the rows in lazy layout which have estimated heights and are shown
+     * between y0 and y1, e.g. before painting them. The rows above y0 keep their
+     * heights, so the row shown at y0 doesn't move. Revalidates the list if its
+     * preferred size has changed.
+     *
+     * @param y0 the top of the area
+     * @param y1 the bottom of the area, exclusive
+     */
+    protected void measureEstimatedRows(int y0, int y1) {
+        maybeUpdateLayoutState();
+        ListCellRenderer<Object> renderer = list.getCellRenderer();
+        if (estimatedRows == null || renderer == null || layoutOrientation != JList.VERTICAL
+                || estimatedRows.length != getElementCount() || (cellHeights == null && cellHeight <= 0)) {
+            return;
+        }
+        int size = estimatedRows.length;
+        int row = convertLocationToRow(0, y0, true);
+        if (row < 0) {
+            return;
+        }
+        RowGeometry geometry = cellHeights != null ? getRowGeometry() : null;
+        int oldHeight = geometry != null ? geometry.getTotalHeight() : 0;
+        int oldWidth = cellWidth;
+        int y = list.getInsets().top + (geometry != null ? geometry.getY(row) : row * cellHeight);
+        for (; row < size && y < y1; row++) {
+            if (estimatedRows[row]) {
+                estimatedRows[row] = false;
+                measureCell(renderer, row, geometry, cellHeights, cellWidths);
+            }
+            y += geometry != null ? geometry.getHeight(row) : cellHeight;
+        }
+        if ((geometry != null && geometry.getTotalHeight() != oldHeight) || cellWidth != oldWidth) {
+            list.revalidate();
+        }
+    }
+
     /**
      * Returns the height of the specified row based on the current layout.
      *
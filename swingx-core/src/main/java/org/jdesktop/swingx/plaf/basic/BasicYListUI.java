@@ -255,6 +255,7 @@ public class BasicYListUI extends YListUI {
 
         // Determine how many columns we need to paint
         Rectangle paintBounds = g.getClipBounds();
+        measureEstimatedRows(paintBounds.y, paintBounds.y + paintBounds.height);
 
         int startColumn, endColumn;
         if (c.getComponentOrientation().isLeftToRight()) {
@@ -1931,6 +1932,9 @@ public class BasicYListUI extends YListUI {
 
 				InputMap inputMap = getInputMap(JComponent.WHEN_FOCUSED);
 				SwingUtilities.replaceUIInputMap(list, JComponent.WHEN_FOCUSED, inputMap);
+			} else if ("lazyLayout" == propertyName) {
+				updateLayoutStateNeeded |= modelChanged;
+				redrawList();
 			} else if ("List.isFileList" == propertyName) {
 				updateIsFileList(); // not visible
 				redrawList();
@@ -1963,10 +1967,9 @@ public class BasicYListUI extends YListUI {
         // ListDataListener
         //
 		public void intervalAdded(ListDataEvent e) {
-			updateLayoutStateNeeded = modelChanged;
-
 			int minIndex = Math.min(e.getIndex0(), e.getIndex1());
 			int maxIndex = Math.max(e.getIndex0(), e.getIndex1());
+			modelIntervalAdded(minIndex, maxIndex);
 
             /* Sync the SelectionModel with the DataModel.
 			 */
@@ -1984,7 +1987,7 @@ public class BasicYListUI extends YListUI {
 		}
 
 		public void intervalRemoved(ListDataEvent e) {
-			updateLayoutStateNeeded = modelChanged;
+			modelIntervalRemoved(e.getIndex0(), e.getIndex1());
 
             /* Sync the SelectionModel with the DataModel.
 			 */
@@ -2003,7 +2006,7 @@ public class BasicYListUI extends YListUI {
 		}
 
 		public void contentsChanged(ListDataEvent e) {
-			updateLayoutStateNeeded = modelChanged;
+			modelContentsChanged(e.getIndex0(), e.getIndex1());
 			redrawList();
 		}
 
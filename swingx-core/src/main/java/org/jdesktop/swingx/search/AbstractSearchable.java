@@ -157,6 +157,29 @@ public abstract class AbstractSearchable implements Searchable {
         return matchingRow;
     }
 
+    /**
+     * Performs a search with a pattern that matches only strings matched by the 
+     * pattern of a previous search, like a "contains" search after typing another 
+     * character. Searchables which keep the matches of the previous pattern may 
+     * re-check only those.<p>
+     * 
+     * This implementation ignores the previous pattern and calls 
+     * <code>search(pattern, startIndex, backwards)</code>.
+     * 
+     * @param pattern <code>Pattern</code> that we will try to locate
+     * @param startIndex position in the document in the appropriate coordinates
+     * from which we will start search or -1 to start from the beginning
+     * @param backwards <code>true</code> if we should perform search towards the beginning
+     * @param previous the pattern of a previous search which matches all strings 
+     *   matched by <code>pattern</code>, or null if unknown
+     * @return the position of the match in appropriate coordinates or -1 if
+     *   no match found.
+     * @see PatternModel#isNarrowing(String, Pattern)
+     */
+    public int search(Pattern pattern, int startIndex, boolean backwards, Pattern previous) {
+        return search(pattern, startIndex, backwards);
+    }
+
     /**
      * Performs a  search starting at the given startIndex
      * using the pattern; {@link java.util.regex.Pattern}. 
@@ -238,6 +238,40 @@ public class PatternModel {
         return isEmpty(getRawText());
     }
 
+    /**
+     * Returns a boolean indicating whether the current pattern matches only
+     * strings which are matched by the pattern previously created from the 
+     * given raw text. This is the case if the match rule is contains or startsWith 
+     * and the raw text contains or starts with the previous raw text, 
+     * respectively, as when typing ahead in an incremental search.<p>
+     * 
+     * Searchables may narrow the matches of the previous pattern then, 
+     * instead of searching all over again.
+     * 
+     * @param previousRawText the raw text of the previous pattern
+     * @param previousPattern the previous pattern
+     * @return true if the current pattern matches a subset of the strings matched
+     *   by the previous pattern
+     * @see AbstractSearchable#search(Pattern, int, boolean, Pattern)
+     */
+    public boolean isNarrowing(String previousRawText, Pattern previousPattern) {
+        Pattern current = getPattern();
+        if (current == null || previousPattern == null || isEmpty(previousRawText)) 
+            return false;
+        if (getRegexCreator().isAutoDetect() || current.flags() != previousPattern.flags()) 
+            return false;
+        // the previous pattern must have been created with the current rule
+        if (!previousPattern.pattern().equals(createRegEx(previousRawText))) 
+            return false;
+        if (MATCH_RULE_CONTAINS.equals(getMatchRule())) {
+            return getRawText().contains(previousRawText);
+        }
+        if (MATCH_RULE_STARTSWITH.equals(getMatchRule())) {
+            return getRawText().startsWith(previousRawText);
+        }
+        return false;
+    }
+
     /**
      * returns a regEx for compilation into a pattern. Here: either a "contains"
      * (== partial find) or null if the input was empty.
@@ -0,0 +1,742 @@
+package org.jdesktop.swingx.search;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.beans.PropertyChangeSupport;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.swing.RowSorter;
+import javax.swing.SwingUtilities;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ListSelectionEvent;
+import javax.swing.event.RowSorterEvent;
+import javax.swing.event.RowSorterListener;
+import javax.swing.event.TableColumnModelEvent;
+import javax.swing.event.TableColumnModelListener;
+import javax.swing.event.TableModelEvent;
+import javax.swing.event.TableModelListener;
+import javax.swing.table.TableColumnModel;
+import javax.swing.table.TableModel;
+
+import org.jdesktop.swingx.JXTable;
+import org.jdesktop.swingx.renderer.StringValue;
+import org.jdesktop.swingx.renderer.StringValues;
+import org.jdesktop.swingx.sort.SortController;
+import org.jdesktop.swingx.sort.StringValueProvider;
+
+/**
+ * The cells of a JXTable that match a Pattern, used by TableSearchable to find
+ * the next or previous match by binary search.<p>
+ *
+ * The index is built in the background: the string values of the cells are
+ * read on the EDT in slices of a few milliseconds each and matched on the
+ * common fork join pool. Setting another Pattern cancels the build. The matches
+ * are kept in model coordinates and updated on model events, so sorting,
+ * filtering and moving columns only require to map them to the view again.
+ * Model events during a build are applied to the rows read so far, so a table
+ * that keeps changing does not restart the build.<p>
+ *
+ * The string values are those of the table's StringValueRegistry if the
+ * RowSorter is a SortController, otherwise the values' toString.
+ *
+ * @see TableSearchable#setMatchIndexEnabled(boolean)
+ */
+public class TableMatchIndex {
+
+    private static final Logger LOG = Logger.getLogger(TableMatchIndex.class.getName());
+
+    /** the name of the property fired when the number of matches has changed */
+    public static final String MATCH_COUNT_PROPERTY = "matchCount";
+
+    /** the name of the property fired when matching the Pattern has failed */
+    public static final String FAILED_PROPERTY = "failed";
+
+    private static final long[] NO_CELLS = new long[0];
+
+    /** time in nanoseconds to read string values on the EDT before giving way to other events */
+    private static final long SLICE_NANOS = 8000000L;
+
+    /** maximum number of rows read in one slice */
+    private static final int MAX_SLICE_ROWS = 16384;
+
+    /** maximum number of cells read in one slice when narrowing */
+    private static final int MAX_SLICE_CELLS = 65536;
+
+    private final JXTable table;
+    private final PropertyChangeSupport propertySupport = new PropertyChangeSupport(this);
+    private final Listener listener = new Listener();
+    private TableModel model;
+    private RowSorter<?> rowSorter;
+    private TableColumnModel columnModel;
+
+    private Pattern pattern;
+    /** incremented with every build, a build is cancelled if it is no longer current */
+    private int generation;
+    /** the matching cells in model coordinates, sorted; null while building */
+    private long[] cells;
+    /** the build in progress, null if none */
+    private Builder builder;
+    /** true if the build for the current Pattern has failed */
+    private boolean failed;
+    /** the visible matching cells in view coordinates, sorted; null if not yet mapped */
+    private long[] viewCells;
+    private int matchCount = -1;
+    private boolean matchCountPending;
+
+    /**
+     * Instantiates a TableMatchIndex for the given table, without a Pattern.
+     *
+     * @param table the table to index
+     */
+    public TableMatchIndex(JXTable table) {
+        this.table = table;
+        table.addPropertyChangeListener(listener);
+        install();
+    }
+
+    /**
+     * Sets the Pattern to match and starts building the index if it differs
+     * from the current Pattern. A build in progress is cancelled.
+     *
+     * @param pattern the Pattern to match, may be null
+     */
+    public void setPattern(Pattern pattern) {
+        if (isEqual(this.pattern, pattern)) return;
+        this.pattern = pattern;
+        rebuild();
+    }
+
+    /**
+     * Sets a Pattern that matches only strings matched by the previous Pattern,
+     * for example after typing another character of a "contains" search. If the
+     * index has been built for the previous Pattern, only its matching cells are
+     * matched again, otherwise the same as {@link #setPattern(Pattern)}.
+     *
+     * @param previous the Pattern that matches all strings the new Pattern matches
+     * @param pattern the Pattern to match, may be null
+     * @see PatternModel#isNarrowing(String, Pattern)
+     */
+    public void narrowPattern(Pattern previous, Pattern pattern) {
+        if (isEqual(this.pattern, pattern)) return;
+        if (pattern == null || cells == null || !isEqual(this.pattern, previous)) {
+            setPattern(pattern);
+            return;
+        }
+        this.pattern = pattern;
+        narrow(cells);
+    }
+
+    /**
+     * @return the Pattern to match, may be null
+     */
+    public Pattern getPattern() {
+        return pattern;
+    }
+
+    /**
+     * @return true if the index has been built for the current Pattern
+     */
+    public boolean isReady() {
+        return pattern != null && cells != null;
+    }
+
+    /**
+     * Returns true if matching the current Pattern has failed, for example
+     * with a StackOverflowError of a deeply nested Pattern. The index stays
+     * empty until another Pattern is set, the cells have to be searched
+     * without it.
+     *
+     * @return true if the index cannot be built for the current Pattern
+     * @see #FAILED_PROPERTY
+     */
+    public boolean isFailed() {
+        return failed;
+    }
+
+    /**
+     * Returns the number of visible cells that match the Pattern.
+     *
+     * @return the number of matching cells, -1 if the index is not ready
+     * @see #MATCH_COUNT_PROPERTY
+     */
+    public int getMatchCount() {
+        return matchCount;
+    }
+
+    /**
+     * Stops listening to the table and cancels a build in progress.
+     */
+    public void dispose() {
+        generation++;
+        uninstall();
+        table.removePropertyChangeListener(listener);
+        pattern = null;
+        builder = null;
+        failed = false;
+        cells = null;
+        viewCells = null;
+    }
+
+    public void addPropertyChangeListener(PropertyChangeListener l) {
+        propertySupport.addPropertyChangeListener(l);
+    }
+
+    public void removePropertyChangeListener(PropertyChangeListener l) {
+        propertySupport.removePropertyChangeListener(l);
+    }
+
+    /**
+     * Returns the first matching cell from the given cell on in view order,
+     * forward or backward.
+     *
+     * @param row the row in view coordinates
+     * @param column the column in view coordinates
+     * @param backwards true to look for the last match up to the cell
+     * @return the key of the matching cell, -1 if there is none or the index is not ready
+     * @see #getRow(long)
+     * @see #getColumn(long)
+     */
+    long find(int row, int column, boolean backwards) {
+        long[] keys = getViewCells();
+        if (keys == null || row < 0) return -1;
+        int index = Arrays.binarySearch(keys, key(row, column));
+        if (index >= 0) return keys[index];
+        int insertion = -index - 1;
+        if (backwards) {
+            return insertion > 0 ? keys[insertion - 1] : -1;
+        }
+        return insertion < keys.length ? keys[insertion] : -1;
+    }
+
+    static long key(int row, int column) {
+        return ((long) row << 32) | (column & 0xFFFFFFFFL);
+    }
+
+    static int getRow(long key) {
+        return (int) (key >>> 32);
+    }
+
+    static int getColumn(long key) {
+        return (int) key;
+    }
+
+    private static boolean isEqual(Pattern p1, Pattern p2) {
+        if (p1 == null || p2 == null) return p1 == p2;
+        return p1.pattern().equals(p2.pattern()) && p1.flags() == p2.flags();
+    }
+
+//------------------ building
+
+    private void rebuild() {
+        generation++;
+        builder = null;
+        setFailed(false);
+        cells = null;
+        viewCells = null;
+        updateMatchCount();
+        if (pattern == null || model == null) return;
+        builder = new Builder(generation, pattern, null, model.getRowCount(), model.getColumnCount());
+        builder.readSlice();
+    }
+
+    private void setFailed(boolean failed) {
+        boolean old = this.failed;
+        this.failed = failed;
+        propertySupport.firePropertyChange(FAILED_PROPERTY, old, failed);
+    }
+
+    /**
+     * Matches the candidate cells against the current Pattern: on the EDT if
+     * they fit into one slice, otherwise like a build.
+     */
+    private void narrow(long[] candidates) {
+        generation++;
+        builder = null;
+        setFailed(false);
+        cells = null;
+        viewCells = null;
+        if (candidates.length <= MAX_SLICE_CELLS) {
+            StringValueProvider provider = getStringValueProvider();
+            String[] values = new String[candidates.length];
+            for (int i = 0; i < candidates.length; i++) {
+                values[i] = getString(provider, getRow(candidates[i]), getColumn(candidates[i]));
+            }
+            cells = match(pattern, values, candidates, 0, candidates.length);
+            updateMatchCount();
+            return;
+        }
+        updateMatchCount();
+        builder = new Builder(generation, pattern, candidates, candidates.length, model.getColumnCount());
+        builder.readSlice();
+    }
+
+    /**
+     * Reads the string values in slices on the EDT and matches them in the background.
+     */
+    private class Builder {
+        private final int generation;
+        private final Pattern pattern;
+        /** the cells to match, null to match all cells; the remaining ones are replaced on model changes */
+        private long[] candidates;
+        /** the number of rows, or the number of candidates if there are candidates */
+        private int end;
+        private final int columnCount;
+        private final StringValueProvider provider = getStringValueProvider();
+        private final List<CompletableFuture<long[]>> slices = new ArrayList<CompletableFuture<long[]>>();
+        /** the model changes to apply to the slices read before them */
+        private final List<Change> changes = new ArrayList<Change>();
+        /** the next row, or the next candidate if there are candidates */
+        private int position;
+
+        Builder(int generation, Pattern pattern, long[] candidates, int end, int columnCount) {
+            this.generation = generation;
+            this.pattern = pattern;
+            this.candidates = candidates;
+            this.end = end;
+            this.columnCount = columnCount;
+        }
+
+        void readSlice() {
+            if (generation != TableMatchIndex.this.generation) return;
+            if (candidates != null) {
+                readCandidates();
+            } else {
+                readRows();
+            }
+            if (position < end) {
+                SwingUtilities.invokeLater(this::readSlice);
+                return;
+            }
+            CompletableFuture.allOf(slices.toArray(new CompletableFuture<?>[0])).whenComplete((v, ex) -> {
+                if (ex != null) {
+                    LOG.log(Level.WARNING, "matching failed", ex);
+                }
+                SwingUtilities.invokeLater(this::finish);
+            });
+        }
+
+        private void readRows() {
+            long start = System.nanoTime();
+            final int from = position;
+            final String[] values = new String[Math.min(MAX_SLICE_ROWS, end - from) * columnCount];
+            while (position < end && position - from < MAX_SLICE_ROWS
+                    && (position == from || System.nanoTime() - start < SLICE_NANOS)) {
+                int offset = (position - from) * columnCount;
+                for (int column = 0; column < columnCount; column++) {
+                    values[offset + column] = getString(provider, position, column);
+                }
+                position++;
+            }
+            final int to = position;
+            slices.add(CompletableFuture.supplyAsync(() -> match(pattern, values, from, to, columnCount)));
+        }
+
+        private void readCandidates() {
+            long start = System.nanoTime();
+            final long[] candidates = this.candidates;
+            final int from = position;
+            final String[] values = new String[Math.min(MAX_SLICE_CELLS, end - from)];
+            while (position < end && position - from < MAX_SLICE_CELLS
+                    && (position == from || System.nanoTime() - start < SLICE_NANOS)) {
+                long cell = candidates[position];
+                values[position - from] = getString(provider, getRow(cell), getColumn(cell));
+                position++;
+            }
+            final int to = position;
+            slices.add(CompletableFuture.supplyAsync(() -> match(pattern, values, candidates, from, to)));
+        }
+
+        /**
+         * Applies a model change to the cells read so far. Rows which are not
+         * yet read are read later as they are then.
+         */
+        void tableChanged(int type, int first, int last, int column) {
+            int count = last - first + 1;
+            if (candidates != null) {
+                // the change replaces the cells of its rows, so the remaining candidates lose them
+                Change change = createChange(type, first, last, column);
+                add(change);
+                candidates = change.remove(Arrays.copyOfRange(candidates, position, end));
+                position = 0;
+                end = candidates.length;
+                return;
+            }
+            switch (type) {
+            case TableModelEvent.INSERT:
+                // all rows are read once the slices are matched
+                if (first < position || position == end) {
+                    add(createChange(type, first, last, column));
+                    position += count;
+                }
+                end += count;
+                break;
+            case TableModelEvent.DELETE:
+                if (first < position) {
+                    add(createChange(type, first, last, column));
+                    position -= Math.min(last + 1, position) - first;
+                }
+                end -= count;
+                break;
+            default:
+                if (first < position) {
+                    add(createChange(type, first, Math.min(last, position - 1), column));
+                }
+            }
+        }
+
+        private void add(Change change) {
+            change.slices = slices.size();
+            changes.add(change);
+        }
+
+        void finish() {
+            if (generation != TableMatchIndex.this.generation) return;
+            builder = null;
+            for (CompletableFuture<long[]> slice : slices) {
+                if (slice.isCompletedExceptionally()) {
+                    setFailed(true);
+                    return;
+                }
+            }
+            // the cells of the slices read before a change are moved by it, the matches of
+            // the changed rows are moved by the changes after it
+            List<long[]> parts = new ArrayList<long[]>();
+            long[] added = NO_CELLS;
+            int next = 0;
+            for (int i = 0; i <= slices.size(); i++) {
+                for (; next < changes.size() && changes.get(next).slices == i; next++) {
+                    Change change = changes.get(next);
+                    long[] keys = change.remove(concat(parts));
+                    parts.clear();
+                    parts.add(keys);
+                    added = change.apply(added);
+                }
+                if (i < slices.size()) {
+                    parts.add(slices.get(i).join());
+                }
+            }
+            cells = merge(concat(parts), added);
+            updateMatchCount();
+        }
+    }
+
+    /**
+     * A model change of matching cells: the cells of the rows from first to
+     * last in the column (or all columns if -1) are dropped, the cells of the
+     * rows from last + 1 on are moved by delta and the matches of the changed
+     * rows are added.
+     */
+    private static class Change {
+        final int first;
+        final int last;
+        final int column;
+        final int delta;
+        final long[] matches;
+        /** the number of slices read before the change, if changing a build */
+        int slices;
+
+        Change(int first, int last, int column, int delta, long[] matches) {
+            this.first = first;
+            this.last = last;
+            this.column = column;
+            this.delta = delta;
+            this.matches = matches;
+        }
+
+        /**
+         * @return the keys without the changed cells, the following rows moved
+         */
+        long[] remove(long[] keys) {
+            return replace(keys, first, last, column, delta);
+        }
+
+        /**
+         * @return the keys with the changed cells matched again
+         */
+        long[] apply(long[] keys) {
+            return merge(remove(keys), matches);
+        }
+    }
+
+    /**
+     * Matches the changed rows of a model event on the EDT.
+     *
+     * @param column the model column, or -1 for all columns
+     */
+    private Change createChange(int type, int first, int last, int column) {
+        int count = last - first + 1;
+        switch (type) {
+        case TableModelEvent.INSERT:
+            return new Change(first, first - 1, -1, count, match(first, last, -1));
+        case TableModelEvent.DELETE:
+            return new Change(first, last, -1, -count, NO_CELLS);
+        default:
+            return new Change(first, last, column, 0, match(first, last, column));
+        }
+    }
+
+    /**
+     * Matches the string values of the rows from to to, in row major order.
+     *
+     * @return the keys of the matching cells in model coordinates, sorted
+     */
+    private static long[] match(Pattern pattern, String[] values, int from, int to, int columnCount) {
+        Matcher matcher = pattern.matcher("");
+        long[] keys = new long[16];
+        int count = 0;
+        for (int i = 0; i < (to - from) * columnCount; i++) {
+            String text = values[i];
+            if (text == null || text.length() == 0) continue;
+            if (matcher.reset(text).find()) {
+                if (count == keys.length) {
+                    keys = Arrays.copyOf(keys, count * 2);
+                }
+                keys[count++] = key(from + i / columnCount, i % columnCount);
+            }
+        }
+        return Arrays.copyOf(keys, count);
+    }
+
+    /**
+     * Matches the string values of the candidates from to to.
+     *
+     * @return the keys of the matching candidates, sorted
+     */
+    private static long[] match(Pattern pattern, String[] values, long[] candidates, int from, int to) {
+        Matcher matcher = pattern.matcher("");
+        long[] keys = new long[to - from];
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            String text = values[i - from];
+            if (text != null && text.length() > 0 && matcher.reset(text).find()) {
+                keys[count++] = candidates[i];
+            }
+        }
+        return Arrays.copyOf(keys, count);
+    }
+
+    private StringValueProvider getStringValueProvider() {
+        RowSorter<?> sorter = table.getRowSorter();
+        return sorter instanceof SortController ? ((SortController<?>) sorter).getStringValueProvider() : null;
+    }
+
+    private String getString(StringValueProvider provider, int row, int column) {
+        Object value = model.getValueAt(row, column);
+        StringValue sv = provider != null ? provider.getStringValue(row, column) : StringValues.TO_STRING;
+        return sv.getString(value);
+    }
+
+    /**
+     * Matches the cells of the given model rows on the EDT.
+     *
+     * @param column the model column, or -1 for all columns
+     * @return the keys of the matching cells, sorted
+     */
+    private long[] match(int firstRow, int lastRow, int column) {
+        StringValueProvider provider = getStringValueProvider();
+        int columnCount = model.getColumnCount();
+        Matcher matcher = pattern.matcher("");
+        long[] keys = new long[16];
+        int count = 0;
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int c = 0; c < columnCount; c++) {
+                if (column >= 0 && c != column) continue;
+                String text = getString(provider, row, c);
+                if (text != null && text.length() > 0 && matcher.reset(text).find()) {
+                    if (count == keys.length) {
+                        keys = Arrays.copyOf(keys, count * 2);
+                    }
+                    keys[count++] = key(row, c);
+                }
+            }
+        }
+        return Arrays.copyOf(keys, count);
+    }
+
+//------------------ mapping to the view
+
+    private long[] getViewCells() {
+        if (viewCells == null && cells != null) {
+            long[] keys = new long[cells.length];
+            int count = 0;
+            int rowCount = model.getRowCount();
+            for (long cell : cells) {
+                int row = getRow(cell);
+                if (row >= rowCount) continue;
+                int viewRow = table.convertRowIndexToView(row);
+                int viewColumn = table.convertColumnIndexToView(getColumn(cell));
+                if (viewRow >= 0 && viewColumn >= 0) {
+                    keys[count++] = key(viewRow, viewColumn);
+                }
+            }
+            Arrays.sort(keys, 0, count);
+            viewCells = Arrays.copyOf(keys, count);
+        }
+        return viewCells;
+    }
+
+    private void invalidateView() {
+        viewCells = null;
+        if (cells != null && !matchCountPending) {
+            // the table might not yet be notified of the change
+            matchCountPending = true;
+            SwingUtilities.invokeLater(() -> {
+                matchCountPending = false;
+                updateMatchCount();
+            });
+        }
+    }
+
+    private void updateMatchCount() {
+        int old = matchCount;
+        long[] keys = getViewCells();
+        matchCount = keys != null ? keys.length : -1;
+        propertySupport.firePropertyChange(MATCH_COUNT_PROPERTY, old, matchCount);
+    }
+
+//------------------ model changes
+
+    private void tableChanged(TableModelEvent e) {
+        if (pattern == null || failed) return;
+        if (e.getFirstRow() == TableModelEvent.HEADER_ROW || e.getLastRow() == Integer.MAX_VALUE) {
+            // all changed
+            rebuild();
+            return;
+        }
+        int column = e.getColumn() == TableModelEvent.ALL_COLUMNS ? -1 : e.getColumn();
+        if (cells == null) {
+            if (builder != null) {
+                builder.tableChanged(e.getType(), e.getFirstRow(), e.getLastRow(), column);
+            }
+            return;
+        }
+        cells = createChange(e.getType(), e.getFirstRow(), e.getLastRow(), column).apply(cells);
+        invalidateView();
+    }
+
+    /**
+     * Drops the cells of the rows from first to last in the column (or all columns if -1)
+     * and moves the cells of the rows from last + 1 on by delta.
+     */
+    private static long[] replace(long[] keys, int first, int last, int column, int delta) {
+        long[] result = new long[keys.length];
+        int count = 0;
+        for (long key : keys) {
+            int row = getRow(key);
+            if (row < first) {
+                result[count++] = key;
+            } else if (row > last) {
+                result[count++] = key(row + delta, getColumn(key));
+            } else if (column >= 0 && getColumn(key) != column) {
+                result[count++] = key;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private static long[] concat(List<long[]> parts) {
+        if (parts.size() == 1) return parts.get(0);
+        int count = 0;
+        for (long[] part : parts) {
+            count += part.length;
+        }
+        long[] result = new long[count];
+        int offset = 0;
+        for (long[] part : parts) {
+            System.arraycopy(part, 0, result, offset, part.length);
+            offset += part.length;
+        }
+        return result;
+    }
+
+    private static long[] merge(long[] keys1, long[] keys2) {
+        if (keys2.length == 0) return keys1;
+        long[] result = new long[keys1.length + keys2.length];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < keys1.length && j < keys2.length) {
+            result[k++] = keys1[i] <= keys2[j] ? keys1[i++] : keys2[j++];
+        }
+        while (i < keys1.length) result[k++] = keys1[i++];
+        while (j < keys2.length) result[k++] = keys2[j++];
+        return result;
+    }
+
+    private void install() {
+        model = table.getModel();
+        rowSorter = table.getRowSorter();
+        columnModel = table.getColumnModel();
+        if (model != null) model.addTableModelListener(listener);
+        if (rowSorter != null) rowSorter.addRowSorterListener(listener);
+        if (columnModel != null) columnModel.addColumnModelListener(listener);
+    }
+
+    private void uninstall() {
+        if (model != null) model.removeTableModelListener(listener);
+        if (rowSorter != null) rowSorter.removeRowSorterListener(listener);
+        if (columnModel != null) columnModel.removeColumnModelListener(listener);
+    }
+
+    private class Listener implements PropertyChangeListener, TableModelListener,
+            RowSorterListener, TableColumnModelListener {
+
+        @Override
+        public void propertyChange(PropertyChangeEvent evt) {
+            String name = evt.getPropertyName();
+            if ("model".equals(name) || "rowSorter".equals(name) || "columnModel".equals(name)) {
+                uninstall();
+                install();
+                if ("model".equals(name)) {
+                    rebuild();
+                } else {
+                    invalidateView();
+                }
+            }
+        }
+
+        @Override
+        public void tableChanged(TableModelEvent e) {
+            TableMatchIndex.this.tableChanged(e);
+        }
+
+        @Override
+        public void sorterChanged(RowSorterEvent e) {
+            if (e.getType() == RowSorterEvent.Type.SORTED) {
+                invalidateView();
+            }
+        }
+
+        @Override
+        public void columnAdded(TableColumnModelEvent e) {
+            invalidateView();
+        }
+
+        @Override
+        public void columnRemoved(TableColumnModelEvent e) {
+            invalidateView();
+        }
+
+        @Override
+        public void columnMoved(TableColumnModelEvent e) {
+            if (e.getFromIndex() != e.getToIndex()) {
+                invalidateView();
+            }
+        }
+
+        @Override
+        public void columnMarginChanged(ChangeEvent e) {
+        }
+
+        @Override
+        public void columnSelectionChanged(ListSelectionEvent e) {
+        }
+    }
+}
@@ -19,6 +19,7 @@
 package org.jdesktop.swingx.search;
 
 import java.awt.Rectangle;
+import java.beans.PropertyChangeListener;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -33,7 +34,9 @@ import org.jdesktop.swingx.decorator.Highlighter;
 import org.jdesktop.swingx.renderer.StringValue;
 
 /**
- * An Searchable implementation for use in JXTable.
+ * An Searchable implementation for use in JXTable.<p>
+ * 
+ * Large tables can be searched with a match index, see {@link #setMatchIndexEnabled(boolean)}.
  * 
  * @author Jeanette Winzenburg
  * @author EUG https://github.com/homebeaver (use in JXTreeTable)
@@ -45,6 +48,15 @@ public class TableSearchable extends AbstractSearchable {
     /** The target JXTable. */
     protected JXTable table;
 
+    private TableMatchIndex matchIndex;
+    private PropertyChangeListener matchIndexListener;
+
+    /** the arguments of the last search, repeated when the match index is built */
+    private Pattern searchPattern;
+    private int searchStartIndex;
+    private boolean searchBackwards;
+    private boolean searchPending;
+
     /**
      * Instantiates a TableSearchable with the given table as target.
      * 
@@ -54,14 +66,109 @@ public class TableSearchable extends AbstractSearchable {
         this.table = table;
     }
 
+    /**
+     * Sets whether to search with a match index. Default is false.<p>
+     * 
+     * If enabled, searching for a new Pattern starts to build a {@link TableMatchIndex} 
+     * in the background and reports no match until the index is ready: then the search 
+     * is repeated and the match marker moved. Finding the next or previous match is 
+     * a binary search in the index. Not supported for a JXTreeTable.
+     * 
+     * @param enabled true to search with a match index
+     * @see #getMatchIndex()
+     */
+    public void setMatchIndexEnabled(boolean enabled) {
+        if (enabled == (matchIndex != null)) return;
+        if (enabled) {
+            matchIndex = new TableMatchIndex(table);
+            matchIndexListener = e -> matchIndexChanged();
+            matchIndex.addPropertyChangeListener(matchIndexListener);
+        } else {
+            matchIndex.removePropertyChangeListener(matchIndexListener);
+            matchIndex.dispose();
+            matchIndex = null;
+            searchPending = false;
+        }
+    }
+
+    /**
+     * Returns whether to search with a match index.
+     * 
+     * @return true if searching with a match index
+     * @see #setMatchIndexEnabled(boolean)
+     */
+    public boolean isMatchIndexEnabled() {
+        return matchIndex != null;
+    }
+
+    /**
+     * Returns the match index, e.g. to show the match count.
+     * 
+     * @return the match index or null if not enabled
+     * @see #setMatchIndexEnabled(boolean)
+     */
+    public TableMatchIndex getMatchIndex() {
+        return matchIndex;
+    }
+
+    private boolean isMatchIndexUsed() {
+        return matchIndex != null && !(table instanceof JXTreeTable);
+    }
+
+    /**
+     * Repeats a search that waited for the match index.
+     */
+    private void matchIndexChanged() {
+        if (searchPending && (matchIndex.isReady() || matchIndex.isFailed())) {
+            searchPending = false;
+            search(searchPattern, searchStartIndex, searchBackwards);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * 
+     * Overridden to keep the arguments for repeating the search when the 
+     * match index is ready.
+     */
+    @Override
+    public int search(Pattern pattern, int startIndex, boolean backwards) {
+        searchPattern = pattern;
+        searchStartIndex = startIndex;
+        searchBackwards = backwards;
+        searchPending = false;
+        return super.search(pattern, startIndex, backwards);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * 
+     * Implemented to only match the cells of the previous Pattern again if 
+     * the match index is enabled.
+     */
+    @Override
+    public int search(Pattern pattern, int startIndex, boolean backwards, Pattern previous) {
+        if (previous != null && isMatchIndexUsed()) {
+            matchIndex.narrowPattern(previous, pattern);
+        }
+        return search(pattern, startIndex, backwards);
+    }
+
     /**
      * {@inheritDoc}
      * <p>
      * 
-     * This implementation loops through the cells in a row to find a match.
+     * This implementation looks up the match index if enabled, otherwise 
+     * or if the index failed for the pattern loops through the cells in a 
+     * row to find a match.
      */
     @Override
     protected void findMatchAndUpdateState(Pattern pattern, int startRow, boolean backwards) {
+        if (isMatchIndexUsed() && findIndexedMatchAndUpdateState(pattern, startRow, backwards)) {
+            return;
+        }
         SearchResult matchRow = null;
         if (backwards) {
             // CHECK: off-one end still needed?
@@ -84,6 +191,48 @@ public class TableSearchable extends AbstractSearchable {
         // updateState(matchRow);
     }
 
+    /**
+     * Finds the next or previous match in the match index, starting at 
+     * lastFoundColumn of the start row.
+     * 
+     * @return false if the match index failed for the pattern and the state
+     *   is not updated
+     */
+    private boolean findIndexedMatchAndUpdateState(Pattern pattern, int startRow, boolean backwards) {
+        matchIndex.setPattern(pattern);
+        if (matchIndex.isFailed()) {
+            return false;
+        }
+        if (!matchIndex.isReady()) {
+            searchPending = true;
+            updateState(null);
+            return true;
+        }
+        int column = lastSearchResult.foundColumn;
+        if (column < 0) {
+            column = backwards ? table.getColumnCount() - 1 : 0;
+        }
+        long key = matchIndex.find(startRow, column, backwards);
+        while (key >= 0) {
+            int row = TableMatchIndex.getRow(key);
+            column = TableMatchIndex.getColumn(key);
+            // re-match for the match result, the cell may have changed its string value
+            SearchResult result = findMatchAt(pattern, row, column);
+            if (result != null) {
+                updateState(result);
+                return true;
+            }
+            if (backwards) {
+                key = column > 0 ? matchIndex.find(row, column - 1, true) 
+                        : matchIndex.find(row - 1, Integer.MAX_VALUE, true);
+            } else {
+                key = matchIndex.find(row, column + 1, false);
+            }
+        }
+        updateState(null);
+        return true;
+    }
+
     /**
      * {@inheritDoc}
      * <p>
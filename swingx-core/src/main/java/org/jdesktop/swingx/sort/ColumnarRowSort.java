@@ -0,0 +1,357 @@
+package org.jdesktop.swingx.sort;
+
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.Comparator;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.IntStream;
+
+import javax.swing.SortOrder;
+
+/**
+ * Sorts model rows by sort key values that have been extracted from the model into one array
+ * per sort column. Needs no access to the model, so it can run off the EDT.<p>
+ *
+ * Before sorting, the values of each column are converted to the cheapest keys that
+ * compare the same as the column comparator: <code>long</code>s or <code>double</code>s for
+ * boxed numbers compared by {@link DefaultSortController#COMPARABLE_COMPARATOR},
+ * <code>CollationKey</code>s for strings compared by a <code>Collator</code>. Other values are
+ * compared by their comparator, which then must tolerate being called from a worker thread.<p>
+ *
+ * The order is the same as the one of <code>DefaultRowSorter</code>: nulls first, descending
+ * columns reversed, equal rows in model order.<p>
+ *
+ * A sort that is no longer needed can be cancelled from any thread, it then stops
+ * between the conversion of chunks and between merges.
+ *
+ * @see TableSortController#setBackgroundSortThreshold(int)
+ */
+final class ColumnarRowSort {
+
+    /** rows sorted by a single task in parallel mode */
+    private static final int SEQUENTIAL_THRESHOLD = 8192;
+
+    /** rows converted to keys by a single task in parallel mode */
+    private static final int CHUNK_SIZE = 16384;
+
+    private final Object[][] values;
+    private final Comparator<?>[] comparators;
+    private final boolean[] descending;
+    private final int rowCount;
+    private Column[] columns;
+    private volatile boolean cancelled;
+
+    /**
+     * @param values the values of the sort columns, indexed by model row, in sort key order
+     * @param comparators the comparators of the sort columns
+     * @param orders the sort orders of the sort columns
+     * @param rowCount the number of model rows
+     */
+    ColumnarRowSort(Object[][] values, Comparator<?>[] comparators, SortOrder[] orders, int rowCount) {
+        this.values = values;
+        this.comparators = comparators;
+        this.rowCount = rowCount;
+        descending = new boolean[orders.length];
+        for (int i = 0; i < orders.length; i++) {
+            descending[i] = orders[i] == SortOrder.DESCENDING;
+        }
+    }
+
+    /**
+     * Stops a sort in progress, which then throws a CancellationException.
+     */
+    void cancel() {
+        cancelled = true;
+    }
+
+    private void checkCancelled() {
+        if (cancelled) {
+            throw new CancellationException("sort cancelled");
+        }
+    }
+
+    /**
+     * Converts the values to keys and sorts the rows.
+     *
+     * @param parallel true to use the common fork join pool
+     * @return the model indices in view order
+     */
+    int[] sort(boolean parallel) {
+        return sort(null, parallel);
+    }
+
+    /**
+     * Converts the values to keys and sorts the given rows.
+     *
+     * @param included the model rows to sort in ascending order, or null to sort all rows
+     * @param parallel true to use the common fork join pool
+     * @return the model indices in view order
+     * @throws CancellationException if the sort has been cancelled
+     */
+    int[] sort(int[] included, boolean parallel) {
+        columns = new Column[values.length];
+        for (int i = 0; i < values.length; i++) {
+            checkCancelled();
+            columns[i] = createColumn(values[i], comparators[i], parallel);
+        }
+        checkCancelled();
+        int[] rows;
+        if (included != null) {
+            rows = included.clone();
+        } else {
+            rows = new int[rowCount];
+            for (int i = 0; i < rowCount; i++) {
+                rows[i] = i;
+            }
+        }
+        int[] tmp = new int[rows.length];
+        if (parallel && rows.length > SEQUENTIAL_THRESHOLD) {
+            ForkJoinPool.commonPool().invoke(new SortTask(rows, tmp, 0, rows.length));
+        } else {
+            mergeSort(rows, tmp, 0, rows.length);
+        }
+        return rows;
+    }
+
+    /**
+     * Compares two model rows by the sort columns. Only valid after sorting.
+     *
+     * @param row1 the first model row
+     * @param row2 the second model row
+     * @return the order of the rows in the view
+     */
+    int compare(int row1, int row2) {
+        for (int i = 0; i < columns.length; i++) {
+            int result = columns[i].compare(row1, row2);
+            if (result != 0) {
+                return descending[i] ? -result : result;
+            }
+        }
+        // equal: fall back to model order
+        return row1 - row2;
+    }
+
+//------------------ merge sort
+
+    private void mergeSort(int[] rows, int[] tmp, int from, int to) {
+        if (to - from < 32) {
+            insertionSort(rows, from, to);
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        mergeSort(rows, tmp, from, mid);
+        mergeSort(rows, tmp, mid, to);
+        merge(rows, tmp, from, mid, to);
+    }
+
+    private void insertionSort(int[] rows, int from, int to) {
+        for (int i = from + 1; i < to; i++) {
+            int row = rows[i];
+            int j = i - 1;
+            while (j >= from && compare(rows[j], row) > 0) {
+                rows[j + 1] = rows[j];
+                j--;
+            }
+            rows[j + 1] = row;
+        }
+    }
+
+    private void merge(int[] rows, int[] tmp, int from, int mid, int to) {
+        checkCancelled();
+        if (compare(rows[mid - 1], rows[mid]) <= 0) {
+            return; // already in order
+        }
+        System.arraycopy(rows, from, tmp, from, to - from);
+        int i = from;
+        int j = mid;
+        for (int k = from; k < to; k++) {
+            if (j >= to || (i < mid && compare(tmp[i], tmp[j]) <= 0)) {
+                rows[k] = tmp[i++];
+            } else {
+                rows[k] = tmp[j++];
+            }
+        }
+    }
+
+    private class SortTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int[] rows;
+        private final int[] tmp;
+        private final int from;
+        private final int to;
+
+        SortTask(int[] rows, int[] tmp, int from, int to) {
+            this.rows = rows;
+            this.tmp = tmp;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SEQUENTIAL_THRESHOLD) {
+                mergeSort(rows, tmp, from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new SortTask(rows, tmp, from, mid), new SortTask(rows, tmp, mid, to));
+            merge(rows, tmp, from, mid, to);
+        }
+    }
+
+//------------------ columns
+
+    private Column createColumn(Object[] values, Comparator<?> comparator, boolean parallel) {
+        if (comparator == DefaultSortController.COMPARABLE_COMPARATOR) {
+            Class<?> type = getCommonClass(values);
+            if (type == Integer.class || type == Long.class || type == Short.class || type == Byte.class) {
+                return new LongColumn(values);
+            }
+            if (type == Double.class || type == Float.class) {
+                return new DoubleColumn(values);
+            }
+        } else if (comparator instanceof Collator && getCommonClass(values) == String.class) {
+            return new CollationColumn(values, (Collator) comparator, parallel);
+        }
+        return new ObjectColumn(values, comparator);
+    }
+
+    /**
+     * @return the class of all non-null values, or null if they are of different classes or all null
+     */
+    private static Class<?> getCommonClass(Object[] values) {
+        Class<?> type = null;
+        for (Object value : values) {
+            if (value == null) continue;
+            if (type == null) {
+                type = value.getClass();
+            } else if (value.getClass() != type) {
+                return null;
+            }
+        }
+        return type;
+    }
+
+    private abstract static class Column {
+        /** the null values, null if there are none */
+        private boolean[] nulls;
+
+        Column(Object[] values) {
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] == null) {
+                    if (nulls == null) {
+                        nulls = new boolean[values.length];
+                    }
+                    nulls[i] = true;
+                }
+            }
+        }
+
+        final int compare(int row1, int row2) {
+            if (nulls != null) {
+                if (nulls[row1]) {
+                    return nulls[row2] ? 0 : -1;
+                }
+                if (nulls[row2]) {
+                    return 1;
+                }
+            }
+            return compareValues(row1, row2);
+        }
+
+        /** compares non-null values */
+        abstract int compareValues(int row1, int row2);
+    }
+
+    private static final class LongColumn extends Column {
+        private final long[] keys;
+
+        LongColumn(Object[] values) {
+            super(values);
+            keys = new long[values.length];
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] != null) {
+                    keys[i] = ((Number) values[i]).longValue();
+                }
+            }
+        }
+
+        @Override
+        int compareValues(int row1, int row2) {
+            return Long.compare(keys[row1], keys[row2]);
+        }
+    }
+
+    private static final class DoubleColumn extends Column {
+        private final double[] keys;
+
+        DoubleColumn(Object[] values) {
+            super(values);
+            keys = new double[values.length];
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] != null) {
+                    keys[i] = ((Number) values[i]).doubleValue();
+                }
+            }
+        }
+
+        @Override
+        int compareValues(int row1, int row2) {
+            // same order as Double/Float.compareTo, widening keeps the order of floats
+            return Double.compare(keys[row1], keys[row2]);
+        }
+    }
+
+    private final class CollationColumn extends Column {
+        private final CollationKey[] keys;
+
+        CollationColumn(final Object[] values, final Collator collator, boolean parallel) {
+            super(values);
+            keys = new CollationKey[values.length];
+            if (!parallel || values.length <= CHUNK_SIZE) {
+                convert(values, (Collator) collator.clone(), 0, values.length);
+                return;
+            }
+            int chunks = (values.length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+            IntStream.range(0, chunks).parallel().forEach(c -> {
+                checkCancelled();
+                int from = c * CHUNK_SIZE;
+                // collators are not thread safe
+                convert(values, (Collator) collator.clone(), from, Math.min(values.length, from + CHUNK_SIZE));
+            });
+        }
+
+        private void convert(Object[] values, Collator collator, int from, int to) {
+            for (int i = from; i < to; i++) {
+                if (values[i] != null) {
+                    keys[i] = collator.getCollationKey((String) values[i]);
+                }
+            }
+        }
+
+        @Override
+        int compareValues(int row1, int row2) {
+            return keys[row1].compareTo(keys[row2]);
+        }
+    }
+
+    private static final class ObjectColumn extends Column {
+        private final Object[] values;
+        @SuppressWarnings("rawtypes")
+        private final Comparator comparator;
+
+        ObjectColumn(Object[] values, Comparator<?> comparator) {
+            super(values);
+            this.values = values;
+            this.comparator = comparator;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        int compareValues(int row1, int row2) {
+            return comparator.compare(values[row1], values[row2]);
+        }
+    }
+}
@@ -368,6 +368,20 @@ public abstract class DefaultSortController<M> extends DefaultRowSorter<M, Integ
         return getRowFilter() != null;
     }
     
+    /**
+     * Returns the mapping of DefaultRowSorter, bypassing the overridden conversion methods.
+     * 
+     * @return the model indices in view order
+     */
+    int[] getRowSorterMapping() {
+        int count = super.getViewRowCount();
+        int[] mapping = new int[count];
+        for (int i = 0; i < count; i++) {
+            mapping[i] = super.convertRowIndexToModel(i);
+        }
+        return mapping;
+    }
+    
 //------------------ overridden notification methods: cache model row count    
     @Override
     public void allRowsChanged() {
@@ -0,0 +1,202 @@
+package org.jdesktop.swingx.sort;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+import org.jdesktop.swingx.sort.RowFilters.CellValues;
+import org.jdesktop.swingx.sort.RowFilters.ConcurrentFilter;
+
+/**
+ * Evaluates ConcurrentFilters on cached string values of the model cells.<p>
+ *
+ * The string values are converted once on the EDT and kept until the cells
+ * change, so changing the filter, e.g. while typing a search, only matches the
+ * cached strings. Matching runs in chunks of rows on the common fork join pool,
+ * each chunk with its own matcher.<p>
+ *
+ * The cache must be told about every model change. A snapshot of the cache
+ * may be matched off the EDT while the cache itself is changed: the arrays
+ * of a snapshot are copied before they are changed in place.
+ *
+ * @see TableSortController
+ */
+final class RowFilterEngine {
+
+    /** rows matched by a single task */
+    private static final int CHUNK_SIZE = 16384;
+
+    /** cached string values per model column, null if not cached; null cells are not yet converted */
+    private String[][] columns = new String[0][];
+
+    /** the number of model rows, cells from there on are null */
+    private int rowCount;
+
+    /** true if a snapshot shares the column arrays */
+    private boolean shared;
+
+    /**
+     * Converts the missing string values of the columns matched by the filter.
+     * To be called on the EDT.
+     *
+     * @param filter the filter to prepare for
+     * @param model the string values of the model
+     * @param rowCount the number of model rows
+     * @return a snapshot of the string values that may be used off the EDT
+     */
+    CellValues prepare(ConcurrentFilter filter, CellValues model, int rowCount) {
+        int columnCount = model.getColumnCount();
+        if (columns.length != columnCount) {
+            columns = Arrays.copyOf(columns, columnCount);
+        }
+        this.rowCount = rowCount;
+        int[] indices = filter.getColumns();
+        if (indices.length == 0) {
+            for (int column = 0; column < columnCount; column++) {
+                prepareColumn(model, column);
+            }
+        } else {
+            for (int column : indices) {
+                if (column < columnCount) {
+                    prepareColumn(model, column);
+                }
+            }
+        }
+        return snapshot(columnCount);
+    }
+
+    private void prepareColumn(CellValues model, int column) {
+        String[] values = columns[column];
+        if (values == null || values.length < rowCount) {
+            // a new array, so writing to it does not affect snapshots
+            values = values == null ? new String[rowCount]
+                    : Arrays.copyOf(values, Math.max(rowCount, values.length + values.length / 2));
+            columns[column] = values;
+        }
+        // only null cells are written, which no snapshot reads
+        for (int row = 0; row < rowCount; row++) {
+            if (values[row] == null) {
+                values[row] = model.getStringValue(row, column);
+            }
+        }
+    }
+
+    private CellValues snapshot(final int columnCount) {
+        shared = true;
+        final String[][] values = columns.clone();
+        return new CellValues() {
+
+            @Override
+            public int getColumnCount() {
+                return columnCount;
+            }
+
+            @Override
+            public String getStringValue(int row, int column) {
+                return values[column][row];
+            }
+        };
+    }
+
+    /**
+     * Matches all rows.
+     *
+     * @param filter the filter
+     * @param cells the string values, prepared for the filter
+     * @param rowCount the number of rows to match
+     * @param parallel true to use the common fork join pool
+     * @return the included rows in ascending order
+     */
+    static int[] filter(final ConcurrentFilter filter, final CellValues cells, int rowCount, boolean parallel) {
+        final boolean[] included = new boolean[rowCount];
+        int chunks = (rowCount + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        if (parallel && chunks > 1) {
+            IntStream.range(0, chunks).parallel().forEach(chunk -> {
+                int from = chunk * CHUNK_SIZE;
+                match(filter.createMatcher(cells), included, from, Math.min(rowCount, from + CHUNK_SIZE));
+            });
+        } else {
+            match(filter.createMatcher(cells), included, 0, rowCount);
+        }
+        int[] rows = new int[rowCount];
+        int count = 0;
+        for (int row = 0; row < rowCount; row++) {
+            if (included[row]) {
+                rows[count++] = row;
+            }
+        }
+        return Arrays.copyOf(rows, count);
+    }
+
+    private static void match(IntPredicate matcher, boolean[] included, int from, int to) {
+        for (int row = from; row < to; row++) {
+            included[row] = matcher.test(row);
+        }
+    }
+
+//------------------ model changes
+
+    /**
+     * Drops all string values, e.g. after the structure of the model has changed.
+     */
+    void clear() {
+        columns = new String[0][];
+        rowCount = 0;
+        shared = false;
+    }
+
+    void rowsInserted(int firstRow, int endRow) {
+        int count = endRow - firstRow + 1;
+        if (firstRow < rowCount) {
+            own();
+            for (int column = 0; column < columns.length; column++) {
+                String[] values = columns[column];
+                if (values == null || firstRow >= values.length) continue;
+                String[] shifted = values.length >= rowCount + count ? values
+                        : Arrays.copyOf(values, rowCount + count);
+                System.arraycopy(values, firstRow, shifted, firstRow + count,
+                        Math.min(values.length, rowCount) - firstRow);
+                Arrays.fill(shifted, firstRow, firstRow + count, null);
+                columns[column] = shifted;
+            }
+        }
+        // appended rows are converted by the next prepare
+        rowCount += count;
+    }
+
+    void rowsDeleted(int firstRow, int endRow) {
+        int count = endRow - firstRow + 1;
+        own();
+        for (String[] values : columns) {
+            if (values == null) continue;
+            int end = Math.min(values.length, rowCount);
+            if (endRow + 1 < end) {
+                System.arraycopy(values, endRow + 1, values, firstRow, end - endRow - 1);
+            }
+            int deleted = Math.min(endRow + 1, end) - Math.min(firstRow, end);
+            Arrays.fill(values, end - deleted, end, null);
+        }
+        rowCount = Math.max(0, rowCount - count);
+    }
+
+    void rowsUpdated(int firstRow, int endRow) {
+        own();
+        for (String[] values : columns) {
+            if (values == null || firstRow >= values.length) continue;
+            Arrays.fill(values, firstRow, Math.min(values.length, endRow + 1), null);
+        }
+    }
+
+    /**
+     * Copies the column arrays if a snapshot shares them.
+     */
+    private void own() {
+        if (!shared) return;
+        for (int column = 0; column < columns.length; column++) {
+            if (columns[column] != null) {
+                columns[column] = columns[column].clone();
+            }
+        }
+        shared = false;
+    }
+}
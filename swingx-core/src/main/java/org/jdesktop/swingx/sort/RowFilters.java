@@ -19,6 +19,9 @@
  */
 package org.jdesktop.swingx.sort;
 
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.IntPredicate;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
@@ -32,7 +35,14 @@ import org.jdesktop.swingx.util.Contract;
  * 
  * Trigger is the missing of Pattern/Regex+matchflags factory method in core.
  * Can't do much other than cut and paste core as both abstract base class GeneralFilter and
- * concrete RowFilter are private. Expose the base as public for custom subclasses
+ * concrete RowFilter are private. Expose the base as public for custom subclasses.<p>
+ * 
+ * The regex and compound filters created here are <code>ConcurrentFilter</code>s: 
+ * a TableSortController which keeps its own mapping evaluates them on cached 
+ * string values in parallel.
+ * 
+ * @see TableSortController#setBackgroundSortThreshold(int)
+ * @see TableSortController#setIncrementalUpdates(boolean)
  * 
  * @author Jeanette Winzenburg
  */
@@ -134,6 +144,96 @@ public class RowFilters {
         return (RowFilter<M,I>)new RegexFilter(pattern, indices);
     }
 
+    /**
+     * Returns a <code>RowFilter</code> that includes entries included by all of 
+     * the given filters. The filters are evaluated in the given order until one 
+     * excludes the entry. If all filters are <code>ConcurrentFilter</code>s, 
+     * so is the returned filter. 
+     * 
+     * @param filters the filters to combine
+     * @return a <code>RowFilter</code> implementing the specified criteria
+     * @throws NullPointerException if <code>filters</code> or any of 
+     *   them is <code>null</code>
+     * @see RowFilter#andFilter(Iterable)
+     */
+    @SafeVarargs
+    public static <M,I> RowFilter<M,I> andFilter(RowFilter<? super M, ? super I>... filters) {
+        if (isConcurrent(filters)) {
+            return (RowFilter<M,I>) new CompoundFilter(true, filters);
+        }
+        return RowFilter.<M,I>andFilter(Arrays.asList(filters));
+    }
+
+    /**
+     * Returns a <code>RowFilter</code> that includes entries included by any of 
+     * the given filters. The filters are evaluated in the given order until one 
+     * includes the entry. If all filters are <code>ConcurrentFilter</code>s, 
+     * so is the returned filter. 
+     * 
+     * @param filters the filters to combine
+     * @return a <code>RowFilter</code> implementing the specified criteria
+     * @throws NullPointerException if <code>filters</code> or any of 
+     *   them is <code>null</code>
+     * @see RowFilter#orFilter(Iterable)
+     */
+    @SafeVarargs
+    public static <M,I> RowFilter<M,I> orFilter(RowFilter<? super M, ? super I>... filters) {
+        if (isConcurrent(filters)) {
+            return (RowFilter<M,I>) new CompoundFilter(false, filters);
+        }
+        return RowFilter.<M,I>orFilter(Arrays.asList(filters));
+    }
+
+    private static boolean isConcurrent(RowFilter<?, ?>[] filters) {
+        for (RowFilter<?, ?> filter : filters) {
+            Contract.asNotNull(filter, "filters must be non-null");
+            if (!(filter instanceof ConcurrentFilter)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The string values of the cells of a model.
+     */
+    public interface CellValues {
+
+        /**
+         * @return the number of columns of the model
+         */
+        int getColumnCount();
+
+        /**
+         * @param row the model row
+         * @param column the model column
+         * @return the string value of the cell, never null
+         */
+        String getStringValue(int row, int column);
+    }
+
+    /**
+     * A <code>RowFilter</code> on the string values of cells that can be 
+     * evaluated by several threads at once: each thread matches with 
+     * its own <code>IntPredicate</code>. The filter must be immutable.
+     */
+    public interface ConcurrentFilter {
+
+        /**
+         * @return the model columns whose string values are matched, 
+         *   empty for all columns
+         */
+        int[] getColumns();
+
+        /**
+         * Creates a predicate on model rows for use by a single thread.
+         * 
+         * @param cells the string values to match
+         * @return a predicate which is true for the included rows
+         */
+        IntPredicate createMatcher(CellValues cells);
+    }
+
     /**
      * pasted from core Swing to allow subclassing.
      */
@@ -169,6 +269,15 @@ public class RowFilters {
         }
 
         protected abstract boolean include(Entry<? extends Object,? extends Object> value, int index);
+
+        /**
+         * Returns the indices of the values to check.
+         * 
+         * @return the indices of the values to check, empty if all values are evaluated
+         */
+        public int[] getColumns() {
+            return columns.clone();
+        }
         
         /**
          * Throws an IllegalArgumentException if any of the values in columns are &lt; 0.
@@ -185,7 +294,7 @@ public class RowFilters {
     /**
      * C&P from core to allow richer factory methods.
      */
-    private static class RegexFilter extends GeneralFilter {
+    private static class RegexFilter extends GeneralFilter implements ConcurrentFilter {
         private Matcher matcher;
 
         RegexFilter(Pattern regex, int[] columns) {
@@ -204,6 +313,88 @@ public class RowFilters {
             matcher.reset(value.getStringValue(index));
             return matcher.find();
         }
+
+        @Override
+        public IntPredicate createMatcher(final CellValues cells) {
+            final Matcher rowMatcher = matcher.pattern().matcher("");
+            final int[] columns = getColumns();
+            final int count = cells.getColumnCount();
+            return row -> {
+                if (columns.length > 0) {
+                    for (int i = columns.length - 1; i >= 0; i--) {
+                        if (columns[i] < count && find(rowMatcher, cells.getStringValue(row, columns[i]))) {
+                            return true;
+                        }
+                    }
+                    return false;
+                }
+                for (int column = count - 1; column >= 0; column--) {
+                    if (find(rowMatcher, cells.getStringValue(row, column))) {
+                        return true;
+                    }
+                }
+                return false;
+            };
+        }
+
+        private static boolean find(Matcher matcher, String value) {
+            matcher.reset(value);
+            return matcher.find();
+        }
+    }
+
+    /**
+     * AND or OR of ConcurrentFilters.
+     */
+    private static class CompoundFilter extends RowFilter<Object,Object> implements ConcurrentFilter {
+        private final boolean and;
+        private final RowFilter<Object,Object>[] filters;
+
+        CompoundFilter(boolean and, RowFilter<?, ?>[] filters) {
+            this.and = and;
+            this.filters = (RowFilter<Object,Object>[]) filters.clone();
+        }
+
+        @Override
+        public boolean include(Entry<? extends Object,? extends Object> value) {
+            for (RowFilter<Object,Object> filter : filters) {
+                if (filter.include(value) != and) {
+                    return !and;
+                }
+            }
+            return and;
+        }
+
+        @Override
+        public int[] getColumns() {
+            BitSet columns = new BitSet();
+            for (RowFilter<Object,Object> filter : filters) {
+                int[] indices = ((ConcurrentFilter) filter).getColumns();
+                if (indices.length == 0) {
+                    return indices;
+                }
+                for (int index : indices) {
+                    columns.set(index);
+                }
+            }
+            return columns.stream().toArray();
+        }
+
+        @Override
+        public IntPredicate createMatcher(CellValues cells) {
+            final IntPredicate[] matchers = new IntPredicate[filters.length];
+            for (int i = 0; i < filters.length; i++) {
+                matchers[i] = ((ConcurrentFilter) filters[i]).createMatcher(cells);
+            }
+            return row -> {
+                for (IntPredicate matcher : matchers) {
+                    if (matcher.test(row) != and) {
+                        return !and;
+                    }
+                }
+                return and;
+            };
+        }
     }
     
     private RowFilters() {};
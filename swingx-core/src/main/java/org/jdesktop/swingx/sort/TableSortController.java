@@ -20,21 +20,89 @@
 package org.jdesktop.swingx.sort;
 
 import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
+import javax.swing.RowFilter;
+import javax.swing.SortOrder;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 import javax.swing.table.TableModel;
 
 /**
- * A SortController to use for a JXTable.
+ * A SortController to use for a JXTable.<p>
+ * 
+ * Large models can be sorted off the EDT, see {@link #setBackgroundSortThreshold(int)}.
+ * Frequently changing models can be kept sorted incrementally, see 
+ * {@link #setIncrementalUpdates(boolean)}.
  * 
  * @author Jeanette Winzenburg
  */
 public class TableSortController<M extends TableModel> extends DefaultSortController<M>  {
 
+    private static final Logger LOG = Logger.getLogger(TableSortController.class.getName());
+
+    /** delay in milliseconds to collect model changes before the view is updated incrementally */
+    private static final int VIEW_UPDATE_DELAY = 16;
+
     /**
      * Underlying model.
      */
     private M tableModel;
+
+    /** number of model rows from which on the rows are sorted off the EDT, negative if disabled */
+    private int backgroundSortThreshold = -1;
+
+    /** model indices in view order of a columnar sort, null if the mapping of super is used */
+    private int[] viewToModel;
+    private int[] modelToView;
+
+    /** the mapping shown before a model change, reported by the next sort */
+    private int[] mappingBeforeChange;
+
+    /** incremented with every sort, a background sort is published only if still current */
+    private int sortGeneration;
+    private boolean backgroundSortPending;
+    /** the background sort in progress, cancelled by the next sort */
+    private ColumnarRowSort backgroundSort;
+    /** the number of model rows the background sort started with */
+    private int backgroundSortRowCount;
+    /** 
+     * the model row of each row the background sort started with in the 
+     * coordinates of the mapping, -1 if deleted; null if no row has moved 
+     */
+    private int[] rowsSinceSort;
+
+    /** true if super has sorted or filtered the rows when it was asked last */
+    private boolean superTransformed;
+    /** true while super is told to drop its mapping */
+    private boolean resettingSuper;
+    /** the columnar mapping super replaces, reported as the last mapping by super */
+    private int[] replacedMapping;
+
+    /** true if changed rows are sorted into the current view */
+    private boolean incrementalUpdates;
+    /** mapped model rows that have changed since the last view update */
+    private final BitSet updatedRows = new BitSet();
+    /** 
+     * model rows inserted before the mapped rows since the last view update, 
+     * {first row, count} in current model coordinates and ascending order; the 
+     * mapping is shifted by them with the next view update 
+     */
+    private final List<int[]> insertedRows = new ArrayList<int[]>();
+    private int insertedRowCount;
+    private Timer viewUpdateTimer;
+    private FilterEntry filterEntry;
+    /** cached string values for ConcurrentFilters */
+    private final RowFilterEngine filterEngine = new RowFilterEngine();
     
     public TableSortController() {
         this(null);
@@ -57,6 +125,11 @@ public class TableSortController<M extends TableModel> extends DefaultSortContro
      */
     public void setModel(M model) {
         tableModel = model;
+        viewToModel = null;
+        modelToView = null;
+        insertedRows.clear();
+        insertedRowCount = 0;
+        filterEngine.clear();
         if (model != null) {
             cachedModelRowCount = model.getRowCount();
         }
@@ -124,6 +197,903 @@ public class TableSortController<M extends TableModel> extends DefaultSortContro
     }
 
 
+//------------------ columnar sort
+
+    /**
+     * Sets the number of model rows from which on the rows are sorted off the EDT. 
+     * A negative value, the default, disables the columnar sort.<p>
+     * 
+     * If enabled and no RowFilter or a {@link RowFilters.ConcurrentFilter} is set, 
+     * the values of the sort columns are read from the model into one array per column 
+     * and sorted by a parallel merge sort. ConcurrentFilters are evaluated in parallel 
+     * on cached string values.
+     * Models with less rows are sorted right away, larger ones in the background: 
+     * the current order is kept until the new view-model mapping is published
+     * on the EDT with a single RowSorterEvent. The comparators of the sort columns 
+     * may then be called off the EDT. Model changes until then are recorded 
+     * and applied to the published mapping: inserted and updated rows are 
+     * sorted in once it is published, deleted rows are removed immediately.<p>
+     * 
+     * @param rows the minimum number of model rows to sort in the background, 
+     *    or a negative value to disable the columnar sort
+     */
+    public void setBackgroundSortThreshold(int rows) {
+        if (backgroundSortThreshold == rows) return;
+        backgroundSortThreshold = rows;
+        updateMappingMode();
+    }
+
+    /**
+     * Returns the number of model rows from which on the rows are sorted off the EDT.
+     * 
+     * @return the minimum number of model rows to sort in the background, negative if disabled
+     * @see #setBackgroundSortThreshold(int)
+     */
+    public int getBackgroundSortThreshold() {
+        return backgroundSortThreshold;
+    }
+
+    /**
+     * Returns whether a background sort has been started but not yet been published.
+     * 
+     * @return true if the view is about to be re-ordered
+     */
+    public boolean isBackgroundSortPending() {
+        return backgroundSortPending;
+    }
+
+    /**
+     * Sets whether inserted and updated rows are sorted into the current view 
+     * instead of sorting and filtering all rows again. Default is false.<p>
+     * 
+     * If enabled and the view is sorted or filtered, the RowFilter is evaluated 
+     * only for the inserted and updated rows, which then are put into place by 
+     * binary search. Model events are collected and applied once per frame with 
+     * a single RowSorterEvent: until then, inserted rows are not shown and updated 
+     * rows keep their place. Updated rows are only considered if sortsOnUpdates. 
+     * Deleted rows are removed immediately. Full sorts are columnar, they are 
+     * done in the background if the model has at least 
+     * {@link #getBackgroundSortThreshold()} rows.
+     * 
+     * @param incremental true to sort changed rows into the current view
+     * @see #setSortsOnUpdates(boolean)
+     */
+    public void setIncrementalUpdates(boolean incremental) {
+        if (incrementalUpdates == incremental) return;
+        incrementalUpdates = incremental;
+        updateMappingMode();
+    }
+
+    /**
+     * Returns whether inserted and updated rows are sorted into the current view.
+     * 
+     * @return true if changed rows are sorted into the current view
+     * @see #setIncrementalUpdates(boolean)
+     */
+    public boolean isIncrementalUpdates() {
+        return incrementalUpdates;
+    }
+
+    private void updateMappingMode() {
+        if ((viewToModel != null) != useColumnarSort()) {
+            sort();
+        }
+    }
+
+    private boolean useColumnarSort() {
+        boolean sorted = SortUtils.getFirstSortingKey(getSortKeys()) != null;
+        if (incrementalUpdates) {
+            return sorted || getRowFilter() != null;
+        }
+        if (backgroundSortThreshold < 0) return false;
+        return getRowFilter() == null ? sorted : getConcurrentFilter() != null;
+    }
+
+    private RowFilters.ConcurrentFilter getConcurrentFilter() {
+        RowFilter<? super M, ? super Integer> filter = getRowFilter();
+        return filter instanceof RowFilters.ConcurrentFilter ? (RowFilters.ConcurrentFilter) filter : null;
+    }
+
+    private boolean isBackgroundSort(int rowCount) {
+        return backgroundSortThreshold >= 0 && rowCount >= backgroundSortThreshold;
+    }
+
+    /**
+     * {@inheritDoc} <p>
+     * 
+     * Overridden to sort in columnar mode if enabled.
+     * 
+     * @see #setBackgroundSortThreshold(int)
+     * @see #setIncrementalUpdates(boolean)
+     */
+    @Override
+    public void sort() {
+        sortGeneration++;
+        backgroundSortPending = false;
+        if (backgroundSort != null) {
+            // stop the superseded sort instead of letting it finish for nothing
+            backgroundSort.cancel();
+            backgroundSort = null;
+        }
+        applyInsertedRows();
+        rowsSinceSort = null;
+        cancelViewUpdate();
+        if (!useColumnarSort()) {
+            if (viewToModel != null) {
+                // super has been reset on entering: report the columnar mapping as the last one
+                replacedMapping = viewToModel;
+                viewToModel = null;
+                modelToView = null;
+            }
+            mappingBeforeChange = null;
+            superTransformed = getRowFilter() != null || SortUtils.getFirstSortingKey(getSortKeys()) != null;
+            super.sort();
+            if (replacedMapping != null) {
+                // super had nothing to change
+                int[] last = replacedMapping;
+                replacedMapping = null;
+                fireRowSorterChanged(last);
+            }
+            return;
+        }
+        int rowCount = getModelWrapper().getRowCount();
+        int[] last = mappingBeforeChange != null ? mappingBeforeChange : viewToModel;
+        mappingBeforeChange = null;
+        if (viewToModel == null) {
+            int[] shown = null;
+            if (superTransformed) {
+                shown = getRowSorterMapping();
+                resetSuper();
+            }
+            setMapping(identity(rowCount), rowCount);
+            // unsorted rows are shown in model order
+            last = shown != null ? shown : viewToModel;
+        } else if (modelToView.length > rowCount) {
+            setMapping(identity(rowCount), rowCount);
+        } else if (modelToView.length < rowCount) {
+            // rows appended behind the mapped ones are in the sort, changes are recorded relative to all
+            int mapped = modelToView.length;
+            modelToView = Arrays.copyOf(modelToView, rowCount);
+            Arrays.fill(modelToView, mapped, rowCount, -1);
+        }
+        final RowFilters.ConcurrentFilter concurrentFilter = getConcurrentFilter();
+        final RowFilters.CellValues cells = concurrentFilter != null 
+                ? filterEngine.prepare(concurrentFilter, getModelCellValues(), rowCount) : null;
+        final int[] included = concurrentFilter == null ? filterRows(rowCount) : null;
+        final ColumnarRowSort columnarSort = createColumnarSort(rowCount);
+        if (!isBackgroundSort(rowCount)) {
+            int[] rows = cells != null ? RowFilterEngine.filter(concurrentFilter, cells, rowCount, true) : included;
+            setMapping(columnarSort.sort(rows, false), rowCount);
+            fireRowSorterChanged(last);
+            return;
+        }
+        if (last != viewToModel) {
+            // the current mapping changed meanwhile
+            fireRowSorterChanged(last);
+        }
+        backgroundSortPending = true;
+        backgroundSort = columnarSort;
+        backgroundSortRowCount = rowCount;
+        final int generation = sortGeneration;
+        CompletableFuture.supplyAsync(() -> {
+            int[] rows = cells != null ? RowFilterEngine.filter(concurrentFilter, cells, rowCount, true) : included;
+            return columnarSort.sort(rows, true);
+        }).whenComplete((mapping, ex) -> {
+            if (ex != null && !(ex.getCause() instanceof CancellationException)) {
+                LOG.log(Level.WARNING, "background sort failed", ex);
+            }
+            SwingUtilities.invokeLater(() -> publish(generation, mapping, rowCount));
+        });
+    }
+
+    private void publish(int generation, int[] mapping, int rowCount) {
+        if (generation != sortGeneration || viewToModel == null) {
+            // outdated
+            return;
+        }
+        // move the rows of the result by the rows inserted meanwhile
+        applyInsertedRows();
+        backgroundSortPending = false;
+        backgroundSort = null;
+        int[] moved = rowsSinceSort;
+        rowsSinceSort = null;
+        if (mapping == null) {
+            // sort all rows into the current view instead
+            updatedRows.set(0, modelToView.length);
+            updateView();
+            return;
+        }
+        int[] last = viewToModel;
+        if (moved != null) {
+            mapping = moveRows(mapping, moved);
+        }
+        // the changed rows are sorted into the result
+        setMapping(mapping, modelToView.length);
+        sortChangedRows(last);
+    }
+
+    /**
+     * @return the rows of the mapping moved to their current model rows, without the deleted ones
+     */
+    private static int[] moveRows(int[] mapping, int[] moved) {
+        int[] rows = new int[mapping.length];
+        int count = 0;
+        for (int row : mapping) {
+            if (moved[row] >= 0) {
+                rows[count++] = moved[row];
+            }
+        }
+        return Arrays.copyOf(rows, count);
+    }
+
+    /**
+     * @return the rows the background sort started with in the coordinates of the mapping
+     */
+    private int[] getRowsSinceSort() {
+        if (rowsSinceSort == null) {
+            rowsSinceSort = identity(backgroundSortRowCount);
+        }
+        return rowsSinceSort;
+    }
+
+    /**
+     * Reads the values of the sort columns from the model.
+     */
+    private ColumnarRowSort createColumnarSort(int rowCount) {
+        List<? extends SortKey> keys = getSortKeys();
+        int count = 0;
+        for (SortKey key : keys) {
+            if (key.getSortOrder() != SortOrder.UNSORTED) count++;
+        }
+        Object[][] values = new Object[count][];
+        Comparator<?>[] comparators = new Comparator<?>[count];
+        SortOrder[] orders = new SortOrder[count];
+        int i = 0;
+        for (SortKey key : keys) {
+            if (key.getSortOrder() == SortOrder.UNSORTED) continue;
+            int column = key.getColumn();
+            boolean toString = useToString(column);
+            Object[] columnValues = new Object[rowCount];
+            for (int row = 0; row < rowCount; row++) {
+                columnValues[row] = toString ? getModelWrapper().getStringValueAt(row, column)
+                        : getModelWrapper().getValueAt(row, column);
+            }
+            values[i] = columnValues;
+            comparators[i] = getComparator(column);
+            orders[i] = key.getSortOrder();
+            i++;
+        }
+        return new ColumnarRowSort(values, comparators, orders, rowCount);
+    }
+
+    /**
+     * Returns the model rows included by the RowFilter.
+     * 
+     * @return the included rows in ascending order, or null if there is no RowFilter
+     */
+    private int[] filterRows(int rowCount) {
+        if (getRowFilter() == null) return null;
+        int[] rows = new int[rowCount];
+        int count = 0;
+        for (int row = 0; row < rowCount; row++) {
+            if (include(row)) {
+                rows[count++] = row;
+            }
+        }
+        return Arrays.copyOf(rows, count);
+    }
+
+    /**
+     * @return the string values of the model, to be used on the EDT
+     */
+    private RowFilters.CellValues getModelCellValues() {
+        return new RowFilters.CellValues() {
+
+            @Override
+            public int getColumnCount() {
+                return getModelWrapper().getColumnCount();
+            }
+
+            @Override
+            public String getStringValue(int row, int column) {
+                return getModelWrapper().getStringValueAt(row, column);
+            }
+        };
+    }
+
+    private boolean include(int row) {
+        RowFilter<? super M, ? super Integer> filter = getRowFilter();
+        if (filter == null) return true;
+        if (filterEntry == null) {
+            filterEntry = new FilterEntry();
+        }
+        filterEntry.row = row;
+        return filter.include(filterEntry);
+    }
+
+    /**
+     * Tells super to drop its mapping without notifying the listeners.
+     */
+    private void resetSuper() {
+        resettingSuper = true;
+        try {
+            super.sort();
+        } finally {
+            resettingSuper = false;
+        }
+        superTransformed = false;
+    }
+
+    /**
+     * @param mapping the model indices in view order
+     * @param rowCount the number of model rows the mapping is valid for
+     */
+    private void setMapping(int[] mapping, int rowCount) {
+        viewToModel = mapping;
+        modelToView = new int[rowCount];
+        Arrays.fill(modelToView, -1);
+        for (int i = 0; i < mapping.length; i++) {
+            modelToView[mapping[i]] = i;
+        }
+    }
+
+    private static int[] identity(int count) {
+        int[] mapping = new int[count];
+        for (int i = 0; i < count; i++) {
+            mapping[i] = i;
+        }
+        return mapping;
+    }
+
+    /**
+     * {@inheritDoc} <p>
+     * 
+     * Overridden to hide the sort keys from super while it is reset.
+     */
+    @Override
+    public List<? extends SortKey> getSortKeys() {
+        if (resettingSuper) {
+            return Collections.emptyList();
+        }
+        return super.getSortKeys();
+    }
+
+    /**
+     * {@inheritDoc} <p>
+     * 
+     * Overridden to hide the filter from super while it is reset.
+     */
+    @Override
+    public RowFilter<? super M, ? super Integer> getRowFilter() {
+        if (resettingSuper) {
+            return null;
+        }
+        return super.getRowFilter();
+    }
+
+    @Override
+    protected void fireRowSorterChanged(int[] lastRowIndexToModel) {
+        if (resettingSuper) return;
+        if (replacedMapping != null) {
+            lastRowIndexToModel = replacedMapping;
+            replacedMapping = null;
+        }
+        super.fireRowSorterChanged(lastRowIndexToModel);
+    }
+
+    @Override
+    public int convertRowIndexToModel(int viewIndex) {
+        int[] mapping = viewToModel;
+        if (mapping == null) {
+            return super.convertRowIndexToModel(viewIndex);
+        }
+        if (viewIndex < 0 || viewIndex >= mapping.length) 
+            throw new IndexOutOfBoundsException("valid viewIndex: 0 <= index < " 
+                    + mapping.length + " but was: " + viewIndex);
+        int row = mapping[viewIndex];
+        for (int[] inserted : insertedRows) {
+            if (inserted[0] > row) break;
+            row += inserted[1];
+        }
+        return row;
+    }
+
+    @Override
+    public int convertRowIndexToView(int modelIndex) {
+        int[] mapping = modelToView;
+        if (mapping == null) {
+            return super.convertRowIndexToView(modelIndex);
+        }
+        if (modelIndex < 0 || modelIndex >= getModelRowCount()) 
+            throw new IndexOutOfBoundsException("valid modelIndex: 0 <= index < " 
+                    + getModelRowCount() + " but was: " + modelIndex);
+        int row = modelIndex;
+        for (int[] inserted : insertedRows) {
+            if (modelIndex < inserted[0]) break;
+            // inserted rows are not yet shown
+            if (modelIndex < inserted[0] + inserted[1]) return -1;
+            row -= inserted[1];
+        }
+        // rows inserted behind the mapped rows are not yet shown
+        return row < mapping.length ? mapping[row] : -1;
+    }
+
+    @Override
+    public int getViewRowCount() {
+        int[] mapping = viewToModel;
+        if (mapping == null) {
+            return super.getViewRowCount();
+        }
+        return mapping.length;
+    }
+
+    /**
+     * {@inheritDoc} <p>
+     * 
+     * Overridden to sort few inserted rows into a columnar sorted view right
+     * away, like DefaultRowSorter does, or to sort them into the view if 
+     * incremental or a background sort is pending. Otherwise the inserted rows 
+     * are shown at the end of the view until they are sorted in.
+     * 
+     * @see #setIncrementalUpdates(boolean)
+     */
+    @Override
+    public void rowsInserted(int firstRow, int endRow) {
+        filterEngine.rowsInserted(firstRow, endRow);
+        int[] before = viewToModel;
+        super.rowsInserted(firstRow, endRow);
+        if (before == null) return;
+        int count = endRow - firstRow + 1;
+        if (incrementalUpdates || backgroundSortPending) {
+            insertPendingRows(firstRow, count);
+            return;
+        }
+        applyInsertedRows();
+        boolean few = isFewRows(count);
+        int[] mapping = new int[before.length + (few ? 0 : count)];
+        for (int i = 0; i < before.length; i++) {
+            mapping[i] = before[i] >= firstRow ? before[i] + count : before[i];
+        }
+        if (few) {
+            setMapping(mapping, getModelRowCount());
+            updatedRows.set(firstRow, endRow + 1);
+            sortChangedRows(before);
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            mapping[before.length + i] = firstRow + i;
+        }
+        setMapping(mapping, getModelRowCount());
+        mappingBeforeChange = before;
+        sort();
+    }
+
+    /**
+     * @return true if the number of changed rows is small enough to sort them into
+     *   the view instead of sorting all rows, the same limit as in DefaultRowSorter
+     */
+    private boolean isFewRows(int count) {
+        return count <= viewToModel.length / 10;
+    }
+
+    /**
+     * {@inheritDoc} <p>
+     * 
+     * Overridden to remove the rows from a columnar sorted view, the order of 
+     * the remaining rows is unchanged.
+     */
+    @Override
+    public void rowsDeleted(int firstRow, int endRow) {
+        filterEngine.rowsDeleted(firstRow, endRow);
+        applyInsertedRows();
+        int[] before = viewToModel;
+        super.rowsDeleted(firstRow, endRow);
+        if (before == null) return;
+        int count = endRow - firstRow + 1;
+        int[] mapping = new int[before.length];
+        int j = 0;
+        for (int i = 0; i < before.length; i++) {
+            int row = before[i];
+            if (row < firstRow) {
+                mapping[j++] = row;
+            } else if (row > endRow) {
+                mapping[j++] = row - count;
+            }
+        }
+        int mapped = modelToView.length;
+        int deletedMapped = Math.min(endRow + 1, mapped) - Math.min(firstRow, mapped);
+        setMapping(Arrays.copyOf(mapping, j), mapped - deletedMapped);
+        moveBits(updatedRows, endRow + 1, firstRow);
+        if (backgroundSortPending) {
+            // removed from the result when it is published
+            int[] rows = getRowsSinceSort();
+            for (int i = 0; i < rows.length; i++) {
+                if (rows[i] > endRow) {
+                    rows[i] -= count;
+                } else if (rows[i] >= firstRow) {
+                    rows[i] = -1;
+                }
+            }
+        }
+        fireRowSorterChanged(before);
+    }
+
+    /**
+     * {@inheritDoc} <p>
+     * 
+     * Overridden to sort a columnar sorted view again if sortsOnUpdates, or 
+     * to sort the updated rows into the view if incremental, only few rows
+     * have been updated or a background sort is pending.
+     * 
+     * @see #setIncrementalUpdates(boolean)
+     */
+    @Override
+    public void rowsUpdated(int firstRow, int endRow) {
+        filterEngine.rowsUpdated(firstRow, endRow);
+        super.rowsUpdated(firstRow, endRow);
+        if (viewToModel == null || !getSortsOnUpdates()) return;
+        if (incrementalUpdates || backgroundSortPending) {
+            // the mapped rows keep their coordinates until the view update
+            int shift = 0;
+            int from = firstRow;
+            for (int[] inserted : insertedRows) {
+                if (inserted[0] > endRow) break;
+                if (inserted[0] > from) {
+                    setUpdatedRows(from - shift, inserted[0] - 1 - shift);
+                }
+                from = Math.max(from, inserted[0] + inserted[1]);
+                shift += inserted[1];
+            }
+            if (from <= endRow) {
+                setUpdatedRows(from - shift, endRow - shift);
+            }
+            scheduleViewUpdate();
+            return;
+        }
+        if (isFewRows(endRow - firstRow + 1)) {
+            setUpdatedRows(firstRow, endRow);
+            sortChangedRows(viewToModel);
+            return;
+        }
+        sort();
+    }
+
+    @Override
+    public void allRowsChanged() {
+        filterEngine.clear();
+        super.allRowsChanged();
+    }
+
+    @Override
+    public void modelStructureChanged() {
+        filterEngine.clear();
+        super.modelStructureChanged();
+    }
+
+    /**
+     * {@inheritDoc} <p>
+     * 
+     * Overridden to drop the cached string values.
+     */
+    @Override
+    public void setStringValueProvider(StringValueProvider provider) {
+        filterEngine.clear();
+        super.setStringValueProvider(provider);
+    }
+
+//------------------ incremental updates
+
+    /**
+     * Marks inserted rows as not yet shown. Rows appended behind the mapped rows 
+     * are not mapped at all, rows inserted before are recorded as an interval 
+     * that shifts the mapped ones with the next view update, or when a pending
+     * background sort is published. The cost is 
+     * proportional to the number of intervals recorded since, not to the 
+     * number of rows.
+     */
+    private void insertPendingRows(int firstRow, int count) {
+        if (firstRow < modelToView.length + insertedRowCount) {
+            int i = 0;
+            while (i < insertedRows.size() && insertedRows.get(i)[0] + insertedRows.get(i)[1] < firstRow) {
+                i++;
+            }
+            if (i < insertedRows.size() && insertedRows.get(i)[0] <= firstRow) {
+                // within or adjacent to an interval
+                insertedRows.get(i)[1] += count;
+            } else {
+                insertedRows.add(i, new int[] {firstRow, count});
+            }
+            for (i++; i < insertedRows.size(); i++) {
+                insertedRows.get(i)[0] += count;
+            }
+            insertedRowCount += count;
+        }
+        scheduleViewUpdate();
+    }
+
+    /**
+     * Shifts the mapping by the rows inserted since the last view update in one 
+     * pass and marks them as updated, so they are sorted into the view.
+     */
+    private void applyInsertedRows() {
+        if (insertedRows.isEmpty()) return;
+        int mapped = modelToView.length;
+        int[] mapping = new int[mapped + insertedRowCount];
+        BitSet updated = new BitSet();
+        int row = 0;
+        int shift = 0;
+        for (int[] inserted : insertedRows) {
+            // the mapped row the interval is inserted before
+            for (int end = inserted[0] - shift; row < end; row++) {
+                moveRow(row, row + shift, mapping, updated);
+            }
+            Arrays.fill(mapping, inserted[0], inserted[0] + inserted[1], -1);
+            updated.set(inserted[0], inserted[0] + inserted[1]);
+            shift += inserted[1];
+        }
+        for (; row < mapped; row++) {
+            moveRow(row, row + shift, mapping, updated);
+        }
+        modelToView = mapping;
+        updatedRows.clear();
+        updatedRows.or(updated);
+        if (backgroundSortPending) {
+            // the rows are in ascending order, so are the intervals
+            int[] rows = getRowsSinceSort();
+            int next = 0;
+            shift = 0;
+            for (int i = 0; i < rows.length; i++) {
+                if (rows[i] < 0) continue;
+                while (next < insertedRows.size() && insertedRows.get(next)[0] <= rows[i] + shift) {
+                    shift += insertedRows.get(next++)[1];
+                }
+                rows[i] += shift;
+            }
+        }
+        insertedRows.clear();
+        insertedRowCount = 0;
+    }
+
+    private void moveRow(int row, int newRow, int[] mapping, BitSet updated) {
+        int viewRow = modelToView[row];
+        mapping[newRow] = viewRow;
+        if (viewRow >= 0) {
+            viewToModel[viewRow] = newRow;
+        }
+        if (updatedRows.get(row)) {
+            updated.set(newRow);
+        }
+    }
+
+    /**
+     * Marks the mapped rows from first to last as updated.
+     */
+    private void setUpdatedRows(int first, int last) {
+        int mapped = modelToView.length;
+        if (first < mapped) {
+            updatedRows.set(first, Math.min(last + 1, mapped));
+        }
+    }
+
+    /**
+     * Moves the bits from the given index on to start at another index.
+     */
+    private static void moveBits(BitSet bits, int from, int to) {
+        int length = Math.max(from, bits.length());
+        BitSet moved = bits.get(from, length);
+        bits.clear(Math.min(from, to), length);
+        for (int i = moved.nextSetBit(0); i >= 0; i = moved.nextSetBit(i + 1)) {
+            bits.set(to + i);
+        }
+    }
+
+    private void scheduleViewUpdate() {
+        if (viewUpdateTimer == null) {
+            viewUpdateTimer = new Timer(VIEW_UPDATE_DELAY, e -> updateView());
+            viewUpdateTimer.setRepeats(false);
+        }
+        if (!viewUpdateTimer.isRunning()) {
+            viewUpdateTimer.start();
+        }
+    }
+
+    private void cancelViewUpdate() {
+        updatedRows.clear();
+        if (viewUpdateTimer != null) {
+            viewUpdateTimer.stop();
+        }
+    }
+
+    /**
+     * Sorts the inserted and updated rows into the view and notifies the listeners.
+     * The RowFilter and the comparators are called for the changed rows only, 
+     * O(k log n) for k changed rows.
+     * The mapping is shifted by the inserted rows once, in one linear pass.
+     */
+    void updateView() {
+        if (viewToModel == null || backgroundSortPending) return;
+        applyInsertedRows();
+        if (updatedRows.isEmpty() && modelToView.length == getModelRowCount()) return;
+        sortChangedRows(viewToModel);
+    }
+
+    /**
+     * Sorts the updated rows and the rows behind the mapped ones into the view 
+     * and notifies the listeners.
+     * 
+     * @param lastRowIndexToModel the mapping to report as the last one
+     */
+    private void sortChangedRows(int[] lastRowIndexToModel) {
+        int rowCount = getModelRowCount();
+        int mapped = modelToView.length;
+        int[] last = viewToModel;
+        // remove the updated rows from the view
+        int[] removed = new int[updatedRows.cardinality()];
+        int removedCount = 0;
+        for (int row = updatedRows.nextSetBit(0); row >= 0; row = updatedRows.nextSetBit(row + 1)) {
+            if (modelToView[row] >= 0) {
+                removed[removedCount++] = modelToView[row];
+                modelToView[row] = -1;
+            }
+        }
+        Arrays.sort(removed, 0, removedCount);
+        int[] kept = new int[last.length - removedCount];
+        int src = 0;
+        int dst = 0;
+        for (int i = 0; i < removedCount; i++) {
+            int length = removed[i] - src;
+            System.arraycopy(last, src, kept, dst, length);
+            dst += length;
+            src = removed[i] + 1;
+        }
+        System.arraycopy(last, src, kept, dst, last.length - src);
+        // filter and sort the changed rows
+        List<Integer> changed = new ArrayList<Integer>();
+        for (int row = updatedRows.nextSetBit(0); row >= 0; row = updatedRows.nextSetBit(row + 1)) {
+            if (include(row)) changed.add(row);
+        }
+        for (int row = mapped; row < rowCount; row++) {
+            if (include(row)) changed.add(row);
+        }
+        updatedRows.clear();
+        RowComparator comparator = new RowComparator();
+        Collections.sort(changed, comparator);
+        // merge them into the view by binary search
+        int[] mapping = new int[kept.length + changed.size()];
+        int first = mapping.length;
+        src = 0;
+        dst = 0;
+        for (int row : changed) {
+            int index = insertionIndex(kept, src, row, comparator);
+            System.arraycopy(kept, src, mapping, dst, index - src);
+            dst += index - src;
+            src = index;
+            first = Math.min(first, dst);
+            mapping[dst++] = row;
+        }
+        System.arraycopy(kept, src, mapping, dst, kept.length - src);
+        if (removedCount > 0) {
+            first = Math.min(first, removed[0]);
+        }
+        if (mapped < rowCount) {
+            modelToView = Arrays.copyOf(modelToView, rowCount);
+            Arrays.fill(modelToView, mapped, rowCount, -1);
+        }
+        viewToModel = mapping;
+        for (int i = first; i < mapping.length; i++) {
+            modelToView[mapping[i]] = i;
+        }
+        fireRowSorterChanged(lastRowIndexToModel);
+    }
+
+    /**
+     * @return the index of the first row in the view from the given index on that 
+     *   is sorted behind the row
+     */
+    private int insertionIndex(int[] view, int from, int row, RowComparator comparator) {
+        int low = from;
+        int high = view.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (comparator.compare(view[mid], row) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Compares model rows the same way as DefaultRowSorter.
+     */
+    private class RowComparator implements Comparator<Integer> {
+        private final int[] columns;
+        private final boolean[] toString;
+        private final boolean[] descending;
+        @SuppressWarnings("rawtypes")
+        private final Comparator[] comparators;
+
+        RowComparator() {
+            List<? extends SortKey> keys = getSortKeys();
+            int count = 0;
+            for (SortKey key : keys) {
+                if (key.getSortOrder() != SortOrder.UNSORTED) count++;
+            }
+            columns = new int[count];
+            toString = new boolean[count];
+            descending = new boolean[count];
+            comparators = new Comparator[count];
+            int i = 0;
+            for (SortKey key : keys) {
+                if (key.getSortOrder() == SortOrder.UNSORTED) continue;
+                columns[i] = key.getColumn();
+                toString[i] = useToString(columns[i]);
+                descending[i] = key.getSortOrder() == SortOrder.DESCENDING;
+                comparators[i] = getComparator(columns[i]);
+                i++;
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public int compare(Integer row1, Integer row2) {
+            for (int i = 0; i < columns.length; i++) {
+                Object v1 = getValue(row1, i);
+                Object v2 = getValue(row2, i);
+                int result;
+                if (v1 == null) {
+                    result = v2 == null ? 0 : -1;
+                } else if (v2 == null) {
+                    result = 1;
+                } else {
+                    result = comparators[i].compare(v1, v2);
+                }
+                if (result != 0) {
+                    return descending[i] ? -result : result;
+                }
+            }
+            return row1 - row2;
+        }
+
+        private Object getValue(int row, int i) {
+            return toString[i] ? getModelWrapper().getStringValueAt(row, columns[i])
+                    : getModelWrapper().getValueAt(row, columns[i]);
+        }
+    }
+
+    /**
+     * RowFilter.Entry of a model row, the same as the one of DefaultRowSorter.
+     */
+    private class FilterEntry extends RowFilter.Entry<M, Integer> {
+        private int row;
+
+        @Override
+        public M getModel() {
+            return getModelWrapper().getModel();
+        }
+
+        @Override
+        public int getValueCount() {
+            return getModelWrapper().getColumnCount();
+        }
+
+        @Override
+        public Object getValue(int index) {
+            return getModelWrapper().getValueAt(row, index);
+        }
+
+        @Override
+        public String getStringValue(int index) {
+            return getModelWrapper().getStringValueAt(row, index);
+        }
+
+        @Override
+        public Integer getIdentifier() {
+            return getModelWrapper().getIdentifier(row);
+        }
+    }
+
     /**
      * Implementation of DefaultRowSorter.ModelWrapper that delegates to a
      * TableModel.
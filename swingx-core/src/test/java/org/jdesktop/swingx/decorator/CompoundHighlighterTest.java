@@ -27,6 +27,7 @@ import javax.swing.JLabel;
 import javax.swing.UIManager;
 
 import org.jdesktop.swingx.InteractiveTestCase;
+import org.jdesktop.swingx.JXTable;
 import org.jdesktop.swingx.renderer.JRendererLabel;
 import org.jdesktop.testtests.ChangeReport;
 import org.junit.Test;
@@ -95,6 +96,30 @@ public class CompoundHighlighterTest extends InteractiveTestCase {
     /**
      * Test that the client is messaged on change to a managed Highlighter.
      */
+    /**
+     * The table's statistics record its and the columns' highlighters.
+     */
+    @Test
+    public void testStatistics() {
+        JXTable table = new JXTable(2, 3);
+        ColorHighlighter tableHighlighter = new ColorHighlighter();
+        ColorHighlighter columnHighlighter = new ColorHighlighter();
+        table.addHighlighter(tableHighlighter);
+        table.getColumnExt(1).addHighlighter(columnHighlighter);
+        HighlighterStatistics statistics = new HighlighterStatistics();
+        table.setHighlighterStatistics(statistics);
+        for (int row = 0; row < table.getRowCount(); row++) {
+            for (int column = 0; column < table.getColumnCount(); column++) {
+                table.prepareRenderer(row, column);
+            }
+        }
+        assertEquals(6, statistics.getCount(tableHighlighter));
+        assertEquals(2, statistics.getCount(columnHighlighter));
+        assertTrue(statistics.getHighlighters().contains(tableHighlighter));
+        statistics.reset();
+        assertEquals(0, statistics.getCount(tableHighlighter));
+    }
+
     @Test
     public void testUpdateUI() {
         CompoundHighlighter support = new CompoundHighlighter();
@@ -5,6 +5,7 @@
 package org.jdesktop.swingx.decorator;
 
 import java.awt.Color;
+import java.awt.Component;
 import java.awt.Dimension;
 import java.awt.Insets;
 import java.awt.Point;
@@ -534,6 +535,80 @@ public class HighlightPredicateTest extends InteractiveTestCase {
         assertFalse(oneTrueOneFalse.isHighlighted(allColored, adapter));
     }
 
+    /**
+     * AND and OR evaluate cheap predicates first and short-circuit.
+     */
+    @Test
+    public void testEvaluationByCost() {
+        ComponentAdapter adapter = createComponentAdapter(allColored, true);
+        CountingPredicate expensive = new CountingPredicate(HighlightPredicate.COST_STRING, false);
+        HighlightPredicate and = new AndHighlightPredicate(expensive, HighlightPredicate.NEVER);
+        assertFalse(and.isHighlighted(allColored, adapter));
+        HighlightPredicate or = new OrHighlightPredicate(expensive, HighlightPredicate.ALWAYS);
+        assertTrue(or.isHighlighted(allColored, adapter));
+        assertEquals("expensive predicate must not be evaluated", 0, expensive.count);
+        assertEquals(HighlightPredicate.COST_STRING, and.getCost());
+        assertEquals(expensive, ((AndHighlightPredicate) and).getHighlightPredicates()[0]);
+    }
+    
+    @Test
+    public void testRowPredicateCompound() {
+        assertTrue(new AndHighlightPredicate(HighlightPredicate.ROLLOVER_ROW, HighlightPredicate.EVEN).isRowPredicate());
+        assertFalse(new OrHighlightPredicate(HighlightPredicate.ROLLOVER_ROW, HighlightPredicate.IS_SELECTED).isRowPredicate());
+        assertTrue(new NotHighlightPredicate(HighlightPredicate.ODD).isRowPredicate());
+        assertTrue(new PatternPredicate("a").isRowPredicate());
+        assertFalse(new PatternPredicate("a", 0, 1).isRowPredicate());
+    }
+    
+    /**
+     * Row predicates are evaluated once per row in a paint pass only.
+     */
+    @Test
+    public void testRowPredicateRememberedInPaintPass() {
+        ComponentAdapter adapter = createComponentAdapter(allColored, true);
+        CountingPredicate rowPredicate = new CountingPredicate(HighlightPredicate.COST_VALUE, true);
+        adapter.startPaintPass();
+        for (int row = 0; row < 2; row++) {
+            for (int column = 0; column < 3; column++) {
+                adapter.row = row;
+                adapter.column = column;
+                assertTrue(adapter.isHighlighted(rowPredicate, allColored));
+            }
+        }
+        adapter.endPaintPass();
+        assertEquals("evaluated once per row", 2, rowPredicate.count);
+        adapter.isHighlighted(rowPredicate, allColored);
+        adapter.isHighlighted(rowPredicate, allColored);
+        assertEquals("evaluated each time outside a paint pass", 4, rowPredicate.count);
+    }
+    
+    private static class CountingPredicate implements HighlightPredicate {
+        private final int cost;
+        private final boolean row;
+        int count;
+        
+        CountingPredicate(int cost, boolean row) {
+            this.cost = cost;
+            this.row = row;
+        }
+        
+        @Override
+        public boolean isHighlighted(Component renderer, ComponentAdapter adapter) {
+            count++;
+            return true;
+        }
+        
+        @Override
+        public int getCost() {
+            return cost;
+        }
+        
+        @Override
+        public boolean isRowPredicate() {
+            return row;
+        }
+    }
+
     /**
      * test the AND predicate collection constructor. Boring as it is, is it complete?
      *
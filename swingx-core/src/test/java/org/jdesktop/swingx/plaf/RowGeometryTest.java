@@ -0,0 +1,83 @@
+package org.jdesktop.swingx.plaf;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Compares RowGeometry against summing up the heights.
+ */
+public class RowGeometryTest {
+
+    @Test
+    public void testY() {
+        int[] heights = createHeights(1000);
+        RowGeometry geometry = new RowGeometry(heights);
+        int y = 0;
+        for (int row = 0; row < heights.length; row++) {
+            assertEquals(y, geometry.getY(row));
+            y += heights[row];
+        }
+        assertEquals(y, geometry.getTotalHeight());
+    }
+
+    @Test
+    public void testRow() {
+        int[] heights = createHeights(1000);
+        RowGeometry geometry = new RowGeometry(heights);
+        assertEquals(-1, geometry.getRow(-1));
+        for (int y = 0; y < geometry.getTotalHeight(); y++) {
+            assertEquals("y " + y, findRow(heights, y), geometry.getRow(y));
+        }
+        assertEquals(heights.length, geometry.getRow(geometry.getTotalHeight()));
+    }
+
+    @Test
+    public void testSetHeight() {
+        int[] heights = createHeights(300);
+        RowGeometry geometry = new RowGeometry(heights);
+        Random random = new Random(2);
+        for (int i = 0; i < 100; i++) {
+            geometry.setHeight(random.nextInt(heights.length), random.nextInt(30));
+        }
+        RowGeometry rebuilt = new RowGeometry(heights.clone());
+        for (int row = 0; row <= heights.length; row++) {
+            assertEquals(rebuilt.getY(row), geometry.getY(row));
+        }
+        for (int y = 0; y < geometry.getTotalHeight(); y++) {
+            assertEquals(findRow(heights, y), geometry.getRow(y));
+        }
+    }
+
+    @Test
+    public void testEmpty() {
+        RowGeometry geometry = new RowGeometry(new int[0]);
+        assertEquals(0, geometry.getTotalHeight());
+        assertEquals(0, geometry.getRow(0));
+    }
+
+    /**
+     * @return heights between 0 and 29, some rows have no height
+     */
+    private static int[] createHeights(int count) {
+        Random random = new Random(1);
+        int[] heights = new int[count];
+        for (int i = 0; i < count; i++) {
+            heights[i] = random.nextInt(5) == 0 ? 0 : random.nextInt(30);
+        }
+        return heights;
+    }
+
+    private static int findRow(int[] heights, int y) {
+        int top = 0;
+        for (int row = 0; row < heights.length; row++) {
+            if (y >= top && y < top + heights[row]) {
+                return row;
+            }
+            top += heights[row];
+        }
+        return heights.length;
+    }
+}
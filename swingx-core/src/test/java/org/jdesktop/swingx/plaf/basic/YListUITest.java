@@ -19,10 +19,18 @@
  */
 package org.jdesktop.swingx.plaf.basic;
 
+import java.awt.Component;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
 import java.util.Arrays;
 import java.util.logging.Logger;
 
 import javax.swing.ActionMap;
+import javax.swing.DefaultListCellRenderer;
+import javax.swing.DefaultListModel;
 import javax.swing.JList;
 import javax.swing.LookAndFeel;
 import javax.swing.UIManager;
@@ -139,4 +147,183 @@ public class YListUITest extends InteractiveTestCase {
         assertSame(list.getActionMap().getParent(), new JYList<Object>().getActionMap().getParent());
     }
     
+    /**
+     * Cells added, removed or changed after the layout are measured
+     * incrementally, the geometry must be the same as measuring all cells.
+     */
+    @Test
+    public void testIncrementalLayout() {
+        DefaultListModel<Object> model = new DefaultListModel<Object>();
+        for (int i = 0; i < 200; i++) {
+            model.addElement(i);
+        }
+        CountingRenderer renderer = new CountingRenderer();
+        JYList<Object> list = createList(model, renderer);
+        assertLayout(list);
+        renderer.count = 0;
+        model.set(10, 1003);
+        model.set(11, 1004);
+        assertLayout(list);
+        assertEquals("only changed cells measured", 2, renderer.count);
+        renderer.count = 0;
+        model.add(5, 2001);
+        model.add(6, 2002);
+        model.remove(100);
+        model.removeRange(150, 160);
+        model.addElement(3009);
+        model.set(0, 3010);
+        assertLayout(list);
+        assertEquals("only added and changed cells measured", 4, renderer.count);
+        model.set(1, 5000);
+        assertLayout(list);
+        model.clear();
+        assertLayout(list);
+        model.addElement(7);
+        assertLayout(list);
+    }
+
+    /**
+     * The widest cell becoming narrower shrinks the cell width.
+     */
+    @Test
+    public void testIncrementalLayoutWidth() {
+        DefaultListModel<Object> model = new DefaultListModel<Object>();
+        for (int i = 0; i < 20; i++) {
+            model.addElement(i);
+        }
+        JYList<Object> list = createList(model, new CountingRenderer());
+        int width = list.getPreferredSize().width;
+        model.set(10, 100);
+        assertLayout(list);
+        assertTrue(list.getPreferredSize().width < width);
+        model.addElement(10);
+        assertLayout(list);
+        model.removeElementAt(model.getSize() - 1);
+        assertLayout(list);
+    }
+
+    /**
+     * Lazy layout measures a prefix, painting measures the painted rows without
+     * moving the row at the top of the painted area.
+     */
+    @Test
+    public void testLazyLayout() {
+        DefaultListModel<Object> model = new DefaultListModel<Object>();
+        for (int i = 0; i < 100000; i++) {
+            model.addElement(i);
+        }
+        CountingRenderer renderer = new CountingRenderer();
+        JYList<Object> list = new JYList<Object>(model);
+        list.setCellRenderer(renderer);
+        list.setLazyLayout(true);
+        renderer.count = 0;
+        list.setSize(200, list.getPreferredSize().height);
+        assertEquals("only the sampled prefix measured", 100, renderer.count);
+        int y = list.getHeight() / 2;
+        int index = list.locationToIndex(new Point(1, y));
+        Rectangle bounds = list.getCellBounds(index, index);
+        renderer.count = 0;
+        paint(list, bounds.y, 200);
+        assertTrue("only the painted rows measured " + renderer.count, renderer.count < 100);
+        assertEquals("the top row doesn't move", bounds.y, list.getCellBounds(index, index).y);
+        assertEquals(index, list.locationToIndex(new Point(1, y)));
+        renderer.count = 0;
+        paint(list, bounds.y, 200);
+        assertEquals("painted rows stay measured", 0, renderer.count);
+    }
+
+    /**
+     * Lazy layout of changed models, once all rows are painted the geometry is exact.
+     */
+    @Test
+    public void testLazyLayoutIncremental() {
+        DefaultListModel<Object> model = new DefaultListModel<Object>();
+        for (int i = 0; i < 500; i++) {
+            model.addElement(i);
+        }
+        CountingRenderer renderer = new CountingRenderer();
+        JYList<Object> list = new JYList<Object>(model);
+        list.setCellRenderer(renderer);
+        list.setLazyLayout(true);
+        list.setSize(200, list.getPreferredSize().height);
+        paint(list, 0, 100);
+        renderer.count = 0;
+        model.add(300, 1001);
+        model.addElement(1002);
+        model.set(400, 1003);
+        model.remove(200);
+        list.getPreferredSize();
+        assertEquals("estimated cells not measured", 0, renderer.count);
+        model.set(1, 1004);
+        list.getPreferredSize();
+        assertEquals("measured cells measured again", 1, renderer.count);
+        list.setSize(200, list.getPreferredSize().height);
+        paint(list, 0, list.getHeight());
+        // painting measures rows, the list gets higher or lower
+        while (list.getHeight() != list.getPreferredSize().height) {
+            list.setSize(200, list.getPreferredSize().height);
+            paint(list, 0, list.getHeight());
+        }
+        assertLayout(list);
+    }
+
+    private void paint(JYList<Object> list, int y, int height) {
+        BufferedImage image = new BufferedImage(list.getWidth(), height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        g.translate(0, -y);
+        g.setClip(0, y, list.getWidth(), height);
+        list.paint(g);
+        g.dispose();
+    }
+
+    private JYList<Object> createList(DefaultListModel<Object> model, CountingRenderer renderer) {
+        JYList<Object> list = new JYList<Object>(model);
+        list.setCellRenderer(renderer);
+        list.setSize(list.getPreferredSize());
+        return list;
+    }
+
+    /**
+     * Compares the geometry of the list with a list which measures all cells.
+     */
+    private void assertLayout(JYList<Object> list) {
+        JYList<Object> expected = createList(new DefaultListModel<Object>(), new CountingRenderer());
+        DefaultListModel<Object> model = (DefaultListModel<Object>) expected.getModel();
+        for (int i = 0; i < list.getModel().getSize(); i++) {
+            model.addElement(list.getModel().getElementAt(i));
+        }
+        expected.setSize(list.getSize());
+        assertEquals(expected.getPreferredSize(), list.getPreferredSize());
+        for (int i = 0; i < model.getSize(); i++) {
+            assertEquals("bounds " + i, expected.getCellBounds(i, i), list.getCellBounds(i, i));
+        }
+        int height = list.getPreferredSize().height;
+        for (int y = -1; y <= height; y += 3) {
+            Point location = new Point(1, y);
+            assertEquals("index at " + y, expected.locationToIndex(location), list.locationToIndex(location));
+        }
+    }
+
+    /**
+     * Renders cells with sizes depending on their value and counts the measured cells.
+     */
+    @SuppressWarnings("serial")
+    private static class CountingRenderer extends DefaultListCellRenderer {
+        int count;
+        private int value;
+
+        @Override
+        public Component getListCellRendererComponent(JList<?> list, Object value, int index,
+                boolean isSelected, boolean cellHasFocus) {
+            this.value = (Integer) value;
+            return super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
+        }
+
+        @Override
+        public Dimension getPreferredSize() {
+            count++;
+            return new Dimension(10 + value % 11 * 10, value % 7 == 0 ? 0 : 5 + value % 5 * 3);
+        }
+    }
+
 }
@@ -7,6 +7,7 @@
 package org.jdesktop.swingx.search;
 
 import java.util.List;
+import java.util.regex.Pattern;
 
 import junit.framework.TestCase;
 
@@ -180,6 +181,39 @@ public class PatternModelTest extends TestCase {
         assertTrue("pattern must find " + match, model.getPattern().matcher(match).find());
     }
     
+    /**
+     * Narrowing: typing ahead in a contains or startsWith search.
+     */
+    @Test
+    public void testNarrowing() {
+        PatternModel model = new PatternModel();
+        model.setRawText("ab");
+        Pattern previous = model.getPattern();
+        model.setRawText("xaby");
+        assertTrue("contains must narrow", model.isNarrowing("ab", previous));
+        model.setMatchRule(PatternModel.MATCH_RULE_STARTSWITH);
+        assertFalse("pattern of another rule must not narrow", model.isNarrowing("ab", previous));
+        previous = model.getPattern();
+        model.setRawText("xabyz");
+        assertTrue("startsWith must narrow", model.isNarrowing("xaby", previous));
+        model.setRawText("abyz");
+        assertFalse("startsWith must not narrow", model.isNarrowing("xaby", previous));
+        model.setMatchRule(PatternModel.MATCH_RULE_ENDSWITH);
+        previous = model.getPattern();
+        model.setRawText("xabyz");
+        assertFalse("endsWith must not narrow", model.isNarrowing("abyz", previous));
+    }
+    
+    @Test
+    public void testNarrowingCaseSensitive() {
+        PatternModel model = new PatternModel();
+        model.setRawText("ab");
+        Pattern previous = model.getPattern();
+        model.setRawText("abc");
+        model.setCaseSensitive(true);
+        assertFalse("other flags must not narrow", model.isNarrowing("ab", previous));
+    }
+    
     /**
      * test if rawtext is treated as literal.
      *
@@ -0,0 +1,345 @@
+package org.jdesktop.swingx.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import javax.swing.SortOrder;
+import javax.swing.SwingUtilities;
+import javax.swing.table.DefaultTableModel;
+
+import org.jdesktop.swingx.JXTable;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests searching a JXTable with a TableMatchIndex against searching without.
+ */
+@RunWith(JUnit4.class)
+public class TableMatchIndexTest extends TestCase {
+
+    private DefaultTableModel model;
+    private JXTable table;
+    private TableSearchable searchable;
+
+    @Before
+    @Override
+    public void setUp() throws Exception {
+        SwingUtilities.invokeAndWait(new Runnable() {
+            @Override
+            public void run() {
+                model = new DefaultTableModel(0, 3);
+                for (int i = 0; i < 300; i++) {
+                    model.addRow(new Object[] {"row" + i, i % 7 == 0 ? "seven" : "other", i});
+                }
+                table = new JXTable(model);
+                searchable = new TableSearchable(table);
+            }
+        });
+    }
+
+    @Test
+    public void testFindAllLikeScan() throws Exception {
+        final Pattern pattern = Pattern.compile("seven|1$");
+        final List<Integer> expected = findAll(pattern, false);
+        enableIndex(pattern);
+        runOnEDT(new Runnable() {
+            @Override
+            public void run() {
+                assertEquals(expected, findAll(pattern, false));
+                assertEquals(expected.size() / 2, searchable.getMatchIndex().getMatchCount());
+            }
+        });
+    }
+
+    @Test
+    public void testFindBackwardsLikeScan() throws Exception {
+        final Pattern pattern = Pattern.compile("seven|1$");
+        final List<Integer> expected = findAll(pattern, true);
+        enableIndex(pattern);
+        runOnEDT(new Runnable() {
+            @Override
+            public void run() {
+                assertEquals(expected, findAll(pattern, true));
+            }
+        });
+    }
+
+    @Test
+    public void testSortedAndChangedModel() throws Exception {
+        final Pattern pattern = Pattern.compile("seven|5");
+        enableIndex(pattern);
+        runOnEDT(new Runnable() {
+            @Override
+            public void run() {
+                table.setSortOrder(2, SortOrder.DESCENDING);
+                model.insertRow(10, new Object[] {"new", "seven", 1000});
+                model.removeRow(50);
+                model.setValueAt("5", 100, 0);
+                model.setValueAt("x", 140, 1);
+                table.getColumnModel().moveColumn(0, 2);
+                List<Integer> indexed = findAll(pattern, false);
+                searchable.setMatchIndexEnabled(false);
+                assertEquals(findAll(pattern, false), indexed);
+            }
+        });
+    }
+
+    @Test
+    public void testPendingSearchRepeated() throws Exception {
+        final Pattern pattern = Pattern.compile("row299");
+        final int[] found = new int[1];
+        runOnEDT(new Runnable() {
+            @Override
+            public void run() {
+                searchable.setMatchIndexEnabled(true);
+                found[0] = searchable.search(pattern);
+            }
+        });
+        assertEquals(-1, found[0]);
+        waitForIndex();
+        runOnEDT(new Runnable() {
+            @Override
+            public void run() {
+                assertEquals(299, searchable.lastSearchResult.getFoundRow());
+            }
+        });
+    }
+
+    @Test
+    public void testNarrowPattern() throws Exception {
+        final Pattern previous = Pattern.compile("row1");
+        enableIndex(previous);
+        runOnEDT(new Runnable() {
+            @Override
+            public void run() {
+                Pattern pattern = Pattern.compile("row12");
+                TableMatchIndex index = searchable.getMatchIndex();
+                index.narrowPattern(previous, pattern);
+                assertTrue("narrowing few cells must be done at once", index.isReady());
+                // 12, 120 - 129
+                assertEquals(11, index.getMatchCount());
+                List<Integer> indexed = findAll(pattern, false);
+                searchable.setMatchIndexEnabled(false);
+                assertEquals(findAll(pattern, false), indexed);
+            }
+        });
+    }
+
+    @Test
+    public void testNarrowOtherPattern() throws Exception {
+        enableIndex(Pattern.compile("seven"));
+        runOnEDT(new Runnable() {
+            @Override
+            public void run() {
+                TableMatchIndex index = searchable.getMatchIndex();
+                index.narrowPattern(Pattern.compile("row1"), Pattern.compile("row12"));
+                assertFalse("must build if the index is not for the previous pattern", index.isReady());
+            }
+        });
+        waitForIndex();
+        runOnEDT(new Runnable() {
+            @Override
+            public void run() {
+                assertEquals(11, searchable.getMatchIndex().getMatchCount());
+            }
+        });
+    }
+
+    @Test
+    public void testChangesWhileBuilding() throws Exception {
+        final Pattern pattern = Pattern.compile("seven|new");
+        runOnEDT(new Runnable() {
+            @Override
+            public void run() {
+                setRowCount(40000);
+                searchable.setMatchIndexEnabled(true);
+                TableMatchIndex index = searchable.getMatchIndex();
+                index.setPattern(pattern);
+                assertFalse("must read more than one slice", index.isReady());
+                // before and after the rows read so far
+                model.insertRow(10, new Object[] {"new", "x", -1});
+                model.removeRow(20);
+                model.setValueAt("seven", 30, 0);
+                model.setValueAt("x", 42, 1);
+                model.insertRow(35000, new Object[] {"new", "x", -1});
+                model.removeRow(38000);
+                model.setValueAt("new", 39000, 1);
+                model.addRow(new Object[] {"new", "x", -1});
+            }
+        });
+        waitForIndex();
+        assertFindsLikeScan(pattern);
+    }
+
+    @Test
+    public void testBuildingWhileRowsAreAdded() throws Exception {
+        final Pattern pattern = Pattern.compile("seven|new");
+        runOnEDT(new Runnable() {
+            @Override
+            public void run() {
+                setRowCount(40000);
+                searchable.setMatchIndexEnabled(true);
+                searchable.getMatchIndex().setPattern(pattern);
+            }
+        });
+        final boolean[] ready = new boolean[1];
+        for (int i = 0; i < 5000 && !ready[0]; i++) {
+            runOnEDT(new Runnable() {
+                @Override
+                public void run() {
+                    model.addRow(new Object[] {"new", "x", -1});
+                    ready[0] = searchable.getMatchIndex().isReady();
+                }
+            });
+        }
+        assertTrue("index not built while adding rows", ready[0]);
+        assertFindsLikeScan(pattern);
+    }
+
+    @Test
+    public void testChangesWhileNarrowing() throws Exception {
+        final Pattern previous = Pattern.compile("r");
+        final Pattern pattern = Pattern.compile("ro");
+        runOnEDT(new Runnable() {
+            @Override
+            public void run() {
+                setRowCount(40000);
+            }
+        });
+        enableIndex(previous);
+        runOnEDT(new Runnable() {
+            @Override
+            public void run() {
+                TableMatchIndex index = searchable.getMatchIndex();
+                index.narrowPattern(previous, pattern);
+                assertFalse("must read more than one slice", index.isReady());
+                model.insertRow(10, new Object[] {"new", "rose", -1});
+                model.removeRow(20);
+                model.setValueAt("x", 30, 0);
+                model.setValueAt("ro", 31, 1);
+                model.insertRow(35000, new Object[] {"new", "rose", -1});
+                model.removeRow(38000);
+                model.addRow(new Object[] {"row", "x", -1});
+            }
+        });
+        waitForIndex();
+        assertFindsLikeScan(pattern);
+    }
+
+    @Test
+    public void testFailedIndexFallsBackToScan() throws Exception {
+        // a repeated group overflows the stack when matching a long string
+        final Pattern pattern = Pattern.compile("(a|b)*c|row299");
+        final int[] found = new int[1];
+        runOnEDT(new Runnable() {
+            @Override
+            public void run() {
+                StringBuilder text = new StringBuilder();
+                for (int i = 0; i < 500000; i++) {
+                    text.append("ab");
+                }
+                model.setValueAt(text.toString(), 5, 1);
+                searchable.setMatchIndexEnabled(true);
+                // starts behind the long cell
+                found[0] = searchable.search(pattern, 10, false);
+            }
+        });
+        assertEquals(-1, found[0]);
+        final boolean[] failed = new boolean[1];
+        for (int i = 0; i < 500 && !failed[0]; i++) {
+            Thread.sleep(10);
+            runOnEDT(new Runnable() {
+                @Override
+                public void run() {
+                    failed[0] = searchable.getMatchIndex().isFailed();
+                }
+            });
+        }
+        assertTrue("index not failed", failed[0]);
+        runOnEDT(new Runnable() {
+            @Override
+            public void run() {
+                TableMatchIndex index = searchable.getMatchIndex();
+                assertFalse(index.isReady());
+                assertEquals(-1, index.getMatchCount());
+                assertEquals("pending search must scan", 299, searchable.lastSearchResult.getFoundRow());
+            }
+        });
+    }
+
+    /**
+     * Replaces the model by one with the given number of rows like the initial one.
+     */
+    private void setRowCount(int rowCount) {
+        model = new DefaultTableModel(0, 3);
+        for (int i = 0; i < rowCount; i++) {
+            model.addRow(new Object[] {"row" + i, i % 7 == 0 ? "seven" : "other", i});
+        }
+        table.setModel(model);
+    }
+
+    private void assertFindsLikeScan(final Pattern pattern) throws Exception {
+        runOnEDT(new Runnable() {
+            @Override
+            public void run() {
+                List<Integer> indexed = findAll(pattern, false);
+                searchable.setMatchIndexEnabled(false);
+                assertEquals(findAll(pattern, false), indexed);
+            }
+        });
+    }
+
+    /**
+     * @return the found rows and columns of all matches, in search order
+     */
+    private List<Integer> findAll(Pattern pattern, boolean backwards) {
+        List<Integer> found = new ArrayList<Integer>();
+        int row = searchable.search(pattern, -1, backwards);
+        while (row >= 0) {
+            found.add(row);
+            found.add(searchable.lastSearchResult.getFoundColumn());
+            row = searchable.search(pattern, row, backwards);
+        }
+        return found;
+    }
+
+    private void enableIndex(final Pattern pattern) throws Exception {
+        runOnEDT(new Runnable() {
+            @Override
+            public void run() {
+                searchable.setMatchIndexEnabled(true);
+                searchable.getMatchIndex().setPattern(pattern);
+            }
+        });
+        waitForIndex();
+    }
+
+    private void waitForIndex() throws Exception {
+        final boolean[] ready = new boolean[1];
+        for (int i = 0; i < 500 && !ready[0]; i++) {
+            Thread.sleep(10);
+            runOnEDT(new Runnable() {
+                @Override
+                public void run() {
+                    ready[0] = searchable.getMatchIndex().isReady();
+                }
+            });
+        }
+        assertTrue("index not built", ready[0]);
+        // let the pending search run
+        runOnEDT(new Runnable() {
+            @Override
+            public void run() {
+            }
+        });
+    }
+
+    private void runOnEDT(Runnable runnable) throws Exception {
+        SwingUtilities.invokeAndWait(runnable);
+    }
+}
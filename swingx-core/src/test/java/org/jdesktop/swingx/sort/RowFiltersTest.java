@@ -118,6 +118,49 @@ public class RowFiltersTest extends InteractiveTestCase {
         RowFilters.regexFilter(0, "some", 1);
     }
 
+    @Test
+    public void testAndFilter() {
+        RowFilter<TableModel, Integer> filter = RowFilters.andFilter(
+                RowFilters.regexFilter("Jeff", 0), RowFilters.regexFilter("Dinkins", 1));
+        assertTrue(filter instanceof RowFilters.ConcurrentFilter);
+        entry.modelIndex = 3;
+        assertTrue(filter.include(entry));
+        filter = RowFilters.andFilter(
+                RowFilters.regexFilter("Jeff", 0), RowFilters.regexFilter("Jeff", 1));
+        assertFalse(filter.include(entry));
+    }
+
+    @Test
+    public void testOrFilter() {
+        RowFilter<TableModel, Integer> filter = RowFilters.orFilter(
+                RowFilters.regexFilter("nomatch", 0), RowFilters.regexFilter("Dinkins", 1));
+        assertTrue(filter instanceof RowFilters.ConcurrentFilter);
+        entry.modelIndex = 3;
+        assertTrue(filter.include(entry));
+        filter = RowFilters.orFilter(
+                RowFilters.regexFilter("nomatch", 0), RowFilters.regexFilter("nomatch"));
+        assertFalse(filter.include(entry));
+    }
+
+    @Test
+    public void testCompoundFilterNotConcurrent() {
+        RowFilter<Object, Object> filter = RowFilters.andFilter(
+                RowFilters.regexFilter("Jeff", 0), RowFilter.regexFilter("Dinkins", 1));
+        assertFalse(filter instanceof RowFilters.ConcurrentFilter);
+        entry.modelIndex = 3;
+        assertTrue(filter.include(entry));
+    }
+
+    @Test
+    public void testConcurrentFilterColumns() {
+        RowFilter<TableModel, Integer> filter = RowFilters.orFilter(
+                RowFilters.regexFilter("a", 3, 1), RowFilters.regexFilter("b", 1));
+        assertEquals(2, ((RowFilters.ConcurrentFilter) filter).getColumns().length);
+        filter = RowFilters.andFilter(
+                RowFilters.regexFilter("a", 3, 1), RowFilters.regexFilter("b"));
+        assertEquals(0, ((RowFilters.ConcurrentFilter) filter).getColumns().length);
+    }
+
     public void interactiveDebug() {
         JXTable table = new JXTable(teamModel);
         table.getColumn(colorColumn).setCellRenderer(new DefaultTableRenderer(sv));
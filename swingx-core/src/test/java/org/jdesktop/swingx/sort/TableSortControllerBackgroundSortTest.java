@@ -0,0 +1,443 @@
+package org.jdesktop.swingx.sort;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+
+import javax.swing.RowFilter;
+import javax.swing.RowSorter.SortKey;
+import javax.swing.SortOrder;
+import javax.swing.SwingUtilities;
+import javax.swing.event.RowSorterEvent;
+import javax.swing.event.RowSorterListener;
+import javax.swing.table.DefaultTableModel;
+import javax.swing.table.TableModel;
+import javax.swing.table.TableRowSorter;
+
+import junit.framework.TestCase;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Tests the columnar sort and the incremental updates of TableSortController 
+ * against the order of the core TableRowSorter.
+ */
+@RunWith(JUnit4.class)
+public class TableSortControllerBackgroundSortTest extends TestCase {
+
+    private DefaultTableModel model;
+    private TableSortController<TableModel> controller;
+
+    @Override
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        Random random = new Random(42);
+        model = new DefaultTableModel(new String[] {"int", "string", "double", "object"}, 0) {
+            @Override
+            public Class<?> getColumnClass(int column) {
+                switch (column) {
+                case 0: return Integer.class;
+                case 1: return String.class;
+                case 2: return Double.class;
+                default: return Object.class;
+                }
+            }
+        };
+        String[] words = {"alpha", "Beta", "gamma", "Delta", "epsilon", "\u00c4ther", null};
+        for (int i = 0; i < 500; i++) {
+            model.addRow(new Object[] {
+                    random.nextInt(10) == 0 ? null : random.nextInt(20),
+                    words[random.nextInt(words.length)],
+                    random.nextInt(8) / 2.0,
+                    "x" + random.nextInt(30)});
+        }
+        controller = new TableSortController<TableModel>(model);
+    }
+
+    @Test
+    public void testSynchronousSortMatchesDefault() throws Exception {
+        controller.setBackgroundSortThreshold(Integer.MAX_VALUE);
+        assertSameOrder(new SortKey(1, SortOrder.ASCENDING), new SortKey(0, SortOrder.DESCENDING));
+        assertSameOrder(new SortKey(2, SortOrder.DESCENDING), new SortKey(3, SortOrder.ASCENDING));
+        assertSameOrder(new SortKey(0, SortOrder.ASCENDING));
+        assertFalse(controller.isBackgroundSortPending());
+    }
+
+    @Test
+    public void testBackgroundSortMatchesDefault() throws Exception {
+        controller.setBackgroundSortThreshold(0);
+        final List<RowSorterEvent> events = new ArrayList<RowSorterEvent>();
+        SwingUtilities.invokeAndWait(new Runnable() {
+            @Override
+            public void run() {
+                controller.addRowSorterListener(new RowSorterListener() {
+                    @Override
+                    public void sorterChanged(RowSorterEvent e) {
+                        if (e.getType() == RowSorterEvent.Type.SORTED) {
+                            events.add(e);
+                        }
+                    }
+                });
+                controller.setSortKeys(Collections.singletonList(new SortKey(1, SortOrder.ASCENDING)));
+                assertTrue(controller.isBackgroundSortPending());
+                // the order is kept until the sort is published
+                assertEquals(7, controller.convertRowIndexToModel(7));
+            }
+        });
+        waitForSort();
+        assertEquals(1, events.size());
+        assertSameMapping(Collections.singletonList(new SortKey(1, SortOrder.ASCENDING)));
+    }
+
+    @Test
+    public void testInsertAndDelete() throws Exception {
+        controller.setBackgroundSortThreshold(Integer.MAX_VALUE);
+        List<SortKey> keys = Collections.singletonList(new SortKey(0, SortOrder.ASCENDING));
+        controller.setSortKeys(keys);
+        model.insertRow(3, new Object[] {5, "inserted", 1.0, "y"});
+        controller.rowsInserted(3, 3);
+        assertSameMapping(keys);
+        model.removeRow(10);
+        controller.rowsDeleted(10, 10);
+        assertSameMapping(keys);
+    }
+
+    @Test
+    public void testFewChangesAreSortedIn() throws Exception {
+        controller.setBackgroundSortThreshold(0);
+        final List<SortKey> keys = Collections.singletonList(new SortKey(1, SortOrder.ASCENDING));
+        SwingUtilities.invokeAndWait(new Runnable() {
+            @Override
+            public void run() {
+                controller.setSortKeys(keys);
+            }
+        });
+        waitForSort();
+        SwingUtilities.invokeAndWait(new Runnable() {
+            @Override
+            public void run() {
+                controller.setSortsOnUpdates(true);
+                model.insertRow(3, new Object[] {5, "inserted", 1.0, "y"});
+                controller.rowsInserted(3, 3);
+                assertFalse("few rows must not be sorted again", controller.isBackgroundSortPending());
+                assertSameMapping(keys);
+                model.setValueAt("zeta", 10, 1);
+                controller.rowsUpdated(10, 10);
+                assertFalse(controller.isBackgroundSortPending());
+                assertSameMapping(keys);
+                // many rows are
+                for (int i = 0; i < 100; i++) {
+                    model.insertRow(0, new Object[] {i, "many", 1.0, "y"});
+                }
+                controller.rowsInserted(0, 99);
+                assertTrue(controller.isBackgroundSortPending());
+            }
+        });
+        waitForSort();
+        assertSameMapping(keys);
+    }
+
+    @Test
+    public void testChangesWhileSortPending() throws Exception {
+        assertChangesWhileSortPending(false);
+    }
+
+    @Test
+    public void testIncrementalChangesWhileSortPending() throws Exception {
+        assertChangesWhileSortPending(true);
+    }
+
+    /**
+     * Changes the model while a background sort is pending, the changes must be 
+     * applied to its result instead of sorting again.
+     */
+    private void assertChangesWhileSortPending(final boolean incremental) throws Exception {
+        controller.setBackgroundSortThreshold(0);
+        controller.setIncrementalUpdates(incremental);
+        controller.setSortsOnUpdates(true);
+        final List<SortKey> keys = Collections.singletonList(new SortKey(1, SortOrder.DESCENDING));
+        final List<RowSorterEvent> events = new ArrayList<RowSorterEvent>();
+        SwingUtilities.invokeAndWait(new Runnable() {
+            @Override
+            public void run() {
+                controller.setSortKeys(keys);
+                assertTrue(controller.isBackgroundSortPending());
+                controller.addRowSorterListener(new RowSorterListener() {
+                    @Override
+                    public void sorterChanged(RowSorterEvent e) {
+                        if (e.getType() == RowSorterEvent.Type.SORTED) {
+                            events.add(e);
+                        }
+                    }
+                });
+                int viewRows = controller.getViewRowCount();
+                for (int i = 0; i < 100; i++) {
+                    model.insertRow(i * 3, new Object[] {i, "inserted", 1.0, "y"});
+                    controller.rowsInserted(i * 3, i * 3);
+                }
+                model.addRow(new Object[] {1, "appended", 1.0, "y"});
+                controller.rowsInserted(model.getRowCount() - 1, model.getRowCount() - 1);
+                model.setValueAt("zeta", 40, 1);
+                model.setValueAt("alpha", 41, 1);
+                controller.rowsUpdated(40, 41);
+                model.removeRow(10);
+                model.removeRow(300);
+                controller.rowsDeleted(10, 10);
+                controller.rowsDeleted(300, 300);
+                model.insertRow(5, new Object[] {2, "inserted", 1.0, "y"});
+                controller.rowsInserted(5, 5);
+                assertTrue("changes must not restart the sort", controller.isBackgroundSortPending());
+                // inserted rows are not yet shown, deleted ones are gone
+                assertTrue(controller.getViewRowCount() < viewRows);
+                for (int i = 0; i < controller.getViewRowCount(); i++) {
+                    int row = controller.convertRowIndexToModel(i);
+                    assertEquals(i, controller.convertRowIndexToView(row));
+                    assertFalse("inserted".equals(model.getValueAt(row, 1)));
+                }
+            }
+        });
+        waitForSort();
+        SwingUtilities.invokeAndWait(new Runnable() {
+            @Override
+            public void run() {
+                assertSameMapping(keys);
+                // the deletes and the published result
+                assertEquals(3, events.size());
+            }
+        });
+    }
+
+    @Test
+    public void testCancel() {
+        Object[][] values = {{3, 1, 2}};
+        ColumnarRowSort sort = new ColumnarRowSort(values, 
+                new Comparator<?>[] {DefaultSortController.COMPARABLE_COMPARATOR}, 
+                new SortOrder[] {SortOrder.ASCENDING}, 3);
+        sort.cancel();
+        try {
+            sort.sort(false);
+            fail("cancelled sort must not complete");
+        } catch (CancellationException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testDisable() throws Exception {
+        controller.setBackgroundSortThreshold(Integer.MAX_VALUE);
+        final List<SortKey> keys = Collections.singletonList(new SortKey(3, SortOrder.DESCENDING));
+        controller.setSortKeys(keys);
+        controller.setBackgroundSortThreshold(-1);
+        assertSameMapping(keys);
+        // 500 rows are sorted in the background
+        controller.setBackgroundSortThreshold(100);
+        waitForSort();
+        SwingUtilities.invokeAndWait(new Runnable() {
+            @Override
+            public void run() {
+                assertSameMapping(keys);
+            }
+        });
+    }
+
+    @Test
+    public void testIncrementalInsertAndUpdate() throws Exception {
+        // on the EDT, so the view update timer does not interfere
+        SwingUtilities.invokeAndWait(new Runnable() {
+            @Override
+            public void run() {
+                controller.setIncrementalUpdates(true);
+                controller.setSortsOnUpdates(true);
+                RowFilter<TableModel, Integer> filter = RowFilter.regexFilter("^[a-e]", 1);
+                controller.setRowFilter(filter);
+                List<SortKey> keys = Collections.singletonList(new SortKey(0, SortOrder.DESCENDING));
+                controller.setSortKeys(keys);
+                assertSameMapping(keys, filter);
+                int viewRows = controller.getViewRowCount();
+                // appended rows are shown with the next view update
+                model.addRow(new Object[] {7, "beta", 1.0, "y"});
+                controller.rowsInserted(500, 500);
+                model.insertRow(20, new Object[] {null, "delta", 1.0, "y"});
+                controller.rowsInserted(20, 20);
+                assertEquals(viewRows, controller.getViewRowCount());
+                assertEquals(-1, controller.convertRowIndexToView(501));
+                controller.updateView();
+                assertSameMapping(keys, filter);
+                assertEquals(viewRows + 2, controller.getViewRowCount());
+                // updated rows are moved or filtered
+                model.setValueAt(19, 30, 0);
+                model.setValueAt("zeta", 40, 1);
+                controller.rowsUpdated(30, 30);
+                controller.rowsUpdated(40, 40);
+                controller.updateView();
+                assertSameMapping(keys, filter);
+                model.removeRow(3);
+                controller.rowsDeleted(3, 3);
+                assertSameMapping(keys, filter);
+            }
+        });
+    }
+
+    @Test
+    public void testIncrementalInsertsBeforeViewUpdate() throws Exception {
+        // on the EDT, so the view update timer does not interfere
+        SwingUtilities.invokeAndWait(new Runnable() {
+            @Override
+            public void run() {
+                controller.setIncrementalUpdates(true);
+                controller.setSortsOnUpdates(true);
+                List<SortKey> keys = Collections.singletonList(new SortKey(3, SortOrder.ASCENDING));
+                controller.setSortKeys(keys);
+                List<Object> shown = new ArrayList<Object>();
+                for (int i = 0; i < controller.getViewRowCount(); i++) {
+                    shown.add(model.getDataVector().get(controller.convertRowIndexToModel(i)));
+                }
+                // before, within, adjacent to and between recorded intervals, and appended
+                int[] inserts = {100, 50, 51, 53, 400, 10, 0, 505, 200};
+                for (int i = 0; i < inserts.length; i++) {
+                    model.insertRow(inserts[i], new Object[] {i, "inserted", 1.0, "x" + i});
+                    controller.rowsInserted(inserts[i], inserts[i]);
+                    if (i == 4) {
+                        // spanning inserted rows
+                        model.setValueAt("x99", 48, 3);
+                        model.setValueAt("x00", 52, 3);
+                        controller.rowsUpdated(48, 60);
+                    }
+                }
+                model.addRow(new Object[] {9, "appended", 1.0, "x9"});
+                controller.rowsInserted(model.getRowCount() - 1, model.getRowCount() - 1);
+                // the shown rows keep their place, the inserted ones are not yet shown
+                assertEquals(shown.size(), controller.getViewRowCount());
+                for (int i = 0; i < shown.size(); i++) {
+                    int row = controller.convertRowIndexToModel(i);
+                    assertSame("view row " + i, shown.get(i), model.getDataVector().get(row));
+                    assertEquals(i, controller.convertRowIndexToView(row));
+                }
+                for (int row : new int[] {0, 11, 52, 53, 55, 105, 200, 403, 506, 509}) {
+                    assertEquals("model row " + row, -1, controller.convertRowIndexToView(row));
+                }
+                controller.updateView();
+                assertSameMapping(keys);
+            }
+        });
+    }
+
+    @Test
+    public void testIncrementalUpdateCoalesced() throws Exception {
+        final List<SortKey> keys = Collections.singletonList(new SortKey(1, SortOrder.ASCENDING));
+        final List<RowSorterEvent> events = new ArrayList<RowSorterEvent>();
+        SwingUtilities.invokeAndWait(new Runnable() {
+            @Override
+            public void run() {
+                controller.setIncrementalUpdates(true);
+                controller.setSortKeys(keys);
+                controller.addRowSorterListener(new RowSorterListener() {
+                    @Override
+                    public void sorterChanged(RowSorterEvent e) {
+                        if (e.getType() == RowSorterEvent.Type.SORTED) {
+                            events.add(e);
+                        }
+                    }
+                });
+                for (int i = 0; i < 10; i++) {
+                    model.addRow(new Object[] {i, "row" + i, 1.0, "y"});
+                    controller.rowsInserted(model.getRowCount() - 1, model.getRowCount() - 1);
+                }
+                assertEquals(500, controller.getViewRowCount());
+            }
+        });
+        for (int i = 0; i < 100 && events.isEmpty(); i++) {
+            Thread.sleep(10);
+        }
+        SwingUtilities.invokeAndWait(new Runnable() {
+            @Override
+            public void run() {
+                assertEquals(1, events.size());
+                assertSameMapping(keys);
+            }
+        });
+    }
+
+    @Test
+    public void testConcurrentFilter() throws Exception {
+        controller.setBackgroundSortThreshold(Integer.MAX_VALUE);
+        controller.setSortKeys(Collections.singletonList(new SortKey(0, SortOrder.ASCENDING)));
+        RowFilter<TableModel, Integer> filter = RowFilters.orFilter(
+                RowFilters.regexFilter("^[A-D]", 1), RowFilters.regexFilter("x1"));
+        controller.setRowFilter(filter);
+        assertSameMapping(controller.getSortKeys(), filter);
+        // cached string values are dropped on updates
+        model.setValueAt("Alpha", 0, 1);
+        model.setValueAt("zeta", 1, 1);
+        controller.rowsUpdated(0, 1);
+        model.insertRow(5, new Object[] {1, "Beta", 1.0, "y"});
+        controller.rowsInserted(5, 5);
+        model.removeRow(10);
+        controller.rowsDeleted(10, 10);
+        filter = RowFilters.andFilter(RowFilters.regexFilter("^[A-Z]", 1), RowFilters.regexFilter("1"));
+        controller.setRowFilter(filter);
+        assertSameMapping(controller.getSortKeys(), filter);
+    }
+
+    @Test
+    public void testConcurrentFilterParallel() throws Exception {
+        for (int i = 0; i < 40000; i++) {
+            model.addRow(new Object[] {i % 100, "row" + i, 1.0, "x"});
+        }
+        controller.setModel(model);
+        controller.setBackgroundSortThreshold(Integer.MAX_VALUE);
+        RowFilter<TableModel, Integer> filter = RowFilters.regexFilter("7$", 1);
+        controller.setRowFilter(filter);
+        assertSameMapping(Collections.<SortKey>emptyList(), filter);
+        assertEquals(4000, controller.getViewRowCount());
+    }
+
+    private void assertSameOrder(SortKey... keys) throws Exception {
+        List<SortKey> list = new ArrayList<SortKey>();
+        Collections.addAll(list, keys);
+        controller.setSortKeys(list);
+        assertSameMapping(list);
+    }
+
+    private void assertSameMapping(List<SortKey> keys) {
+        assertSameMapping(keys, null);
+    }
+
+    private void assertSameMapping(List<? extends SortKey> keys, RowFilter<TableModel, Integer> filter) {
+        TableRowSorter<TableModel> expected = new TableRowSorter<TableModel>(model);
+        expected.setRowFilter(filter);
+        for (int column = 0; column < model.getColumnCount(); column++) {
+            expected.setComparator(column, controller.getComparator(column));
+        }
+        expected.setSortKeys(keys);
+        assertEquals(expected.getViewRowCount(), controller.getViewRowCount());
+        for (int i = 0; i < expected.getViewRowCount(); i++) {
+            assertEquals("view row " + i, expected.convertRowIndexToModel(i), controller.convertRowIndexToModel(i));
+        }
+        for (int i = 0; i < model.getRowCount(); i++) {
+            assertEquals("model row " + i, expected.convertRowIndexToView(i), controller.convertRowIndexToView(i));
+        }
+    }
+
+    private void waitForSort() throws Exception {
+        for (int i = 0; i < 500; i++) {
+            final boolean[] pending = new boolean[1];
+            SwingUtilities.invokeAndWait(new Runnable() {
+                @Override
+                public void run() {
+                    pending[0] = controller.isBackgroundSortPending();
+                }
+            });
+            if (!pending[0]) return;
+            Thread.sleep(10);
+        }
+        fail("background sort not published");
+    }
+}
@@ -2,10 +2,13 @@ module swingx.mapviewer {
 	exports org.jxmapviewer;
 	exports org.jxmapviewer.cache;
 	exports org.jxmapviewer.input;
+	exports org.jxmapviewer.painter;
 	exports org.jxmapviewer.viewer;
 	
 	requires transitive java.desktop;
 	requires java.logging;
+	requires java.management;
+	requires java.net.http;
 	
 	requires swingx.painters;
 	requires transitive swingx.common;
@@ -15,6 +15,9 @@ import java.awt.Graphics2D;
 import java.awt.Image;
 import java.awt.Insets;
 import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
@@ -22,12 +25,14 @@ import java.beans.DesignMode;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.net.URL;
+import java.util.List;
 import java.util.Set;
 import java.util.logging.Logger;
 
 import javax.imageio.ImageIO;
 import javax.swing.JPanel;
 import javax.swing.Painter;
+import javax.swing.Timer;
 
 import org.jdesktop.swingx.painter.AbstractPainter;
 import org.jxmapviewer.input.PanMouseInputListener;
@@ -108,6 +113,21 @@ public class JXMapViewer extends JPanel implements DesignMode
     private boolean horizontalWrapped = true;
     private boolean infiniteMapRendering = true;
 
+    /**
+     * If true, missing tiles are composited from the loaded tiles of other zoom levels
+     */
+    private boolean tileFallback = false;
+    private static final int FINER_FALLBACK_LEVELS = 2;
+
+    /**
+     * The current zoom level is painted scaled by this factor around the zoom anchor,
+     * for fractional zoom levels and while a zoom change is animated
+     */
+    private double zoomScale = 1;
+    private Point2D zoomAnchor;
+    private int zoomAnimationDuration = 0;
+    private Timer zoomTimer;
+
     /**
      * If true, panning with the mouse should take place. If false, panning should not happen. Does not disable
      * explicit setting of position via {@link setCenter}.
@@ -166,8 +186,15 @@ public class JXMapViewer extends JPanel implements DesignMode
         {
             int z = getZoom();
             Rectangle viewportBounds = getViewportBounds();
-            drawMapTiles(g, z, viewportBounds);
-            drawOverlays(z, g, viewportBounds);
+            if (zoomScale == 1)
+            {
+                drawMapTiles(g, z, viewportBounds);
+                drawOverlays(z, g, viewportBounds);
+            }
+            else
+            {
+                drawScaled(g, z, viewportBounds, zoomScale);
+            }
         }
 
         super.paintBorder(g);
@@ -218,6 +245,9 @@ public class JXMapViewer extends JPanel implements DesignMode
         int tpy = (int) Math.floor(viewportBounds.getY() / info.getTileSize(0));
         // TilePoint topLeftTile = new TilePoint(tpx, tpy);
 
+        // let the factory load the visible tiles first
+        getTileFactory().setViewport(new Rectangle(tpx, tpy, numWide + 1, numHigh + 1), zoom);
+
         // p("top tile = " + topLeftTile);
         // fetch the tiles from the factory and store them in the tiles cache
         // attach the tileLoadListener
@@ -249,6 +279,13 @@ public class JXMapViewer extends JPanel implements DesignMode
                     {
                         g.drawImage(tile.getImage(), ox, oy, null);
                     }
+                    else if (tileFallback || zoomScale != 1)
+                    {
+                        if (!drawFallback(g, itpx, itpy, zoom, ox, oy, size))
+                        {
+                            drawLoadingTile(g, ox, oy, size);
+                        }
+                    }
                     else
                     {
                         Tile superTile = null;
@@ -266,11 +303,7 @@ public class JXMapViewer extends JPanel implements DesignMode
                         }
                         else
                         {
-                            int imageX = (getTileFactory().getTileSize(zoom) - getLoadingImage().getWidth(null)) / 2;
-                            int imageY = (getTileFactory().getTileSize(zoom) - getLoadingImage().getHeight(null)) / 2;
-                            g.setColor(Color.GRAY);
-                            g.fillRect(ox, oy, size, size);
-                            g.drawImage(getLoadingImage(), ox + imageX, oy + imageY, null);
+                            drawLoadingTile(g, ox, oy, size);
                         }
                     }
                     if (isDrawTileBorders())
@@ -294,6 +327,142 @@ public class JXMapViewer extends JPanel implements DesignMode
         }
     }
 
+    /**
+     * Paints the map and the overlays of the given zoom level scaled around the zoom anchor.
+     * Missing tiles are composited from the loaded tiles of the other zoom levels.
+     */
+    private void drawScaled(Graphics g, int zoom, Rectangle viewportBounds, double scale)
+    {
+        Point2D anchor = getZoomAnchor(viewportBounds);
+        double ax = anchor.getX();
+        double ay = anchor.getY();
+
+        double x = viewportBounds.x + ax - ax / scale;
+        double y = viewportBounds.y + ay - ay / scale;
+        Rectangle visible = getVisibleWorldBounds(viewportBounds, scale);
+
+        Graphics2D tg = (Graphics2D) g.create();
+        try
+        {
+            tg.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            tg.translate((visible.x - x) * scale, (visible.y - y) * scale);
+            tg.scale(scale, scale);
+            drawMapTiles(tg, zoom, visible);
+        }
+        finally
+        {
+            tg.dispose();
+        }
+
+        Graphics2D og = (Graphics2D) g.create();
+        try
+        {
+            og.translate(ax, ay);
+            og.scale(scale, scale);
+            og.translate(-ax, -ay);
+            drawOverlays(zoom, og, viewportBounds);
+        }
+        finally
+        {
+            og.dispose();
+        }
+    }
+
+    /**
+     * Returns the part of the world bitmap that is visible in pixels. This is the same as
+     * {@link #getViewportBounds()} unless the map is drawn scaled, e.g. during a zoom animation or
+     * at a fractional zoom level. Overlay painters should cull to these bounds, but translate by
+     * the viewport bounds as the graphics is scaled around the zoom anchor.
+     * @return the bounds in <em>pixels</em> of the visible part of the world bitmap
+     */
+    public Rectangle getVisibleWorldBounds()
+    {
+        Rectangle viewportBounds = getViewportBounds();
+        return zoomScale == 1 ? viewportBounds : getVisibleWorldBounds(viewportBounds, zoomScale);
+    }
+
+    /**
+     * @return the part of the world bitmap that is visible at the given scale
+     */
+    private Rectangle getVisibleWorldBounds(Rectangle viewportBounds, double scale)
+    {
+        Point2D anchor = getZoomAnchor(viewportBounds);
+        double x = viewportBounds.x + anchor.getX() - anchor.getX() / scale;
+        double y = viewportBounds.y + anchor.getY() - anchor.getY() / scale;
+        return new Rectangle((int) Math.floor(x), (int) Math.floor(y),
+                (int) Math.ceil(viewportBounds.width / scale) + 1, (int) Math.ceil(viewportBounds.height / scale) + 1);
+    }
+
+    private Point2D getZoomAnchor(Rectangle viewportBounds)
+    {
+        Point2D anchor = zoomAnchor;
+        return anchor != null ? anchor : new Point2D.Double(viewportBounds.width / 2.0, viewportBounds.height / 2.0);
+    }
+
+    private void drawLoadingTile(Graphics g, int ox, int oy, int size)
+    {
+        int imageX = (size - getLoadingImage().getWidth(null)) / 2;
+        int imageY = (size - getLoadingImage().getHeight(null)) / 2;
+        g.setColor(Color.GRAY);
+        g.fillRect(ox, oy, size, size);
+        g.drawImage(getLoadingImage(), ox + imageX, oy + imageY, null);
+    }
+
+    /**
+     * Composites a missing tile from the loaded tiles of other zoom levels without loading any tile:
+     * the nearest coarser tile magnified, overlaid with the loaded finer tiles.
+     * @return false if no imagery was found
+     */
+    private boolean drawFallback(Graphics g, int itpx, int itpy, int zoom, int ox, int oy, int size)
+    {
+        TileFactory tf = getTileFactory();
+        int maxZoom = tf.getInfo().getMaximumZoomLevel();
+        boolean painted = false;
+        for (int d = 1; zoom + d <= maxZoom && (size >> d) > 0; d++)
+        {
+            BufferedImage img = tf.getLoadedImage(itpx >> d, itpy >> d, zoom + d);
+            if (img != null)
+            {
+                int part = size >> d;
+                int offX = (itpx - ((itpx >> d) << d)) * part;
+                int offY = (itpy - ((itpy >> d) << d)) * part;
+                g.drawImage(img, ox, oy, ox + size, oy + size, offX, offY, offX + part, offY + part, null);
+                painted = true;
+                break;
+            }
+        }
+        return drawFinerTiles(g, itpx, itpy, zoom, ox, oy, size, FINER_FALLBACK_LEVELS) || painted;
+    }
+
+    private boolean drawFinerTiles(Graphics g, int x, int y, int zoom, int ox, int oy, int size, int levels)
+    {
+        TileFactory tf = getTileFactory();
+        if (levels == 0 || zoom <= tf.getInfo().getMinimumZoomLevel() || size < 2)
+        {
+            return false;
+        }
+        boolean painted = false;
+        int half = size / 2;
+        for (int dy = 0; dy < 2; dy++)
+        {
+            for (int dx = 0; dx < 2; dx++)
+            {
+                BufferedImage img = tf.getLoadedImage(2 * x + dx, 2 * y + dy, zoom - 1);
+                if (img != null)
+                {
+                    g.drawImage(img, ox + dx * half, oy + dy * half, half, half, null);
+                    painted = true;
+                }
+                else
+                {
+                    painted |= drawFinerTiles(g, 2 * x + dx, 2 * y + dy, zoom - 1,
+                            ox + dx * half, oy + dy * half, half, levels - 1);
+                }
+            }
+        }
+        return painted;
+    }
+
     @SuppressWarnings("unused")
     private void drawOverlays(final int zoom, final Graphics g, final Rectangle viewportBounds)
     {
@@ -382,17 +551,28 @@ public class JXMapViewer extends JPanel implements DesignMode
      * @param zoom the new zoom level
      */
     public void setZoom(int zoom)
+    {
+        stopZoomAnimation();
+        if (zoomScale != 1)
+        {
+            zoomScale = 1;
+            repaint();
+        }
+        changeZoom(zoom);
+    }
+
+    private boolean changeZoom(int zoom)
     {
         if (zoom == this.zoomLevel)
         {
-            return;
+            return false;
         }
 
         TileFactoryInfo info = getTileFactory().getInfo();
         // don't repaint if we are out of the valid zoom levels
         if (info != null && (zoom < info.getMinimumZoomLevel() || zoom > info.getMaximumZoomLevel()))
         {
-            return;
+            return false;
         }
 
         // if(zoom >= 0 && zoom <= 15 && zoom != this.zoom) {
@@ -408,6 +588,144 @@ public class JXMapViewer extends JPanel implements DesignMode
                 * (mapSize.getHeight() / oldMapSize.getHeight())));
 
         repaint();
+        return true;
+    }
+
+    /**
+     * Sets a fractional zoom level. The next more detailed integer zoom level is loaded and
+     * painted scaled down, so {@link #getZoom()} returns <code>floor(zoom)</code>.
+     * @param zoom the zoom level
+     * @param anchor the point in component coordinates that keeps its geo position, or
+     * <code>null</code> for the center
+     */
+    public void setFractionalZoom(double zoom, Point2D anchor)
+    {
+        stopZoomAnimation();
+        TileFactoryInfo info = getTileFactory().getInfo();
+        if (info != null)
+        {
+            zoom = Math.max(info.getMinimumZoomLevel(), Math.min(info.getMaximumZoomLevel(), zoom));
+        }
+        showZoom(zoom, (int) Math.floor(zoom), anchor);
+    }
+
+    /**
+     * @return the zoom level as it is painted, fractional during a zoom animation
+     */
+    public double getFractionalZoom()
+    {
+        return zoomLevel - Math.log(zoomScale) / Math.log(2);
+    }
+
+    /**
+     * Changes the zoom level with an animation, see {@link #setZoomAnimationDuration(int)}. The tiles of the new
+     * zoom level are requested right away, until they are loaded the tiles of the other zoom levels are painted
+     * scaled. Calling this again during an animation continues smoothly towards the new zoom level.
+     * @param zoom the new zoom level
+     * @param anchor the point in component coordinates that keeps its geo position, e.g. the mouse position,
+     * or <code>null</code> for the center
+     */
+    public void animateZoom(int zoom, Point2D anchor)
+    {
+        TileFactoryInfo info = getTileFactory().getInfo();
+        if (info != null && (zoom < info.getMinimumZoomLevel() || zoom > info.getMaximumZoomLevel()))
+        {
+            return;
+        }
+        final double from = getFractionalZoom();
+        if (zoomAnimationDuration <= 0 || from == zoom)
+        {
+            stopZoomAnimation();
+            showZoom(zoom, zoom, anchor);
+            return;
+        }
+        stopZoomAnimation();
+        final int to = zoom;
+        showZoom(from, to, anchor);
+
+        final long start = System.nanoTime();
+        final double duration = zoomAnimationDuration * 1e6;
+        zoomTimer = new Timer(15, new ActionListener()
+        {
+            @Override
+            public void actionPerformed(ActionEvent e)
+            {
+                double t = Math.min(1, (System.nanoTime() - start) / duration);
+                // ease out
+                double f = 1 - (1 - t) * (1 - t) * (1 - t);
+                zoomScale = t >= 1 ? 1 : Math.pow(2, to - (from + (to - from) * f));
+                if (t >= 1)
+                {
+                    stopZoomAnimation();
+                }
+                repaint();
+            }
+        });
+        zoomTimer.start();
+    }
+
+    /**
+     * @return true while a zoom change is animated
+     */
+    public boolean isZoomAnimating()
+    {
+        return zoomTimer != null;
+    }
+
+    /**
+     * @return the duration of zoom animations in milliseconds
+     */
+    public int getZoomAnimationDuration()
+    {
+        return zoomAnimationDuration;
+    }
+
+    /**
+     * Sets the duration of the animations of {@link #animateZoom(int, Point2D)}, which is used by the
+     * mouse wheel zoom. By default zoom changes are not animated.
+     * @param duration the duration in milliseconds, 0 to disable animations
+     */
+    public void setZoomAnimationDuration(int duration)
+    {
+        int old = getZoomAnimationDuration();
+        this.zoomAnimationDuration = Math.max(0, duration);
+        firePropertyChange("zoomAnimationDuration", old, getZoomAnimationDuration());
+    }
+
+    private void stopZoomAnimation()
+    {
+        if (zoomTimer != null)
+        {
+            zoomTimer.stop();
+            zoomTimer = null;
+        }
+    }
+
+    /**
+     * Switches to the given integer zoom level, keeping the anchor in place, and scales it so that it is painted
+     * like the given fractional zoom level.
+     */
+    private void showZoom(double visualZoom, int zoom, Point2D anchor)
+    {
+        Rectangle viewportBounds = getViewportBounds();
+        Point2D a = anchor != null ? anchor
+                : new Point2D.Double(viewportBounds.width / 2.0, viewportBounds.height / 2.0);
+        // the world pixel below the new anchor, as it is painted now
+        Point2D old = getZoomAnchor(viewportBounds);
+        double px = viewportBounds.x + old.getX() + (a.getX() - old.getX()) / zoomScale;
+        double py = viewportBounds.y + old.getY() + (a.getY() - old.getY()) / zoomScale;
+        Dimension oldMapSize = getTileFactory().getMapSize(zoomLevel);
+
+        changeZoom(zoom);
+        zoomAnchor = anchor == null ? null : new Point2D.Double(a.getX(), a.getY());
+        zoomScale = Math.pow(2, zoomLevel - visualZoom);
+
+        Dimension mapSize = getTileFactory().getMapSize(zoomLevel);
+        double rw = mapSize.getWidth() / oldMapSize.getWidth();
+        double rh = mapSize.getHeight() / oldMapSize.getHeight();
+        setCenter(new Point2D.Double(px * rw - a.getX() + viewportBounds.width / 2.0,
+                py * rh - a.getY() + viewportBounds.height / 2.0));
+        repaint();
     }
 
     /**
@@ -474,6 +792,28 @@ public class JXMapViewer extends JPanel implements DesignMode
         repaint();
     }
 
+    /**
+     * @return true if missing tiles are composited from the loaded tiles of other zoom levels
+     */
+    public boolean isTileFallback()
+    {
+        return tileFallback;
+    }
+
+    /**
+     * If set, a missing tile is painted from the loaded tiles of all coarser zoom levels and of the two
+     * finer zoom levels, without requesting any of them. Otherwise only the tile one zoom level up is used,
+     * which is requested if it is not loaded.
+     * @param tileFallback true to composite missing tiles from other zoom levels
+     */
+    public void setTileFallback(boolean tileFallback)
+    {
+        boolean old = isTileFallback();
+        this.tileFallback = tileFallback;
+        firePropertyChange("tileFallback", old, isTileFallback());
+        repaint();
+    }
+
     /**
      * A property indicating the center position of the map
      * @param geoPosition the new property value
@@ -525,6 +865,14 @@ public class JXMapViewer extends JPanel implements DesignMode
         repaint();
     }
 
+    /**
+     * Stops listening to the tile factory without disposing it, for offscreen viewers that are dropped
+     */
+    void releaseTileFactory()
+    {
+        factory.removeTileListener(tileLoadListener);
+    }
+
     /**
      * A property for an image which will be display when an image is still loading.
      * @return the current property value
@@ -769,6 +1117,20 @@ public class JXMapViewer extends JPanel implements DesignMode
                 }
             }
 
+        @Override
+        public void tilesLoaded(List<Tile> tiles)
+        {
+            // a single repaint for the whole batch
+            for (Tile tile : tiles)
+            {
+                if (tile.getZoom() == getZoom())
+                {
+                    repaint();
+                    return;
+                }
+            }
+        }
+
     };
 
     /**
@@ -833,7 +1195,53 @@ public class JXMapViewer extends JPanel implements DesignMode
         Point2D pt = getTileFactory().geoToPixel(pos, getZoom());
         // convert from world bitmap to local
         Rectangle bounds = getViewportBounds();
-        return new Point2D.Double(pt.getX() - bounds.getX(), pt.getY() - bounds.getY());
+        Point2D local = new Point2D.Double(pt.getX() - bounds.getX(), pt.getY() - bounds.getY());
+        if (zoomScale != 1)
+        {
+            Point2D a = getZoomAnchor(bounds);
+            local.setLocation(a.getX() + (local.getX() - a.getX()) * zoomScale,
+                    a.getY() + (local.getY() - a.getY()) * zoomScale);
+        }
+        return local;
+    }
+
+    /**
+     * Converts many positions to the JXMapViewer's local coordinate space at once, e.g. the points of a long track.
+     * Large inputs are projected in parallel.
+     * @param latitudes the latitudes
+     * @param longitudes the longitudes
+     * @param offset the index of the first position
+     * @param length the number of positions
+     * @param xs receives the local x coordinates, at the same index as the position
+     * @param ys receives the local y coordinates, at the same index as the position
+     * @see #convertGeoPositionToPoint(GeoPosition)
+     */
+    public void convertGeoPositionsToPoints(double[] latitudes, double[] longitudes, int offset, int length,
+            double[] xs, double[] ys)
+    {
+        getTileFactory().geoToPixel(latitudes, longitudes, offset, length, getZoom(), xs, ys, true);
+        Rectangle bounds = getViewportBounds();
+        double dx = bounds.getX();
+        double dy = bounds.getY();
+        if (zoomScale == 1)
+        {
+            for (int i = offset; i < offset + length; i++)
+            {
+                xs[i] -= dx;
+                ys[i] -= dy;
+            }
+        }
+        else
+        {
+            Point2D a = getZoomAnchor(bounds);
+            double ax = a.getX();
+            double ay = a.getY();
+            for (int i = offset; i < offset + length; i++)
+            {
+                xs[i] = ax + (xs[i] - dx - ax) * zoomScale;
+                ys[i] = ay + (ys[i] - dy - ay) * zoomScale;
+            }
+        }
     }
 
     /**
@@ -847,6 +1255,12 @@ public class JXMapViewer extends JPanel implements DesignMode
         // convert from local to world bitmap
         Rectangle bounds = getViewportBounds();
         Point2D pt2 = new Point2D.Double(pt.getX() + bounds.getX(), pt.getY() + bounds.getY());
+        if (zoomScale != 1)
+        {
+            Point2D a = getZoomAnchor(bounds);
+            pt2.setLocation(bounds.getX() + a.getX() + (pt.getX() - a.getX()) / zoomScale,
+                    bounds.getY() + a.getY() + (pt.getY() - a.getY()) / zoomScale);
+        }
 
         // convert from world bitmap to geo
         GeoPosition pos = getTileFactory().pixelToGeo(pt2, getZoom());
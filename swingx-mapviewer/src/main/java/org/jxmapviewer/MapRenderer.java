@@ -0,0 +1,327 @@
+package org.jxmapviewer;
+
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.Painter;
+import javax.swing.SwingUtilities;
+
+import org.jdesktop.swingx.painter.CompoundPainter;
+import org.jxmapviewer.viewer.GeoBounds;
+import org.jxmapviewer.viewer.GeoPosition;
+import org.jxmapviewer.viewer.Tile;
+import org.jxmapviewer.viewer.TileFactory;
+
+/**
+ * Renders maps into images without a visible component, e.g. to export high resolution snapshots.
+ * <p>
+ * The image is rendered in horizontal bands. The tiles of a band are requested from the tile factory
+ * all at once, so they are loaded in parallel by its loading threads and end up in its caches. When
+ * all tiles of a band are loaded (or failed, or the timeout is over) the band is painted with an offscreen
+ * {@link JXMapViewer} including the overlays and handed to an {@link Output}. Very large images can be
+ * streamed this way without holding them in memory.
+ * <p>
+ * Must not be called on the event dispatch thread, loaded tiles are published there.
+ */
+public class MapRenderer
+{
+    /**
+     * Receives the rendered bands of the image
+     */
+    public interface Output
+    {
+        /**
+         * @param band the rendered band, only valid during this call
+         * @param y the y coordinate of the band within the whole image
+         * @throws IOException if the band cannot be written
+         */
+        void write(BufferedImage band, int y) throws IOException;
+    }
+
+    /**
+     * Is informed about the loading progress
+     */
+    public interface ProgressListener
+    {
+        /**
+         * @param done the number of tiles that are loaded or failed
+         * @param total the number of tiles of the whole image
+         */
+        void progress(int done, int total);
+    }
+
+    private final TileFactory tileFactory;
+    private final List<Painter<? super JXMapViewer>> overlays = new ArrayList<Painter<? super JXMapViewer>>();
+    private ProgressListener progressListener;
+    private long timeout = TimeUnit.MINUTES.toMillis(2);
+    private int maxTilesPerBand = 256;
+
+    /**
+     * @param tileFactory the tile factory to load the tiles with
+     */
+    public MapRenderer(TileFactory tileFactory)
+    {
+        this.tileFactory = tileFactory;
+    }
+
+    /**
+     * @param overlay an overlay that is painted on top of the map, in the order they are added
+     */
+    public void addOverlay(Painter<? super JXMapViewer> overlay)
+    {
+        overlays.add(overlay);
+    }
+
+    /**
+     * @param listener the progress listener, may be null
+     */
+    public void setProgressListener(ProgressListener listener)
+    {
+        this.progressListener = listener;
+    }
+
+    /**
+     * @param timeout the maximum time to wait for the tiles of a band, in milliseconds
+     */
+    public void setTimeout(long timeout)
+    {
+        this.timeout = timeout;
+    }
+
+    /**
+     * The tiles of a band are held in memory until the band is rendered. Keep this below the
+     * number of tiles the tile factory keeps.
+     * @param maxTiles the maximum number of tiles of a band
+     */
+    public void setMaxTilesPerBand(int maxTiles)
+    {
+        if (maxTiles <= 0)
+        {
+            throw new IllegalArgumentException("maxTiles must be greater than 0: " + maxTiles);
+        }
+        this.maxTilesPerBand = maxTiles;
+    }
+
+    /**
+     * @param bounds the geo bounds of the image
+     * @param zoom the zoom level
+     * @return the size of the image in pixels
+     */
+    public Dimension getImageSize(GeoBounds bounds, int zoom)
+    {
+        Rectangle r = getPixelBounds(bounds, zoom);
+        return new Dimension(r.width, r.height);
+    }
+
+    /**
+     * Renders the map into a single image
+     * @param bounds the geo bounds of the image
+     * @param zoom the zoom level
+     * @return the image
+     * @throws InterruptedException if interrupted while waiting for the tiles
+     */
+    public BufferedImage render(GeoBounds bounds, int zoom) throws InterruptedException
+    {
+        Dimension size = getImageSize(bounds, zoom);
+        final BufferedImage image = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_ARGB);
+        final Graphics2D g = image.createGraphics();
+        try
+        {
+            render(bounds, zoom, new Output()
+            {
+                @Override
+                public void write(BufferedImage band, int y)
+                {
+                    g.drawImage(band, 0, y, null);
+                }
+            });
+        }
+        catch (IOException ex)
+        {
+            throw new IllegalStateException(ex); // not thrown by this output
+        }
+        finally
+        {
+            g.dispose();
+        }
+        return image;
+    }
+
+    /**
+     * Renders the map band by band
+     * @param bounds the geo bounds of the image
+     * @param zoom the zoom level
+     * @param out receives the rendered bands from top to bottom
+     * @throws IOException if the output fails
+     * @throws InterruptedException if interrupted while waiting for the tiles
+     */
+    public void render(GeoBounds bounds, int zoom, Output out) throws IOException, InterruptedException
+    {
+        if (SwingUtilities.isEventDispatchThread())
+        {
+            throw new IllegalStateException("must not be called on the event dispatch thread");
+        }
+        Rectangle pixels = getPixelBounds(bounds, zoom);
+        JXMapViewer viewer = createViewer(zoom);
+        try
+        {
+            renderBands(viewer, pixels, zoom, out);
+        }
+        finally
+        {
+            viewer.releaseTileFactory();
+        }
+    }
+
+    private void renderBands(JXMapViewer viewer, Rectangle pixels, int zoom, Output out)
+            throws IOException, InterruptedException
+    {
+        int tileSize = tileFactory.getTileSize(zoom);
+        int firstCol = Math.floorDiv(pixels.x, tileSize);
+        int lastCol = Math.floorDiv(pixels.x + pixels.width - 1, tileSize);
+        int firstRow = Math.floorDiv(pixels.y, tileSize);
+        int lastRow = Math.floorDiv(pixels.y + pixels.height - 1, tileSize);
+        int cols = lastCol - firstCol + 1;
+        int rowsPerBand = Math.max(1, maxTilesPerBand / cols);
+        int total = cols * (lastRow - firstRow + 1);
+        int done = 0;
+        fireProgress(done, total);
+
+        for (int row = firstRow; row <= lastRow; row += rowsPerBand)
+        {
+            int endRow = Math.min(lastRow, row + rowsPerBand - 1);
+            int top = Math.max(pixels.y, row * tileSize);
+            int bottom = Math.min(pixels.y + pixels.height, (endRow + 1) * tileSize);
+            Rectangle band = new Rectangle(pixels.x, top, pixels.width, bottom - top);
+
+            tileFactory.setViewport(new Rectangle(firstCol, row, cols, endRow - row + 1), zoom);
+            List<Tile> pending = new ArrayList<Tile>();
+            for (int y = row; y <= endRow; y++)
+            {
+                for (int x = firstCol; x <= lastCol; x++)
+                {
+                    pending.add(tileFactory.getTile(x, y, zoom));
+                }
+            }
+            // strong references, so the soft tile images survive until the band is painted
+            List<BufferedImage> images = new ArrayList<BufferedImage>(pending.size());
+            done = await(pending, images, done, total);
+
+            out.write(paintBand(viewer, band), band.y - pixels.y);
+        }
+    }
+
+    private int await(List<Tile> pending, List<BufferedImage> images, int done, int total)
+            throws InterruptedException
+    {
+        long end = System.currentTimeMillis() + timeout;
+        while (!pending.isEmpty())
+        {
+            int before = pending.size();
+            for (int i = pending.size() - 1; i >= 0; i--)
+            {
+                Tile tile = pending.get(i);
+                if (tile.isLoaded())
+                {
+                    BufferedImage img = tile.getImage();
+                    if (img == null)
+                    {
+                        continue; // collected meanwhile, it is loaded again
+                    }
+                    images.add(img);
+                    pending.remove(i);
+                }
+                else if (tile.loadingFailed() || (!tile.isLoading() && tile.getURL() == null))
+                {
+                    pending.remove(i);
+                }
+            }
+            if (pending.size() != before)
+            {
+                done += before - pending.size();
+                fireProgress(done, total);
+            }
+            if (pending.isEmpty())
+            {
+                break;
+            }
+            if (System.currentTimeMillis() > end)
+            {
+                // the missing tiles are painted as loading tiles
+                done += pending.size();
+                fireProgress(done, total);
+                break;
+            }
+            Thread.sleep(20);
+        }
+        return done;
+    }
+
+    private JXMapViewer createViewer(int zoom)
+    {
+        JXMapViewer viewer = new JXMapViewer();
+        viewer.setTileFactory(tileFactory);
+        viewer.setRestrictOutsidePanning(false);
+        viewer.setDoubleBuffered(false);
+        viewer.setZoom(zoom);
+        if (!overlays.isEmpty())
+        {
+            viewer.setOverlayPainter(new CompoundPainter<JXMapViewer>(overlays.toArray(new Painter<?>[0])));
+        }
+        return viewer;
+    }
+
+    private BufferedImage paintBand(JXMapViewer viewer, Rectangle band)
+    {
+        viewer.setSize(band.width, band.height);
+        viewer.setCenter(new Point2D.Double(band.x + band.width / 2.0, band.y + band.height / 2.0));
+        // the viewport may be off by a pixel due to rounding of odd sizes
+        Rectangle viewport = viewer.getViewportBounds();
+        BufferedImage image = new BufferedImage(band.width, band.height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        try
+        {
+            g.translate(viewport.x - band.x, viewport.y - band.y);
+            g.setClip(band.x - viewport.x, band.y - viewport.y, band.width, band.height);
+            viewer.paint(g);
+        }
+        finally
+        {
+            g.dispose();
+        }
+        return image;
+    }
+
+    private Rectangle getPixelBounds(GeoBounds bounds, int zoom)
+    {
+        GeoPosition nw = bounds.getNorthWest();
+        GeoPosition se = bounds.getSouthEast();
+        Point2D p1 = tileFactory.geoToPixel(nw, zoom);
+        Point2D p2 = tileFactory.geoToPixel(se, zoom);
+        double x2 = p2.getX();
+        if (nw.getLongitude() > se.getLongitude())
+        {
+            // across the antimeridian
+            x2 += tileFactory.getMapSize(zoom).getWidth() * tileFactory.getTileSize(zoom);
+        }
+        int x = (int) Math.floor(p1.getX());
+        int y = (int) Math.floor(p1.getY());
+        return new Rectangle(x, y, Math.max(1, (int) Math.ceil(x2) - x), Math.max(1, (int) Math.ceil(p2.getY()) - y));
+    }
+
+    private void fireProgress(int done, int total)
+    {
+        ProgressListener l = progressListener;
+        if (l != null)
+        {
+            l.progress(done, total);
+        }
+    }
+}
@@ -0,0 +1,419 @@
+package org.jxmapviewer;
+
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jxmapviewer.viewer.GeoPosition;
+import org.jxmapviewer.viewer.TileFactoryInfo;
+import org.jxmapviewer.viewer.util.GeoUtil;
+
+/**
+ * A polyline of geo positions, e.g. a GPS track, that is painted by a {@link RoutePainter}.
+ * <p>
+ * The positions are projected once and simplified once per zoom level with the Douglas-Peucker
+ * algorithm, so points closer than the tolerance to the simplified line are dropped. The simplified
+ * lines are cached in blocks with bounding boxes, so only the blocks within the viewport are visited.
+ * <p>
+ * Appended points are simplified incrementally: only the tail of the route since the last finished part
+ * is simplified again, the rest of the cached line stays as it is. All methods are thread safe, so points
+ * can be appended by another thread while the route is painted.
+ */
+public class Route
+{
+    // simplified points per bounding box
+    private static final int BLOCK_SIZE = 64;
+
+    // the tail is finished when it is longer than this, so appending costs no more than this many points
+    private static final int MAX_TAIL = 256;
+
+    private double[] latitudes = new double[16];
+    private double[] longitudes = new double[16];
+    private int size;
+
+    // world pixels at zoom level 0 of the projection
+    private TileFactoryInfo projection;
+    private double[] xs = new double[0];
+    private double[] ys = new double[0];
+    private int projected;
+
+    private double tolerance = 0.5;
+    private final Map<Integer, Simplification> simplifications = new HashMap<Integer, Simplification>();
+
+    /**
+     * Creates an empty route
+     */
+    public Route()
+    {
+        // empty
+    }
+
+    /**
+     * @param positions the positions of the route
+     */
+    public Route(List<GeoPosition> positions)
+    {
+        addAll(positions);
+    }
+
+    /**
+     * @param position the position to append
+     */
+    public void add(GeoPosition position)
+    {
+        add(position.getLatitude(), position.getLongitude());
+    }
+
+    /**
+     * @param latitude the latitude of the position to append
+     * @param longitude the longitude of the position to append
+     */
+    public synchronized void add(double latitude, double longitude)
+    {
+        ensureCapacity(size + 1);
+        latitudes[size] = latitude;
+        longitudes[size] = longitude;
+        size++;
+    }
+
+    /**
+     * @param positions the positions to append
+     */
+    public synchronized void addAll(List<GeoPosition> positions)
+    {
+        ensureCapacity(size + positions.size());
+        for (GeoPosition pos : positions)
+        {
+            latitudes[size] = pos.getLatitude();
+            longitudes[size] = pos.getLongitude();
+            size++;
+        }
+    }
+
+    /**
+     * Removes all positions
+     */
+    public synchronized void clear()
+    {
+        size = 0;
+        projected = 0;
+        simplifications.clear();
+    }
+
+    /**
+     * @return the number of positions
+     */
+    public synchronized int size()
+    {
+        return size;
+    }
+
+    /**
+     * @param index the index
+     * @return the position at the index
+     */
+    public synchronized GeoPosition getPosition(int index)
+    {
+        if (index < 0 || index >= size)
+        {
+            throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+        }
+        return new GeoPosition(latitudes[index], longitudes[index]);
+    }
+
+    /**
+     * @return the maximum distance in pixels of a dropped point to the simplified line
+     */
+    public synchronized double getTolerance()
+    {
+        return tolerance;
+    }
+
+    /**
+     * @param tolerance the maximum distance in pixels of a dropped point to the simplified line
+     */
+    public synchronized void setTolerance(double tolerance)
+    {
+        if (tolerance < 0)
+        {
+            throw new IllegalArgumentException("tolerance must not be negative: " + tolerance);
+        }
+        this.tolerance = tolerance;
+        simplifications.clear();
+    }
+
+    /**
+     * @param info the projection
+     * @param zoom the zoom level
+     * @return the number of points of the simplified line at the zoom level
+     */
+    public synchronized int getSimplifiedSize(TileFactoryInfo info, int zoom)
+    {
+        return simplify(info, zoom).count;
+    }
+
+    /**
+     * Appends the simplified line within the given bounds to a path, in world bitmap pixels. Segments outside
+     * of the bounds are left out, the path is continued with a move to the next visible segment.
+     * @param path the path
+     * @param info the projection
+     * @param zoom the zoom level
+     * @param bounds the visible part of the world bitmap at the zoom level
+     */
+    public synchronized void appendTo(Path2D path, TileFactoryInfo info, int zoom, Rectangle2D bounds)
+    {
+        Simplification s = simplify(info, zoom);
+        if (s.count < 2)
+        {
+            return;
+        }
+        double scale = getScale(info, zoom);
+        // the visible area in world pixels at zoom level 0
+        double minX = bounds.getMinX() / scale;
+        double minY = bounds.getMinY() / scale;
+        double maxX = bounds.getMaxX() / scale;
+        double maxY = bounds.getMaxY() / scale;
+
+        int[] kept = s.kept;
+        int last = -1; // the last point appended to the path
+        int blocks = s.blockCount();
+        for (int b = 0; b < blocks; b++)
+        {
+            int o = b * 4;
+            if (s.bounds[o] > maxX || s.bounds[o + 1] > maxY || s.bounds[o + 2] < minX || s.bounds[o + 3] < minY)
+            {
+                continue;
+            }
+            int from = b * BLOCK_SIZE;
+            int to = Math.min(s.count - 1, from + BLOCK_SIZE);
+            for (int k = from; k < to; k++)
+            {
+                int i = kept[k];
+                int j = kept[k + 1];
+                if (Math.max(xs[i], xs[j]) < minX || Math.min(xs[i], xs[j]) > maxX
+                        || Math.max(ys[i], ys[j]) < minY || Math.min(ys[i], ys[j]) > maxY)
+                {
+                    continue;
+                }
+                if (last != k)
+                {
+                    path.moveTo(xs[i] * scale, ys[i] * scale);
+                }
+                path.lineTo(xs[j] * scale, ys[j] * scale);
+                last = k + 1;
+            }
+        }
+    }
+
+    private static double getScale(TileFactoryInfo info, int zoom)
+    {
+        // exact powers of two between the zoom levels
+        return info.getLongitudeDegreeWidthInPixels(zoom) / info.getLongitudeDegreeWidthInPixels(0);
+    }
+
+    private void ensureCapacity(int capacity)
+    {
+        if (capacity > latitudes.length)
+        {
+            int n = Math.max(capacity, latitudes.length * 2);
+            latitudes = Arrays.copyOf(latitudes, n);
+            longitudes = Arrays.copyOf(longitudes, n);
+        }
+    }
+
+    private void project(TileFactoryInfo info)
+    {
+        if (info != projection)
+        {
+            projection = info;
+            projected = 0;
+            simplifications.clear();
+        }
+        if (projected == size)
+        {
+            return;
+        }
+        if (xs.length < size)
+        {
+            xs = Arrays.copyOf(xs, latitudes.length);
+            ys = Arrays.copyOf(ys, latitudes.length);
+        }
+        GeoUtil.getBitmapCoordinates(latitudes, longitudes, projected, size - projected, 0, info, xs, ys, true);
+        projected = size;
+    }
+
+    private Simplification simplify(TileFactoryInfo info, int zoom)
+    {
+        project(info);
+        Simplification s = simplifications.get(zoom);
+        if (s == null)
+        {
+            s = new Simplification(tolerance / getScale(info, zoom));
+            simplifications.put(zoom, s);
+        }
+        s.update();
+        return s;
+    }
+
+    /**
+     * The simplified line of one zoom level. The first <code>frozen</code> kept points are final,
+     * the rest is the simplified tail that is computed again when points are appended.
+     */
+    private final class Simplification
+    {
+        private final double tolerance; // in world pixels at zoom level 0
+        private int[] kept = new int[16];
+        private int count;
+        private int frozen;
+        private int simplified; // the number of route points the tail has been computed for
+        private double[] bounds = new double[4]; // minX, minY, maxX, maxY per block
+
+        Simplification(double tolerance)
+        {
+            this.tolerance = tolerance;
+        }
+
+        int blockCount()
+        {
+            return (count - 2) / BLOCK_SIZE + 1;
+        }
+
+        void update()
+        {
+            if (simplified == size)
+            {
+                return;
+            }
+            if (count == 0)
+            {
+                append(0);
+                frozen = 1;
+            }
+            count = frozen;
+            int changed = frozen - 1;
+            int anchor = kept[changed];
+            int end = size - 1;
+            if (end > anchor)
+            {
+                douglasPeucker(anchor, end);
+                if (end - anchor > MAX_TAIL)
+                {
+                    frozen = count;
+                }
+            }
+            simplified = size;
+            updateBounds(changed);
+        }
+
+        // appends the kept points after first up to and including last, in order
+        private void douglasPeucker(int first, int last)
+        {
+            boolean[] keep = new boolean[last - first + 1];
+            keep[last - first] = true;
+            int[] stack = new int[64];
+            int top = 0;
+            stack[top++] = first;
+            stack[top++] = last;
+            while (top > 0)
+            {
+                int b = stack[--top];
+                int a = stack[--top];
+                int index = -1;
+                double max = tolerance * tolerance;
+                for (int i = a + 1; i < b; i++)
+                {
+                    double d = distanceSq(i, a, b);
+                    if (d > max)
+                    {
+                        max = d;
+                        index = i;
+                    }
+                }
+                if (index >= 0)
+                {
+                    keep[index - first] = true;
+                    if (top + 4 > stack.length)
+                    {
+                        stack = Arrays.copyOf(stack, stack.length * 2);
+                    }
+                    stack[top++] = a;
+                    stack[top++] = index;
+                    stack[top++] = index;
+                    stack[top++] = b;
+                }
+            }
+            for (int i = 1; i < keep.length; i++)
+            {
+                if (keep[i])
+                {
+                    append(first + i);
+                }
+            }
+        }
+
+        // squared distance of point p to the segment a-b
+        private double distanceSq(int p, int a, int b)
+        {
+            double vx = xs[b] - xs[a];
+            double vy = ys[b] - ys[a];
+            double wx = xs[p] - xs[a];
+            double wy = ys[p] - ys[a];
+            double len = vx * vx + vy * vy;
+            double t = len == 0 ? 0 : Math.max(0, Math.min(1, (wx * vx + wy * vy) / len));
+            double ex = wx - t * vx;
+            double ey = wy - t * vy;
+            return ex * ex + ey * ey;
+        }
+
+        private void append(int index)
+        {
+            if (count == kept.length)
+            {
+                kept = Arrays.copyOf(kept, count * 2);
+            }
+            kept[count++] = index;
+        }
+
+        // a block covers the segments starting at its points, so it includes the first point of the next block.
+        // changed is the index of the first kept point after which points were replaced
+        private void updateBounds(int changed)
+        {
+            if (count < 2)
+            {
+                return;
+            }
+            int blocks = blockCount();
+            if (bounds.length < blocks * 4)
+            {
+                bounds = Arrays.copyOf(bounds, Math.max(blocks * 4, bounds.length * 2));
+            }
+            // the blocks before the one with the changed point are unchanged
+            int first = Math.max(0, changed - 1) / BLOCK_SIZE;
+            for (int b = first; b < blocks; b++)
+            {
+                int from = b * BLOCK_SIZE;
+                int to = Math.min(count - 1, from + BLOCK_SIZE);
+                double minX = Double.POSITIVE_INFINITY;
+                double minY = Double.POSITIVE_INFINITY;
+                double maxX = Double.NEGATIVE_INFINITY;
+                double maxY = Double.NEGATIVE_INFINITY;
+                for (int k = from; k <= to; k++)
+                {
+                    int i = kept[k];
+                    minX = Math.min(minX, xs[i]);
+                    minY = Math.min(minY, ys[i]);
+                    maxX = Math.max(maxX, xs[i]);
+                    maxY = Math.max(maxY, ys[i]);
+                }
+                int o = b * 4;
+                bounds[o] = minX;
+                bounds[o + 1] = minY;
+                bounds[o + 2] = maxX;
+                bounds[o + 3] = maxY;
+            }
+        }
+    }
+}
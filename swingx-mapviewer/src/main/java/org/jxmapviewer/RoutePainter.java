@@ -0,0 +1,125 @@
+package org.jxmapviewer;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.Stroke;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.jdesktop.swingx.painter.AbstractPainter;
+import org.jxmapviewer.viewer.TileFactoryInfo;
+
+/**
+ * Paints {@link Route}s as lines. Only the simplified points of the current zoom level that lie within
+ * the visible area are drawn, so even long tracks repaint quickly while panning.
+ */
+public class RoutePainter extends AbstractPainter<JXMapViewer>
+{
+    private final List<Route> routes = new CopyOnWriteArrayList<Route>();
+    private Color color = Color.RED;
+    private Stroke stroke = new BasicStroke(2, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND);
+
+    /**
+     * @param routes the routes to paint
+     */
+    public RoutePainter(Route... routes)
+    {
+        this.routes.addAll(Arrays.asList(routes));
+        setAntialiasing(true);
+        setCacheable(false);
+    }
+
+    /**
+     * @param route the route to add
+     */
+    public void addRoute(Route route)
+    {
+        routes.add(route);
+        setDirty(true);
+    }
+
+    /**
+     * @param route the route to remove
+     */
+    public void removeRoute(Route route)
+    {
+        routes.remove(route);
+        setDirty(true);
+    }
+
+    /**
+     * @return the routes
+     */
+    public List<Route> getRoutes()
+    {
+        return routes;
+    }
+
+    /**
+     * @return the line color
+     */
+    public Color getColor()
+    {
+        return color;
+    }
+
+    /**
+     * @param color the line color
+     */
+    public void setColor(Color color)
+    {
+        this.color = color;
+        setDirty(true);
+    }
+
+    /**
+     * @return the line stroke
+     */
+    public Stroke getStroke()
+    {
+        return stroke;
+    }
+
+    /**
+     * @param stroke the line stroke
+     */
+    public void setStroke(Stroke stroke)
+    {
+        this.stroke = stroke;
+        setDirty(true);
+    }
+
+    @Override
+    protected void doPaint(Graphics2D g, JXMapViewer map, int width, int height)
+    {
+        Rectangle viewportBounds = map.getViewportBounds();
+        Rectangle clip = g.getClipBounds();
+        if (clip == null)
+        {
+            clip = new Rectangle(0, 0, width, height);
+        }
+        // lines are painted a little beyond their points
+        double margin = stroke instanceof BasicStroke ? ((BasicStroke) stroke).getLineWidth() : 8;
+        Rectangle2D visible = new Rectangle2D.Double(viewportBounds.x + clip.x - margin,
+                viewportBounds.y + clip.y - margin, clip.width + 2 * margin, clip.height + 2 * margin);
+
+        TileFactoryInfo info = map.getTileFactory().getInfo();
+        int zoom = map.getZoom();
+        Path2D path = new Path2D.Double();
+        for (Route route : routes)
+        {
+            route.appendTo(path, info, zoom, visible);
+        }
+
+        g.translate(-viewportBounds.getX(), -viewportBounds.getY());
+        g.setColor(color);
+        g.setStroke(stroke);
+        g.draw(path);
+        g.translate(viewportBounds.getX(), viewportBounds.getY());
+    }
+}
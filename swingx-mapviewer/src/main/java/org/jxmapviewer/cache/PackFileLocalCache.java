@@ -0,0 +1,397 @@
+package org.jxmapviewer.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A cache that packs all tiles into a few append-only files instead of one file per tile.
+ * <p>
+ * Each pack file is a sequence of records: a header with a magic number, the key and data lengths,
+ * followed by the tile URL and the tile data. The index is rebuilt from the record headers when
+ * the cache is opened and kept in memory. Tiles are read through a {@link MappedByteBuffer},
+ * so {@link #get(URL)} does not copy any data.
+ * <p>
+ * Storing a tile again appends a new record, the old one becomes garbage. Use {@link #compact()}
+ * to reclaim that space.
+ */
+public class PackFileLocalCache implements LocalCache, Closeable
+{
+    private static final Logger LOG = Logger.getLogger(PackFileLocalCache.class.getName());
+
+    /**
+     * The default maximum size of a single pack file
+     */
+    public static final long DEFAULT_PACK_SIZE = 256L * 1024 * 1024;
+
+    private static final int MAGIC = 0x4A58544C; // "JXTL"
+    private static final int HEADER_SIZE = 12;
+    private static final Pattern PACK_NAME = Pattern.compile("tiles-(\\d+)\\.pack");
+
+    private final File cacheDir;
+    private final long maxPackSize;
+
+    private final Map<String, Entry> index = new ConcurrentHashMap<String, Entry>();
+    private final Map<Integer, Pack> packs = new ConcurrentHashMap<Integer, Pack>();
+    private Pack current;
+    private long garbage;
+
+    /**
+     * @param cacheDir the folder for the pack files
+     * @throws IOException if the existing pack files cannot be read
+     */
+    public PackFileLocalCache(File cacheDir) throws IOException
+    {
+        this(cacheDir, DEFAULT_PACK_SIZE);
+    }
+
+    /**
+     * @param cacheDir the folder for the pack files
+     * @param maxPackSize the size at which a new pack file is started, at most {@link Integer#MAX_VALUE}
+     * @throws IOException if the existing pack files cannot be read
+     */
+    public PackFileLocalCache(File cacheDir, long maxPackSize) throws IOException
+    {
+        if (maxPackSize <= HEADER_SIZE || maxPackSize > Integer.MAX_VALUE)
+        {
+            throw new IllegalArgumentException("maxPackSize out of range: " + maxPackSize);
+        }
+        this.cacheDir = cacheDir;
+        this.maxPackSize = maxPackSize;
+        if (!cacheDir.exists())
+        {
+            cacheDir.mkdirs();
+        }
+        open();
+    }
+
+    @Override
+    public InputStream get(URL url)
+    {
+        Entry e = index.get(url.toString());
+        if (e == null)
+        {
+            return null;
+        }
+        Pack pack = packs.get(e.pack);
+        if (pack == null)
+        {
+            return null; // compacted meanwhile
+        }
+        try
+        {
+            return new ByteBufferInputStream(pack.slice(e.offset, e.length));
+        }
+        catch (IOException ex)
+        {
+            LOG.warning("Unable to read " + url + " from " + pack.file + ": " + ex);
+            return null;
+        }
+    }
+
+    @Override
+    public void put(URL url, InputStream data) throws IOException
+    {
+        byte[] bytes = readAllBytes(data);
+        write(url.toString(), ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * @return the number of cached tiles
+     */
+    public int size()
+    {
+        return index.size();
+    }
+
+    /**
+     * @return the number of bytes in the pack files that belong to replaced tiles
+     */
+    public synchronized long getGarbageBytes()
+    {
+        return garbage;
+    }
+
+    /**
+     * Rewrites all tiles into new pack files and deletes the old ones, which frees the space of replaced tiles.
+     * Tiles can be read while compacting, writes wait until compacting is done.
+     * @throws IOException if a pack file cannot be written
+     */
+    public synchronized void compact() throws IOException
+    {
+        List<Pack> old = new ArrayList<Pack>(packs.values());
+        current = createPack(nextPackId());
+        for (Map.Entry<String, Entry> me : index.entrySet())
+        {
+            Entry e = me.getValue();
+            Pack pack = packs.get(e.pack);
+            write(me.getKey(), pack.slice(e.offset, e.length));
+        }
+        for (Pack pack : old)
+        {
+            packs.remove(pack.id);
+            pack.close();
+            if (!pack.file.delete())
+            {
+                LOG.warning("Unable to delete " + pack.file);
+            }
+        }
+        garbage = 0;
+    }
+
+    /**
+     * Closes all pack files
+     * @throws IOException if a pack file cannot be closed
+     */
+    @Override
+    public synchronized void close() throws IOException
+    {
+        for (Pack pack : packs.values())
+        {
+            pack.close();
+        }
+    }
+
+    private synchronized void write(String key, ByteBuffer data) throws IOException
+    {
+        byte[] k = key.getBytes(StandardCharsets.UTF_8);
+        int length = data.remaining();
+        long recordSize = HEADER_SIZE + k.length + length;
+        if (current.size > HEADER_SIZE && current.size + recordSize > maxPackSize)
+        {
+            current = createPack(nextPackId());
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE + k.length);
+        header.putInt(MAGIC).putInt(k.length).putInt(length).put(k);
+        header.flip();
+
+        long pos = current.size;
+        ByteBuffer[] record = new ByteBuffer[] { header, data };
+        while (header.hasRemaining() || data.hasRemaining())
+        {
+            current.channel.write(record);
+        }
+        current.size = pos + recordSize;
+
+        Entry old = index.put(key, new Entry(current.id, pos + HEADER_SIZE + k.length, length));
+        if (old != null)
+        {
+            garbage += HEADER_SIZE + k.length + old.length;
+        }
+    }
+
+    private void open() throws IOException
+    {
+        File[] files = cacheDir.listFiles();
+        List<Integer> ids = new ArrayList<Integer>();
+        for (File f : files == null ? new File[0] : files)
+        {
+            Matcher m = PACK_NAME.matcher(f.getName());
+            if (m.matches())
+            {
+                ids.add(Integer.valueOf(m.group(1)));
+            }
+        }
+        Collections.sort(ids);
+        for (int id : ids)
+        {
+            Pack pack = createPack(id);
+            scan(pack);
+            current = pack;
+        }
+        if (current == null)
+        {
+            current = createPack(0);
+        }
+        LOG.config("opened " + packs.size() + " pack files with " + index.size() + " tiles in " + cacheDir);
+    }
+
+    // rebuild the index from the record headers, later records replace earlier ones
+    private void scan(Pack pack) throws IOException
+    {
+        if (pack.size == 0)
+        {
+            return;
+        }
+        ByteBuffer buf = pack.slice(0, (int) pack.size);
+        int end = 0;
+        while (buf.remaining() >= HEADER_SIZE)
+        {
+            int magic = buf.getInt();
+            int keyLength = buf.getInt();
+            int length = buf.getInt();
+            if (magic != MAGIC || keyLength < 0 || length < 0 || buf.remaining() < (long) keyLength + length)
+            {
+                break;
+            }
+            byte[] k = new byte[keyLength];
+            buf.get(k);
+            Entry old = index.put(new String(k, StandardCharsets.UTF_8), new Entry(pack.id, buf.position(), length));
+            if (old != null)
+            {
+                garbage += HEADER_SIZE + keyLength + old.length;
+            }
+            buf.position(buf.position() + length);
+            end = buf.position();
+        }
+        if (end < pack.size)
+        {
+            // an incomplete record, e.g. after a crash: drop it, so appending continues at a sane position
+            LOG.warning("truncating " + pack.file + " at " + end);
+            pack.channel.truncate(end);
+            pack.size = end;
+        }
+    }
+
+    private int nextPackId()
+    {
+        return current == null ? 0 : current.id + 1;
+    }
+
+    private Pack createPack(int id) throws IOException
+    {
+        File file = new File(cacheDir, String.format("tiles-%05d.pack", id));
+        Pack pack = new Pack(id, file);
+        packs.put(id, pack);
+        return pack;
+    }
+
+    private static byte[] readAllBytes(InputStream ins) throws IOException
+    {
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        byte[] buf = new byte[8192];
+        int n;
+        while ((n = ins.read(buf)) > 0)
+        {
+            bout.write(buf, 0, n);
+        }
+        return bout.toByteArray();
+    }
+
+    /**
+     * The location of a tile
+     */
+    private static final class Entry
+    {
+        final int pack;
+        final int offset;
+        final int length;
+
+        Entry(int pack, long offset, int length)
+        {
+            this.pack = pack;
+            this.offset = (int) offset;
+            this.length = length;
+        }
+    }
+
+    /**
+     * A pack file and its read-only mapping. The mapping is renewed when a record
+     * beyond its end is read, i.e. one that has been appended after mapping.
+     */
+    private static final class Pack
+    {
+        final int id;
+        final File file;
+        final FileChannel channel;
+        volatile long size;
+        private MappedByteBuffer map;
+
+        @SuppressWarnings("resource")
+        Pack(int id, File file) throws IOException
+        {
+            this.id = id;
+            this.file = file;
+            this.channel = new RandomAccessFile(file, "rw").getChannel();
+            this.size = channel.size();
+            channel.position(size);
+        }
+
+        ByteBuffer slice(int offset, int length) throws IOException
+        {
+            MappedByteBuffer m = mapping(offset + length);
+            ByteBuffer b = m.duplicate();
+            b.position(offset).limit(offset + length);
+            return b.slice();
+        }
+
+        private synchronized MappedByteBuffer mapping(long end) throws IOException
+        {
+            if (map == null || map.capacity() < end)
+            {
+                map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            }
+            return map;
+        }
+
+        void close() throws IOException
+        {
+            channel.close();
+        }
+    }
+
+    /**
+     * Reads from a buffer without copying it first
+     */
+    private static final class ByteBufferInputStream extends InputStream
+    {
+        private final ByteBuffer buf;
+
+        ByteBufferInputStream(ByteBuffer buf)
+        {
+            this.buf = buf;
+        }
+
+        @Override
+        public int read()
+        {
+            return buf.hasRemaining() ? buf.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len)
+        {
+            if (len == 0)
+            {
+                return 0;
+            }
+            if (!buf.hasRemaining())
+            {
+                return -1;
+            }
+            int n = Math.min(len, buf.remaining());
+            buf.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public long skip(long n)
+        {
+            int k = (int) Math.max(0, Math.min(n, buf.remaining()));
+            buf.position(buf.position() + k);
+            return k;
+        }
+
+        @Override
+        public int available()
+        {
+            return buf.remaining();
+        }
+    }
+}
@@ -12,7 +12,8 @@ import org.jxmapviewer.JXMapViewer;
 
 /**
  * zooms to the current mouse cursor 
- * using the mouse wheel
+ * using the mouse wheel, animated if the viewer has a
+ * {@link JXMapViewer#setZoomAnimationDuration(int) zoom animation duration}
  * @author Martin Steiger
  */
 public class ZoomMouseWheelListenerCursor implements MouseWheelListener
@@ -31,6 +32,13 @@ public class ZoomMouseWheelListenerCursor implements MouseWheelListener
     public void mouseWheelMoved(MouseWheelEvent evt)
     {
         Point current = evt.getPoint();
+        if (viewer.getZoomAnimationDuration() > 0)
+        {
+            // zooms smoothly, further wheel events extend the running animation
+            viewer.animateZoom(viewer.getZoom() + evt.getWheelRotation(), current);
+            return;
+        }
+
         Rectangle bound = viewer.getViewportBounds();
         
         double dx = current.x - bound.width / 2;
@@ -0,0 +1,24 @@
+package org.jxmapviewer.painter;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+
+import org.jxmapviewer.viewer.TileFactory;
+
+/**
+ * Static vector content of a {@link TiledOverlayPainter}, e.g. a route network.
+ * The content is painted tile by tile in world pixel coordinates.
+ */
+public interface TileOverlay
+{
+    /**
+     * Paints the content within the given bounds. The graphics is clipped to the bounds,
+     * content crossing the border must be painted nevertheless, e.g. a line starting on
+     * the neighbouring tile.
+     * @param g the graphics in world pixel coordinates of the zoom level
+     * @param tileFactory the tile factory to convert geo positions with
+     * @param zoom the zoom level
+     * @param bounds the bounds of the tile in world pixel coordinates
+     */
+    void paint(Graphics2D g, TileFactory tileFactory, int zoom, Rectangle bounds);
+}
@@ -0,0 +1,270 @@
+package org.jxmapviewer.painter;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.jdesktop.swingx.painter.AbstractPainter;
+import org.jdesktop.swingx.util.GraphicsUtilities;
+import org.jxmapviewer.JXMapViewer;
+import org.jxmapviewer.viewer.GeoBounds;
+import org.jxmapviewer.viewer.GeoPosition;
+import org.jxmapviewer.viewer.TileFactory;
+
+/**
+ * Paints static overlay content, e.g. routes or polygons, from images aligned to the map tiles.
+ * Each tile of the overlay is rasterised once per zoom level and kept in a cache keyed by
+ * (zoom, x, y), so panning only blits images instead of painting all the content again.
+ * <p>
+ * After the content has changed call {@link #invalidate(GeoBounds)} with the bounds of the changed
+ * geometry, only the tiles within these bounds are rasterised again.
+ */
+public class TiledOverlayPainter extends AbstractPainter<JXMapViewer>
+{
+    private final TileOverlay overlay;
+    private final int maxTiles;
+    private final Map<Long, BufferedImage> tiles;
+    private int invalidationMargin = 8;
+
+    // the cached tiles belong to this factory and scale
+    private TileFactory tileFactory;
+    private double scale = 1;
+
+    /**
+     * Creates a painter that caches up to 256 tiles
+     * @param overlay the content
+     */
+    public TiledOverlayPainter(TileOverlay overlay)
+    {
+        this(overlay, 256);
+    }
+
+    /**
+     * @param overlay the content
+     * @param maxTiles the maximum number of cached tiles
+     */
+    public TiledOverlayPainter(TileOverlay overlay, final int maxTiles)
+    {
+        this.overlay = overlay;
+        this.maxTiles = maxTiles;
+        this.tiles = new LinkedHashMap<Long, BufferedImage>(16, 0.75f, true)
+        {
+            private static final long serialVersionUID = 1;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, BufferedImage> eldest)
+            {
+                return size() > TiledOverlayPainter.this.maxTiles;
+            }
+        };
+        setAntialiasing(true);
+        setCacheable(false);
+    }
+
+    /**
+     * @return the maximum number of cached tiles
+     */
+    public int getMaxTiles()
+    {
+        return maxTiles;
+    }
+
+    /**
+     * @return the number of cached tiles
+     */
+    public synchronized int getCachedTileCount()
+    {
+        return tiles.size();
+    }
+
+    /**
+     * @return the distance in pixels around invalidated bounds that is invalidated as well
+     */
+    public int getInvalidationMargin()
+    {
+        return invalidationMargin;
+    }
+
+    /**
+     * Content is usually painted a little beyond its geo bounds, e.g. a thick line or a label.
+     * @param margin the distance in pixels around invalidated bounds that is invalidated as well
+     */
+    public void setInvalidationMargin(int margin)
+    {
+        this.invalidationMargin = margin;
+    }
+
+    /**
+     * Drops all tiles, e.g. after all the content has changed
+     */
+    public void invalidateAll()
+    {
+        synchronized (this)
+        {
+            tiles.clear();
+        }
+        setDirty(true);
+    }
+
+    /**
+     * Drops the tiles of all zoom levels that intersect the given bounds
+     * @param bounds the bounds of the changed content
+     */
+    public void invalidate(GeoBounds bounds)
+    {
+        synchronized (this)
+        {
+            if (tileFactory == null)
+            {
+                tiles.clear();
+            }
+            else
+            {
+                GeoPosition nw = bounds.getNorthWest();
+                GeoPosition se = bounds.getSouthEast();
+                for (Iterator<Long> it = tiles.keySet().iterator(); it.hasNext();)
+                {
+                    long key = it.next();
+                    if (intersects(key, nw, se))
+                    {
+                        it.remove();
+                    }
+                }
+            }
+        }
+        setDirty(true);
+    }
+
+    private boolean intersects(long key, GeoPosition nw, GeoPosition se)
+    {
+        int zoom = zoom(key);
+        int size = tileFactory.getTileSize(zoom);
+        Rectangle tile = new Rectangle(x(key) * size, y(key) * size, size, size);
+        Point2D p1 = tileFactory.geoToPixel(nw, zoom);
+        Point2D p2 = tileFactory.geoToPixel(se, zoom);
+        double minY = Math.min(p1.getY(), p2.getY()) - invalidationMargin;
+        double maxY = Math.max(p1.getY(), p2.getY()) + invalidationMargin;
+        if (nw.getLongitude() <= se.getLongitude())
+        {
+            return tile.intersects(p1.getX() - invalidationMargin, minY,
+                    p2.getX() - p1.getX() + 2 * invalidationMargin, maxY - minY);
+        }
+        // crossing the antimeridian: east of nw or west of se
+        return tile.getMaxX() >= p1.getX() - invalidationMargin && tile.getMaxY() >= minY && tile.getY() <= maxY
+                || tile.getX() <= p2.getX() + invalidationMargin && tile.getMaxY() >= minY && tile.getY() <= maxY;
+    }
+
+    @Override
+    protected void doPaint(Graphics2D g, JXMapViewer map, int width, int height)
+    {
+        TileFactory tf = map.getTileFactory();
+        int zoom = map.getZoom();
+        int size = tf.getTileSize(zoom);
+        Rectangle viewportBounds = map.getViewportBounds();
+        // more than the viewport is visible while the map is drawn scaled down
+        Rectangle visible = map.getVisibleWorldBounds();
+        AffineTransform t = g.getTransform();
+        double s = getCacheScale(Math.hypot(t.getScaleX(), t.getShearY()));
+
+        synchronized (this)
+        {
+            if (tf != tileFactory || s != scale)
+            {
+                tiles.clear();
+                tileFactory = tf;
+                scale = s;
+            }
+        }
+
+        int x0 = Math.floorDiv(visible.x, size);
+        int y0 = Math.floorDiv(visible.y, size);
+        int x1 = Math.floorDiv(visible.x + visible.width - 1, size);
+        int y1 = Math.floorDiv(visible.y + visible.height - 1, size);
+        for (int y = y0; y <= y1; y++)
+        {
+            for (int x = x0; x <= x1; x++)
+            {
+                BufferedImage img = getTile(tf, zoom, x, y, size, s);
+                g.drawImage(img, x * size - viewportBounds.x, y * size - viewportBounds.y, size, size, null);
+            }
+        }
+    }
+
+    /**
+     * Quantises the scale of the graphics to a power of two, so the scale of the cached tiles
+     * changes only a few times during a zoom animation, not on every frame. Tiles are rasterised
+     * at that scale or finer and scaled down by the graphics.
+     * @param scale the scale of the graphics
+     * @return the scale to rasterise the tiles at, at least 1
+     */
+    static double getCacheScale(double scale)
+    {
+        double s = 1;
+        // a little tolerance for rounding errors of the transform
+        while (s < scale - 0.01 && s < 64)
+        {
+            s *= 2;
+        }
+        return s;
+    }
+
+    private BufferedImage getTile(TileFactory tf, int zoom, int x, int y, int size, double s)
+    {
+        long key = key(zoom, x, y);
+        synchronized (this)
+        {
+            BufferedImage img = tiles.get(key);
+            if (img != null)
+            {
+                return img;
+            }
+        }
+        int pixels = (int) Math.ceil(size * s);
+        BufferedImage img = GraphicsUtilities.createCompatibleTranslucentImage(pixels, pixels);
+        Graphics2D g = img.createGraphics();
+        try
+        {
+            configureGraphics(g);
+            g.scale(s, s);
+            g.translate(-x * size, -y * size);
+            Rectangle bounds = new Rectangle(x * size, y * size, size, size);
+            g.clip(bounds);
+            overlay.paint(g, tf, zoom, bounds);
+        }
+        finally
+        {
+            g.dispose();
+        }
+        synchronized (this)
+        {
+            tiles.put(key, img);
+        }
+        return img;
+    }
+
+    // 8 bits zoom, 28 bits each for x and y
+    private static long key(int zoom, int x, int y)
+    {
+        return ((long) zoom << 56) | ((x & 0xFFFFFFFL) << 28) | (y & 0xFFFFFFFL);
+    }
+
+    private static int zoom(long key)
+    {
+        return (int) (key >>> 56);
+    }
+
+    private static int x(long key)
+    {
+        return (int) (key << 8 >> 36);
+    }
+
+    private static int y(long key)
+    {
+        return (int) (key << 36 >> 36);
+    }
+}
@@ -1,27 +1,35 @@
 package org.jxmapviewer.viewer;
 
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.ref.SoftReference;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.util.AbstractMap;
+import java.util.ArrayList;
 import java.util.Comparator;
-import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
 
-import javax.imageio.ImageIO;
 import javax.swing.SwingUtilities;
 
 import org.jxmapviewer.ProjectProperties;
@@ -51,18 +59,16 @@ public abstract class AbstractTileFactory extends TileFactory
 
     // TODO the tile map should be static ALWAYS, regardless of the number
     // of GoogleTileFactories because each tile is, really, a singleton.
-    private LinkedHashMap<String, Tile> tileMap = new LinkedHashMap<String, Tile>() {
-        private static final int CACHE_SIZE = 512;
-        private static final long serialVersionUID = 1;
-
-        @Override
-        protected boolean removeEldestEntry(final Map.Entry<String, Tile> eldest) {
-            return size() > CACHE_SIZE;
-        }
-    };
+    private final TileRegistry tileRegistry = new TileRegistry(512);
 
     private TileCache cache = new TileCache();
 
+    private volatile TilePrefetcher prefetcher;
+    private volatile TileFetcher tileFetcher;
+    private final AtomicLong loadedBytes = new AtomicLong();
+    private final AtomicLong loadedTileCount = new AtomicLong();
+    private final TileLoadingStats stats = new TileLoadingStats();
+
     /**
      * Creates a new instance of DefaultTileFactory using the spcified TileFactoryInfo
      * @param info a TileFactoryInfo to configure this TileFactory
@@ -85,6 +91,19 @@ public abstract class AbstractTileFactory extends TileFactory
         return getTile(x, y, zoom, true);
     }
 
+    @Override
+    public BufferedImage getLoadedImage(int x, int y, int zoom)
+    {
+        int numTilesWide = (int) getMapSize(zoom).getWidth();
+        if (numTilesWide <= 0)
+        {
+            return null;
+        }
+        Tile tile = tileRegistry.get(TileRegistry.key(Math.floorMod(x, numTilesWide), y, zoom));
+        // read the reference directly, Tile.getImage() would reload a collected image
+        return tile != null && tile.isLoaded() ? tile.image.get() : null;
+    }
+
     private Tile getTile(int tpx, int tpy, int zoom, boolean eagerLoad)
     {
         // wrap the tiles horizontally --> mod the X with the max width
@@ -98,39 +117,37 @@ public abstract class AbstractTileFactory extends TileFactory
 
         tileX = tileX % numTilesWide;
         int tileY = tpy;
-        // TilePoint tilePoint = new TilePoint(tileX, tpy);
-        String url = getInfo().getTileUrl(tileX, tileY, zoom);// tilePoint);
-        // System.out.println("loading: " + url);
+        long key = TileRegistry.key(tileX, tileY, zoom);
 
         Tile.Priority pri = Tile.Priority.High;
         if (!eagerLoad)
         {
             pri = Tile.Priority.Low;
         }
-        Tile tile;
-        // System.out.println("testing for validity: " + tilePoint + " zoom = " + zoom);
-        if (!tileMap.containsKey(url))
+        Tile tile = tileRegistry.get(key);
+        stats.recordTileRequest(tile != null);
+        if (tile == null)
         {
-            if (!GeoUtil.isValidTile(tileX, tileY, zoom, getInfo()))
+            boolean valid = GeoUtil.isValidTile(tileX, tileY, zoom, getInfo());
+            // the URL is built when the tile is loaded
+            Tile created = valid ? new Tile(tileX, tileY, zoom, pri, this) : new Tile(tileX, tileY, zoom);
+            tile = tileRegistry.putIfAbsent(key, created);
+            if (tile == null)
             {
-                tile = new Tile(tileX, tileY, zoom);
-            }
-            else
-            {
-                tile = new Tile(tileX, tileY, zoom, url, pri, this);
-                startLoading(tile);
+                tile = created;
+                if (valid)
+                {
+                    startLoading(tile);
+                }
             }
-            tileMap.put(url, tile);
         }
         else
         {
-            tile = tileMap.get(url);
-
             //Remove the tile from the map if its loading failed. This will allow the factory to try
             //and re-load the tile when it is requested sometime in the future.
             if (tile.loadingFailed()) {
             	LOG.info("Removing from map: " + tile.getURL() + ", tile failed to load");
-                tileMap.remove(url);
+                tileRegistry.remove(key, tile);
             }
 
             // if its in the map but is low and isn't loaded yet
@@ -143,25 +160,50 @@ public abstract class AbstractTileFactory extends TileFactory
             }
         }
 
-        /*
-         * if (eagerLoad && doEagerLoading) { for (int i = 0; i<1; i++) { for (int j = 0; j<1; j++) { // preload the 4
-         * tiles under the current one if(zoom > 0) { eagerlyLoad(tilePoint.getX()*2, tilePoint.getY()*2, zoom-1);
-         * eagerlyLoad(tilePoint.getX()*2+1, tilePoint.getY()*2, zoom-1); eagerlyLoad(tilePoint.getX()*2,
-         * tilePoint.getY()*2+1, zoom-1); eagerlyLoad(tilePoint.getX()*2+1, tilePoint.getY()*2+1, zoom-1); } } } }
-         */
-
         return tile;
     }
 
-    /*
-     * private void eagerlyLoad(int x, int y, int zoom) { TilePoint t1 = new TilePoint(x,y); if(!isLoaded(t1,zoom)) {
-     * getTile(t1,zoom,false); } }
+    /**
+     * Requests a tile with low priority, see {@link TilePrefetcher}.
+     * @param x the x value
+     * @param y the y value
+     * @param zoom the zoom level
+     * @return true if a new request has been queued
      */
+    synchronized boolean prefetch(int x, int y, int zoom)
+    {
+        // tile runners poll under this monitor, so the queue can only grow here
+        int pending = tileQueue.size();
+        getTile(x, y, zoom, false);
+        return tileQueue.size() > pending;
+    }
 
-    // private boolean isLoaded(int x, int y, int zoom) {
-    // String url = getInfo().getTileUrl(zoom,x,y);
-    // return tileMap.containsKey(url);
-    // }
+    /**
+     * @return the tile prefetcher, or null if prefetching is disabled
+     */
+    public TilePrefetcher getPrefetcher()
+    {
+        return prefetcher;
+    }
+
+    /**
+     * Sets the prefetcher that requests tiles around the viewport. Prefetching is disabled by default.
+     * @param prefetcher the tile prefetcher, or null to disable prefetching
+     */
+    public void setPrefetcher(TilePrefetcher prefetcher)
+    {
+        this.prefetcher = prefetcher;
+    }
+
+    /**
+     * @return the counters and timings of the tile loading, see {@link TileLoadingStats#registerMBean(String)}
+     * to publish them with JMX. Pass them to {@link HttpTileFetcher#setStats(TileLoadingStats)} to
+     * include the retries of the fetcher.
+     */
+    public TileLoadingStats getStats()
+    {
+        return stats;
+    }
 
     /**
      * @return the tile cache
@@ -181,7 +223,16 @@ public abstract class AbstractTileFactory extends TileFactory
 
     /** ==== threaded tile loading stuff === */
     /**
-     * Thread pool for loading the tiles
+     * The visible tiles as reported by {@link #setViewport(Rectangle, int)}, null if unknown
+     */
+    private volatile TileViewport viewport;
+
+    private int cancelDistance = 2;
+    private long cancelledTiles = 0;
+
+    /**
+     * Thread pool for loading the tiles. High priority tiles come first, then the tiles
+     * closest to the zoom level and the centre of the current viewport.
      */
     private BlockingQueue<Tile> tileQueue = new PriorityBlockingQueue<Tile>(5, new Comparator<Tile>()
     {
@@ -196,13 +247,54 @@ public abstract class AbstractTileFactory extends TileFactory
             {
                 return -1;
             }
-            return 0;
-
+            TileViewport vp = viewport;
+            if (vp == null)
+            {
+                return 0;
+            }
+            int c = Integer.compare(vp.zoomDistance(o1), vp.zoomDistance(o2));
+            if (c != 0)
+            {
+                return c;
+            }
+            return Double.compare(vp.centerDistance(o1), vp.centerDistance(o2));
         }
     });
 
     private LocalCache localCache = new NoOpLocalCache();
 
+    /**
+     * Loaded tiles waiting to be published on the EDT, used in asynchronous publishing mode only
+     */
+    private volatile boolean asyncPublishing = false;
+    private final Queue<Map.Entry<Tile, BufferedImage>> publishQueue = new ConcurrentLinkedQueue<Map.Entry<Tile, BufferedImage>>();
+    private final AtomicBoolean publishScheduled = new AtomicBoolean();
+
+    private final Runnable publisher = new Runnable()
+    {
+        @Override
+        public void run()
+        {
+            // reset first: tiles queued from now on schedule another run
+            publishScheduled.set(false);
+            List<Tile> batch = new ArrayList<Tile>();
+            Map.Entry<Tile, BufferedImage> loaded;
+            long now = System.nanoTime();
+            while ((loaded = publishQueue.poll()) != null)
+            {
+                Tile tile = loaded.getKey();
+                stats.recordPublish(now - tile.publishRequested);
+                tile.image = new SoftReference<BufferedImage>(loaded.getValue());
+                tile.setLoaded(true);
+                batch.add(tile);
+            }
+            if (!batch.isEmpty())
+            {
+                fireTilesLoadedEvent(batch);
+            }
+        }
+    };
+
     /**
      * Subclasses may override this method to provide their own executor services. This method will be called each time
      * a tile needs to be loaded. Implementations should cache the ExecutorService when possible.
@@ -256,6 +348,27 @@ public abstract class AbstractTileFactory extends TileFactory
         threadPoolSize = size;
     }
 
+    /**
+     * @return the tile fetcher, or null if tiles are loaded with a blocking <code>URLConnection</code>
+     */
+    public TileFetcher getTileFetcher()
+    {
+        return tileFetcher;
+    }
+
+    /**
+     * Sets an asynchronous backend to load the tiles with. The tile loading threads then
+     * only look up the caches and decode the tiles, they do not wait for the network.
+     * Retries are left to the fetcher, the user agent and
+     * {@link #addCustomRequestProperties(URLConnection)} do not apply.
+     * @param fetcher the tile fetcher, or null to load tiles with a blocking <code>URLConnection</code>
+     * @see HttpTileFetcher
+     */
+    public void setTileFetcher(TileFetcher fetcher)
+    {
+        this.tileFetcher = fetcher;
+    }
+
     /**
      * Set the User agent that will be used when making a tile request.
      *
@@ -273,6 +386,27 @@ public abstract class AbstractTileFactory extends TileFactory
     }
 
 
+    /**
+     * @return true if loaded tiles are handed to the EDT asynchronously
+     */
+    public boolean isAsyncPublishing()
+    {
+        return asyncPublishing;
+    }
+
+    /**
+     * Sets how loaded tiles are published on the EDT. By default a loader thread waits
+     * until the EDT has taken over its tile, so loading is throttled by a busy UI. In
+     * asynchronous mode the loader thread continues immediately, and all tiles that arrive
+     * until the EDT gets to them are published together with a single
+     * {@link TileListener#tilesLoaded(List)} notification.
+     * @param async true to publish loaded tiles asynchronously
+     */
+    public void setAsyncPublishing(boolean async)
+    {
+        this.asyncPublishing = async;
+    }
+
     @Override
     protected synchronized void startLoading(Tile tile)
     {
@@ -284,6 +418,7 @@ public abstract class AbstractTileFactory extends TileFactory
         tile.setLoading(true);
         try
         {
+            tile.queued = System.nanoTime();
             tileQueue.put(tile);
             getService().submit(createTileRunner(tile));
         }
@@ -329,6 +464,71 @@ public abstract class AbstractTileFactory extends TileFactory
         this.localCache = cache;
     }
 
+    /**
+     * Reorders the queued tiles by their distance to the new viewport and cancels requests for tiles
+     * that are further away than {@link #getCancelDistance()} or more than one zoom level off.
+     * Cancelled tiles are dropped from the tile map, so they are requested again when they become visible.
+     * Then the {@link #getPrefetcher() prefetcher}, if any, requests the tiles around the viewport.
+     */
+    @Override
+    public synchronized void setViewport(Rectangle tileBounds, int zoom)
+    {
+        TileViewport vp = new TileViewport(tileBounds, zoom, getMapSize(zoom).width);
+        if (!vp.equals(viewport))
+        {
+            viewport = vp;
+            cancelStaleTiles(vp);
+        }
+        TilePrefetcher p = prefetcher;
+        if (p != null)
+        {
+            p.prefetch(this, tileBounds, zoom);
+        }
+    }
+
+    private void cancelStaleTiles(TileViewport vp)
+    {
+        // the queue has to be rebuilt since the order depends on the viewport.
+        // Tile runners poll under this monitor, so they never see the queue half empty.
+        List<Tile> queued = new ArrayList<Tile>(tileQueue.size());
+        tileQueue.drainTo(queued);
+        for (Tile tile : queued)
+        {
+            if (vp.zoomDistance(tile) > 1 || vp.edgeDistance(tile) > cancelDistance)
+            {
+                tile.setLoading(false);
+                tileRegistry.remove(TileRegistry.key(tile), tile);
+                cancelledTiles++;
+            }
+            else
+            {
+                tileQueue.add(tile);
+            }
+        }
+    }
+
+    /**
+     * @return how far, in tiles, a queued tile may be outside the viewport before its request is cancelled
+     */
+    public synchronized int getCancelDistance()
+    {
+        return cancelDistance;
+    }
+
+    /**
+     * Sets how far, in tiles of the viewport zoom level, a queued tile may be outside the
+     * viewport before its request is cancelled.
+     * @param distance the distance in tiles, must not be negative
+     */
+    public synchronized void setCancelDistance(int distance)
+    {
+        if (distance < 0)
+        {
+            throw new IllegalArgumentException("distance must not be negative: " + distance);
+        }
+        cancelDistance = distance;
+    }
+
     /**
      * @return the number of pending (loading or queues) tiles
      */
@@ -336,6 +536,74 @@ public abstract class AbstractTileFactory extends TileFactory
         return tileQueue.size();
     }
 
+    /**
+     * @return the number of queued low priority tiles
+     */
+    public synchronized int getPendingPrefetches() {
+        int count = 0;
+        for (Tile tile : tileQueue)
+        {
+            if (tile.getPriority() == Tile.Priority.Low)
+            {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return the average size of the tiles loaded so far in bytes, or an estimate if none has been loaded yet
+     */
+    public long getAverageTileBytes() {
+        long count = loadedTileCount.get();
+        return count == 0 ? 20 * 1000 : loadedBytes.get() / count;
+    }
+
+    /**
+     * @return the number of queued tile requests that have been cancelled because they left the viewport
+     */
+    public synchronized long getCancelledTiles() {
+        return cancelledTiles;
+    }
+
+    private synchronized Tile pollTile() {
+        Tile tile = tileQueue.poll();
+        if (tile != null) {
+            stats.recordQueueWait(System.nanoTime() - tile.queued);
+        }
+        return tile;
+    }
+
+    /**
+     * Hands a loaded tile to the EDT, see {@link #setAsyncPublishing(boolean)}
+     */
+    private void publish(final Tile tile, final BufferedImage img) throws InterruptedException, InvocationTargetException
+    {
+        final long start = System.nanoTime();
+        if (asyncPublishing)
+        {
+            tile.publishRequested = start;
+            // the tile is marked as loaded later on the EDT
+            publishQueue.add(new AbstractMap.SimpleImmutableEntry<Tile, BufferedImage>(tile, img));
+            if (publishScheduled.compareAndSet(false, true))
+            {
+                SwingUtilities.invokeLater(publisher);
+            }
+            return;
+        }
+        SwingUtilities.invokeAndWait(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                stats.recordPublish(System.nanoTime() - start);
+                tile.image = new SoftReference<BufferedImage>(img);
+                tile.setLoaded(true);
+                fireTileLoadedEvent(tile);
+            }
+        });
+    }
+
     /**
      * An inner class which actually loads the tiles. Used by the thread queue. Subclasses can override this
      * via {@link #createTileRunner(Tile)} if necessary.
@@ -365,9 +633,20 @@ public abstract class AbstractTileFactory extends TileFactory
              * If all attempts fail, nothing else is done. This way, if there is some kind of
              * URL-specific failure, the pooled thread can try to load other tiles.
              */
-            final Tile tile = tileQueue.remove();
+            final Tile tile = pollTile();
+            if (tile == null)
+            {
+                return; // the request has been cancelled
+            }
             tile.setLoadingFailed(false);
 
+            TileFetcher fetcher = tileFetcher;
+            if (fetcher != null)
+            {
+                fetch(fetcher, tile);
+                return;
+            }
+
             int remainingAttempts = 3;
             while (!tile.isLoaded() && remainingAttempts > 0)
             {
@@ -376,13 +655,16 @@ public abstract class AbstractTileFactory extends TileFactory
                 {
                     URI uri = getURI(tile);
                     BufferedImage img = cache.get(uri);
+                    stats.recordMemoryCacheLookup(img != null);
                     if (img == null)
                     {
+                        // download, store and decode the bytes exactly once
                         byte[] bimg = cacheInputStream(uri.toURL());
-                        // img = PaintUtils.loadCompatibleImage(new ByteArrayInputStream(bimg));
-                        img = ImageIO.read(new ByteArrayInputStream(bimg));
-                        cache.put(uri, bimg, img);
-                        img = cache.get(uri);
+                        img = decode(bimg);
+                        if (img != null)
+                        {
+                            cache.put(uri, bimg, img);
+                        }
                     }
                     if (img == null)
                     {
@@ -391,17 +673,8 @@ public abstract class AbstractTileFactory extends TileFactory
                     }
                     else
                     {
-                        final BufferedImage i = img;
-                        SwingUtilities.invokeAndWait(new Runnable()
-                        {
-                            @Override
-                            public void run()
-                            {
-                                tile.image = new SoftReference<BufferedImage>(i);
-                                tile.setLoaded(true);
-                                fireTileLoadedEvent(tile);
-                            }
-                        });
+                        publish(tile, img);
+                        break;
                     }
                 }
                 catch (OutOfMemoryError memErr)
@@ -413,6 +686,7 @@ public abstract class AbstractTileFactory extends TileFactory
                 	LOG.warning("Unable to load tile: " + fnfe.getMessage());
                     remainingAttempts = 0;
                     tile.setLoadingFailed(true);
+                    stats.recordFailure();
                 }
                 catch (Throwable e)
                 {
@@ -420,9 +694,11 @@ public abstract class AbstractTileFactory extends TileFactory
                     {
                     	LOG.warning("Failed to load a tile at URL: " + tile.getURL() + ", stopping ... "+ e);
                         tile.setLoadingFailed(true);
+                        stats.recordFailure();
                     }
                     else
                     {
+                        stats.recordRetry();
                     	LOG.warning("Failed to load a tile at URL: " + tile.getURL() 
                     	+ ", remainingAttempts="+remainingAttempts+" retrying ... "+ e.getMessage());
                     }
@@ -431,36 +707,236 @@ public abstract class AbstractTileFactory extends TileFactory
             tile.setLoading(false);
         }
 
+        /**
+         * Loads a tile with the asynchronous fetcher. This thread is released while the
+         * fetcher waits for the network, decoding is done by the next free loading thread.
+         */
+        private void fetch(TileFetcher fetcher, final Tile tile)
+        {
+            final URI uri;
+            final URL url;
+            byte[] cachedData = null;
+            try
+            {
+                uri = getURI(tile);
+                BufferedImage img = cache.get(uri);
+                stats.recordMemoryCacheLookup(img != null);
+                if (img != null)
+                {
+                    publish(tile, img);
+                    tile.setLoading(false);
+                    return;
+                }
+                url = uri.toURL();
+                InputStream ins = localCache.get(url);
+                stats.recordDiskCacheLookup(ins != null);
+                if (ins != null)
+                {
+                    try {
+                        cachedData = ins.readAllBytes();
+                    }
+                    finally {
+                        ins.close();
+                    }
+                }
+            }
+            catch (Throwable e)
+            {
+                failed(tile, e);
+                return;
+            }
+            final byte[] cached = cachedData;
+            final ExecutorService executor = getService();
+            final long start = System.nanoTime();
+            fetcher.fetch(url, cached).whenComplete((data, ex) ->
+            {
+                if (ex != null)
+                {
+                    failed(tile, ex);
+                    return;
+                }
+                if (data != cached)
+                {
+                    stats.recordDownload(url.getHost(), System.nanoTime() - start, data.length);
+                }
+                try
+                {
+                    executor.execute(() -> fetched(tile, uri, url, cached, data));
+                }
+                catch (RejectedExecutionException rex)
+                {
+                    tile.setLoading(false); // disposed meanwhile
+                }
+            });
+        }
+
+        private void fetched(Tile tile, URI uri, URL url, byte[] cached, byte[] data)
+        {
+            try
+            {
+                loadedBytes.addAndGet(data.length);
+                loadedTileCount.incrementAndGet();
+                if (data != cached)
+                {
+                    localCache.put(url, new ByteArrayInputStream(data));
+                }
+                BufferedImage img = decode(data);
+                if (img == null)
+                {
+                    LOG.info("Failed to load: " + uri);
+                }
+                else
+                {
+                    cache.put(uri, data, img);
+                    publish(tile, img);
+                }
+            }
+            catch (OutOfMemoryError memErr)
+            {
+                cache.needMoreMemory();
+            }
+            catch (Throwable e)
+            {
+                failed(tile, e);
+            }
+            finally
+            {
+                tile.setLoading(false);
+            }
+        }
+
+        private void failed(Tile tile, Throwable e)
+        {
+            if (e instanceof CompletionException && e.getCause() != null)
+            {
+                e = e.getCause();
+            }
+            LOG.warning("Failed to load a tile at URL: " + tile.getURL() + ", stopping ... " + e);
+            tile.setLoadingFailed(true);
+            tile.setLoading(false);
+            stats.recordFailure();
+        }
+
+        private BufferedImage decode(byte[] data) throws IOException
+        {
+            long start = System.nanoTime();
+            BufferedImage img = cache.decode(data);
+            stats.recordDecode(System.nanoTime() - start);
+            return img;
+        }
+
         private byte[] cacheInputStream(URL url) throws IOException
         {
             InputStream ins = localCache.get(url);
-            if (ins == null) {
+            boolean cached = ins != null;
+            stats.recordDiskCacheLookup(cached);
+            long start = System.nanoTime();
+            if (!cached) {
                 URLConnection connection = url.openConnection();
                 connection.setRequestProperty("User-Agent", userAgent);
                 addCustomRequestProperties(connection);
                 ins = connection.getInputStream();
             }
             try {
-                byte[] data = readAllBytes(ins);
-                localCache.put(url, new ByteArrayInputStream(data));
+                byte[] data = ins.readAllBytes();
+                loadedBytes.addAndGet(data.length);
+                loadedTileCount.incrementAndGet();
+                if (!cached) {
+                    stats.recordDownload(url.getHost(), System.nanoTime() - start, data.length);
+                    localCache.put(url, new ByteArrayInputStream(data));
+                }
                 return data;
             }
             finally {
                 ins.close();
             }
         }
+    }
 
-        private byte[] readAllBytes(InputStream ins) throws IOException {
-            ByteArrayOutputStream bout = new ByteArrayOutputStream();
-            byte[] buf = new byte[256];
-            while (true)
+    /**
+     * The visible tile range at one zoom level. Tiles of other zoom levels are projected
+     * onto this zoom level to measure their distance.
+     */
+    private static final class TileViewport
+    {
+        private final Rectangle bounds;
+        private final int zoom;
+        private final int mapWidth;
+        private final double centerX;
+        private final double centerY;
+
+        TileViewport(Rectangle bounds, int zoom, int mapWidth)
+        {
+            this.bounds = new Rectangle(bounds);
+            this.zoom = zoom;
+            this.mapWidth = Math.max(1, mapWidth);
+            this.centerX = bounds.getCenterX();
+            this.centerY = bounds.getCenterY();
+        }
+
+        int zoomDistance(Tile tile)
+        {
+            return Math.abs(tile.getZoom() - zoom);
+        }
+
+        /**
+         * @return the squared distance between the tile centre and the viewport centre
+         */
+        double centerDistance(Tile tile)
+        {
+            double scale = scale(tile);
+            double dx = wrap((tile.getX() + 0.5) * scale - centerX);
+            double dy = (tile.getY() + 0.5) * scale - centerY;
+            return dx * dx + dy * dy;
+        }
+
+        /**
+         * @return the distance between the tile and the viewport, 0 if they intersect
+         */
+        double edgeDistance(Tile tile)
+        {
+            double scale = scale(tile);
+            double dx = Math.abs(wrap((tile.getX() + 0.5) * scale - centerX)) - (bounds.width + scale) / 2;
+            double dy = Math.abs((tile.getY() + 0.5) * scale - centerY) - (bounds.height + scale) / 2;
+            return Math.max(0, Math.max(dx, dy));
+        }
+
+        // one tile at zoom+1 covers 2x2 tiles at zoom
+        private double scale(Tile tile)
+        {
+            return Math.pow(2, tile.getZoom() - zoom);
+        }
+
+        // the map wraps horizontally
+        private double wrap(double dx)
+        {
+            dx = dx % mapWidth;
+            if (dx > mapWidth / 2.0)
+            {
+                dx -= mapWidth;
+            }
+            else if (dx < -mapWidth / 2.0)
             {
-                int n = ins.read(buf);
-                if (n == -1)
-                    break;
-                bout.write(buf, 0, n);
+                dx += mapWidth;
             }
-            return bout.toByteArray();
+            return dx;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (!(obj instanceof TileViewport))
+            {
+                return false;
+            }
+            TileViewport other = (TileViewport) obj;
+            return zoom == other.zoom && bounds.equals(other.bounds);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return bounds.hashCode() * 31 + zoom;
         }
     }
 
@@ -0,0 +1,387 @@
+package org.jxmapviewer.viewer;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * A {@link TileCache} that can be shared by all tile loading threads without a common monitor.
+ * <p>
+ * Like the default cache it keeps two tiers: decoded images and the compressed bytes they were
+ * loaded from. Each tier has its own byte budget. Lookups are served from a
+ * {@link ConcurrentHashMap} and only mark the entry as recently used, eviction uses the
+ * CLOCK (second chance) approximation of LRU, so both access and eviction are O(1).
+ * <p>
+ * Install it with {@link AbstractTileFactory#setTileCache(TileCache)}.
+ */
+public class ConcurrentTileCache extends TileCache
+{
+    private static final Logger LOG = Logger.getLogger(ConcurrentTileCache.class.getName());
+
+    /**
+     * The default byte budget of each tier, same as in {@link TileCache}
+     */
+    public static final long DEFAULT_CAPACITY = 1000 * 1000 * 50;
+
+    /**
+     * The cache tiers
+     */
+    public enum Tier
+    {
+        /** decoded images, accounted with 4 bytes per pixel */
+        IMAGE,
+        /** compressed image bytes as loaded from the network */
+        COMPRESSED
+    }
+
+    /**
+     * Notified when an entry has been evicted from the cache
+     */
+    public interface EvictionListener
+    {
+        /**
+         * Notification when an entry has been evicted to stay within the byte budget of its tier.
+         * Called on the thread that caused the eviction.
+         * @param uri the URI of the evicted tile
+         * @param tier the tier the entry has been evicted from
+         * @param bytes the number of bytes freed
+         */
+        void evicted(URI uri, Tier tier, long bytes);
+    }
+
+    private final Segment<BufferedImage> images;
+    private final Segment<byte[]> bytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private final List<EvictionListener> evictionListeners = new CopyOnWriteArrayList<EvictionListener>();
+
+    /**
+     * Creates a cache with {@link #DEFAULT_CAPACITY} for each tier
+     */
+    public ConcurrentTileCache()
+    {
+        this(DEFAULT_CAPACITY, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a cache with the given byte budgets
+     * @param imageCapacity the maximum number of bytes held by decoded images
+     * @param compressedCapacity the maximum number of bytes held by compressed images
+     */
+    public ConcurrentTileCache(long imageCapacity, long compressedCapacity)
+    {
+        images = new Segment<BufferedImage>(Tier.IMAGE, imageCapacity);
+        bytes = new Segment<byte[]>(Tier.COMPRESSED, compressedCapacity);
+    }
+
+    @Override
+    public void put(URI uri, byte[] bimg, BufferedImage img)
+    {
+        if (uri == null)
+        {
+            return;
+        }
+        if (bimg != null)
+        {
+            bytes.put(uri, bimg, bimg.length);
+        }
+        if (img != null)
+        {
+            images.put(uri, img, sizeOf(img));
+        }
+    }
+
+    @Override
+    public BufferedImage get(URI uri) throws IOException
+    {
+        if (uri == null)
+        {
+            return null;
+        }
+        BufferedImage img = images.get(uri);
+        if (img != null)
+        {
+            hits.increment();
+            return img;
+        }
+        byte[] bimg = bytes.get(uri);
+        if (bimg == null)
+        {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        LOG.fine("retrieving from bytes");
+        img = decode(bimg);
+        if (img != null)
+        {
+            images.put(uri, img, sizeOf(img));
+        }
+        return img;
+    }
+
+    /**
+     * Clears out all decoded images but retains the compressed versions.
+     */
+    @Override
+    public void needMoreMemory()
+    {
+        images.clear();
+        LOG.info("need more memory: freed image tier");
+    }
+
+    /**
+     * Removes all entries from both tiers. The statistics are not reset.
+     */
+    public void clear()
+    {
+        images.clear();
+        bytes.clear();
+    }
+
+    /**
+     * @param tier the cache tier
+     * @return the maximum number of bytes held by the given tier
+     */
+    public long getCapacity(Tier tier)
+    {
+        return segment(tier).capacity;
+    }
+
+    /**
+     * Sets the byte budget of a tier. If the tier currently holds more bytes
+     * then entries are evicted immediately.
+     * @param tier the cache tier
+     * @param capacity the maximum number of bytes, must not be negative
+     */
+    public void setCapacity(Tier tier, long capacity)
+    {
+        if (capacity < 0)
+        {
+            throw new IllegalArgumentException("capacity must not be negative: " + capacity);
+        }
+        Segment<?> s = segment(tier);
+        s.capacity = capacity;
+        s.evict();
+    }
+
+    /**
+     * @param tier the cache tier
+     * @return the number of bytes currently held by the given tier
+     */
+    public long getSize(Tier tier)
+    {
+        return segment(tier).size.get();
+    }
+
+    /**
+     * @param tier the cache tier
+     * @return the number of entries currently held by the given tier
+     */
+    public int getEntryCount(Tier tier)
+    {
+        return segment(tier).map.size();
+    }
+
+    /**
+     * @return the number of {@link #get(URI)} calls answered from either tier
+     */
+    public long getHitCount()
+    {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of {@link #get(URI)} calls that found nothing
+     */
+    public long getMissCount()
+    {
+        return misses.sum();
+    }
+
+    /**
+     * @return the number of entries evicted from both tiers
+     */
+    public long getEvictionCount()
+    {
+        return evictions.sum();
+    }
+
+    /**
+     * Adds an eviction listener
+     * @param listener the listener
+     */
+    public void addEvictionListener(EvictionListener listener)
+    {
+        evictionListeners.add(listener);
+    }
+
+    /**
+     * Removes an eviction listener
+     * @param listener the listener
+     */
+    public void removeEvictionListener(EvictionListener listener)
+    {
+        evictionListeners.remove(listener);
+    }
+
+    private Segment<?> segment(Tier tier)
+    {
+        return tier == Tier.IMAGE ? images : bytes;
+    }
+
+    private static long sizeOf(BufferedImage img)
+    {
+        return (long) img.getWidth() * img.getHeight() * 4;
+    }
+
+    private void fireEvicted(URI uri, Tier tier, long size)
+    {
+        evictions.increment();
+        for (EvictionListener listener : evictionListeners)
+        {
+            listener.evicted(uri, tier, size);
+        }
+    }
+
+    /**
+     * A cache entry. The referenced flag is the CLOCK bit, it is set on every access
+     * and cleared when the clock hand passes. The value is cleared when the entry is
+     * replaced or removed, so a stale entry in the clock queue holds no memory.
+     */
+    private static final class Entry<V>
+    {
+        final URI uri;
+        volatile V value;
+        final long size;
+        volatile boolean referenced;
+
+        Entry(URI uri, V value, long size)
+        {
+            this.uri = uri;
+            this.value = value;
+            this.size = size;
+        }
+    }
+
+    /**
+     * One tier of the cache
+     */
+    private final class Segment<V>
+    {
+        final Tier tier;
+        final Map<URI, Entry<V>> map = new ConcurrentHashMap<URI, Entry<V>>();
+        final Queue<Entry<V>> clock = new ConcurrentLinkedQueue<Entry<V>>();
+        final AtomicLong size = new AtomicLong();
+        // replaced or removed entries which are still in the clock queue
+        final AtomicInteger stale = new AtomicInteger();
+        volatile long capacity;
+
+        Segment(Tier tier, long capacity)
+        {
+            this.tier = tier;
+            this.capacity = capacity;
+        }
+
+        V get(URI uri)
+        {
+            Entry<V> e = map.get(uri);
+            if (e == null)
+            {
+                return null;
+            }
+            e.referenced = true;
+            return e.value;
+        }
+
+        void put(URI uri, V value, long valueSize)
+        {
+            Entry<V> e = new Entry<V>(uri, value, valueSize);
+            Entry<V> old = map.put(uri, e);
+            if (old != null)
+            {
+                // the stale entry stays in the clock queue and is skipped when the hand reaches it
+                size.addAndGet(-old.size);
+                retire(old);
+            }
+            size.addAndGet(valueSize);
+            clock.offer(e);
+            evict();
+        }
+
+        /**
+         * Releases the value of an entry which is no longer mapped but may still be in the
+         * clock queue. Drops the stale queue entries once they outnumber the live ones, so the
+         * queue stays proportional to the cache.
+         */
+        void retire(Entry<V> e)
+        {
+            e.value = null;
+            if (stale.incrementAndGet() > Math.max(64, map.size()))
+            {
+                stale.set(0);
+                clock.removeIf(q -> map.get(q.uri) != q);
+            }
+        }
+
+        void evict()
+        {
+            // every entry gets a second chance at most once per pass, so this terminates
+            while (size.get() > capacity)
+            {
+                Entry<V> e = clock.poll();
+                if (e == null)
+                {
+                    return;
+                }
+                if (map.get(e.uri) != e)
+                {
+                    // replaced or removed, already retired
+                    stale.getAndUpdate(n -> Math.max(0, n - 1));
+                    continue;
+                }
+                if (e.referenced)
+                {
+                    e.referenced = false;
+                    clock.offer(e);
+                    continue;
+                }
+                if (map.remove(e.uri, e))
+                {
+                    size.addAndGet(-e.size);
+                    e.value = null;
+                    LOG.fine("removed 1 entry from " + tier + " cache");
+                    fireEvicted(e.uri, tier, e.size);
+                }
+            }
+        }
+
+        void clear()
+        {
+            for (Entry<V> e : map.values())
+            {
+                if (map.remove(e.uri, e))
+                {
+                    size.addAndGet(-e.size);
+                    e.value = null;
+                }
+            }
+            // drop the stale queue entries
+            clock.removeIf(e -> map.get(e.uri) != e);
+            stale.set(0);
+        }
+    }
+}
@@ -11,6 +11,7 @@ package org.jxmapviewer.viewer;
 import java.awt.Graphics2D;
 import java.awt.geom.Point2D;
 import java.awt.image.BufferedImage;
+import java.util.Collection;
 import java.util.logging.Logger;
 
 import javax.imageio.ImageIO;
@@ -33,6 +34,7 @@ public class DefaultWaypointRenderer implements WaypointRenderer<Waypoint> {
     private Object iconImg = null;
     private int adjustX = 0;
     private int adjustY = 0;
+    private WaypointSpriteAtlas atlas = null;
 
     /**
      * WaypointRenderer with an icon pointing to a target at middle of the bottom border
@@ -77,11 +79,61 @@ public class DefaultWaypointRenderer implements WaypointRenderer<Waypoint> {
     	this((BufferedImage)null);
     }
 
+    /**
+     * In sprite mode the icon is rasterised once per HiDPI scale into a compatible image,
+     * and each waypoint is painted with a single image blit.
+     * @param spriteMode true to paint the waypoints from a {@link WaypointSpriteAtlas}
+     */
+    public void setSpriteMode(boolean spriteMode) {
+    	atlas = spriteMode ? new WaypointSpriteAtlas(8) : null;
+    }
+
+    /**
+     * @return true if the waypoints are painted from a {@link WaypointSpriteAtlas}
+     */
+    public boolean isSpriteMode() {
+    	return atlas != null;
+    }
+
+    @Override
+    public void paintWaypoints(Graphics2D g, JXMapViewer map, Collection<? extends Waypoint> waypoints) {
+        WaypointSpriteAtlas.Sprite sprite = getSprite(g, map);
+        if(sprite == null) {
+        	WaypointRenderer.super.paintWaypoints(g, map, waypoints);
+        	return;
+        }
+        // the sprite is looked up once for all waypoints
+        TileFactory tf = map.getTileFactory();
+        int zoom = map.getZoom();
+        for (Waypoint w : waypoints) {
+            Point2D point = tf.geoToPixel(w.getPosition(), zoom);
+            sprite.paint(g, point.getX(), point.getY());
+        }
+    }
+
+    private WaypointSpriteAtlas.Sprite getSprite(Graphics2D g, JXMapViewer map) {
+        WaypointSpriteAtlas a = atlas;
+        if(a == null) return null;
+    	if(iconImg instanceof Icon) {
+            return a.getSprite(g, (Icon)iconImg, adjustX, adjustY, map);
+    	}
+    	if(iconImg instanceof BufferedImage) {
+    		BufferedImage img = (BufferedImage)iconImg;
+            return a.getSprite(g, img, img.getWidth() / 2, img.getHeight());
+    	}
+    	return null;
+    }
+
     @Override
     public void paintWaypoint(Graphics2D g, JXMapViewer map, Waypoint w) {
         if(iconImg == null) return;
         
         Point2D point = map.getTileFactory().geoToPixel(w.getPosition(), map.getZoom());
+        WaypointSpriteAtlas.Sprite sprite = getSprite(g, map);
+        if(sprite != null) {
+            sprite.paint(g, point.getX(), point.getY());
+            return;
+        }
     	if(iconImg instanceof Icon) {           
             int x = (int)point.getX() - this.adjustX;
             int y = (int)point.getY() - this.adjustY;
@@ -0,0 +1,504 @@
+package org.jxmapviewer.viewer;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+import org.jxmapviewer.ProjectProperties;
+
+/**
+ * A {@link TileFetcher} based on the asynchronous {@link HttpClient}. No thread is blocked while
+ * waiting for a tile server, and HTTP/2 servers multiplex all requests over one connection.
+ * <p>
+ * The number of concurrent requests per host is limited, further requests wait in a queue.
+ * Failed requests (I/O errors, 5xx and 429 responses) are retried with exponential backoff,
+ * a <code>Retry-After</code> header is honoured. With {@link #setRevalidate(boolean)} tiles
+ * from the local cache are revalidated with <code>If-None-Match</code> or
+ * <code>If-Modified-Since</code> requests.
+ * <p>
+ * URLs other than http and https are read synchronously.
+ */
+public class HttpTileFetcher implements TileFetcher
+{
+    private static final Logger LOG = Logger.getLogger(HttpTileFetcher.class.getName());
+
+    private static final String DEFAULT_USER_AGENT = ProjectProperties.INSTANCE.getName() + "/"
+            + ProjectProperties.INSTANCE.getVersion();
+
+    private static final int MAX_VALIDATORS = 10000;
+
+    private final HttpClient client;
+    private final Map<String, HostLimiter> hosts = new ConcurrentHashMap<String, HostLimiter>();
+
+    // ETag and Last-Modified of the most recently loaded tiles
+    private final Map<String, Validators> validators = Collections.synchronizedMap(
+            new LinkedHashMap<String, Validators>(16, 0.75f, true)
+    {
+        private static final long serialVersionUID = 1;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Validators> eldest)
+        {
+            return size() > MAX_VALIDATORS;
+        }
+    });
+
+    private volatile int maxRequestsPerHost = 6;
+    private volatile int maxAttempts = 3;
+    private volatile long initialBackoff = 250;
+    private volatile long maxBackoff = 10000;
+    private volatile Duration requestTimeout = Duration.ofSeconds(30);
+    private volatile boolean revalidate = false;
+    private volatile String userAgent = DEFAULT_USER_AGENT;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder notModified = new LongAdder();
+    private volatile TileLoadingStats stats;
+
+    /**
+     * Creates a fetcher with a HTTP/2 client that follows redirects
+     */
+    public HttpTileFetcher()
+    {
+        this(HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build());
+    }
+
+    /**
+     * @param client the client to send the requests with
+     */
+    public HttpTileFetcher(HttpClient client)
+    {
+        this.client = client;
+    }
+
+    @Override
+    public CompletableFuture<byte[]> fetch(URL url, byte[] cached)
+    {
+        if (cached != null && !revalidate)
+        {
+            return CompletableFuture.completedFuture(cached);
+        }
+        String protocol = url.getProtocol();
+        if (!"http".equals(protocol) && !"https".equals(protocol))
+        {
+            return readDirectly(url, cached);
+        }
+        URI uri;
+        try
+        {
+            uri = url.toURI();
+        }
+        catch (URISyntaxException ex)
+        {
+            return CompletableFuture.failedFuture(ex);
+        }
+        CompletableFuture<byte[]> result = new CompletableFuture<byte[]>();
+        attempt(uri, cached, 1, result);
+        return result;
+    }
+
+    /**
+     * @return the maximum number of concurrent requests to a single host
+     */
+    public int getMaxRequestsPerHost()
+    {
+        return maxRequestsPerHost;
+    }
+
+    /**
+     * @param max the maximum number of concurrent requests to a single host
+     */
+    public void setMaxRequestsPerHost(int max)
+    {
+        if (max <= 0)
+        {
+            throw new IllegalArgumentException("max must be greater than 0: " + max);
+        }
+        this.maxRequestsPerHost = max;
+    }
+
+    /**
+     * @return the number of attempts to load a tile, including the first one
+     */
+    public int getMaxAttempts()
+    {
+        return maxAttempts;
+    }
+
+    /**
+     * @param attempts the number of attempts to load a tile, including the first one
+     */
+    public void setMaxAttempts(int attempts)
+    {
+        if (attempts <= 0)
+        {
+            throw new IllegalArgumentException("attempts must be greater than 0: " + attempts);
+        }
+        this.maxAttempts = attempts;
+    }
+
+    /**
+     * Sets the delay before the first retry. The delay doubles with every further retry.
+     * @param initial the delay before the first retry in milliseconds
+     * @param max the maximum delay in milliseconds
+     */
+    public void setBackoff(long initial, long max)
+    {
+        if (initial < 0 || max < initial)
+        {
+            throw new IllegalArgumentException("invalid backoff: " + initial + ", " + max);
+        }
+        this.initialBackoff = initial;
+        this.maxBackoff = max;
+    }
+
+    /**
+     * @param timeout the timeout of a single request
+     */
+    public void setRequestTimeout(Duration timeout)
+    {
+        this.requestTimeout = timeout;
+    }
+
+    /**
+     * @return true if tiles from the local cache are revalidated
+     */
+    public boolean isRevalidate()
+    {
+        return revalidate;
+    }
+
+    /**
+     * @param revalidate true to revalidate tiles from the local cache with a conditional request
+     */
+    public void setRevalidate(boolean revalidate)
+    {
+        this.revalidate = revalidate;
+    }
+
+    /**
+     * Set the User agent that will be used when making a tile request.
+     * @param userAgent User agent to be used.
+     */
+    public void setUserAgent(String userAgent)
+    {
+        if (userAgent == null || userAgent.isEmpty())
+        {
+            throw new IllegalArgumentException("User agent can't be null or empty.");
+        }
+        this.userAgent = userAgent;
+    }
+
+    /**
+     * @return the number of requests sent, including retries
+     */
+    public long getRequestCount()
+    {
+        return requests.sum();
+    }
+
+    /**
+     * @return the number of retries
+     */
+    public long getRetryCount()
+    {
+        return retries.sum();
+    }
+
+    /**
+     * @return the number of revalidated tiles that have not been modified
+     */
+    public long getNotModifiedCount()
+    {
+        return notModified.sum();
+    }
+
+    /**
+     * @param stats the statistics to count the retries in as well, may be null
+     * @see AbstractTileFactory#getStats()
+     */
+    public void setStats(TileLoadingStats stats)
+    {
+        this.stats = stats;
+    }
+
+    /**
+     * Adds custom request headers before sending the request. By default, no headers are added at all.
+     * @param builder the request builder
+     */
+    protected void addCustomRequestHeaders(HttpRequest.Builder builder)
+    {
+        // no further headers by default
+    }
+
+    private void attempt(final URI uri, final byte[] cached, final int attempt, final CompletableFuture<byte[]> result)
+    {
+        final HttpRequest request = createRequest(uri, cached);
+        final HostLimiter limiter = hosts.computeIfAbsent(String.valueOf(uri.getHost()) + ":" + uri.getPort(),
+                h -> new HostLimiter());
+        limiter.submit(new Supplier<CompletableFuture<?>>()
+        {
+            @Override
+            public CompletableFuture<?> get()
+            {
+                requests.increment();
+                try
+                {
+                    return client.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                            .whenComplete((response, ex) -> handle(uri, cached, attempt, result, response, ex));
+                }
+                catch (RuntimeException ex)
+                {
+                    result.completeExceptionally(ex);
+                    return CompletableFuture.completedFuture(null);
+                }
+            }
+        });
+    }
+
+    private HttpRequest createRequest(URI uri, byte[] cached)
+    {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri)
+                .timeout(requestTimeout)
+                .header("User-Agent", userAgent)
+                .GET();
+        Validators v = cached == null ? null : validators.get(uri.toString());
+        if (v != null)
+        {
+            if (v.etag != null)
+            {
+                builder.header("If-None-Match", v.etag);
+            }
+            if (v.lastModified != null)
+            {
+                builder.header("If-Modified-Since", v.lastModified);
+            }
+        }
+        addCustomRequestHeaders(builder);
+        return builder.build();
+    }
+
+    private void handle(URI uri, byte[] cached, int attempt, CompletableFuture<byte[]> result,
+            HttpResponse<byte[]> response, Throwable ex)
+    {
+        // runs in a future nobody observes, so any exception must complete the result
+        try
+        {
+            handleResponse(uri, cached, attempt, result, response, ex);
+        }
+        catch (RuntimeException e)
+        {
+            result.completeExceptionally(e);
+        }
+    }
+
+    private void handleResponse(URI uri, byte[] cached, int attempt, CompletableFuture<byte[]> result,
+            HttpResponse<byte[]> response, Throwable ex)
+    {
+        if (ex != null)
+        {
+            retryOrFail(uri, cached, attempt, result, 0, ex instanceof IOException ? ex : new IOException(ex));
+            return;
+        }
+        int status = response.statusCode();
+        if (status == 200)
+        {
+            Optional<String> etag = response.headers().firstValue("ETag");
+            Optional<String> lastModified = response.headers().firstValue("Last-Modified");
+            if (etag.isPresent() || lastModified.isPresent())
+            {
+                validators.put(uri.toString(), new Validators(etag.orElse(null), lastModified.orElse(null)));
+            }
+            result.complete(response.body());
+        }
+        else if (status == 304 && cached != null)
+        {
+            notModified.increment();
+            result.complete(cached);
+        }
+        else if (status == 404 || status == 410)
+        {
+            result.completeExceptionally(new FileNotFoundException(uri.toString()));
+        }
+        else if (status == 429 || status >= 500)
+        {
+            long retryAfter = parseRetryAfter(response.headers().firstValue("Retry-After").orElse(null),
+                    System.currentTimeMillis());
+            retryOrFail(uri, cached, attempt, result, retryAfter, new IOException("HTTP " + status + " for " + uri));
+        }
+        else
+        {
+            result.completeExceptionally(new IOException("HTTP " + status + " for " + uri));
+        }
+    }
+
+    /**
+     * Parses a <code>Retry-After</code> header, which is either a number of seconds
+     * or an HTTP-date (RFC 9110).
+     * @param value the header value, may be null
+     * @param now the current time in milliseconds since the epoch
+     * @return the delay in milliseconds, 0 if the value is missing, invalid or in the past
+     */
+    static long parseRetryAfter(String value, long now)
+    {
+        if (value == null)
+        {
+            return 0;
+        }
+        String v = value.trim();
+        try
+        {
+            return Math.max(0, Math.min(Long.parseLong(v), Long.MAX_VALUE / 1000) * 1000);
+        }
+        catch (NumberFormatException ex)
+        {
+            // not delta-seconds, try an HTTP-date
+        }
+        try
+        {
+            long date = ZonedDateTime.parse(v, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+            return Math.max(0, date - now);
+        }
+        catch (DateTimeParseException ex)
+        {
+            LOG.fine("ignoring invalid Retry-After: " + value);
+            return 0;
+        }
+    }
+
+    private void retryOrFail(final URI uri, final byte[] cached, final int attempt,
+            final CompletableFuture<byte[]> result, long retryAfter, Throwable cause)
+    {
+        if (attempt >= maxAttempts)
+        {
+            result.completeExceptionally(cause);
+            return;
+        }
+        retries.increment();
+        TileLoadingStats s = stats;
+        if (s != null)
+        {
+            s.recordRetry();
+        }
+        long delay = Math.min(maxBackoff, initialBackoff << Math.min(attempt - 1, 20));
+        // spread the retries of concurrent requests
+        delay += ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+        delay = Math.max(delay, Math.min(retryAfter, maxBackoff));
+        LOG.fine("retrying " + uri + " in " + delay + " ms after " + cause);
+        CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS).execute(
+                () -> attempt(uri, cached, attempt + 1, result));
+    }
+
+    private CompletableFuture<byte[]> readDirectly(URL url, byte[] cached)
+    {
+        if (cached != null)
+        {
+            return CompletableFuture.completedFuture(cached);
+        }
+        try (InputStream ins = url.openStream())
+        {
+            return CompletableFuture.completedFuture(ins.readAllBytes());
+        }
+        catch (IOException ex)
+        {
+            return CompletableFuture.failedFuture(ex);
+        }
+    }
+
+    /**
+     * The cache validators of a response
+     */
+    private static final class Validators
+    {
+        final String etag;
+        final String lastModified;
+
+        Validators(String etag, String lastModified)
+        {
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+    }
+
+    /**
+     * Limits the number of requests in flight to one host
+     */
+    private final class HostLimiter
+    {
+        private final Queue<Supplier<CompletableFuture<?>>> waiting = new ArrayDeque<Supplier<CompletableFuture<?>>>();
+        private int running;
+
+        void submit(Supplier<CompletableFuture<?>> task)
+        {
+            synchronized (this)
+            {
+                if (running >= maxRequestsPerHost)
+                {
+                    waiting.add(task);
+                    return;
+                }
+                running++;
+            }
+            start(task);
+        }
+
+        private void start(Supplier<CompletableFuture<?>> task)
+        {
+            CompletableFuture<?> future;
+            try
+            {
+                future = task.get();
+            }
+            catch (RuntimeException ex)
+            {
+                LOG.warning("Failed to send a tile request: " + ex);
+                done();
+                return;
+            }
+            future.whenComplete((r, ex) -> done());
+        }
+
+        private void done()
+        {
+            Supplier<CompletableFuture<?>> next;
+            synchronized (this)
+            {
+                next = waiting.poll();
+                if (next == null)
+                {
+                    running--;
+                    return;
+                }
+            }
+            start(next);
+        }
+    }
+}
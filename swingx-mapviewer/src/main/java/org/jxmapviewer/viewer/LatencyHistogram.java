@@ -0,0 +1,170 @@
+package org.jxmapviewer.viewer;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of durations with exponential buckets, bucket i holds durations from 2^(i-1) up to
+ * 2^i microseconds. Recording neither locks nor allocates, so it can be used on loading threads
+ * and the EDT alike. Percentiles are accurate to a factor of two.
+ */
+public final class LatencyHistogram
+{
+    private static final int BUCKETS = 40;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * @param nanos the duration in nanoseconds
+     */
+    public void record(long nanos)
+    {
+        if (nanos < 0)
+        {
+            nanos = 0;
+        }
+        long micros = nanos / 1000;
+        int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+        counts.incrementAndGet(bucket);
+        count.increment();
+        totalNanos.add(nanos);
+        long max = maxNanos.get();
+        while (nanos > max && !maxNanos.compareAndSet(max, nanos))
+        {
+            max = maxNanos.get();
+        }
+    }
+
+    /**
+     * Drops all recorded durations
+     */
+    public void reset()
+    {
+        for (int i = 0; i < BUCKETS; i++)
+        {
+            counts.set(i, 0);
+        }
+        count.reset();
+        totalNanos.reset();
+        maxNanos.set(0);
+    }
+
+    /**
+     * @return the recorded durations so far. Durations recorded concurrently may be missing in parts of it.
+     */
+    public Snapshot snapshot()
+    {
+        long[] c = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++)
+        {
+            c[i] = counts.get(i);
+        }
+        return new Snapshot(c, count.sum(), totalNanos.sum(), maxNanos.get());
+    }
+
+    /**
+     * An immutable copy of a histogram, durations in milliseconds
+     */
+    public static final class Snapshot
+    {
+        private final long[] counts;
+        private final long count;
+        private final long totalNanos;
+        private final long maxNanos;
+
+        Snapshot(long[] counts, long count, long totalNanos, long maxNanos)
+        {
+            this.counts = counts;
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+        }
+
+        /**
+         * @return the number of recorded durations
+         */
+        public long getCount()
+        {
+            return count;
+        }
+
+        /**
+         * @return the mean duration, 0 if none has been recorded
+         */
+        public double getMeanMillis()
+        {
+            return count == 0 ? 0 : totalNanos / 1e6 / count;
+        }
+
+        /**
+         * @return the longest duration
+         */
+        public double getMaxMillis()
+        {
+            return maxNanos / 1e6;
+        }
+
+        /**
+         * @return the upper bound of the median
+         */
+        public double getMedianMillis()
+        {
+            return getPercentileMillis(0.5);
+        }
+
+        /**
+         * @return the upper bound of the 95th percentile
+         */
+        public double get95thPercentileMillis()
+        {
+            return getPercentileMillis(0.95);
+        }
+
+        /**
+         * @return the upper bound of the 99th percentile
+         */
+        public double get99thPercentileMillis()
+        {
+            return getPercentileMillis(0.99);
+        }
+
+        /**
+         * @param fraction the fraction of durations, between 0 and 1
+         * @return the upper bound of the bucket that contains the percentile, at most the longest duration
+         */
+        public double getPercentileMillis(double fraction)
+        {
+            long total = 0;
+            for (long c : counts)
+            {
+                total += c;
+            }
+            if (total == 0)
+            {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(fraction * total));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++)
+            {
+                seen += counts[i];
+                if (seen >= rank)
+                {
+                    return Math.min((1L << i) / 1e3, getMaxMillis());
+                }
+            }
+            return getMaxMillis();
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("count=%d mean=%.2fms p50=%.2fms p95=%.2fms max=%.2fms", count, getMeanMillis(),
+                    getMedianMillis(), get95thPercentileMillis(), getMaxMillis());
+        }
+    }
+}
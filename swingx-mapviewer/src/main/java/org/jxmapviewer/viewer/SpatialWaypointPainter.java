@@ -0,0 +1,268 @@
+package org.jxmapviewer.viewer;
+
+import java.awt.Color;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.jxmapviewer.JXMapViewer;
+
+/**
+ * A {@link WaypointPainter} for large numbers of waypoints. The waypoints are kept in a
+ * {@link WaypointIndex}, so painting only visits the waypoints within the viewport instead of all of them.
+ * Waypoints can be added, moved and removed one by one without rebuilding the index.
+ * <p>
+ * Optionally the waypoints are clustered at coarse zoom levels: waypoints that are closer than
+ * the cluster size on screen are painted as one cluster, see {@link #setClustering(int, int)}.
+ * @param <W> the waypoint type
+ */
+public class SpatialWaypointPainter<W extends Waypoint> extends WaypointPainter<W>
+{
+    private final WaypointIndex<W> index;
+    private int margin = 32;
+    private int clusterZoom = Integer.MAX_VALUE;
+    private int clusterSize = 48;
+
+    /**
+     * Creates a painter with an index of {@link WaypointIndex#DEFAULT_CELL_SIZE} degrees
+     */
+    public SpatialWaypointPainter()
+    {
+        this(new WaypointIndex<W>());
+    }
+
+    /**
+     * @param index the index to keep the waypoints in
+     */
+    public SpatialWaypointPainter(WaypointIndex<W> index)
+    {
+        this.index = index;
+    }
+
+    /**
+     * @return the waypoint index
+     */
+    public WaypointIndex<W> getIndex()
+    {
+        return index;
+    }
+
+    @Override
+    public Set<W> getWaypoints()
+    {
+        return Collections.unmodifiableSet(index.getWaypoints());
+    }
+
+    @Override
+    public void setWaypoints(Set<? extends W> waypoints)
+    {
+        index.clear();
+        addWaypoints(waypoints);
+    }
+
+    /**
+     * @param waypoints the waypoints to add
+     */
+    public void addWaypoints(Collection<? extends W> waypoints)
+    {
+        for (W w : waypoints)
+        {
+            index.add(w);
+        }
+    }
+
+    /**
+     * @param w the waypoint to add
+     */
+    public void addWaypoint(W w)
+    {
+        index.add(w);
+    }
+
+    /**
+     * @param w the waypoint to remove
+     */
+    public void removeWaypoint(W w)
+    {
+        index.remove(w);
+    }
+
+    /**
+     * Must be called after the position of a waypoint has changed.
+     * @param w the waypoint that has moved
+     */
+    public void moveWaypoint(W w)
+    {
+        index.update(w);
+    }
+
+    /**
+     * @return the distance in pixels around the viewport in which waypoints are still painted
+     */
+    public int getMargin()
+    {
+        return margin;
+    }
+
+    /**
+     * Waypoints just outside of the viewport may still be partly visible, e.g. the icon
+     * of a waypoint below the viewport.
+     * @param margin the distance in pixels around the viewport in which waypoints are still painted
+     */
+    public void setMargin(int margin)
+    {
+        this.margin = margin;
+    }
+
+    /**
+     * Clusters the waypoints from the given zoom level on. Remember that higher zoom levels are
+     * more zoomed out.
+     * @param minZoom the most detailed zoom level with clusters, or {@link Integer#MAX_VALUE} to never cluster
+     * @param size the size of a cluster in pixels
+     */
+    public void setClustering(int minZoom, int size)
+    {
+        if (size <= 0)
+        {
+            throw new IllegalArgumentException("size must be greater than 0: " + size);
+        }
+        this.clusterZoom = minZoom;
+        this.clusterSize = size;
+    }
+
+    /**
+     * @return the most detailed zoom level with clusters
+     */
+    public int getClusterZoom()
+    {
+        return clusterZoom;
+    }
+
+    /**
+     * @return the size of a cluster in pixels
+     */
+    public int getClusterSize()
+    {
+        return clusterSize;
+    }
+
+    /**
+     * @param map the map
+     * @return the waypoints within the visible part of the map and the margin around it
+     * @see JXMapViewer#getVisibleWorldBounds()
+     */
+    public List<W> getVisibleWaypoints(JXMapViewer map)
+    {
+        TileFactory tf = map.getTileFactory();
+        int zoom = map.getZoom();
+        Rectangle r = map.getVisibleWorldBounds();
+        r.grow(margin, margin);
+
+        GeoPosition nw = tf.pixelToGeo(new Point2D.Double(r.getMinX(), r.getMinY()), zoom);
+        GeoPosition se = tf.pixelToGeo(new Point2D.Double(r.getMaxX(), r.getMaxY()), zoom);
+        // waypoints are painted at their position on the first copy of the map only
+        return index.query(se.getLatitude(), Math.max(-180, nw.getLongitude()),
+                nw.getLatitude(), Math.min(180, se.getLongitude()));
+    }
+
+    @Override
+    protected void doPaint(Graphics2D g, JXMapViewer map, int width, int height)
+    {
+        WaypointRenderer<? super W> renderer = getRenderer();
+        if (renderer == null)
+        {
+            return;
+        }
+
+        List<W> visible = getVisibleWaypoints(map);
+        Rectangle viewportBounds = map.getViewportBounds();
+
+        g.translate(-viewportBounds.getX(), -viewportBounds.getY());
+
+        if (map.getZoom() >= clusterZoom)
+        {
+            paintClustered(g, map, renderer, visible);
+        }
+        else
+        {
+            renderer.paintWaypoints(g, map, visible);
+        }
+
+        g.translate(viewportBounds.getX(), viewportBounds.getY());
+    }
+
+    private void paintClustered(Graphics2D g, JXMapViewer map, WaypointRenderer<? super W> renderer, List<W> visible)
+    {
+        TileFactory tf = map.getTileFactory();
+        int zoom = map.getZoom();
+        Map<Long, List<W>> clusters = new LinkedHashMap<Long, List<W>>();
+        Map<Long, Point2D.Double> sums = new LinkedHashMap<Long, Point2D.Double>();
+        for (W w : visible)
+        {
+            Point2D p = tf.geoToPixel(w.getPosition(), zoom);
+            long key = ((long) Math.floor(p.getX() / clusterSize) << 32)
+                    ^ ((long) Math.floor(p.getY() / clusterSize) & 0xFFFFFFFFL);
+            List<W> members = clusters.get(key);
+            if (members == null)
+            {
+                members = new ArrayList<W>(1);
+                clusters.put(key, members);
+                sums.put(key, new Point2D.Double());
+            }
+            members.add(w);
+            Point2D.Double sum = sums.get(key);
+            sum.x += p.getX();
+            sum.y += p.getY();
+        }
+        List<W> singles = new ArrayList<W>();
+        for (List<W> members : clusters.values())
+        {
+            if (members.size() == 1)
+            {
+                singles.add(members.get(0));
+            }
+        }
+        renderer.paintWaypoints(g, map, singles);
+        for (Map.Entry<Long, List<W>> e : clusters.entrySet())
+        {
+            List<W> members = e.getValue();
+            if (members.size() > 1)
+            {
+                Point2D.Double sum = sums.get(e.getKey());
+                Point2D center = new Point2D.Double(sum.x / members.size(), sum.y / members.size());
+                paintCluster(g, map, center, members);
+            }
+        }
+    }
+
+    /**
+     * Paints a cluster of waypoints. By default a circle with the number of waypoints is painted.
+     * @param g the graphics, translated to world pixel coordinates
+     * @param map the map
+     * @param center the center of the cluster in world pixel coordinates
+     * @param members the waypoints of the cluster
+     */
+    protected void paintCluster(Graphics2D g, JXMapViewer map, Point2D center, List<W> members)
+    {
+        String text = String.valueOf(members.size());
+        FontMetrics fm = g.getFontMetrics();
+        int diameter = Math.max(20, fm.stringWidth(text) + 10);
+        int x = (int) center.getX() - diameter / 2;
+        int y = (int) center.getY() - diameter / 2;
+
+        g.setColor(new Color(0, 90, 200, 200));
+        g.fillOval(x, y, diameter, diameter);
+        g.setColor(Color.WHITE);
+        g.drawOval(x, y, diameter, diameter);
+        g.drawString(text, (int) center.getX() - fm.stringWidth(text) / 2,
+                (int) center.getY() + (fm.getAscent() - fm.getDescent()) / 2);
+    }
+}
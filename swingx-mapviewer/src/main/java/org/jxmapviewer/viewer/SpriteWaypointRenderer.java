@@ -0,0 +1,114 @@
+package org.jxmapviewer.viewer;
+
+import java.awt.Graphics2D;
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import javax.swing.Icon;
+
+import org.jxmapviewer.JXMapViewer;
+
+/**
+ * Paints waypoints with a marker icon per style, e.g. one icon per vehicle state.
+ * Each icon is rasterised once per HiDPI scale by a {@link WaypointSpriteAtlas},
+ * and {@link #paintWaypoints(Graphics2D, JXMapViewer, Collection)} paints all
+ * waypoints of one style in a row.
+ * <p>
+ * The style function should return shared icon instances, a new icon for every
+ * waypoint defeats the atlas.
+ * @param <W> the waypoint type
+ */
+public class SpriteWaypointRenderer<W extends Waypoint> implements WaypointRenderer<W>
+{
+    private final Function<? super W, ? extends Icon> style;
+    private final WaypointSpriteAtlas atlas;
+    private double anchorX = 0.5;
+    private double anchorY = 1.0;
+
+    /**
+     * @param style returns the marker icon of a waypoint, or null to not paint it
+     */
+    public SpriteWaypointRenderer(Function<? super W, ? extends Icon> style)
+    {
+        this(style, new WaypointSpriteAtlas());
+    }
+
+    /**
+     * @param style returns the marker icon of a waypoint, or null to not paint it
+     * @param atlas the atlas for the rasterised icons, can be shared between renderers
+     */
+    public SpriteWaypointRenderer(Function<? super W, ? extends Icon> style, WaypointSpriteAtlas atlas)
+    {
+        this.style = style;
+        this.atlas = atlas;
+    }
+
+    /**
+     * @return the atlas of the rasterised icons
+     */
+    public WaypointSpriteAtlas getAtlas()
+    {
+        return atlas;
+    }
+
+    /**
+     * Sets the point of the icons that marks the waypoint position. By default this is
+     * the middle of the bottom border.
+     * @param fractionX the horizontal position, 0 is the left and 1 the right border
+     * @param fractionY the vertical position, 0 is the top and 1 the bottom border
+     */
+    public void setAnchor(double fractionX, double fractionY)
+    {
+        this.anchorX = fractionX;
+        this.anchorY = fractionY;
+        atlas.clear();
+    }
+
+    @Override
+    public void paintWaypoint(Graphics2D g, JXMapViewer map, W waypoint)
+    {
+        paintWaypoints(g, map, Collections.singletonList(waypoint));
+    }
+
+    @Override
+    public void paintWaypoints(Graphics2D g, JXMapViewer map, Collection<? extends W> waypoints)
+    {
+        Map<Icon, List<W>> byStyle = new LinkedHashMap<Icon, List<W>>();
+        for (W w : waypoints)
+        {
+            Icon icon = style.apply(w);
+            if (icon == null)
+            {
+                continue;
+            }
+            List<W> list = byStyle.get(icon);
+            if (list == null)
+            {
+                list = new ArrayList<W>();
+                byStyle.put(icon, list);
+            }
+            list.add(w);
+        }
+
+        TileFactory tf = map.getTileFactory();
+        int zoom = map.getZoom();
+        for (Map.Entry<Icon, List<W>> e : byStyle.entrySet())
+        {
+            Icon icon = e.getKey();
+            WaypointSpriteAtlas.Sprite sprite = atlas.getSprite(g, icon,
+                    (int) Math.round(icon.getIconWidth() * anchorX),
+                    (int) Math.round(icon.getIconHeight() * anchorY), map);
+            for (W w : e.getValue())
+            {
+                Point2D point = tf.geoToPixel(w.getPosition(), zoom);
+                sprite.paint(g, point.getX(), point.getY());
+            }
+        }
+    }
+}
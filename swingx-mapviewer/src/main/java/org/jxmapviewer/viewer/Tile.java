@@ -40,9 +40,9 @@ public class Tile extends AbstractBean
     // private static final TileCache cache = new TileCache();
 
     /**
-     * The url of the image to load for this tile
+     * The url of the image to load for this tile, built when it is needed first
      */
-    private String url;
+    private volatile String url;
 
     /**
      * Indicates that loading has succeeded. A PropertyChangeEvent will be fired when the loading is completed
@@ -67,6 +67,10 @@ public class Tile extends AbstractBean
      */
     SoftReference<BufferedImage> image = new SoftReference<BufferedImage>(null);
 
+    // System.nanoTime() when the tile was queued for loading and handed to the EDT, for the loading statistics
+    long queued;
+    volatile long publishRequested;
+
     /**
      * Create a new Tile at the specified tile point and zoom level
      * @param x the x value
@@ -82,17 +86,15 @@ public class Tile extends AbstractBean
     }
 
     /**
-     * Create a new Tile that loads its data from the given URL. The URL must resolve to an image
+     * Create a new Tile that loads its data from the URL given by the tile factory. The URL must resolve to an image
      * @param x the x value
      * @param y the y value
      * @param zoom the zoom level
-     * @param url the URL
      * @param priority the priority
      * @param dtf the tile factory
      */
-    Tile(int x, int y, int zoom, String url, Priority priority, TileFactory dtf)
+    Tile(int x, int y, int zoom, Priority priority, TileFactory dtf)
     {
-        this.url = url;
         loaded = false;
         this.zoom = zoom;
         this.x = x;
@@ -219,7 +221,13 @@ public class Tile extends AbstractBean
      */
     public String getURL()
     {
-        return url;
+        String u = url;
+        if (u == null && dtf != null)
+        {
+            u = dtf.getInfo().getTileUrl(x, y, zoom);
+            url = u;
+        }
+        return u;
     }
 
     /**
@@ -19,6 +19,8 @@ import java.util.logging.Logger;
 
 import javax.imageio.ImageIO;
 
+import org.jdesktop.swingx.util.GraphicsUtilities;
+
 /**
  * An implementation only class for now. For internal use only.
  * @author joshua.marinacci@sun.com
@@ -93,7 +95,7 @@ public class TileCache
             	LOG.fine("retrieving from bytes");
                 bytemapAccessQueue.remove(uri);
                 bytemapAccessQueue.addLast(uri);
-                BufferedImage img = ImageIO.read(new ByteArrayInputStream(bytemap.get(uri)));
+                BufferedImage img = decode(bytemap.get(uri));
                 addToImageCache(uri, img);
                 return img;
             }
@@ -101,6 +103,19 @@ public class TileCache
         return null;
     }
 
+    /**
+     * Decodes the compressed bytes of a tile. The image is converted to the format of the screen,
+     * so it can be drawn without a conversion on every paint.
+     * @param bimg bytes of the compressed image
+     * @return the decoded image, or null if the format is not supported
+     * @throws IOException if decoding fails
+     */
+    protected BufferedImage decode(byte[] bimg) throws IOException
+    {
+        BufferedImage img = ImageIO.read(new ByteArrayInputStream(bimg));
+        return img == null ? null : GraphicsUtilities.toCompatibleImage(img);
+    }
+
     /**
      * Request that the cache free up some memory. How this happens or how much memory is freed is up to the TileCache
      * implementation. Subclasses can implement their own strategy. The default strategy is to clear out all buffered
@@ -10,7 +10,9 @@
 package org.jxmapviewer.viewer;
 
 import java.awt.Dimension;
+import java.awt.Rectangle;
 import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -92,6 +94,24 @@ public abstract class TileFactory
         return GeoUtil.getBitmapCoordinate(c, zoomLevel, getInfo());
     }
 
+    /**
+     * Converts many positions to pixel positions in the world bitmap at once. Factories that override
+     * {@link #geoToPixel(GeoPosition, int)} with a different projection must override this as well.
+     * @param latitudes the latitudes
+     * @param longitudes the longitudes
+     * @param offset the index of the first position
+     * @param length the number of positions
+     * @param zoomLevel the zoom level to extract the pixel coordinates for
+     * @param xs receives the x coordinates, at the same index as the position
+     * @param ys receives the y coordinates, at the same index as the position
+     * @param parallel true to split large inputs across the common fork join pool
+     */
+    public void geoToPixel(double[] latitudes, double[] longitudes, int offset, int length, int zoomLevel,
+            double[] xs, double[] ys, boolean parallel)
+    {
+        GeoUtil.getBitmapCoordinates(latitudes, longitudes, offset, length, zoomLevel, getInfo(), xs, ys, parallel);
+    }
+
     /**
      * Get the TileFactoryInfo describing this TileFactory
      * @return a TileFactoryInfo
@@ -136,12 +156,45 @@ public abstract class TileFactory
         }
     }
 
+    /**
+     * Notifies all tile listeners about a batch of loaded tiles
+     * @param tiles the tiles
+     */
+    protected void fireTilesLoadedEvent(List<Tile> tiles)
+    {
+        for (TileListener listener : tileListeners)
+        {
+            listener.tilesLoaded(tiles);
+        }
+    }
+
     /**
      * Override this method to load the tile using, for example, an <code>ExecutorService</code>.
      * @param tile The tile to load.
      */
     protected abstract void startLoading(Tile tile);
 
+    /**
+     * Returns the image of a tile if it is loaded already. In contrast to {@link #getTile(int, int, int)}
+     * this never starts loading a tile, it is meant for painting fallbacks from other zoom levels.
+     * @param x the x value
+     * @param y the y value
+     * @param zoom the zoom level
+     * @return the image or <code>null</code> if the tile is not loaded
+     */
+    public BufferedImage getLoadedImage(int x, int y, int zoom)
+    {
+        return null;
+    }
+
+    /**
+     * Tells the factory which tiles are currently visible, so it can load these first and
+     * skip requests for tiles that are no longer needed. Called by the map viewer on every paint.
+     * @param tileBounds the visible tiles, in tile coordinates at the given zoom level
+     * @param zoom the zoom level of the visible tiles
+     */
+    public void setViewport(Rectangle tileBounds, int zoom) { /* to not break existing implementations */ }
+
     /**
      * @param cache the local cache to use
      */
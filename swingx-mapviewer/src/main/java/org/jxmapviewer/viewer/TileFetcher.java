@@ -0,0 +1,24 @@
+package org.jxmapviewer.viewer;
+
+import java.net.URL;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Loads the data of a tile without blocking the calling thread.
+ * Install it with {@link AbstractTileFactory#setTileFetcher(TileFetcher)}, by default
+ * the tile loading threads load tiles with a blocking <code>URLConnection</code>.
+ * @see HttpTileFetcher
+ */
+public interface TileFetcher
+{
+    /**
+     * Starts loading a tile. Implementations are responsible for retries, the returned future
+     * fails only if the tile cannot be loaded at all. It fails with a
+     * {@link java.io.FileNotFoundException} if the tile does not exist.
+     * @param url the URL of the tile
+     * @param cached the tile data from the local cache or <code>null</code>. Implementations
+     * can return it without a request, or revalidate it with a conditional request.
+     * @return the tile data. If the cached data is still valid the very same array is returned.
+     */
+    CompletableFuture<byte[]> fetch(URL url, byte[] cached);
+}
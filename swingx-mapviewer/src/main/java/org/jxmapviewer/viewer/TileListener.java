@@ -1,6 +1,8 @@
 
 package org.jxmapviewer.viewer;
 
+import java.util.List;
+
 /**
  * Notified when the status of a tile has changed
  * @author Martin Steiger
@@ -13,4 +15,18 @@ public interface TileListener
      */
     public void tileLoaded(Tile tile);
 
+    /**
+     * Notification when a batch of tiles has been loaded. The default implementation
+     * calls {@link #tileLoaded(Tile)} for each tile, listeners can override this to
+     * handle the whole batch at once, e.g. with a single repaint.
+     * @param tiles the tiles, in the order they have been loaded
+     */
+    default void tilesLoaded(List<Tile> tiles)
+    {
+        for (Tile tile : tiles)
+        {
+            tileLoaded(tile);
+        }
+    }
+
 }
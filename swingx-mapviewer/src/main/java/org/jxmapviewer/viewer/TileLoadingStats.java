@@ -0,0 +1,289 @@
+package org.jxmapviewer.viewer;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Counters and timing histograms of the tile loading of a {@link AbstractTileFactory}, e.g. for
+ * capacity planning. All recording methods are lock free, the getters return the current values.
+ * <p>
+ * The statistics can be published as an MXBean with {@link #registerMBean(String)}.
+ */
+public class TileLoadingStats implements TileLoadingStatsMXBean
+{
+    private final LongAdder tileRequests = new LongAdder();
+    private final LongAdder registryHits = new LongAdder();
+    private final LongAdder memoryHits = new LongAdder();
+    private final LongAdder memoryMisses = new LongAdder();
+    private final LongAdder diskHits = new LongAdder();
+    private final LongAdder diskMisses = new LongAdder();
+    private final LongAdder bytesFetched = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    private final LatencyHistogram download = new LatencyHistogram();
+    private final Map<String, LatencyHistogram> downloadByHost = new ConcurrentHashMap<String, LatencyHistogram>();
+    private final LatencyHistogram decode = new LatencyHistogram();
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+    private final LatencyHistogram publish = new LatencyHistogram();
+
+    private ObjectName objectName;
+
+    /**
+     * @param hit true if the tile was already known to the tile factory
+     */
+    public void recordTileRequest(boolean hit)
+    {
+        tileRequests.increment();
+        if (hit)
+        {
+            registryHits.increment();
+        }
+    }
+
+    /**
+     * @param hit true if the tile was found in the memory cache
+     */
+    public void recordMemoryCacheLookup(boolean hit)
+    {
+        (hit ? memoryHits : memoryMisses).increment();
+    }
+
+    /**
+     * @param hit true if the tile was found in the local (disk) cache
+     */
+    public void recordDiskCacheLookup(boolean hit)
+    {
+        (hit ? diskHits : diskMisses).increment();
+    }
+
+    /**
+     * @param host the host the tile was downloaded from
+     * @param nanos the duration of the download
+     * @param bytes the number of bytes downloaded
+     */
+    public void recordDownload(String host, long nanos, long bytes)
+    {
+        download.record(nanos);
+        String key = host == null || host.isEmpty() ? "local" : host;
+        LatencyHistogram h = downloadByHost.get(key);
+        if (h == null)
+        {
+            h = downloadByHost.computeIfAbsent(key, k -> new LatencyHistogram());
+        }
+        h.record(nanos);
+        bytesFetched.add(bytes);
+    }
+
+    /**
+     * @param nanos the time to decode a tile image
+     */
+    public void recordDecode(long nanos)
+    {
+        decode.record(nanos);
+    }
+
+    /**
+     * @param nanos the time a tile waited in the queue for a loading thread
+     */
+    public void recordQueueWait(long nanos)
+    {
+        queueWait.record(nanos);
+    }
+
+    /**
+     * @param nanos the time a loaded tile waited for the EDT
+     */
+    public void recordPublish(long nanos)
+    {
+        publish.record(nanos);
+    }
+
+    /**
+     * Counts a download that is attempted again
+     */
+    public void recordRetry()
+    {
+        retries.increment();
+    }
+
+    /**
+     * Counts a tile that failed to load
+     */
+    public void recordFailure()
+    {
+        failures.increment();
+    }
+
+    @Override
+    public long getTileRequests()
+    {
+        return tileRequests.sum();
+    }
+
+    @Override
+    public double getTileRegistryHitRatio()
+    {
+        return ratio(registryHits.sum(), tileRequests.sum() - registryHits.sum());
+    }
+
+    @Override
+    public long getMemoryCacheHits()
+    {
+        return memoryHits.sum();
+    }
+
+    @Override
+    public long getMemoryCacheMisses()
+    {
+        return memoryMisses.sum();
+    }
+
+    @Override
+    public double getMemoryCacheHitRatio()
+    {
+        return ratio(memoryHits.sum(), memoryMisses.sum());
+    }
+
+    @Override
+    public long getDiskCacheHits()
+    {
+        return diskHits.sum();
+    }
+
+    @Override
+    public long getDiskCacheMisses()
+    {
+        return diskMisses.sum();
+    }
+
+    @Override
+    public double getDiskCacheHitRatio()
+    {
+        return ratio(diskHits.sum(), diskMisses.sum());
+    }
+
+    @Override
+    public long getBytesFetched()
+    {
+        return bytesFetched.sum();
+    }
+
+    @Override
+    public long getRetries()
+    {
+        return retries.sum();
+    }
+
+    @Override
+    public long getFailures()
+    {
+        return failures.sum();
+    }
+
+    @Override
+    public LatencyHistogram.Snapshot getDownloadLatency()
+    {
+        return download.snapshot();
+    }
+
+    @Override
+    public Map<String, LatencyHistogram.Snapshot> getDownloadLatencyByHost()
+    {
+        Map<String, LatencyHistogram.Snapshot> result = new TreeMap<String, LatencyHistogram.Snapshot>();
+        for (Map.Entry<String, LatencyHistogram> e : downloadByHost.entrySet())
+        {
+            result.put(e.getKey(), e.getValue().snapshot());
+        }
+        return result;
+    }
+
+    @Override
+    public LatencyHistogram.Snapshot getDecodeTime()
+    {
+        return decode.snapshot();
+    }
+
+    @Override
+    public LatencyHistogram.Snapshot getQueueWait()
+    {
+        return queueWait.snapshot();
+    }
+
+    @Override
+    public LatencyHistogram.Snapshot getPublishLatency()
+    {
+        return publish.snapshot();
+    }
+
+    @Override
+    public void reset()
+    {
+        tileRequests.reset();
+        registryHits.reset();
+        memoryHits.reset();
+        memoryMisses.reset();
+        diskHits.reset();
+        diskMisses.reset();
+        bytesFetched.reset();
+        retries.reset();
+        failures.reset();
+        download.reset();
+        downloadByHost.clear();
+        decode.reset();
+        queueWait.reset();
+        publish.reset();
+    }
+
+    /**
+     * Registers the statistics with the platform MBean server
+     * @param name the name to tell the tile factories apart, e.g. the name of the tile source
+     * @return the object name of the MBean
+     * @throws JMException if the registration fails, e.g. because the name is already registered
+     */
+    public synchronized ObjectName registerMBean(String name) throws JMException
+    {
+        unregisterMBean();
+        ObjectName on = new ObjectName("org.jxmapviewer:type=TileLoadingStats,name=" + ObjectName.quote(name));
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        server.registerMBean(this, on);
+        objectName = on;
+        return on;
+    }
+
+    /**
+     * Removes the MBean from the platform MBean server, if registered
+     * @throws JMException if the MBean cannot be removed
+     */
+    public synchronized void unregisterMBean() throws JMException
+    {
+        if (objectName != null)
+        {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            objectName = null;
+        }
+    }
+
+    private static double ratio(long hits, long misses)
+    {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("requests=%d memory=%.1f%% disk=%.1f%% bytes=%d retries=%d failures=%d"
+                + " download=[%s] decode=[%s] queue=[%s] publish=[%s]",
+                getTileRequests(), getMemoryCacheHitRatio() * 100, getDiskCacheHitRatio() * 100, getBytesFetched(),
+                getRetries(), getFailures(), getDownloadLatency(), getDecodeTime(), getQueueWait(),
+                getPublishLatency());
+    }
+}
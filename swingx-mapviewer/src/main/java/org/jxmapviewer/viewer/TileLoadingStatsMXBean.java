@@ -0,0 +1,94 @@
+package org.jxmapviewer.viewer;
+
+import java.util.Map;
+
+/**
+ * The management interface of {@link TileLoadingStats}, durations in milliseconds
+ */
+public interface TileLoadingStatsMXBean
+{
+    /**
+     * @return the number of tiles requested from the tile factory
+     */
+    long getTileRequests();
+
+    /**
+     * @return the fraction of requested tiles that were already known to the tile factory
+     */
+    double getTileRegistryHitRatio();
+
+    /**
+     * @return the number of tiles found in the memory cache
+     */
+    long getMemoryCacheHits();
+
+    /**
+     * @return the number of tiles not found in the memory cache
+     */
+    long getMemoryCacheMisses();
+
+    /**
+     * @return the fraction of lookups that hit the memory cache
+     */
+    double getMemoryCacheHitRatio();
+
+    /**
+     * @return the number of tiles found in the local (disk) cache
+     */
+    long getDiskCacheHits();
+
+    /**
+     * @return the number of tiles not found in the local (disk) cache
+     */
+    long getDiskCacheMisses();
+
+    /**
+     * @return the fraction of lookups that hit the local (disk) cache
+     */
+    double getDiskCacheHitRatio();
+
+    /**
+     * @return the number of bytes downloaded
+     */
+    long getBytesFetched();
+
+    /**
+     * @return the number of retried downloads
+     */
+    long getRetries();
+
+    /**
+     * @return the number of tiles that failed to load
+     */
+    long getFailures();
+
+    /**
+     * @return the download latency of all hosts
+     */
+    LatencyHistogram.Snapshot getDownloadLatency();
+
+    /**
+     * @return the download latency per host
+     */
+    Map<String, LatencyHistogram.Snapshot> getDownloadLatencyByHost();
+
+    /**
+     * @return the time to decode the tile images
+     */
+    LatencyHistogram.Snapshot getDecodeTime();
+
+    /**
+     * @return the time tiles waited in the queue for a loading thread
+     */
+    LatencyHistogram.Snapshot getQueueWait();
+
+    /**
+     * @return the time loaded tiles waited for the EDT to publish them
+     */
+    LatencyHistogram.Snapshot getPublishLatency();
+
+    /**
+     * Resets all counters and histograms
+     */
+    void reset();
+}
@@ -0,0 +1,300 @@
+package org.jxmapviewer.viewer;
+
+import java.awt.Rectangle;
+
+/**
+ * Requests tiles that are likely to be needed soon with {@link Tile.Priority#Low}:
+ * a ring of tiles around the viewport, the tiles ahead of the current pan direction,
+ * and the tiles of the neighbouring zoom levels.
+ * <p>
+ * The prefetcher is driven by {@link AbstractTileFactory#setViewport(Rectangle, int)},
+ * install it with {@link AbstractTileFactory#setPrefetcher(TilePrefetcher)}.
+ * Prefetching stops as soon as the number of queued low priority tiles or their
+ * estimated size exceeds the budget, so it never delays visible tiles for long.
+ */
+public class TilePrefetcher
+{
+    private int ringSize = 1;
+    private double lookAhead = 1.0;
+    private boolean parentLevel = true;
+    private boolean childLevel = true;
+    private int maxOutstanding = 32;
+    private long maxOutstandingBytes = 1000 * 1000;
+
+    // pan velocity in tiles per second, estimated from the viewport changes
+    private Rectangle lastBounds;
+    private int lastZoom;
+    private long lastTime;
+    private double velocityX;
+    private double velocityY;
+
+    /**
+     * Creates a prefetcher with the default settings
+     */
+    public TilePrefetcher()
+    {
+    }
+
+    /**
+     * @return the width of the ring around the viewport, in tiles
+     */
+    public int getRingSize()
+    {
+        return ringSize;
+    }
+
+    /**
+     * @param ringSize the width of the ring around the viewport, in tiles. 0 disables the ring.
+     */
+    public void setRingSize(int ringSize)
+    {
+        if (ringSize < 0)
+        {
+            throw new IllegalArgumentException("ringSize must not be negative: " + ringSize);
+        }
+        this.ringSize = ringSize;
+    }
+
+    /**
+     * @return how far ahead of the pan direction tiles are loaded, in seconds
+     */
+    public double getLookAhead()
+    {
+        return lookAhead;
+    }
+
+    /**
+     * @param seconds how far ahead of the pan direction tiles are loaded, in seconds. 0 disables the look ahead.
+     */
+    public void setLookAhead(double seconds)
+    {
+        if (seconds < 0)
+        {
+            throw new IllegalArgumentException("lookAhead must not be negative: " + seconds);
+        }
+        this.lookAhead = seconds;
+    }
+
+    /**
+     * @return true if the tiles one zoom level up (zoomed out) are prefetched
+     */
+    public boolean isParentLevel()
+    {
+        return parentLevel;
+    }
+
+    /**
+     * @param parentLevel true to prefetch the tiles one zoom level up (zoomed out)
+     */
+    public void setParentLevel(boolean parentLevel)
+    {
+        this.parentLevel = parentLevel;
+    }
+
+    /**
+     * @return true if the tiles one zoom level down (zoomed in) are prefetched
+     */
+    public boolean isChildLevel()
+    {
+        return childLevel;
+    }
+
+    /**
+     * @param childLevel true to prefetch the tiles one zoom level down (zoomed in)
+     */
+    public void setChildLevel(boolean childLevel)
+    {
+        this.childLevel = childLevel;
+    }
+
+    /**
+     * @return the maximum number of queued low priority tiles
+     */
+    public int getMaxOutstanding()
+    {
+        return maxOutstanding;
+    }
+
+    /**
+     * @param maxOutstanding the maximum number of queued low priority tiles
+     */
+    public void setMaxOutstanding(int maxOutstanding)
+    {
+        if (maxOutstanding < 0)
+        {
+            throw new IllegalArgumentException("maxOutstanding must not be negative: " + maxOutstanding);
+        }
+        this.maxOutstanding = maxOutstanding;
+    }
+
+    /**
+     * @return the maximum estimated size of all queued low priority tiles, in bytes
+     */
+    public long getMaxOutstandingBytes()
+    {
+        return maxOutstandingBytes;
+    }
+
+    /**
+     * The size of a queued tile is estimated by the average size of the tiles loaded so far.
+     * @param maxOutstandingBytes the maximum estimated size of all queued low priority tiles, in bytes
+     */
+    public void setMaxOutstandingBytes(long maxOutstandingBytes)
+    {
+        if (maxOutstandingBytes < 0)
+        {
+            throw new IllegalArgumentException("maxOutstandingBytes must not be negative: " + maxOutstandingBytes);
+        }
+        this.maxOutstandingBytes = maxOutstandingBytes;
+    }
+
+    /**
+     * Requests the tiles around the given viewport, most important first, until the budget is exhausted.
+     * @param factory the tile factory
+     * @param tileBounds the visible tiles
+     * @param zoom the zoom level
+     */
+    protected void prefetch(AbstractTileFactory factory, Rectangle tileBounds, int zoom)
+    {
+        updateVelocity(tileBounds, zoom);
+
+        Budget budget = new Budget(factory);
+        if (budget.exhausted())
+        {
+            return;
+        }
+
+        // ahead of the pan direction, but not further than the factory would keep it
+        if (lookAhead > 0 && (velocityX != 0 || velocityY != 0))
+        {
+            int limit = factory.getCancelDistance();
+            int dx = clamp((int) Math.round(velocityX * lookAhead), limit);
+            int dy = clamp((int) Math.round(velocityY * lookAhead), limit);
+            Rectangle ahead = new Rectangle(tileBounds);
+            ahead.translate(dx, dy);
+            if (!prefetchArea(budget, ahead, tileBounds, zoom))
+            {
+                return;
+            }
+        }
+
+        // tiles outside of the cancel distance would be dropped with the next viewport change
+        int rings = Math.min(ringSize, factory.getCancelDistance());
+        for (int ring = 1; ring <= rings; ring++)
+        {
+            Rectangle outer = new Rectangle(tileBounds);
+            outer.grow(ring, ring);
+            if (!prefetchArea(budget, outer, tileBounds, zoom))
+            {
+                return;
+            }
+        }
+
+        TileFactoryInfo info = factory.getInfo();
+        if (parentLevel && zoom < info.getMaximumZoomLevel())
+        {
+            Rectangle parent = new Rectangle(floorDiv2(tileBounds.x), floorDiv2(tileBounds.y),
+                    tileBounds.width / 2 + 2, tileBounds.height / 2 + 2);
+            if (!prefetchArea(budget, parent, null, zoom + 1))
+            {
+                return;
+            }
+        }
+        if (childLevel && zoom > info.getMinimumZoomLevel())
+        {
+            Rectangle child = new Rectangle(tileBounds.x * 2, tileBounds.y * 2,
+                    tileBounds.width * 2, tileBounds.height * 2);
+            prefetchArea(budget, child, null, zoom - 1);
+        }
+    }
+
+    /**
+     * @return false if the budget is exhausted
+     */
+    private boolean prefetchArea(Budget budget, Rectangle area, Rectangle skip, int zoom)
+    {
+        for (int y = area.y; y < area.y + area.height; y++)
+        {
+            for (int x = area.x; x < area.x + area.width; x++)
+            {
+                if (skip != null && skip.contains(x, y))
+                {
+                    continue;
+                }
+                if (budget.factory.prefetch(x, y, zoom))
+                {
+                    budget.outstanding++;
+                    if (budget.exhausted())
+                    {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    private void updateVelocity(Rectangle tileBounds, int zoom)
+    {
+        long now = System.nanoTime();
+        if (lastBounds == null || zoom != lastZoom)
+        {
+            velocityX = 0;
+            velocityY = 0;
+        }
+        else if (!lastBounds.getLocation().equals(tileBounds.getLocation()))
+        {
+            double dt = (now - lastTime) / 1e9;
+            if (dt > 0.5)
+            {
+                // the user paused, start over
+                velocityX = 0;
+                velocityY = 0;
+            }
+            else if (dt > 0)
+            {
+                velocityX = (velocityX + (tileBounds.x - lastBounds.x) / dt) / 2;
+                velocityY = (velocityY + (tileBounds.y - lastBounds.y) / dt) / 2;
+            }
+        }
+        else
+        {
+            return; // keep the time of the last movement
+        }
+        lastBounds = new Rectangle(tileBounds);
+        lastZoom = zoom;
+        lastTime = now;
+    }
+
+    private static int clamp(int value, int limit)
+    {
+        return Math.max(-limit, Math.min(limit, value));
+    }
+
+    private static int floorDiv2(int value)
+    {
+        return Math.floorDiv(value, 2);
+    }
+
+    /**
+     * The remaining budget while prefetching for one viewport
+     */
+    private final class Budget
+    {
+        final AbstractTileFactory factory;
+        final long tileBytes;
+        int outstanding;
+
+        Budget(AbstractTileFactory factory)
+        {
+            this.factory = factory;
+            this.tileBytes = factory.getAverageTileBytes();
+            this.outstanding = factory.getPendingPrefetches();
+        }
+
+        boolean exhausted()
+        {
+            return outstanding >= maxOutstanding || outstanding * tileBytes >= maxOutstandingBytes;
+        }
+    }
+}
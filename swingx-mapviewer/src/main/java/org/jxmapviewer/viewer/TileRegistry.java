@@ -0,0 +1,189 @@
+package org.jxmapviewer.viewer;
+
+/**
+ * The tiles of a factory, keyed by (zoom, x, y) packed into a <code>long</code>.
+ * An open addressing hash table, so a lookup allocates nothing. When more than the maximum number
+ * of tiles are registered, the least recently used ones are dropped (CLOCK approximation).
+ * All methods are thread safe.
+ */
+final class TileRegistry
+{
+    private final int maxSize;
+    private final int mask;
+    private final int shift;
+    private final long[] keys;
+    private final Tile[] tiles;
+    private final boolean[] referenced;
+    private int size;
+    private int hand;
+
+    /**
+     * @param maxSize the maximum number of tiles
+     */
+    TileRegistry(int maxSize)
+    {
+        if (maxSize <= 0)
+        {
+            throw new IllegalArgumentException("maxSize must be greater than 0: " + maxSize);
+        }
+        this.maxSize = maxSize;
+        // keep the load factor below 0.5
+        int capacity = Integer.highestOneBit(maxSize) << 2;
+        this.mask = capacity - 1;
+        this.shift = 64 - Integer.numberOfTrailingZeros(capacity);
+        this.keys = new long[capacity];
+        this.tiles = new Tile[capacity];
+        this.referenced = new boolean[capacity];
+    }
+
+    /**
+     * @param x the x value
+     * @param y the y value
+     * @param zoom the zoom level
+     * @return the key of the tile: 6 bits zoom, 29 bits each for x and y
+     */
+    static long key(int x, int y, int zoom)
+    {
+        return ((long) zoom << 58) | ((x & 0x1FFFFFFFL) << 29) | (y & 0x1FFFFFFFL);
+    }
+
+    /**
+     * @param tile the tile
+     * @return the key of the tile
+     */
+    static long key(Tile tile)
+    {
+        return key(tile.getX(), tile.getY(), tile.getZoom());
+    }
+
+    /**
+     * @param key the key
+     * @return the tile or <code>null</code>
+     */
+    synchronized Tile get(long key)
+    {
+        int i = find(key);
+        if (i < 0)
+        {
+            return null;
+        }
+        referenced[i] = true;
+        return tiles[i];
+    }
+
+    /**
+     * @param key the key
+     * @param tile the tile to register
+     * @return the tile already registered for the key, in which case nothing is changed, or <code>null</code>
+     */
+    synchronized Tile putIfAbsent(long key, Tile tile)
+    {
+        int i = slot(key);
+        while (tiles[i] != null)
+        {
+            if (keys[i] == key)
+            {
+                referenced[i] = true;
+                return tiles[i];
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        tiles[i] = tile;
+        referenced[i] = true;
+        size++;
+        while (size > maxSize)
+        {
+            evict();
+        }
+        return null;
+    }
+
+    /**
+     * @param key the key
+     * @param tile the tile to remove
+     * @return false if another or no tile is registered for the key
+     */
+    synchronized boolean remove(long key, Tile tile)
+    {
+        int i = find(key);
+        if (i < 0 || tiles[i] != tile)
+        {
+            return false;
+        }
+        removeAt(i);
+        return true;
+    }
+
+    /**
+     * @return the number of tiles
+     */
+    synchronized int size()
+    {
+        return size;
+    }
+
+    private int slot(long key)
+    {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+    }
+
+    private int find(long key)
+    {
+        int i = slot(key);
+        while (tiles[i] != null)
+        {
+            if (keys[i] == key)
+            {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void evict()
+    {
+        while (true)
+        {
+            hand = (hand + 1) & mask;
+            if (tiles[hand] != null)
+            {
+                if (!referenced[hand])
+                {
+                    removeAt(hand);
+                    return;
+                }
+                referenced[hand] = false;
+            }
+        }
+    }
+
+    // linear probing without tombstones: move the following entries of the cluster back
+    private void removeAt(int i)
+    {
+        tiles[i] = null;
+        referenced[i] = false;
+        size--;
+        int j = i;
+        while (true)
+        {
+            j = (j + 1) & mask;
+            if (tiles[j] == null)
+            {
+                return;
+            }
+            int home = slot(keys[j]);
+            boolean movable = j > i ? (home <= i || home > j) : (home <= i && home > j);
+            if (movable)
+            {
+                keys[i] = keys[j];
+                tiles[i] = tiles[j];
+                referenced[i] = referenced[j];
+                tiles[j] = null;
+                referenced[j] = false;
+                i = j;
+            }
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package org.jxmapviewer.viewer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A grid of latitude/longitude cells that finds the waypoints within given bounds
+ * without looking at all waypoints. Waypoints can be added, moved and removed
+ * one by one, each in constant time.
+ * <p>
+ * The cell of a waypoint is computed from its position when it is added. Call
+ * {@link #update(Waypoint)} after the position of a waypoint has changed.
+ * All methods are thread safe.
+ * @param <W> the waypoint type
+ */
+public class WaypointIndex<W extends Waypoint>
+{
+    /**
+     * The default cell size in degrees
+     */
+    public static final double DEFAULT_CELL_SIZE = 1.0;
+
+    private final double cellSize;
+    private final int columns;
+    private final int rows;
+
+    private final Map<Long, Set<W>> cells = new HashMap<Long, Set<W>>();
+    private final Map<W, Long> keys = new HashMap<W, Long>();
+
+    /**
+     * Creates an index with cells of {@link #DEFAULT_CELL_SIZE} degrees
+     */
+    public WaypointIndex()
+    {
+        this(DEFAULT_CELL_SIZE);
+    }
+
+    /**
+     * @param cellSize the width and height of a cell in degrees
+     */
+    public WaypointIndex(double cellSize)
+    {
+        if (!(cellSize > 0) || cellSize > 180)
+        {
+            throw new IllegalArgumentException("cellSize out of range: " + cellSize);
+        }
+        this.cellSize = cellSize;
+        this.columns = (int) Math.ceil(360 / cellSize);
+        this.rows = (int) Math.ceil(180 / cellSize);
+    }
+
+    /**
+     * @return the width and height of a cell in degrees
+     */
+    public double getCellSize()
+    {
+        return cellSize;
+    }
+
+    /**
+     * @param w the waypoint to add
+     * @return false if the waypoint was already in the index
+     */
+    public synchronized boolean add(W w)
+    {
+        if (keys.containsKey(w))
+        {
+            return false;
+        }
+        insert(w, key(w.getPosition()));
+        return true;
+    }
+
+    /**
+     * @param w the waypoint to remove
+     * @return false if the waypoint was not in the index
+     */
+    public synchronized boolean remove(W w)
+    {
+        Long key = keys.remove(w);
+        if (key == null)
+        {
+            return false;
+        }
+        removeFromCell(w, key);
+        return true;
+    }
+
+    /**
+     * Moves a waypoint to the cell of its current position, or adds it if it is not in the index yet.
+     * @param w the waypoint that has moved
+     */
+    public synchronized void update(W w)
+    {
+        long key = key(w.getPosition());
+        Long old = keys.get(w);
+        if (old == null)
+        {
+            insert(w, key);
+        }
+        else if (old.longValue() != key)
+        {
+            removeFromCell(w, old);
+            insert(w, key);
+        }
+    }
+
+    /**
+     * @param w the waypoint
+     * @return true if the waypoint is in the index
+     */
+    public synchronized boolean contains(W w)
+    {
+        return keys.containsKey(w);
+    }
+
+    /**
+     * @return the number of waypoints
+     */
+    public synchronized int size()
+    {
+        return keys.size();
+    }
+
+    /**
+     * Removes all waypoints
+     */
+    public synchronized void clear()
+    {
+        cells.clear();
+        keys.clear();
+    }
+
+    /**
+     * @return a copy of all waypoints
+     */
+    public synchronized Set<W> getWaypoints()
+    {
+        return new LinkedHashSet<W>(keys.keySet());
+    }
+
+    /**
+     * Finds the waypoints within the given bounds. Only the cells that intersect the bounds are visited.
+     * @param minLat the minimum latitude
+     * @param minLon the minimum longitude
+     * @param maxLat the maximum latitude
+     * @param maxLon the maximum longitude
+     * @return the waypoints within the bounds, borders included
+     */
+    public synchronized List<W> query(double minLat, double minLon, double maxLat, double maxLon)
+    {
+        List<W> result = new ArrayList<W>();
+        if (minLat > maxLat || minLon > maxLon)
+        {
+            return result;
+        }
+        int c0 = column(minLon);
+        int c1 = column(maxLon);
+        int r0 = row(minLat);
+        int r1 = row(maxLat);
+        if ((long) (c1 - c0 + 1) * (r1 - r0 + 1) > cells.size())
+        {
+            // most of the cells in range are empty, visit the occupied ones instead
+            for (Map.Entry<Long, Set<W>> e : cells.entrySet())
+            {
+                long key = e.getKey();
+                int c = (int) (key % columns);
+                int r = (int) (key / columns);
+                if (c >= c0 && c <= c1 && r >= r0 && r <= r1)
+                {
+                    collect(e.getValue(), minLat, minLon, maxLat, maxLon, result);
+                }
+            }
+            return result;
+        }
+        for (int r = r0; r <= r1; r++)
+        {
+            for (int c = c0; c <= c1; c++)
+            {
+                Set<W> cell = cells.get((long) r * columns + c);
+                if (cell != null)
+                {
+                    collect(cell, minLat, minLon, maxLat, maxLon, result);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static <W extends Waypoint> void collect(Set<W> cell, double minLat, double minLon,
+            double maxLat, double maxLon, List<W> result)
+    {
+        for (W w : cell)
+        {
+            GeoPosition p = w.getPosition();
+            if (p.getLatitude() >= minLat && p.getLatitude() <= maxLat
+                    && p.getLongitude() >= minLon && p.getLongitude() <= maxLon)
+            {
+                result.add(w);
+            }
+        }
+    }
+
+    private void insert(W w, long key)
+    {
+        keys.put(w, key);
+        Set<W> cell = cells.get(key);
+        if (cell == null)
+        {
+            cell = new LinkedHashSet<W>();
+            cells.put(key, cell);
+        }
+        cell.add(w);
+    }
+
+    private void removeFromCell(W w, long key)
+    {
+        Set<W> cell = cells.get(key);
+        if (cell != null && cell.remove(w) && cell.isEmpty())
+        {
+            cells.remove(key);
+        }
+    }
+
+    private long key(GeoPosition p)
+    {
+        return (long) row(p.getLatitude()) * columns + column(p.getLongitude());
+    }
+
+    private int column(double lon)
+    {
+        return clamp((int) Math.floor((lon + 180) / cellSize), columns);
+    }
+
+    private int row(double lat)
+    {
+        return clamp((int) Math.floor((lat + 90) / cellSize), rows);
+    }
+
+    private static int clamp(int value, int size)
+    {
+        return Math.max(0, Math.min(size - 1, value));
+    }
+}
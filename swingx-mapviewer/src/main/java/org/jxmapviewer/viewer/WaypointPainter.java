@@ -46,6 +46,14 @@ public class WaypointPainter<W extends Waypoint> extends AbstractPainter<JXMapVi
         this.renderer = r;
     }
 
+    /**
+     * @return the waypoint renderer, may be null
+     */
+    protected WaypointRenderer<? super W> getRenderer()
+    {
+        return renderer;
+    }
+
     /**
      * Gets the current set of waypoints to paint
      * @return a typed Set of Waypoints
@@ -77,10 +85,7 @@ public class WaypointPainter<W extends Waypoint> extends AbstractPainter<JXMapVi
 
         g.translate(-viewportBounds.getX(), -viewportBounds.getY());
 
-        for (W w : getWaypoints())
-        {
-            renderer.paintWaypoint(g, map, w);
-        }
+        renderer.paintWaypoints(g, map, getWaypoints());
 
         g.translate(viewportBounds.getX(), viewportBounds.getY());
 
@@ -10,6 +10,7 @@
 package org.jxmapviewer.viewer;
 
 import java.awt.Graphics2D;
+import java.util.Collection;
 
 import org.jxmapviewer.JXMapViewer;
 
@@ -28,5 +29,21 @@ public interface WaypointRenderer<W>
      * @param waypoint the waypoint
      */
     public void paintWaypoint(Graphics2D g, JXMapViewer map, W waypoint);
-    
+
+    /**
+     * paint a number of waypoints at once. Renderers can override this to share work
+     * between waypoints of the same style. By default each waypoint is painted with
+     * {@link #paintWaypoint(Graphics2D, JXMapViewer, Object)}.
+     * @param g the graphics2D object
+     * @param map the map
+     * @param waypoints the waypoints
+     */
+    default void paintWaypoints(Graphics2D g, JXMapViewer map, Collection<? extends W> waypoints)
+    {
+        for (W w : waypoints)
+        {
+            paintWaypoint(g, map, w);
+        }
+    }
+
 }
@@ -0,0 +1,246 @@
+package org.jxmapviewer.viewer;
+
+import java.awt.Component;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.swing.Icon;
+
+import org.jdesktop.swingx.util.GraphicsUtilities;
+
+/**
+ * Rasterises waypoint markers once per style and HiDPI scale into compatible images,
+ * so painting a marker is a single image blit instead of painting its shapes again.
+ * <p>
+ * A style is any object with proper <code>equals</code> and <code>hashCode</code>,
+ * usually the {@link Icon} or {@link BufferedImage} of the marker itself. The least recently
+ * used sprites are dropped when more than {@link #getMaxSprites()} are cached.
+ */
+public class WaypointSpriteAtlas
+{
+    private final int maxSprites;
+    private final Map<Key, Sprite> sprites;
+
+    /**
+     * Creates an atlas for at most 256 sprites
+     */
+    public WaypointSpriteAtlas()
+    {
+        this(256);
+    }
+
+    /**
+     * @param maxSprites the maximum number of cached sprites
+     */
+    public WaypointSpriteAtlas(final int maxSprites)
+    {
+        this.maxSprites = maxSprites;
+        this.sprites = new LinkedHashMap<Key, Sprite>(16, 0.75f, true)
+        {
+            private static final long serialVersionUID = 1;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Sprite> eldest)
+            {
+                return size() > maxSprites;
+            }
+        };
+    }
+
+    /**
+     * @return the maximum number of cached sprites
+     */
+    public int getMaxSprites()
+    {
+        return maxSprites;
+    }
+
+    /**
+     * @return the number of cached sprites
+     */
+    public synchronized int size()
+    {
+        return sprites.size();
+    }
+
+    /**
+     * Drops all sprites, e.g. after the marker icons have changed
+     */
+    public synchronized void clear()
+    {
+        sprites.clear();
+    }
+
+    /**
+     * @param g the graphics the sprite will be painted on, its transform determines the scale
+     * @param icon the marker icon
+     * @param anchorX the x coordinate of the marker tip within the icon
+     * @param anchorY the y coordinate of the marker tip within the icon
+     * @param c the component passed to {@link Icon#paintIcon(Component, java.awt.Graphics, int, int)}
+     * @return the sprite of the icon at the scale of the graphics
+     */
+    public Sprite getSprite(Graphics2D g, Icon icon, int anchorX, int anchorY, Component c)
+    {
+        double scaleX = scaleX(g.getTransform());
+        double scaleY = scaleY(g.getTransform());
+        Key key = new Key(icon, anchorX, anchorY, scaleX, scaleY);
+        synchronized (this)
+        {
+            Sprite sprite = sprites.get(key);
+            if (sprite == null)
+            {
+                int w = icon.getIconWidth();
+                int h = icon.getIconHeight();
+                BufferedImage img = GraphicsUtilities.createCompatibleTranslucentImage(
+                        Math.max(1, (int) Math.ceil(w * scaleX)), Math.max(1, (int) Math.ceil(h * scaleY)));
+                Graphics2D ig = img.createGraphics();
+                try
+                {
+                    ig.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                    ig.scale(scaleX, scaleY);
+                    icon.paintIcon(c, ig, 0, 0);
+                }
+                finally
+                {
+                    ig.dispose();
+                }
+                sprite = new Sprite(img, w, h, anchorX, anchorY);
+                sprites.put(key, sprite);
+            }
+            return sprite;
+        }
+    }
+
+    /**
+     * @param g the graphics the sprite will be painted on, its transform determines the scale
+     * @param image the marker image
+     * @param anchorX the x coordinate of the marker tip within the image
+     * @param anchorY the y coordinate of the marker tip within the image
+     * @return the image as a compatible sprite
+     */
+    public Sprite getSprite(Graphics2D g, BufferedImage image, int anchorX, int anchorY)
+    {
+        // an image has one resolution only, it is not rasterised per scale
+        Key key = new Key(image, anchorX, anchorY, 1, 1);
+        synchronized (this)
+        {
+            Sprite sprite = sprites.get(key);
+            if (sprite == null)
+            {
+                sprite = new Sprite(GraphicsUtilities.toCompatibleImage(image),
+                        image.getWidth(), image.getHeight(), anchorX, anchorY);
+                sprites.put(key, sprite);
+            }
+            return sprite;
+        }
+    }
+
+    private static double scaleX(AffineTransform t)
+    {
+        return round(Math.hypot(t.getScaleX(), t.getShearY()));
+    }
+
+    private static double scaleY(AffineTransform t)
+    {
+        return round(Math.hypot(t.getShearX(), t.getScaleY()));
+    }
+
+    // avoid a new sprite for every tiny difference in scale
+    private static double round(double scale)
+    {
+        return scale <= 0 ? 1 : Math.round(scale * 100) / 100.0;
+    }
+
+    /**
+     * A rasterised marker
+     */
+    public static final class Sprite
+    {
+        private final BufferedImage image;
+        private final int width;
+        private final int height;
+        private final int anchorX;
+        private final int anchorY;
+
+        Sprite(BufferedImage image, int width, int height, int anchorX, int anchorY)
+        {
+            this.image = image;
+            this.width = width;
+            this.height = height;
+            this.anchorX = anchorX;
+            this.anchorY = anchorY;
+        }
+
+        /**
+         * @return the rasterised image, at device resolution
+         */
+        public BufferedImage getImage()
+        {
+            return image;
+        }
+
+        /**
+         * Paints the sprite with its anchor at the given point
+         * @param g the graphics
+         * @param x the x coordinate in user space
+         * @param y the y coordinate in user space
+         */
+        public void paint(Graphics2D g, double x, double y)
+        {
+            int px = (int) x - anchorX;
+            int py = (int) y - anchorY;
+            if (image.getWidth() == width && image.getHeight() == height)
+            {
+                g.drawImage(image, px, py, null);
+            }
+            else
+            {
+                g.drawImage(image, px, py, width, height, null);
+            }
+        }
+    }
+
+    private static final class Key
+    {
+        final Object style;
+        final int anchorX;
+        final int anchorY;
+        final double scaleX;
+        final double scaleY;
+
+        Key(Object style, int anchorX, int anchorY, double scaleX, double scaleY)
+        {
+            this.style = style;
+            this.anchorX = anchorX;
+            this.anchorY = anchorY;
+            this.scaleX = scaleX;
+            this.scaleY = scaleY;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (!(obj instanceof Key))
+            {
+                return false;
+            }
+            Key k = (Key) obj;
+            return style.equals(k.style) && anchorX == k.anchorX && anchorY == k.anchorY
+                    && scaleX == k.scaleX && scaleY == k.scaleY;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            int h = style.hashCode();
+            h = 31 * h + anchorX;
+            h = 31 * h + anchorY;
+            h = 31 * h + Double.hashCode(scaleX);
+            return 31 * h + Double.hashCode(scaleY);
+        }
+    }
+}
@@ -14,6 +14,7 @@ import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.stream.IntStream;
 
 import org.jxmapviewer.JXMapViewer;
 import org.jxmapviewer.viewer.GeoBounds;
@@ -28,6 +29,9 @@ import org.jxmapviewer.viewer.TileFactoryInfo;
  */
 public final class GeoUtil
 {
+    // positions per task of a parallel projection, smaller inputs are projected by the calling thread
+    private static final int PARALLEL_CHUNK = 16384;
+
     /**
      * @param zoom the zoom level
      * @param info the tile factory info
@@ -113,6 +117,83 @@ public final class GeoUtil
         return new Point2D.Double(x, y);
     }
 
+    /**
+     * Projects many positions at once into <em>pixels</em>, without allocating a point per position. The results
+     * are equal to {@link #getBitmapCoordinate(double, double, int, TileFactoryInfo)}.
+     * @param latitudes the latitudes
+     * @param longitudes the longitudes
+     * @param zoomLevel the zoom level to extract the pixel coordinates for
+     * @param info the tile factory info
+     * @param xs receives the x coordinates, at the same index as the position
+     * @param ys receives the y coordinates, at the same index as the position
+     */
+    public static void getBitmapCoordinates(double[] latitudes, double[] longitudes, int zoomLevel,
+            TileFactoryInfo info, double[] xs, double[] ys)
+    {
+        getBitmapCoordinates(latitudes, longitudes, 0, latitudes.length, zoomLevel, info, xs, ys, false);
+    }
+
+    /**
+     * Projects many positions at once into <em>pixels</em>, without allocating a point per position. The results
+     * are equal to {@link #getBitmapCoordinate(double, double, int, TileFactoryInfo)}.
+     * @param latitudes the latitudes
+     * @param longitudes the longitudes
+     * @param offset the index of the first position
+     * @param length the number of positions
+     * @param zoomLevel the zoom level to extract the pixel coordinates for
+     * @param info the tile factory info
+     * @param xs receives the x coordinates, at the same index as the position
+     * @param ys receives the y coordinates, at the same index as the position
+     * @param parallel true to split large inputs across the common fork join pool
+     */
+    public static void getBitmapCoordinates(final double[] latitudes, final double[] longitudes, final int offset,
+            final int length, int zoomLevel, TileFactoryInfo info, final double[] xs, final double[] ys,
+            boolean parallel)
+    {
+        if (offset < 0 || length < 0 || offset + length > Math.min(latitudes.length, longitudes.length)
+                || offset + length > Math.min(xs.length, ys.length))
+        {
+            throw new IndexOutOfBoundsException("offset " + offset + ", length " + length);
+        }
+        Point2D center = info.getMapCenterInPixelsAtZoom(zoomLevel);
+        final double cx = center.getX();
+        final double cy = center.getY();
+        final double degreeWidth = info.getLongitudeDegreeWidthInPixels(zoomLevel);
+        final double radianWidth = info.getLongitudeRadianWidthInPixels(zoomLevel);
+
+        if (!parallel || length < 2 * PARALLEL_CHUNK)
+        {
+            project(latitudes, longitudes, offset, offset + length, cx, cy, degreeWidth, radianWidth, xs, ys);
+            return;
+        }
+        int chunks = (length + PARALLEL_CHUNK - 1) / PARALLEL_CHUNK;
+        IntStream.range(0, chunks).parallel().forEach(c -> {
+            int from = offset + c * PARALLEL_CHUNK;
+            int to = Math.min(offset + length, from + PARALLEL_CHUNK);
+            project(latitudes, longitudes, from, to, cx, cy, degreeWidth, radianWidth, xs, ys);
+        });
+    }
+
+    // the same arithmetic as getBitmapCoordinate, with the per zoom factors hoisted out of the loop
+    private static void project(double[] latitudes, double[] longitudes, int from, int to, double cx, double cy,
+            double degreeWidth, double radianWidth, double[] xs, double[] ys)
+    {
+        for (int i = from; i < to; i++)
+        {
+            xs[i] = cx + longitudes[i] * degreeWidth;
+            double e = Math.sin(latitudes[i] * (Math.PI / 180.0));
+            if (e > 0.9999)
+            {
+                e = 0.9999;
+            }
+            if (e < -0.9999)
+            {
+                e = -0.9999;
+            }
+            ys[i] = cy + 0.5 * Math.log((1 + e) / (1 - e)) * -1 * radianWidth;
+        }
+    }
+
     /** 
      * Convert an on screen pixel coordinate and a zoom level to a geo position
      * @param pixelCoordinate the coordinate in pixels
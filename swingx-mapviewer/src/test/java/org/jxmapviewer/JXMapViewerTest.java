@@ -4,11 +4,16 @@ import org.junit.Test;
 import org.jxmapviewer.viewer.DefaultTileFactory;
 import org.jxmapviewer.viewer.GeoPosition;
 import org.jxmapviewer.viewer.TileFactoryInfo;
+import java.awt.Rectangle;
+import java.awt.geom.Point2D;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 public class JXMapViewerTest {
 
@@ -142,4 +147,87 @@ public class JXMapViewerTest {
         Thread.sleep(5000);
          */
     }
+
+    @Test
+    public void fractionalZoom_keeps_anchor() {
+        JXMapViewer mapViewer = new JXMapViewer();
+        mapViewer.setTileFactory(new DefaultTileFactory(new OSMTileFactoryInfo()));
+        mapViewer.setSize(512, 512);
+        mapViewer.setZoom(10);
+        mapViewer.setCenterPosition(new GeoPosition(50.11, 8.68));
+
+        Point2D anchor = new Point2D.Double(100, 300);
+        GeoPosition before = mapViewer.convertPointToGeoPosition(anchor);
+
+        mapViewer.setFractionalZoom(8.5, anchor);
+        assertEquals(8, mapViewer.getZoom());
+        assertEquals(8.5, mapViewer.getFractionalZoom(), 1e-9);
+        GeoPosition after = mapViewer.convertPointToGeoPosition(anchor);
+        assertEquals(before.getLatitude(), after.getLatitude(), 1e-4);
+        assertEquals(before.getLongitude(), after.getLongitude(), 1e-4);
+
+        // round trip through the scaled view
+        Point2D p = mapViewer.convertGeoPositionToPoint(new GeoPosition(50.2, 8.9));
+        GeoPosition back = mapViewer.convertPointToGeoPosition(p);
+        assertEquals(50.2, back.getLatitude(), 1e-9);
+        assertEquals(8.9, back.getLongitude(), 1e-9);
+
+        // without an animation duration the zoom changes right away
+        mapViewer.animateZoom(9, anchor);
+        assertFalse(mapViewer.isZoomAnimating());
+        assertEquals(9.0, mapViewer.getFractionalZoom(), 1e-9);
+        after = mapViewer.convertPointToGeoPosition(anchor);
+        assertEquals(before.getLatitude(), after.getLatitude(), 1e-3);
+        assertEquals(before.getLongitude(), after.getLongitude(), 1e-3);
+    }
+
+    @Test
+    public void visibleWorldBounds_cover_the_scaled_view() {
+        JXMapViewer mapViewer = new JXMapViewer();
+        mapViewer.setTileFactory(new DefaultTileFactory(new OSMTileFactoryInfo()));
+        mapViewer.setSize(512, 512);
+        mapViewer.setZoom(10);
+        mapViewer.setCenterPosition(new GeoPosition(50.11, 8.68));
+        assertEquals(mapViewer.getViewportBounds(), mapViewer.getVisibleWorldBounds());
+
+        // scaled down: more of the world bitmap of zoom 8 is visible than the viewport
+        mapViewer.setFractionalZoom(8.5, new Point2D.Double(100, 300));
+        Rectangle visible = mapViewer.getVisibleWorldBounds();
+        assertTrue(visible.width > mapViewer.getViewportBounds().width);
+        for (Point2D corner : new Point2D[] { new Point2D.Double(0, 0), new Point2D.Double(511, 511) }) {
+            GeoPosition geo = mapViewer.convertPointToGeoPosition(corner);
+            Point2D world = mapViewer.getTileFactory().geoToPixel(geo, mapViewer.getZoom());
+            assertTrue(world + " not in " + visible, visible.contains(world));
+        }
+    }
+
+    @Test
+    public void bulkConversion_matches_single_points() {
+        JXMapViewer mapViewer = new JXMapViewer();
+        mapViewer.setTileFactory(new DefaultTileFactory(new OSMTileFactoryInfo()));
+        mapViewer.setSize(512, 512);
+        mapViewer.setZoom(6);
+        mapViewer.setCenterPosition(new GeoPosition(50.11, 8.68));
+
+        // large enough to be projected in parallel
+        int n = 100000;
+        double[] lat = new double[n];
+        double[] lon = new double[n];
+        Random random = new Random(42);
+        for (int i = 0; i < n; i++) {
+            lat[i] = random.nextDouble() * 180 - 90;
+            lon[i] = random.nextDouble() * 360 - 180;
+        }
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        for (double scale : new double[] { 1, 0.75 }) {
+            mapViewer.setFractionalZoom(6 - Math.log(scale) / Math.log(2), new Point2D.Double(100, 200));
+            mapViewer.convertGeoPositionsToPoints(lat, lon, 0, n, xs, ys);
+            for (int i = 0; i < n; i += 997) {
+                Point2D p = mapViewer.convertGeoPositionToPoint(new GeoPosition(lat[i], lon[i]));
+                assertEquals(p.getX(), xs[i], 1e-9);
+                assertEquals(p.getY(), ys[i], 1e-9);
+            }
+        }
+    }
 }
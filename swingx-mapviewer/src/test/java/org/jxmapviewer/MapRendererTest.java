@@ -0,0 +1,89 @@
+package org.jxmapviewer;
+
+import static org.junit.Assert.assertEquals;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.ImageIO;
+import javax.swing.Painter;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.jxmapviewer.viewer.DefaultTileFactory;
+import org.jxmapviewer.viewer.GeoBounds;
+import org.jxmapviewer.viewer.GeoPosition;
+import org.jxmapviewer.viewer.TileFactoryInfo;
+
+public class MapRendererTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void render_tiles_and_overlay_in_bands() throws Exception {
+        BufferedImage tile = new BufferedImage(256, 256, BufferedImage.TYPE_INT_RGB);
+        Graphics2D tg = tile.createGraphics();
+        tg.setColor(Color.GREEN);
+        tg.fillRect(0, 0, 256, 256);
+        tg.dispose();
+        File file = new File(folder.getRoot(), "tile.png");
+        ImageIO.write(tile, "png", file);
+        final String url = file.toURI().toString();
+        TileFactoryInfo info = new TileFactoryInfo(0, 17, 17, 256, true, true, url, "x", "y", "z") {
+            @Override
+            public String getTileUrl(int x, int y, int zoom) {
+                return url + "?x=" + x + "&y=" + y + "&z=" + zoom;
+            }
+        };
+        final DefaultTileFactory factory = new DefaultTileFactory(info);
+        try {
+            final GeoPosition center = new GeoPosition(0, 0);
+            MapRenderer renderer = new MapRenderer(factory);
+            renderer.setMaxTilesPerBand(2);
+            renderer.addOverlay(new Painter<JXMapViewer>() {
+                @Override
+                public void paint(Graphics2D g, JXMapViewer map, int width, int height) {
+                    Point2D p = map.convertGeoPositionToPoint(center);
+                    g.setColor(Color.RED);
+                    g.fillRect((int) p.getX() - 2, (int) p.getY() - 2, 4, 4);
+                }
+            });
+            final AtomicInteger done = new AtomicInteger();
+            final AtomicInteger total = new AtomicInteger();
+            renderer.setProgressListener(new MapRenderer.ProgressListener() {
+                @Override
+                public void progress(int d, int t) {
+                    done.set(d);
+                    total.set(t);
+                }
+            });
+
+            GeoBounds bounds = new GeoBounds(-60, -90, 60, 90);
+            int zoom = 15;
+            BufferedImage image = renderer.render(bounds, zoom);
+            Dimension size = renderer.getImageSize(bounds, zoom);
+            assertEquals(512, size.width);
+            assertEquals(size.width, image.getWidth());
+            assertEquals(size.height, image.getHeight());
+            assertEquals(total.get(), done.get());
+            assertEquals(4, total.get());
+
+            Point2D nw = factory.geoToPixel(bounds.getNorthWest(), zoom);
+            Point2D c = factory.geoToPixel(center, zoom);
+            int x0 = (int) Math.floor(nw.getX());
+            int y0 = (int) Math.floor(nw.getY());
+            assertEquals(Color.GREEN.getRGB(), image.getRGB(10, 10));
+            assertEquals(Color.GREEN.getRGB(), image.getRGB(size.width - 10, size.height - 10));
+            assertEquals(Color.RED.getRGB(), image.getRGB((int) c.getX() - x0, (int) c.getY() - y0));
+        } finally {
+            factory.dispose();
+        }
+    }
+}
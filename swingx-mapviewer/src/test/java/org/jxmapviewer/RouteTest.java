@@ -0,0 +1,73 @@
+package org.jxmapviewer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+
+import org.junit.Test;
+import org.jxmapviewer.viewer.GeoPosition;
+import org.jxmapviewer.viewer.TileFactoryInfo;
+import org.jxmapviewer.viewer.util.GeoUtil;
+
+public class RouteTest {
+
+    private final TileFactoryInfo info = new OSMTileFactoryInfo();
+
+    @Test
+    public void simplified_per_zoom_level() {
+        Route route = new Route();
+        // a zigzag with an amplitude of about 10 pixels at zoom 5
+        for (int i = 0; i < 5000; i++) {
+            route.add(50 + (i % 2) * 0.0005, 8 + i * 0.0001);
+        }
+        int fine = route.getSimplifiedSize(info, 5);
+        int coarse = route.getSimplifiedSize(info, 12);
+        assertEquals(5000, fine);
+        assertTrue("coarse " + coarse, coarse < 50);
+
+        // appended points are simplified incrementally with the same result at the fine level
+        Route live = new Route();
+        for (int i = 0; i < 5000; i++) {
+            live.add(50 + (i % 2) * 0.0005, 8 + i * 0.0001);
+            if (i % 100 == 0) {
+                live.getSimplifiedSize(info, 5);
+                live.getSimplifiedSize(info, 12);
+            }
+        }
+        assertEquals(5000, live.getSimplifiedSize(info, 5));
+        assertTrue(live.getSimplifiedSize(info, 12) < 100);
+    }
+
+    @Test
+    public void clipped_to_bounds() {
+        Route route = new Route();
+        for (int i = 0; i <= 1000; i++) {
+            // about 36 pixels per segment at zoom 10
+            route.add((i % 2) * 0.01, -50 + i * 0.1);
+        }
+        int zoom = 10;
+        Point2D from = GeoUtil.getBitmapCoordinate(new GeoPosition(0, -1), zoom, info);
+        Point2D to = GeoUtil.getBitmapCoordinate(new GeoPosition(0, 1), zoom, info);
+        Rectangle2D bounds = new Rectangle2D.Double(from.getX(), from.getY() - 10, to.getX() - from.getX(), 20);
+
+        Path2D path = new Path2D.Double();
+        route.setTolerance(0);
+        route.appendTo(path, info, zoom, bounds);
+        Rectangle2D drawn = path.getBounds2D();
+        assertEquals(from.getX(), drawn.getMinX(), 40);
+        assertEquals(to.getX(), drawn.getMaxX(), 40);
+
+        // a single connected line
+        int moves = 0;
+        for (PathIterator it = path.getPathIterator(null); !it.isDone(); it.next()) {
+            if (it.currentSegment(new double[6]) == PathIterator.SEG_MOVETO) {
+                moves++;
+            }
+        }
+        assertEquals(1, moves);
+    }
+}
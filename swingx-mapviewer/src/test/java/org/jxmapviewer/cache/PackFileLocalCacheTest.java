@@ -0,0 +1,110 @@
+package org.jxmapviewer.cache;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PackFileLocalCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static URL url(int zoom, int x, int y) throws IOException {
+        return new URL("http://tile.example.org/" + zoom + "/" + x + "/" + y + ".png");
+    }
+
+    private static byte[] data(int seed, int length) {
+        byte[] b = new byte[length];
+        for (int i = 0; i < length; i++) {
+            b[i] = (byte) (seed + i);
+        }
+        return b;
+    }
+
+    private static byte[] read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[100];
+        int n;
+        while ((n = in.read(buf)) > 0) {
+            out.write(buf, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    public void testPutGetAndReopen() throws IOException {
+        PackFileLocalCache cache = new PackFileLocalCache(folder.getRoot());
+        assertNull(cache.get(url(1, 2, 3)));
+        cache.put(url(1, 2, 3), new ByteArrayInputStream(data(1, 500)));
+        cache.put(url(1, 2, 4), new ByteArrayInputStream(data(2, 700)));
+        assertArrayEquals(data(1, 500), read(cache.get(url(1, 2, 3))));
+        cache.close();
+
+        cache = new PackFileLocalCache(folder.getRoot());
+        assertEquals(2, cache.size());
+        assertArrayEquals(data(1, 500), read(cache.get(url(1, 2, 3))));
+        assertArrayEquals(data(2, 700), read(cache.get(url(1, 2, 4))));
+        cache.close();
+    }
+
+    @Test
+    public void testRollOverAndCompact() throws IOException {
+        PackFileLocalCache cache = new PackFileLocalCache(folder.getRoot(), 4096);
+        for (int i = 0; i < 20; i++) {
+            cache.put(url(5, i, 0), new ByteArrayInputStream(data(i, 1000)));
+        }
+        // replace half of them
+        for (int i = 0; i < 10; i++) {
+            cache.put(url(5, i, 0), new ByteArrayInputStream(data(-i, 1000)));
+        }
+        assertEquals(20, cache.size());
+        assertEquals(true, cache.getGarbageBytes() > 10 * 1000);
+        int before = folder.getRoot().list().length;
+
+        cache.compact();
+
+        assertEquals(0, cache.getGarbageBytes());
+        assertEquals(true, folder.getRoot().list().length < before);
+        for (int i = 0; i < 20; i++) {
+            assertArrayEquals(data(i < 10 ? -i : i, 1000), read(cache.get(url(5, i, 0))));
+        }
+        cache.close();
+
+        cache = new PackFileLocalCache(folder.getRoot(), 4096);
+        assertEquals(20, cache.size());
+        assertEquals(0, cache.getGarbageBytes());
+        cache.close();
+    }
+
+    @Test
+    public void testIncompleteRecordIsDropped() throws IOException {
+        PackFileLocalCache cache = new PackFileLocalCache(folder.getRoot());
+        cache.put(url(1, 1, 1), new ByteArrayInputStream(data(1, 100)));
+        cache.close();
+
+        File pack = folder.getRoot().listFiles()[0];
+        long length = pack.length();
+        FileOutputStream out = new FileOutputStream(pack, true);
+        out.write(new byte[] { 0x4A, 0x58, 0x54, 0x4C, 0, 0 });
+        out.close();
+
+        cache = new PackFileLocalCache(folder.getRoot());
+        assertEquals(length, pack.length());
+        cache.put(url(1, 1, 2), new ByteArrayInputStream(data(2, 100)));
+        assertArrayEquals(data(1, 100), read(cache.get(url(1, 1, 1))));
+        assertArrayEquals(data(2, 100), read(cache.get(url(1, 1, 2))));
+        cache.close();
+    }
+}
@@ -0,0 +1,112 @@
+package org.jxmapviewer.painter;
+
+import static org.junit.Assert.assertEquals;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.jxmapviewer.JXMapViewer;
+import org.jxmapviewer.OSMTileFactoryInfo;
+import org.jxmapviewer.viewer.DefaultTileFactory;
+import org.jxmapviewer.viewer.GeoBounds;
+import org.jxmapviewer.viewer.GeoPosition;
+import org.jxmapviewer.viewer.TileFactory;
+
+public class TiledOverlayPainterTest {
+
+    /**
+     * Paints a dot at the position and remembers the painted tiles
+     */
+    static class DotOverlay implements TileOverlay {
+        final GeoPosition position;
+        final List<Rectangle> painted = new ArrayList<Rectangle>();
+
+        DotOverlay(GeoPosition position) {
+            this.position = position;
+        }
+
+        @Override
+        public void paint(Graphics2D g, TileFactory tileFactory, int zoom, Rectangle bounds) {
+            painted.add(bounds);
+            Point2D p = tileFactory.geoToPixel(position, zoom);
+            g.setColor(Color.RED);
+            g.fillRect((int) p.getX() - 2, (int) p.getY() - 2, 4, 4);
+        }
+    }
+
+    @Test
+    public void testTilesAreCachedAndInvalidated() {
+        JXMapViewer map = new JXMapViewer();
+        map.setTileFactory(new DefaultTileFactory(new OSMTileFactoryInfo()));
+        map.setSize(512, 512);
+        map.setZoom(10);
+        GeoPosition frankfurt = new GeoPosition(50.11, 8.68);
+        map.setAddressLocation(frankfurt);
+
+        DotOverlay overlay = new DotOverlay(frankfurt);
+        TiledOverlayPainter painter = new TiledOverlayPainter(overlay);
+        BufferedImage target = new BufferedImage(512, 512, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = target.createGraphics();
+
+        painter.paint(g, map, 512, 512);
+        int tiles = overlay.painted.size();
+        assertEquals(tiles, painter.getCachedTileCount());
+        assertEquals(Color.RED.getRGB(), target.getRGB(256, 256));
+
+        painter.paint(g, map, 512, 512);
+        assertEquals(tiles, overlay.painted.size());
+
+        // far away: nothing to paint again
+        painter.invalidate(new GeoBounds(10, 10, 11, 11));
+        painter.paint(g, map, 512, 512);
+        assertEquals(tiles, overlay.painted.size());
+
+        painter.invalidate(new GeoBounds(50.1, 8.67, 50.12, 8.69));
+        painter.paint(g, map, 512, 512);
+        assertEquals(tiles + 1, overlay.painted.size());
+        g.dispose();
+    }
+
+    @Test
+    public void testCacheScaleIsQuantised() {
+        assertEquals(1, TiledOverlayPainter.getCacheScale(0.5), 0);
+        assertEquals(1, TiledOverlayPainter.getCacheScale(1.005), 0);
+        assertEquals(2, TiledOverlayPainter.getCacheScale(1.25), 0);
+        assertEquals(2, TiledOverlayPainter.getCacheScale(1.75), 0);
+        assertEquals(2, TiledOverlayPainter.getCacheScale(2), 0);
+        assertEquals(4, TiledOverlayPainter.getCacheScale(2.5), 0);
+    }
+
+    @Test
+    public void testTilesAreKeptDuringZoomAnimation() {
+        JXMapViewer map = new JXMapViewer();
+        map.setTileFactory(new DefaultTileFactory(new OSMTileFactoryInfo()));
+        map.setSize(512, 512);
+        map.setZoom(10);
+        map.setAddressLocation(new GeoPosition(50.11, 8.68));
+
+        DotOverlay overlay = new DotOverlay(new GeoPosition(50.11, 8.68));
+        TiledOverlayPainter painter = new TiledOverlayPainter(overlay);
+        BufferedImage target = new BufferedImage(512, 512, BufferedImage.TYPE_INT_ARGB);
+        int painted = -1;
+        // frames of a zoom animation: the graphics scale changes on every frame
+        for (double scale = 1.1; scale < 1.5; scale += 0.05) {
+            Graphics2D g = target.createGraphics();
+            g.translate(256, 256);
+            g.scale(scale, scale);
+            g.translate(-256, -256);
+            painter.paint(g, map, 512, 512);
+            g.dispose();
+            if (painted < 0) {
+                painted = overlay.painted.size();
+            }
+        }
+        assertEquals("tiles rasterised again", painted, overlay.painted.size());
+    }
+}
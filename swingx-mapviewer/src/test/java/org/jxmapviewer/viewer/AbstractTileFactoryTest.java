@@ -0,0 +1,266 @@
+package org.jxmapviewer.viewer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.ImageIO;
+import javax.swing.SwingUtilities;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.jxmapviewer.OSMTileFactoryInfo;
+
+public class AbstractTileFactoryTest {
+
+    /**
+     * Collects the tile runners without running them, so the queue can be inspected.
+     */
+    static class HoldingExecutor extends AbstractExecutorService {
+        final List<Runnable> tasks = new ArrayList<Runnable>();
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        @Override
+        public void shutdown() {
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return false;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return false;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return true;
+        }
+    }
+
+    /**
+     * Serves a single png for all tiles from a local folder.
+     */
+    static TileFactoryInfo createFileTileInfo(File folder) throws IOException {
+        BufferedImage img = new BufferedImage(256, 256, BufferedImage.TYPE_INT_RGB);
+        File tile = new File(folder, "tile.png");
+        ImageIO.write(img, "png", tile);
+        final String url = tile.toURI().toString();
+        return new TileFactoryInfo(0, 17, 17, 256, true, true, folder.toURI().toString(), "x", "y", "z") {
+            @Override
+            public String getTileUrl(int x, int y, int zoom) {
+                return url + "?x=" + x + "&y=" + y + "&z=" + zoom;
+            }
+        };
+    }
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private HoldingExecutor executor;
+    private AbstractTileFactory factory;
+
+    @Before
+    public void setUp() {
+        executor = new HoldingExecutor();
+        factory = new AbstractTileFactory(new OSMTileFactoryInfo()) {
+            @Override
+            protected ExecutorService getService() {
+                return executor;
+            }
+        };
+    }
+
+    @Test
+    public void testOffscreenTilesAreCancelled() {
+        int zoom = 10; // 512 x 512 tiles
+        factory.setViewport(new Rectangle(100, 100, 4, 4), zoom);
+        Tile visible = factory.getTile(101, 101, zoom);
+        Tile offscreen = factory.getTile(300, 300, zoom);
+        Tile otherZoom = factory.getTile(101, 101, zoom - 3);
+        assertEquals(3, factory.getPendingTiles());
+
+        factory.setViewport(new Rectangle(101, 100, 4, 4), zoom);
+
+        assertEquals(1, factory.getPendingTiles());
+        assertEquals(2, factory.getCancelledTiles());
+        assertFalse(offscreen.isLoading());
+        assertFalse(otherZoom.isLoading());
+        // a cancelled tile is requested again when it becomes visible
+        assertSame(visible, factory.getTile(101, 101, zoom));
+        assertNotSame(offscreen, factory.getTile(300, 300, zoom));
+    }
+
+    @Test
+    public void testSameViewportKeepsQueue() {
+        int zoom = 10;
+        Rectangle bounds = new Rectangle(100, 100, 4, 4);
+        factory.setViewport(bounds, zoom);
+        factory.getTile(102, 102, zoom);
+        factory.getTile(103, 110, zoom);
+        factory.setViewport(new Rectangle(bounds), zoom);
+        assertEquals(2, factory.getPendingTiles());
+        assertEquals(0, factory.getCancelledTiles());
+    }
+
+    @Test
+    public void testCancelledRunnerDoesNothing() {
+        int zoom = 10;
+        factory.getTile(300, 300, zoom);
+        factory.setViewport(new Rectangle(100, 100, 4, 4), zoom);
+        assertEquals(0, factory.getPendingTiles());
+        // the runner submitted for the cancelled tile finds an empty queue
+        executor.tasks.get(0).run();
+        assertEquals(0, factory.getPendingTiles());
+    }
+
+    @Test
+    public void testPrefetchRingAndParent() {
+        int zoom = 10;
+        TilePrefetcher prefetcher = new TilePrefetcher();
+        prefetcher.setChildLevel(false);
+        prefetcher.setMaxOutstanding(100);
+        factory.setPrefetcher(prefetcher);
+        factory.setViewport(new Rectangle(100, 100, 4, 4), zoom);
+
+        // a ring of 6x6-4x4 tiles plus 4x4 tiles one level up
+        assertEquals(20 + 16, factory.getPendingPrefetches());
+        assertEquals(factory.getPendingTiles(), factory.getPendingPrefetches());
+        // visible tiles are requested with high priority and promote queued ones
+        Tile ring = factory.getTile(104, 104, zoom);
+        assertEquals(Tile.Priority.High, ring.getPriority());
+        assertEquals(20 + 16 - 1, factory.getPendingPrefetches());
+    }
+
+    @Test
+    public void testPrefetchBudget() {
+        TilePrefetcher prefetcher = new TilePrefetcher();
+        prefetcher.setMaxOutstanding(8);
+        factory.setPrefetcher(prefetcher);
+        factory.setViewport(new Rectangle(100, 100, 4, 4), 10);
+        assertEquals(8, factory.getPendingPrefetches());
+
+        prefetcher.setMaxOutstanding(100);
+        prefetcher.setMaxOutstandingBytes(10 * factory.getAverageTileBytes());
+        factory.setViewport(new Rectangle(100, 100, 4, 4), 10);
+        assertEquals(10, factory.getPendingPrefetches());
+    }
+
+    @Test
+    public void testAsyncPublishingBatchesTiles() throws Exception {
+        DefaultTileFactory tf = new DefaultTileFactory(createFileTileInfo(folder.getRoot()));
+        tf.setAsyncPublishing(true);
+        final AtomicInteger loaded = new AtomicInteger();
+        final AtomicInteger batches = new AtomicInteger();
+        tf.addTileListener(new TileListener() {
+            @Override
+            public void tileLoaded(Tile tile) {
+                loaded.incrementAndGet();
+            }
+
+            @Override
+            public void tilesLoaded(List<Tile> tiles) {
+                assertTrue(SwingUtilities.isEventDispatchThread());
+                batches.incrementAndGet();
+                loaded.addAndGet(tiles.size());
+            }
+        });
+        final List<Tile> tiles = new ArrayList<Tile>();
+        for (int x = 0; x < 4; x++) {
+            tiles.add(tf.getTile(x, 0, 10));
+        }
+        long end = System.currentTimeMillis() + 10000;
+        while (loaded.get() < tiles.size() && System.currentTimeMillis() < end) {
+            Thread.sleep(20);
+        }
+        SwingUtilities.invokeAndWait(new Runnable() {
+            @Override
+            public void run() {
+                for (Tile tile : tiles) {
+                    assertTrue(tile.isLoaded());
+                }
+            }
+        });
+        assertEquals(tiles.size(), loaded.get());
+        assertTrue(batches.get() >= 1 && batches.get() <= tiles.size());
+        tf.dispose();
+    }
+
+    @Test
+    public void testLoadedImageDoesNotLoad() throws Exception {
+        AbstractTileFactory tf = new AbstractTileFactory(createFileTileInfo(folder.getRoot())) {
+            @Override
+            protected ExecutorService getService() {
+                return executor;
+            }
+        };
+        assertNull(tf.getLoadedImage(3, 4, 10));
+        assertEquals(0, tf.getPendingTiles());
+
+        final Tile tile = tf.getTile(3, 4, 10);
+        executor.tasks.get(0).run();
+        assertTrue(tile.isLoaded());
+        assertNotNull(tf.getLoadedImage(3, 4, 10));
+        // wrapped horizontally like getTile
+        assertNotNull(tf.getLoadedImage(3 - 512, 4, 10));
+        assertNull(tf.getLoadedImage(3, 5, 10));
+        assertNull(tf.getLoadedImage(3, -1, 10));
+        assertEquals(0, tf.getPendingTiles());
+    }
+
+    @Test
+    public void testStatsRecordLoading() throws Exception {
+        AbstractTileFactory tf = new AbstractTileFactory(createFileTileInfo(folder.getRoot())) {
+            @Override
+            protected ExecutorService getService() {
+                return executor;
+            }
+        };
+        TileLoadingStats stats = tf.getStats();
+        Tile tile = tf.getTile(3, 4, 10);
+        executor.tasks.get(0).run();
+        assertTrue(tile.isLoaded());
+        assertSame(tile, tf.getTile(3, 4, 10));
+
+        assertEquals(2, stats.getTileRequests());
+        assertEquals(0.5, stats.getTileRegistryHitRatio(), 1e-9);
+        assertEquals(1, stats.getMemoryCacheMisses());
+        assertEquals(1, stats.getDiskCacheMisses());
+        assertEquals(1, stats.getDownloadLatency().getCount());
+        assertEquals(Collections.singleton("local"), stats.getDownloadLatencyByHost().keySet());
+        assertTrue(stats.getBytesFetched() > 0);
+        assertEquals(1, stats.getDecodeTime().getCount());
+        assertEquals(1, stats.getQueueWait().getCount());
+        assertEquals(1, stats.getPublishLatency().getCount());
+        assertEquals(0, stats.getFailures());
+    }
+}
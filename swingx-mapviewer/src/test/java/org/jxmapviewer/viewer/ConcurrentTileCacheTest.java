@@ -0,0 +1,115 @@
+package org.jxmapviewer.viewer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.jxmapviewer.viewer.ConcurrentTileCache.Tier;
+
+public class ConcurrentTileCacheTest {
+
+    private static final long TILE_BYTES = 16 * 16 * 4;
+
+    private static URI uri(int i) {
+        return URI.create("http://tiles.example.org/" + i + ".png");
+    }
+
+    private static BufferedImage image() {
+        return new BufferedImage(16, 16, BufferedImage.TYPE_INT_ARGB);
+    }
+
+    @Test
+    public void testHitAndMiss() throws IOException {
+        ConcurrentTileCache cache = new ConcurrentTileCache();
+        BufferedImage img = image();
+        cache.put(uri(1), new byte[10], img);
+
+        assertSame(img, cache.get(uri(1)));
+        assertNull(cache.get(uri(2)));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(TILE_BYTES, cache.getSize(Tier.IMAGE));
+        assertEquals(10, cache.getSize(Tier.COMPRESSED));
+    }
+
+    @Test
+    public void testImageBudgetIsKept() throws IOException {
+        ConcurrentTileCache cache = new ConcurrentTileCache(3 * TILE_BYTES, Long.MAX_VALUE);
+        final List<URI> evicted = new ArrayList<URI>();
+        cache.addEvictionListener(new ConcurrentTileCache.EvictionListener() {
+            @Override
+            public void evicted(URI uri, Tier tier, long bytes) {
+                if (tier == Tier.IMAGE) {
+                    evicted.add(uri);
+                }
+            }
+        });
+        for (int i = 0; i < 3; i++) {
+            cache.put(uri(i), null, image());
+        }
+        // touch the eldest, so the clock hand spares it
+        assertNotNull(cache.get(uri(0)));
+        cache.put(uri(3), null, image());
+
+        assertEquals(3, cache.getEntryCount(Tier.IMAGE));
+        assertEquals(3 * TILE_BYTES, cache.getSize(Tier.IMAGE));
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(uri(1), evicted.get(0));
+        assertNotNull(cache.get(uri(0)));
+    }
+
+    @Test
+    public void testReplaceKeepsAccounting() {
+        ConcurrentTileCache cache = new ConcurrentTileCache();
+        cache.put(uri(1), new byte[10], null);
+        cache.put(uri(1), new byte[20], null);
+        assertEquals(1, cache.getEntryCount(Tier.COMPRESSED));
+        assertEquals(20, cache.getSize(Tier.COMPRESSED));
+    }
+
+    @Test
+    public void testReplacedValueIsReleased() throws InterruptedException {
+        ConcurrentTileCache cache = new ConcurrentTileCache();
+        byte[] first = new byte[1000];
+        WeakReference<byte[]> ref = new WeakReference<byte[]>(first);
+        cache.put(uri(1), first, null);
+        first = null;
+        // under capacity, so nothing is evicted and the stale entry stays in the clock queue
+        cache.put(uri(1), new byte[1000], null);
+        for (int i = 0; i < 20 && ref.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull("replaced value still referenced", ref.get());
+        assertEquals(1000, cache.getSize(Tier.COMPRESSED));
+    }
+
+    @Test
+    public void testShrinkCapacity() {
+        ConcurrentTileCache cache = new ConcurrentTileCache();
+        for (int i = 0; i < 10; i++) {
+            cache.put(uri(i), new byte[100], null);
+        }
+        cache.setCapacity(Tier.COMPRESSED, 250);
+        assertEquals(2, cache.getEntryCount(Tier.COMPRESSED));
+        assertEquals(8, cache.getEvictionCount());
+    }
+
+    @Test
+    public void testNeedMoreMemoryKeepsCompressed() {
+        ConcurrentTileCache cache = new ConcurrentTileCache();
+        cache.put(uri(1), new byte[10], image());
+        cache.needMoreMemory();
+        assertEquals(0, cache.getSize(Tier.IMAGE));
+        assertEquals(1, cache.getEntryCount(Tier.COMPRESSED));
+    }
+}
@@ -0,0 +1,189 @@
+package org.jxmapviewer.viewer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.BufferedReader;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HttpTileFetcherTest {
+
+    private static final byte[] TILE = new byte[] { 1, 2, 3, 4 };
+
+    private ServerSocket server;
+    private ExecutorService executor;
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger maxRunning = new AtomicInteger();
+    private final AtomicInteger failures = new AtomicInteger();
+    private final AtomicInteger datedFailures = new AtomicInteger();
+
+    /**
+     * A minimal HTTP/1.1 tile server, one request per connection
+     */
+    @Before
+    public void setUp() throws IOException {
+        server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        executor = Executors.newCachedThreadPool();
+        executor.execute(() -> {
+            while (!server.isClosed()) {
+                try {
+                    Socket socket = server.accept();
+                    executor.execute(() -> serve(socket));
+                } catch (IOException ex) {
+                    // closed
+                }
+            }
+        });
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.close();
+        executor.shutdownNow();
+    }
+
+    private void serve(Socket socket) {
+        int now = running.incrementAndGet();
+        maxRunning.accumulateAndGet(now, Math::max);
+        boolean counted = true;
+        try (Socket s = socket) {
+            BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.ISO_8859_1));
+            String path = in.readLine().split(" ")[1];
+            String etag = null;
+            String line;
+            while ((line = in.readLine()) != null && !line.isEmpty()) {
+                if (line.toLowerCase().startsWith("if-none-match:")) {
+                    etag = line.substring(14).trim();
+                }
+            }
+            Thread.sleep(20);
+            // before responding: the client may start its next request as soon as it has the response
+            running.decrementAndGet();
+            counted = false;
+            OutputStream out = s.getOutputStream();
+            if (path.endsWith("/missing.png")) {
+                respond(out, "404 Not Found", "");
+            } else if (path.endsWith("/flaky.png") && failures.getAndIncrement() < 2) {
+                respond(out, "503 Service Unavailable", "");
+            } else if (path.endsWith("/dated.png") && datedFailures.getAndIncrement() < 1) {
+                respond(out, "429 Too Many Requests", "Retry-After: Wed, 21 Oct 2015 07:28:00 GMT\r\n");
+            } else if ("\"v1\"".equals(etag)) {
+                respond(out, "304 Not Modified", "");
+            } else {
+                respond(out, "200 OK", "ETag: \"v1\"\r\n");
+                out.write(TILE);
+            }
+            out.flush();
+        } catch (IOException ex) {
+            // client gone
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (counted) {
+                running.decrementAndGet();
+            }
+        }
+    }
+
+    private static void respond(OutputStream out, String status, String headers) throws IOException {
+        int length = status.startsWith("200") ? TILE.length : 0;
+        String head = "HTTP/1.1 " + status + "\r\n" + headers + "Content-Length: " + length
+                + "\r\nConnection: close\r\n\r\n";
+        out.write(head.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    private URL url(String name) throws IOException {
+        return new URL("http://127.0.0.1:" + server.getLocalPort() + "/tiles/" + name);
+    }
+
+    @Test
+    public void testRequestsPerHostAreLimited() throws Exception {
+        HttpTileFetcher fetcher = new HttpTileFetcher();
+        fetcher.setMaxRequestsPerHost(2);
+        List<CompletableFuture<byte[]>> futures = new ArrayList<CompletableFuture<byte[]>>();
+        for (int i = 0; i < 10; i++) {
+            futures.add(fetcher.fetch(url(i + ".png"), null));
+        }
+        for (CompletableFuture<byte[]> f : futures) {
+            assertArrayEquals(TILE, f.get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(10, fetcher.getRequestCount());
+        assertTrue("max concurrent requests: " + maxRunning.get(), maxRunning.get() <= 2);
+    }
+
+    @Test
+    public void testRetryAndMissingTile() throws Exception {
+        HttpTileFetcher fetcher = new HttpTileFetcher();
+        fetcher.setBackoff(10, 50);
+        assertArrayEquals(TILE, fetcher.fetch(url("flaky.png"), null).get(10, TimeUnit.SECONDS));
+        assertEquals(2, fetcher.getRetryCount());
+
+        try {
+            fetcher.fetch(url("missing.png"), null).get(10, TimeUnit.SECONDS);
+            fail("missing tile loaded");
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof FileNotFoundException);
+        }
+        assertEquals(2, fetcher.getRetryCount());
+    }
+
+    @Test
+    public void testRetryAfterDate() throws Exception {
+        HttpTileFetcher fetcher = new HttpTileFetcher();
+        fetcher.setBackoff(10, 50);
+        assertArrayEquals(TILE, fetcher.fetch(url("dated.png"), null).get(10, TimeUnit.SECONDS));
+        assertEquals(1, fetcher.getRetryCount());
+    }
+
+    @Test
+    public void testParseRetryAfter() {
+        long now = ZonedDateTime.parse("Wed, 21 Oct 2015 07:28:00 GMT", DateTimeFormatter.RFC_1123_DATE_TIME)
+                .toInstant().toEpochMilli();
+        assertEquals(0, HttpTileFetcher.parseRetryAfter(null, now));
+        assertEquals(120000, HttpTileFetcher.parseRetryAfter(" 120 ", now));
+        assertEquals(30000, HttpTileFetcher.parseRetryAfter("Wed, 21 Oct 2015 07:28:30 GMT", now));
+        assertEquals("date in the past", 0, HttpTileFetcher.parseRetryAfter("Wed, 21 Oct 2015 07:27:00 GMT", now));
+        assertEquals(0, HttpTileFetcher.parseRetryAfter("-5", now));
+        assertEquals(0, HttpTileFetcher.parseRetryAfter("soon", now));
+    }
+
+    @Test
+    public void testRevalidation() throws Exception {
+        HttpTileFetcher fetcher = new HttpTileFetcher();
+        byte[] cached = fetcher.fetch(url("a.png"), null).get(10, TimeUnit.SECONDS);
+
+        // without revalidation the cached data is returned right away
+        assertSame(cached, fetcher.fetch(url("a.png"), cached).get());
+        assertEquals(1, fetcher.getRequestCount());
+
+        fetcher.setRevalidate(true);
+        assertSame(cached, fetcher.fetch(url("a.png"), cached).get(10, TimeUnit.SECONDS));
+        assertEquals(2, fetcher.getRequestCount());
+        assertEquals(1, fetcher.getNotModifiedCount());
+    }
+}
@@ -0,0 +1,67 @@
+package org.jxmapviewer.viewer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+
+import org.junit.Test;
+
+public class TileLoadingStatsTest {
+
+    @Test
+    public void testHistogramPercentiles() {
+        LatencyHistogram h = new LatencyHistogram();
+        for (int i = 0; i < 90; i++) {
+            h.record(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        for (int i = 0; i < 10; i++) {
+            h.record(TimeUnit.MILLISECONDS.toNanos(100));
+        }
+        LatencyHistogram.Snapshot s = h.snapshot();
+        assertEquals(100, s.getCount());
+        assertEquals(10.9, s.getMeanMillis(), 1e-9);
+        assertEquals(100, s.getMaxMillis(), 1e-9);
+        // accurate to a factor of two
+        assertTrue(s.getMedianMillis() >= 1 && s.getMedianMillis() <= 2);
+        assertTrue(s.get95thPercentileMillis() >= 100 && s.get95thPercentileMillis() <= 200);
+
+        h.reset();
+        assertEquals(0, h.snapshot().getCount());
+        assertEquals(0, h.snapshot().getMedianMillis(), 0);
+    }
+
+    @Test
+    public void testMBean() throws Exception {
+        TileLoadingStats stats = new TileLoadingStats();
+        stats.recordMemoryCacheLookup(true);
+        stats.recordMemoryCacheLookup(true);
+        stats.recordMemoryCacheLookup(false);
+        stats.recordDownload("tile.example.org", TimeUnit.MILLISECONDS.toNanos(20), 1000);
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = stats.registerMBean("test");
+        try {
+            assertEquals(2L, server.getAttribute(name, "MemoryCacheHits"));
+            assertEquals(2 / 3.0, (Double) server.getAttribute(name, "MemoryCacheHitRatio"), 1e-9);
+            assertEquals(1000L, server.getAttribute(name, "BytesFetched"));
+            CompositeData download = (CompositeData) server.getAttribute(name, "DownloadLatency");
+            assertEquals(1L, download.get("count"));
+            TabularData byHost = (TabularData) server.getAttribute(name, "DownloadLatencyByHost");
+            assertEquals(1, byHost.size());
+
+            server.invoke(name, "reset", null, null);
+            assertEquals(0L, server.getAttribute(name, "MemoryCacheHits"));
+        } finally {
+            stats.unregisterMBean();
+        }
+        assertFalse(server.isRegistered(name));
+    }
+}
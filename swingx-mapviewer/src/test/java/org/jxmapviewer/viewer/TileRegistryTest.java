@@ -0,0 +1,72 @@
+package org.jxmapviewer.viewer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TileRegistryTest {
+
+    @Test
+    public void testKeys() {
+        assertNotEquals(TileRegistry.key(1, 2, 3), TileRegistry.key(2, 1, 3));
+        assertNotEquals(TileRegistry.key(1, 2, 3), TileRegistry.key(1, 2, 4));
+        assertNotEquals(TileRegistry.key(-1, 2, 3), TileRegistry.key(1, 2, 3));
+    }
+
+    @Test
+    public void testPutGetRemove() {
+        TileRegistry registry = new TileRegistry(1000);
+        Map<Long, Tile> expected = new HashMap<Long, Tile>();
+        Random random = new Random(7);
+        for (int i = 0; i < 1000; i++) {
+            Tile tile = new Tile(random.nextInt(1 << 17), random.nextInt(1 << 17), random.nextInt(18));
+            long key = TileRegistry.key(tile);
+            if (!expected.containsKey(key)) {
+                assertNull(registry.putIfAbsent(key, tile));
+                expected.put(key, tile);
+            }
+        }
+        assertEquals(expected.size(), registry.size());
+        int n = 0;
+        for (Map.Entry<Long, Tile> e : expected.entrySet()) {
+            assertSame(e.getValue(), registry.get(e.getKey()));
+            if (n++ % 2 == 0) {
+                assertFalse(registry.remove(e.getKey(), new Tile(0, 0, 0)));
+                assertTrue(registry.remove(e.getKey(), e.getValue()));
+                assertNull(registry.get(e.getKey()));
+            }
+        }
+        // the remaining ones are still found after moving entries back on removal
+        n = 0;
+        for (Map.Entry<Long, Tile> e : expected.entrySet()) {
+            if (n++ % 2 == 1) {
+                assertSame(e.getValue(), registry.get(e.getKey()));
+            }
+        }
+        assertEquals(expected.size() / 2, registry.size());
+    }
+
+    @Test
+    public void testEvictsUnusedTiles() {
+        TileRegistry registry = new TileRegistry(8);
+        Tile kept = new Tile(0, 0, 1);
+        registry.putIfAbsent(TileRegistry.key(kept), kept);
+        for (int i = 1; i < 100; i++) {
+            registry.get(TileRegistry.key(kept));
+            Tile tile = new Tile(i, 0, 1);
+            assertNull(registry.putIfAbsent(TileRegistry.key(tile), tile));
+            assertTrue(registry.size() <= 8);
+        }
+        assertEquals(8, registry.size());
+        assertSame(kept, registry.get(TileRegistry.key(kept)));
+    }
+}
@@ -0,0 +1,55 @@
+package org.jxmapviewer.viewer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class WaypointIndexTest {
+
+    @Test
+    public void testQuery() {
+        WaypointIndex<DefaultWaypoint> index = new WaypointIndex<DefaultWaypoint>(0.5);
+        Random random = new Random(42);
+        Set<DefaultWaypoint> inside = new HashSet<DefaultWaypoint>();
+        for (int i = 0; i < 10000; i++) {
+            DefaultWaypoint w = new DefaultWaypoint(random.nextDouble() * 170 - 85, random.nextDouble() * 360 - 180);
+            index.add(w);
+            GeoPosition p = w.getPosition();
+            if (p.getLatitude() >= 40 && p.getLatitude() <= 52 && p.getLongitude() >= -3 && p.getLongitude() <= 15.5) {
+                inside.add(w);
+            }
+        }
+        assertEquals(10000, index.size());
+        assertEquals(inside, new HashSet<DefaultWaypoint>(index.query(40, -3, 52, 15.5)));
+        assertEquals(10000, index.query(-90, -180, 90, 180).size());
+        assertTrue(index.query(10, 10, 5, 20).isEmpty());
+    }
+
+    @Test
+    public void testAddMoveRemove() {
+        WaypointIndex<DefaultWaypoint> index = new WaypointIndex<DefaultWaypoint>();
+        DefaultWaypoint w = new DefaultWaypoint(50.11, 8.68);
+        assertTrue(index.add(w));
+        assertFalse(index.add(w));
+        assertEquals(1, index.query(50, 8, 51, 9).size());
+
+        w.setPosition(new GeoPosition(48.14, 11.58));
+        index.update(w);
+        assertTrue(index.query(50, 8, 51, 9).isEmpty());
+        List<DefaultWaypoint> found = index.query(48, 11, 49, 12);
+        assertEquals(1, found.size());
+        assertEquals(w, found.get(0));
+
+        assertTrue(index.remove(w));
+        assertFalse(index.remove(w));
+        assertEquals(0, index.size());
+        assertTrue(index.query(-90, -180, 90, 180).isEmpty());
+    }
+}
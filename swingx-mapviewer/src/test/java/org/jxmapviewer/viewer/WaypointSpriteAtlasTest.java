@@ -0,0 +1,65 @@
+package org.jxmapviewer.viewer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.swing.Icon;
+
+import org.junit.Test;
+
+public class WaypointSpriteAtlasTest {
+
+    static class CountingIcon implements Icon {
+        final AtomicInteger paints = new AtomicInteger();
+
+        @Override
+        public void paintIcon(Component c, Graphics g, int x, int y) {
+            paints.incrementAndGet();
+            g.setColor(Color.RED);
+            g.fillOval(x, y, 10, 10);
+        }
+
+        @Override
+        public int getIconWidth() {
+            return 10;
+        }
+
+        @Override
+        public int getIconHeight() {
+            return 10;
+        }
+    }
+
+    @Test
+    public void testRasterisedOncePerScale() {
+        WaypointSpriteAtlas atlas = new WaypointSpriteAtlas();
+        CountingIcon icon = new CountingIcon();
+        BufferedImage target = new BufferedImage(100, 100, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = target.createGraphics();
+
+        WaypointSpriteAtlas.Sprite sprite = atlas.getSprite(g, icon, 5, 10, null);
+        for (int i = 0; i < 10; i++) {
+            assertSame(sprite, atlas.getSprite(g, icon, 5, 10, null));
+            sprite.paint(g, 20 + i, 20);
+        }
+        assertEquals(1, icon.paints.get());
+        assertEquals(10, sprite.getImage().getWidth());
+        assertEquals(Color.RED.getRGB(), target.getRGB(20, 15));
+
+        g.scale(2, 2);
+        WaypointSpriteAtlas.Sprite hidpi = atlas.getSprite(g, icon, 5, 10, null);
+        assertNotSame(sprite, hidpi);
+        assertEquals(20, hidpi.getImage().getWidth());
+        assertEquals(2, icon.paints.get());
+        assertEquals(2, atlas.size());
+        g.dispose();
+    }
+}